@@ -4,7 +4,6 @@ import android.content.Intent;
 import android.database.Cursor;
 import android.os.Bundle;
 import android.provider.MediaStore;
-import android.support.annotation.IntRange;
 import android.support.annotation.Nullable;
 import android.support.v7.app.AppCompatActivity;
 import android.support.v7.widget.AppCompatSpinner;
@@ -19,10 +18,8 @@ import android.widget.TextView;
 import com.matsdevelopsolutions.service.audiomediaservicelib.IntentGenerator;
 import com.matsdevelopsolutions.service.audiomediaservicelib.MediaInfo;
 import com.matsdevelopsolutions.service.audiomediaservicelib.MediaPlayerState;
-import com.matsdevelopsolutions.service.audiomediaservicelib.receiver.MediaBufferProgressBroadcastReceiver;
-import com.matsdevelopsolutions.service.audiomediaservicelib.receiver.MediaInfoBroadcastReceiver;
-import com.matsdevelopsolutions.service.audiomediaservicelib.receiver.MediaPositionBroadcastReceiver;
-import com.matsdevelopsolutions.service.audiomediaservicelib.receiver.PlayerStateBroadcastReceiver;
+import com.matsdevelopsolutions.service.audiomediaservicelib.PositionAnchor;
+import com.matsdevelopsolutions.service.audiomediaservicelib.receiver.MediaPlayerEventReceiver;
 
 import butterknife.Bind;
 import butterknife.ButterKnife;
@@ -40,16 +37,25 @@ public class MainPlayerActivity extends AppCompatActivity {
     @Bind(R.id.media_seekbar)
     SeekBar seekBar;
 
+    /**
+     * Seekbar refresh interval, position is extrapolated locally so no service communication per frame.
+     */
+    private static final int PROGRESS_FRAME_INTERVAL = 16;
+
     private int mediaPosition = 0;
     private int mediaDuration = 0;
 
-    private MediaInfoBroadcastReceiver mediaInfoBroadcastReceiver = new MediaInfoBroadcastReceiver() {
+    private MediaPlayerEventReceiver playerEventReceiver = new MediaPlayerEventReceiver() {
         @Override
         public void onMediaInfoChanged(@Nullable MediaInfo mediaInfo) {
             streamName.setText(mediaInfo.title);
         }
-    };
-    private MediaPositionBroadcastReceiver mediaPositionBroadcastReceiver = new MediaPositionBroadcastReceiver() {
+
+        @Override
+        public void onPlayerStateChanged(MediaPlayerState playerState) {
+            updateState(playerState);
+        }
+
         @Override
         public void onCurrentPositionChanged(int currentPosition, int duration) {
             mediaPosition = currentPosition;
@@ -57,17 +63,26 @@ public class MainPlayerActivity extends AppCompatActivity {
             seekBar.setProgress((int) ((float) currentPosition / (float) duration * 1000));
             // todo add text time display
         }
-    };
-    private PlayerStateBroadcastReceiver playerStateBroadcastReceiver = new PlayerStateBroadcastReceiver() {
+
         @Override
-        protected void onPlayerStateChanged(MediaPlayerState playerState) {
-            updateState(playerState);
+        public void onPositionAnchorChanged(PositionAnchor anchor) {
+            if (anchor.getDuration() > 0) {
+                onCurrentPositionChanged(anchor.getPosition(), anchor.getDuration());
+            }
+            seekBar.removeCallbacks(progressUpdate);
+            if (anchor.getRate() > 0) {
+                seekBar.postDelayed(progressUpdate, PROGRESS_FRAME_INTERVAL);
+            }
         }
     };
-    private MediaBufferProgressBroadcastReceiver mediaBufferProgressBroadcastReceiver = new MediaBufferProgressBroadcastReceiver() {
+    private final Runnable progressUpdate = new Runnable() {
         @Override
-        public void onBufferProgressChanged(@IntRange(from = 0, to = 100) int progress) {
-
+        public void run() {
+            int position = playerEventReceiver.getCurrentPosition();
+            if (position >= 0 && mediaDuration > 0) {
+                seekBar.setProgress((int) ((float) position / (float) mediaDuration * 1000));
+            }
+            seekBar.postDelayed(this, PROGRESS_FRAME_INTERVAL);
         }
     };
 
@@ -209,20 +224,16 @@ public class MainPlayerActivity extends AppCompatActivity {
     }
 
     private void unregisterServiceBroadcasters() {
-        unregisterReceiver(mediaInfoBroadcastReceiver);
-        unregisterReceiver(mediaPositionBroadcastReceiver);
-        unregisterReceiver(mediaBufferProgressBroadcastReceiver);
-        unregisterReceiver(playerStateBroadcastReceiver);
+        MediaPlayerEventReceiver.unregister(this, playerEventReceiver);
+        seekBar.removeCallbacks(progressUpdate);
     }
 
     /**
      * Initialize service broadcasters.
      */
     private void registerServiceBroadcasters() {
-        MediaBufferProgressBroadcastReceiver.register(this, mediaBufferProgressBroadcastReceiver);
-        PlayerStateBroadcastReceiver.register(this, playerStateBroadcastReceiver);
-        MediaPositionBroadcastReceiver.register(this, mediaPositionBroadcastReceiver);
-        MediaInfoBroadcastReceiver.register(this, mediaInfoBroadcastReceiver);
+        // position anchors only, seekbar position is extrapolated
+        MediaPlayerEventReceiver.register(this, playerEventReceiver, 0);
     }
 
     private void playStream(MediaInfo mediaInfo) {
@@ -0,0 +1,106 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import android.os.SystemClock;
+import android.test.ServiceTestCase;
+import android.test.suitebuilder.annotation.LargeTest;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Drives {@link PlayerController#play()} through the command queue of {@link AudioMediaService}.
+ */
+public class AudioMediaServicePlayTest extends ServiceTestCase<AudioMediaService> {
+
+    private static final long STATE_TIMEOUT = 10000;
+    private static final int SAMPLE_RATE = 8000;
+
+    private File media;
+
+    public AudioMediaServicePlayTest() {
+        super(AudioMediaService.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        // session of previous test is not restored
+        new File(getContext().getFilesDir(), AudioMediaService.SESSION_FILE_NAME).delete();
+        media = new File(getContext().getCacheDir(), "silence.wav");
+        writeSilence(media, 5);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        media.delete();
+        super.tearDown();
+    }
+
+    @LargeTest
+    public void testPlayWithoutMediaIsIgnored() {
+        PlayerController controller = (PlayerController) bindService(IntentGenerator.createBindIntent(getContext()));
+        controller.play();
+        SystemClock.sleep(500);
+        assertEquals(MediaPlayerState.IDLE, controller.getPlayerState());
+        assertNull(controller.getMediaInfo());
+    }
+
+    @LargeTest
+    public void testPlayStartsCurrentMedia() {
+        PlayerController controller = (PlayerController) bindService(IntentGenerator.createBindIntent(getContext()));
+        startService(IntentGenerator.createPlayIntent(getContext(), media.getAbsolutePath(), "Silence", null, null,
+                false, false, AudioMediaService.DEFAULT_NOTIFICATION_FLAG, AudioMediaService.FLAG_NOTIFICATION_STYLE_COMPACT));
+        waitForState(controller, MediaPlayerState.PREPARED);
+
+        controller.play();
+        waitForState(controller, MediaPlayerState.STARTED);
+
+        controller.pause();
+        waitForState(controller, MediaPlayerState.PAUSED);
+        controller.play();
+        waitForState(controller, MediaPlayerState.STARTED);
+
+        controller.stop();
+        waitForState(controller, MediaPlayerState.STOPPED);
+        controller.play();
+        waitForState(controller, MediaPlayerState.STARTED);
+        assertEquals(media.getAbsolutePath(), controller.getMediaInfo().streamUrl);
+    }
+
+    private static void waitForState(PlayerController controller, MediaPlayerState state) {
+        long deadline = SystemClock.elapsedRealtime() + STATE_TIMEOUT;
+        while (controller.getPlayerState() != state) {
+            if (SystemClock.elapsedRealtime() > deadline) {
+                fail(String.format("Expected state %s, was %s", state, controller.getPlayerState()));
+            }
+            SystemClock.sleep(50);
+        }
+    }
+
+    /**
+     * Writes mono 16 bit PCM wave file of silence.
+     */
+    private static void writeSilence(File file, int seconds) throws IOException {
+        int dataSize = SAMPLE_RATE * 2 * seconds;
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+        try {
+            out.writeBytes("RIFF");
+            out.writeInt(Integer.reverseBytes(36 + dataSize));
+            out.writeBytes("WAVEfmt ");
+            out.writeInt(Integer.reverseBytes(16));
+            out.writeShort(Short.reverseBytes((short) 1));
+            out.writeShort(Short.reverseBytes((short) 1));
+            out.writeInt(Integer.reverseBytes(SAMPLE_RATE));
+            out.writeInt(Integer.reverseBytes(SAMPLE_RATE * 2));
+            out.writeShort(Short.reverseBytes((short) 2));
+            out.writeShort(Short.reverseBytes((short) 16));
+            out.writeBytes("data");
+            out.writeInt(Integer.reverseBytes(dataSize));
+            out.write(new byte[dataSize]);
+        } finally {
+            out.close();
+        }
+    }
+}
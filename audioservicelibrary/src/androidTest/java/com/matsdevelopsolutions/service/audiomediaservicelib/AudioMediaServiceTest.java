@@ -9,6 +9,7 @@ import android.test.suitebuilder.annotation.LargeTest;
 
 import com.matsdevelopsolutions.service.audiomediaservicelib.receiver.MediaBufferProgressBroadcastReceiver;
 import com.matsdevelopsolutions.service.audiomediaservicelib.receiver.MediaInfoBroadcastReceiver;
+import com.matsdevelopsolutions.service.audiomediaservicelib.receiver.MediaPlayerEventReceiver;
 import com.matsdevelopsolutions.service.audiomediaservicelib.receiver.MediaPositionBroadcastReceiver;
 import com.matsdevelopsolutions.service.audiomediaservicelib.receiver.PlayerStateBroadcastReceiver;
 
@@ -91,10 +92,37 @@ public class AudioMediaServiceTest extends AndroidTestCase {
         };
         Intent intent = new Intent(PlayerStateBroadcastReceiver.getIntentFilter().getAction(0));
         MediaPlayerState state = MediaPlayerState.PREPARING;
-        intent.putExtra(IntentBroadcaster.MEDIA_STATUS_ARG, state);
+        intent.putExtra(IntentBroadcaster.MEDIA_STATE_ORDINAL_ARG, state.ordinal());
         receiver.onReceive(context, intent);
     }
 
+    @LargeTest
+    public void testPlayerEventReceiverTestCase() {
+        final int[] received = new int[2];
+        MediaPlayerEventReceiver receiver = new MediaPlayerEventReceiver() {
+            @Override
+            public void onPlayerStateChanged(MediaPlayerState playerState) {
+                assertEquals(MediaPlayerState.STARTED, playerState);
+                received[0]++;
+            }
+
+            @Override
+            public void onCurrentPositionChanged(int currentPosition, int duration) {
+                assertEquals(482, currentPosition);
+                received[1]++;
+            }
+        };
+        Intent stateIntent = new Intent(IntentBroadcaster.ACTION_STATE_CHANGE);
+        stateIntent.putExtra(IntentBroadcaster.MEDIA_STATE_ORDINAL_ARG, MediaPlayerState.STARTED.ordinal());
+        receiver.onReceive(context, stateIntent);
+        Intent positionIntent = new Intent(IntentBroadcaster.ACTION_CURRENT_POSITION_CHANGE);
+        positionIntent.putExtra(IntentBroadcaster.CURRENT_POSITION_ARG, 482);
+        positionIntent.putExtra(IntentBroadcaster.MEDIA_DURATION_ARG, 34430);
+        receiver.onReceive(context, positionIntent);
+        assertEquals(1, received[0]);
+        assertEquals(1, received[1]);
+    }
+
     @Override
     protected void setUp() throws Exception {
         super.setUp();
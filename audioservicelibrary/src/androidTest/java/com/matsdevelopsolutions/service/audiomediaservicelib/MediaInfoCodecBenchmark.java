@@ -0,0 +1,103 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.util.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares encode and decode time and size of {@link MediaInfoCodec} and Java serialization for a large queue.
+ */
+public class MediaInfoCodecBenchmark extends AndroidTestCase {
+
+    private static final String TAG = MediaInfoCodecBenchmark.class.getSimpleName();
+    private static final int QUEUE_SIZE = 10000;
+    private static final int ITERATIONS = 10;
+
+    @LargeTest
+    public void testCodecFasterThanSerializable() throws IOException, ClassNotFoundException {
+        List<MediaInfo> queue = new ArrayList<>();
+        ArrayList<SerializableMediaInfo> serializableQueue = new ArrayList<>();
+        for (int i = 0; i < QUEUE_SIZE; i++) {
+            MediaInfo mediaInfo = new MediaInfo();
+            mediaInfo.title = "Episode " + i;
+            mediaInfo.description = "Podcast";
+            mediaInfo.artUri = "http://example.com/art.jpg";
+            mediaInfo.streamUrl = "http://example.com/episode" + i + ".mp3";
+            queue.add(mediaInfo);
+            serializableQueue.add(new SerializableMediaInfo(mediaInfo));
+        }
+        // warm up
+        MediaInfoCodec.decode(MediaInfoCodec.encode(queue));
+        deserialize(serialize(serializableQueue));
+
+        long encodeNanos = 0;
+        long decodeNanos = 0;
+        long serializeNanos = 0;
+        long deserializeNanos = 0;
+        byte[] encoded = null;
+        byte[] serialized = null;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            encoded = MediaInfoCodec.encode(queue);
+            encodeNanos += System.nanoTime() - start;
+            start = System.nanoTime();
+            MediaInfoCodec.decode(encoded);
+            decodeNanos += System.nanoTime() - start;
+            start = System.nanoTime();
+            serialized = serialize(serializableQueue);
+            serializeNanos += System.nanoTime() - start;
+            start = System.nanoTime();
+            deserialize(serialized);
+            deserializeNanos += System.nanoTime() - start;
+        }
+        Log.i(TAG, String.format("Queue of %d: codec encode = %.2fms, decode = %.2fms, size = %d; " +
+                        "serializable write = %.2fms, read = %.2fms, size = %d", QUEUE_SIZE,
+                encodeNanos / 1e6 / ITERATIONS, decodeNanos / 1e6 / ITERATIONS, encoded.length,
+                serializeNanos / 1e6 / ITERATIONS, deserializeNanos / 1e6 / ITERATIONS, serialized.length));
+        assertTrue(encoded.length < serialized.length);
+        assertTrue(encodeNanos + decodeNanos < serializeNanos + deserializeNanos);
+    }
+
+    private static byte[] serialize(ArrayList<SerializableMediaInfo> queue) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(queue);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] data) throws IOException, ClassNotFoundException {
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data));
+        try {
+            return in.readObject();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Media info as it was sent before {@link MediaInfoCodec}.
+     */
+    private static class SerializableMediaInfo implements Serializable {
+        final String title;
+        final String description;
+        final String artUri;
+        final String streamUrl;
+
+        SerializableMediaInfo(MediaInfo mediaInfo) {
+            title = mediaInfo.title;
+            description = mediaInfo.description;
+            artUri = mediaInfo.artUri;
+            streamUrl = mediaInfo.streamUrl;
+        }
+    }
+}
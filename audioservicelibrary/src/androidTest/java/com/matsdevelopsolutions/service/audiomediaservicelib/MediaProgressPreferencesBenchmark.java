@@ -0,0 +1,121 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Compares preference file writes per hour of playback when progress is written on every position tick
+ * and when it is written behind in batches.
+ * Every write rewrites and syncs the whole preferences file, so bytes written are writes times file size.
+ * Also measures batch progress queries used to bind media lists.
+ */
+public class MediaProgressPreferencesBenchmark extends AndroidTestCase {
+
+    private static final String TAG = MediaProgressPreferencesBenchmark.class.getSimpleName();
+    private static final String PREFERENCES_NAME = TAG;
+    private static final int LIBRARY_SIZE = 1000;
+    private static final long HOUR = 60 * 60 * 1000;
+    private static final long TICK_INTERVAL = 500;
+    private static final long FLUSH_INTERVAL = 60 * 1000;
+    private static final long PAUSE_INTERVAL = 10 * 60 * 1000;
+    private static final int QUERY_SIZE = 3000;
+    private static final int QUERY_REPEATS = 50;
+
+    @LargeTest
+    public void testWriteBehindWritesLess() {
+        SharedPreferences sharedPreferences = getContext().getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        MediaProgressPreferences preferences = new MediaProgressPreferences(sharedPreferences);
+        for (int i = 0; i < LIBRARY_SIZE; i++) {
+            preferences.putProgress("http://example.com/episode" + i + ".mp3", i * 1000);
+        }
+        preferences.flush();
+        try {
+            int tickWrites = simulateHour(preferences, true);
+            int batchWrites = simulateHour(preferences, false);
+            long fileSize = getPreferencesFile().length();
+            Log.i(TAG, String.format("Hour of playback, library of %d: per tick writes = %d, %d bytes; " +
+                            "write behind writes = %d, %d bytes; file = %d bytes",
+                    LIBRARY_SIZE, tickWrites, tickWrites * fileSize, batchWrites, batchWrites * fileSize, fileSize));
+            assertTrue(batchWrites * 10 < tickWrites);
+        } finally {
+            sharedPreferences.edit().clear().commit();
+            getPreferencesFile().delete();
+        }
+    }
+
+    @LargeTest
+    public void testBatchQueryBindsListQuickly() throws IOException {
+        SharedPreferences sharedPreferences = getContext().getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        File logFile = new File(getContext().getFilesDir(), TAG + ".log");
+        MediaProgressPreferences preferences = new MediaProgressPreferences(sharedPreferences, QUERY_SIZE, 0);
+        MappedProgressStore mappedStore = MappedProgressStore.open(logFile, null, QUERY_SIZE, 0);
+        String[] urls = new String[QUERY_SIZE];
+        for (int i = 0; i < QUERY_SIZE; i++) {
+            urls[i] = "http://example.com/episode" + i + ".mp3";
+            preferences.putProgress(urls[i], i * 1000);
+            mappedStore.putProgress(urls[i], i * 1000);
+        }
+        preferences.flush();
+        try {
+            long preferencesTime = measureBatchQuery(preferences, urls);
+            long mappedTime = measureBatchQuery(mappedStore, urls);
+            Log.i(TAG, String.format("Batch query of %d urls: preferences = %d us, mapped log = %d us",
+                    QUERY_SIZE, preferencesTime / 1000, mappedTime / 1000));
+            assertTrue(mappedTime < 1000 * 1000);
+        } finally {
+            mappedStore.close();
+            logFile.delete();
+            sharedPreferences.edit().clear().commit();
+            getPreferencesFile().delete();
+        }
+    }
+
+    /**
+     * Measures average time of progress and recently played query of all urls.
+     *
+     * @return query time in nanoseconds
+     */
+    private long measureBatchQuery(ProgressStore store, String[] urls) {
+        int[] positions = new int[urls.length];
+        int[] recent = new int[20];
+        // warm up
+        store.getProgress(urls, positions);
+        store.getRecentlyPlayed(urls, recent);
+        long start = System.nanoTime();
+        for (int i = 0; i < QUERY_REPEATS; i++) {
+            store.getProgress(urls, positions);
+            store.getRecentlyPlayed(urls, recent);
+        }
+        return (System.nanoTime() - start) / QUERY_REPEATS;
+    }
+
+    /**
+     * Simulates progress saves of an hour of playback paused every ten minutes.
+     *
+     * @return number of preference file writes
+     */
+    private int simulateHour(MediaProgressPreferences preferences, boolean writeEveryTick) {
+        int startWrites = preferences.getWriteCount();
+        String url = "http://example.com/episode0.mp3";
+        long lastFlush = 0;
+        for (long time = 0; time < HOUR; time += TICK_INTERVAL) {
+            preferences.putProgress(url, (int) time);
+            if (writeEveryTick || time - lastFlush >= FLUSH_INTERVAL || time % PAUSE_INTERVAL == 0) {
+                preferences.flush();
+                lastFlush = time;
+            }
+        }
+        preferences.flush();
+        return preferences.getWriteCount() - startWrites;
+    }
+
+    private File getPreferencesFile() {
+        return new File(getContext().getApplicationInfo().dataDir, "shared_prefs/" + PREFERENCES_NAME + ".xml");
+    }
+}
@@ -0,0 +1,83 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.util.Log;
+
+import com.matsdevelopsolutions.service.audiomediaservicelib.receiver.MediaPositionBroadcastReceiver;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares event throughput of in process {@link PlayerEventBus} and system broadcasts.
+ */
+public class PlayerEventBusBenchmark extends AndroidTestCase {
+
+    private static final String TAG = PlayerEventBusBenchmark.class.getSimpleName();
+    private static final int EVENT_COUNT = 2000;
+
+    @LargeTest
+    public void testEventBusFasterThanBroadcast() throws InterruptedException {
+        double busRate = measureEventBus();
+        double broadcastRate = measureBroadcast();
+        Log.i(TAG, String.format("Position events per second: event bus = %.0f, broadcast = %.0f", busRate, broadcastRate));
+        assertTrue(busRate > broadcastRate);
+    }
+
+    private double measureEventBus() throws InterruptedException {
+        HandlerThread thread = new HandlerThread(TAG);
+        thread.start();
+        final CountDownLatch received = new CountDownLatch(EVENT_COUNT);
+        PlayerEventListener listener = new PlayerEventAdapter() {
+            @Override
+            public void onPositionChanged(int currentPosition, int duration) {
+                received.countDown();
+            }
+        };
+        IntentBroadcaster broadcaster = new IntentBroadcaster(getContext());
+        PlayerEventBus.getInstance().subscribe(listener, new Handler(thread.getLooper()));
+        try {
+            long start = System.nanoTime();
+            for (int i = 0; i < EVENT_COUNT; i++) {
+                broadcaster.currentPosition(i, EVENT_COUNT);
+            }
+            assertTrue(received.await(60, TimeUnit.SECONDS));
+            return EVENT_COUNT / ((System.nanoTime() - start) / 1e9);
+        } finally {
+            PlayerEventBus.getInstance().unsubscribe(listener);
+            thread.quit();
+        }
+    }
+
+    private double measureBroadcast() throws InterruptedException {
+        HandlerThread thread = new HandlerThread(TAG);
+        thread.start();
+        final CountDownLatch received = new CountDownLatch(EVENT_COUNT);
+        BroadcastReceiver receiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                received.countDown();
+            }
+        };
+        IntentBroadcaster broadcaster = new IntentBroadcaster(getContext());
+        broadcaster.setCrossProcessEnabled(true);
+        getContext().registerReceiver(receiver, MediaPositionBroadcastReceiver.getIntentFilter(), null, new Handler(thread.getLooper()));
+        try {
+            long start = System.nanoTime();
+            for (int i = 0; i < EVENT_COUNT; i++) {
+                broadcaster.currentPosition(i, EVENT_COUNT);
+            }
+            assertTrue(received.await(60, TimeUnit.SECONDS));
+            return EVENT_COUNT / ((System.nanoTime() - start) / 1e9);
+        } finally {
+            getContext().unregisterReceiver(receiver);
+            thread.quit();
+        }
+    }
+}
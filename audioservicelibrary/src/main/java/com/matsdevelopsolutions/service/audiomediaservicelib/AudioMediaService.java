@@ -1,5 +1,6 @@
 package com.matsdevelopsolutions.service.audiomediaservicelib;
 
+import android.annotation.TargetApi;
 import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
@@ -7,22 +8,45 @@ import android.media.AudioManager;
 import android.media.MediaPlayer;
 import android.net.Uri;
 import android.net.wifi.WifiManager;
+import android.os.Binder;
+import android.os.Build;
+import android.os.Bundle;
 import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.IBinder;
+import android.os.Looper;
+import android.os.Message;
+import android.os.MessageQueue;
+import android.os.Messenger;
 import android.os.PowerManager;
+import android.os.Process;
+import android.os.RemoteException;
+import android.os.SystemClock;
 import android.support.annotation.Nullable;
 import android.util.Log;
 
+import com.matsdevelopsolutions.service.audiomediaservicelib.cache.CacheStats;
+import com.matsdevelopsolutions.service.audiomediaservicelib.cache.StreamCache;
+import com.matsdevelopsolutions.service.audiomediaservicelib.cache.StreamProxy;
+
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Audio service that keep instance of MediaPlayer to play a audio stream.
  * Interaction with AudioMediaService happens through Intent calls.
+ * MediaPlayer is owned by a dedicated playback thread, commands and player callbacks are executed on it in order.
  * Notification branding and action flags are also passed through Intent calls.
  */
 public class AudioMediaService extends Service
         implements MediaPlayer.OnCompletionListener, MediaPlayer.OnErrorListener,
-        MediaPlayer.OnInfoListener, MediaPlayer.OnSeekCompleteListener, AudioManager.OnAudioFocusChangeListener, MediaPlayer.OnPreparedListener {
+        MediaPlayer.OnInfoListener, MediaPlayer.OnSeekCompleteListener, AudioManager.OnAudioFocusChangeListener, MediaPlayer.OnPreparedListener,
+        MediaPlayer.OnBufferingUpdateListener {
 
     /**
      * Action's name prepended with this package name.
@@ -81,6 +105,64 @@ public class AudioMediaService extends Service
      * Intent action name to change volume.
      */
     public static final String ACTION_CHANGE_VOLUME = PACKAGE_NAME + "AudioMediaService.CHANGE_VOLUME";
+    /**
+     * Intent action to add media to playback queue, it will be played after current media completes.
+     * Required Extras:
+     * {@link #SOURCE_URL_ARG} - Media Url
+     * Optional parameter:
+     * {@link #SOURCE_TITLE_ARG} - Media title
+     * {@link #SOURCE_DESC_ARG} - Media description
+     * {@link #SOURCE_ART_URI_ARG} - Media art URI - local file or url
+     */
+    public static final String ACTION_ENQUEUE = PACKAGE_NAME + "AudioMediaService.ENQUEUE";
+    /**
+     * Intent action to add batch of media to playback queue.
+     * Required Extras:
+     * {@link #MEDIA_INFO_BATCH_ARG} - media batch encoded with {@link MediaInfoCodec}
+     */
+    public static final String ACTION_ENQUEUE_BATCH = PACKAGE_NAME + "AudioMediaService.ENQUEUE_BATCH";
+    /**
+     * Intent action to remove all upcoming media from playback queue.
+     */
+    public static final String ACTION_CLEAR_QUEUE = PACKAGE_NAME + "AudioMediaService.CLEAR_QUEUE";
+    /**
+     * Intent action to subscribe for position updates at given interval, replaces previous interval of subscriber.
+     * Position is broadcast at the fastest interval requested by subscribers, not broadcast without subscribers.
+     * Required Extras:
+     * {@link #POSITION_SUBSCRIBER_ID_ARG} - subscriber id
+     * Optional parameter:
+     * {@link #POSITION_UPDATE_INTERVAL_ARG} - update interval in milliseconds
+     */
+    public static final String ACTION_SUBSCRIBE_POSITION = PACKAGE_NAME + "AudioMediaService.SUBSCRIBE_POSITION";
+    /**
+     * Intent action to cancel position updates subscription.
+     * Required Extras:
+     * {@link #POSITION_SUBSCRIBER_ID_ARG} - subscriber id
+     */
+    public static final String ACTION_UNSUBSCRIBE_POSITION = PACKAGE_NAME + "AudioMediaService.UNSUBSCRIBE_POSITION";
+    /**
+     * Intent action to enable or disable cross process broadcasts of service events.
+     * Events are always delivered to in process listeners through {@link PlayerEventBus},
+     * system broadcasts are sent only when enabled - disabled by default.
+     * Required Extras:
+     * {@link #BROADCAST_ENABLED_ARG} - true to enable broadcasts
+     */
+    public static final String ACTION_BROADCAST_MODE = PACKAGE_NAME + "AudioMediaService.BROADCAST_MODE";
+    /**
+     * Bind intent action that returns {@link android.os.Messenger} binder for use across processes,
+     * other bind intents return {@link PlayerController} binder.
+     */
+    public static final String ACTION_BIND_MESSENGER = PACKAGE_NAME + "AudioMediaService.BIND_MESSENGER";
+    /**
+     * Default position update interval in milliseconds.
+     */
+    public static final int POSITION_UPDATE_INTERVAL_DEFAULT = 500;
+    /**
+     * Time in milliseconds after which position subscription expires unless it is renewed by subscribing again.
+     * {@link com.matsdevelopsolutions.service.audiomediaservicelib.receiver.MediaPositionBroadcastReceiver}
+     * renews its subscription while it receives events.
+     */
+    public static final int POSITION_SUBSCRIPTION_TIMEOUT = 60 * 1000;
     /**
      * Media player volume argument.
      */
@@ -101,6 +183,10 @@ public class AudioMediaService extends Service
      * Media source art/icon URI extras name.
      */
     static final String SOURCE_ART_URI_ARG = "SOURCE_ART_URI_ARG";
+    /**
+     * Media batch encoded with {@link MediaInfoCodec} - Intent extra argument.
+     */
+    static final String MEDIA_INFO_BATCH_ARG = "MEDIA_INFO_BATCH_ARG";
     /**
      * Media source seek position in seconds extras name.
      */
@@ -125,6 +211,18 @@ public class AudioMediaService extends Service
      * Notification configuration flag extras name.
      */
     static final String NOTIFICATION_CONFIG_FLAG_ARG = "NOTIFICATION_CONFIG_FLAG_ARG";
+    /**
+     * Position updates subscriber id extras name.
+     */
+    static final String POSITION_SUBSCRIBER_ID_ARG = "POSITION_SUBSCRIBER_ID_ARG";
+    /**
+     * Position update interval in milliseconds extras name.
+     */
+    static final String POSITION_UPDATE_INTERVAL_ARG = "POSITION_UPDATE_INTERVAL_ARG";
+    /**
+     * Cross process broadcast flag extras name.
+     */
+    static final String BROADCAST_ENABLED_ARG = "BROADCAST_ENABLED_ARG";
     /**
      * Notification style normal - Notification style flag.
      */
@@ -163,34 +261,255 @@ public class AudioMediaService extends Service
     private static final String TAG = AudioMediaService.class.getSimpleName();
 
     /**
-     * Default position update timespan.
+     * Interval of progress checkpoints while media is playing.
      */
-    private static final int POSITION_UPDATE_TIMESPAN_DEFAULT = 500; //ms
+    private static final int PROGRESS_SAVE_INTERVAL = 500; //ms
+    /**
+     * Minimum buffer progress change published to clients, in percents.
+     */
+    private static final int BUFFER_PROGRESS_MIN_DELTA = 2;
+    /**
+     * Minimum interval between published buffer progress events.
+     */
+    private static final int BUFFER_PROGRESS_MIN_INTERVAL = 250; //ms
     private static final float VOLUME_MUTED = 0f;
     private static final long STOP_DELAY_TIMER = 60 * 1000;
+    /**
+     * Default size of remote streams disk cache.
+     */
+    private static final long STREAM_CACHE_SIZE_DEFAULT = 100 * 1024 * 1024;
+    /**
+     * Default number of idle media players kept ready.
+     */
+    private static final int PLAYER_POOL_SIZE_DEFAULT = 2;
+    /**
+     * Default interval of writing playback progress to disk.
+     */
+    private static final long PROGRESS_FLUSH_INTERVAL_DEFAULT = 60 * 1000;
+    /**
+     * Remote streams cache directory name.
+     */
+    private static final String STREAM_CACHE_DIR = "audio-stream-cache";
+    /**
+     * Playback session snapshot file name.
+     */
+    static final String SESSION_FILE_NAME = "audio-session";
+    /**
+     * Playback thread message - drain queued commands.
+     */
+    private static final int MSG_COMMAND = 1;
+    /**
+     * Playback thread message - audio focus change.
+     */
+    private static final int MSG_AUDIO_FOCUS_CHANGE = 2;
+    /**
+     * Playback thread message - release player and stop playback thread.
+     */
+    private static final int MSG_SHUTDOWN = 3;
+    /**
+     * Media player info - rebuffering started, {@link MediaPlayer#MEDIA_INFO_BUFFERING_START} is not available on API 8.
+     */
+    private static final int MEDIA_INFO_BUFFERING_START = 701;
+    /**
+     * Media player info - rebuffering ended, {@link MediaPlayer#MEDIA_INFO_BUFFERING_END} is not available on API 8.
+     */
+    private static final int MEDIA_INFO_BUFFERING_END = 702;
+    /**
+     * Logs operations rejected because of player state.
+     */
+    private static final InvalidStateListener LOGGING_INVALID_STATE_LISTENER = new InvalidStateListener() {
+        @Override
+        public void onInvalidState(PlayerOperation operation, MediaPlayerState state) {
+            if (Log.isLoggable(TAG, Log.INFO)) {
+                Log.i(TAG, String.format("Operation %s not allowed at player state %s", operation, state));
+            }
+        }
+    };
+    /**
+     * Creates listener-wired media players for {@link #playerPool}.
+     */
+    private final MediaPlayerPool.Factory<MediaPlayer> playerFactory = new MediaPlayerPool.Factory<MediaPlayer>() {
+        @Override
+        public MediaPlayer createMediaPlayer() {
+            return AudioMediaService.this.createMediaPlayer();
+        }
+
+        @Override
+        public void resetMediaPlayer(MediaPlayer player) {
+            player.reset();
+        }
+
+        @Override
+        public void releaseMediaPlayer(MediaPlayer player) {
+            player.release();
+        }
+    };
+    /**
+     * Fills player pool when playback thread has nothing else to do.
+     */
+    private final MessageQueue.IdleHandler fillPlayerPool = new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+            playerPool.fill();
+            return false;
+        }
+    };
     private final Runnable stopService = new Runnable() {
         @Override
         public void run() {
-            if (playerNotAtStates("stopService", MediaPlayerState.PAUSED, MediaPlayerState.STARTED)) {
+            if (isAllowed(PlayerOperation.STOP_SERVICE)) {
                 Log.d(TAG, "After stop timeout closing AudioMediaService.");
                 stopSelf();
             }
         }
     };
+    /**
+     * Writes playback progress stored in memory to disk.
+     */
+    private final Runnable progressFlush = new Runnable() {
+        @Override
+        public void run() {
+            flushProgress();
+        }
+    };
+    /**
+     * Restores session of service restarted after process death.
+     */
+    private final Runnable sessionRestore = new Runnable() {
+        @Override
+        public void run() {
+            restoreSession();
+        }
+    };
     private final Runnable positionUpdate = new Runnable() {
         @Override
         public void run() {
             if (intentBroadcaster != null && mediaPlayer != null
-                    && playerAtStates("positionUpdate", MediaPlayerState.PAUSED, MediaPlayerState.STARTED, MediaPlayerState.STOPPED)) {
+                    && isAllowed(PlayerOperation.POSITION_UPDATE)) {
+                long startTime = System.nanoTime();
                 int currentPosition = mediaPlayer.getCurrentPosition();
-                Log.v(TAG, String.format("Media position change : %s", currentPosition));
-                if (mediaInfo != null) {
-                    mediaProgressPreferences.putProgress(mediaInfo.streamUrl, currentPosition);
+                if (Log.isLoggable(TAG, Log.VERBOSE)) {
+                    Log.v(TAG, String.format("Media position change : %s", currentPosition));
                 }
                 intentBroadcaster.currentPosition(currentPosition, mediaPlayer.getDuration());
                 if (isPositionUpdateActive) {
                     updatePositionBroadcast();
                 }
+                commandLatencyStats.recordTick(System.nanoTime() - startTime);
+            }
+        }
+    };
+    /**
+     * Stores progress of playing media periodically, independent of position subscribers,
+     * so playback in background doesn't lose its position when process is killed.
+     */
+    private final Runnable progressCheckpoint = new Runnable() {
+        @Override
+        public void run() {
+            if (mediaPlayer != null && playerState == MediaPlayerState.STARTED) {
+                saveProgress(mediaPlayer.getCurrentPosition());
+                playbackHandler.postDelayed(this, PROGRESS_SAVE_INTERVAL);
+            }
+        }
+    };
+    /**
+     * Restores position subscriptions of previous service instance, their subscribers renew them or they expire.
+     */
+    private final Runnable subscriptionRestore = new Runnable() {
+        @Override
+        public void run() {
+            SessionSnapshot snapshot = sessionStore.load();
+            if (snapshot == null || snapshot.positionSubscriptions.isEmpty()) {
+                return;
+            }
+            long now = SystemClock.elapsedRealtime();
+            for (Map.Entry<String, Integer> subscription : snapshot.positionSubscriptions.entrySet()) {
+                positionSubscriptions.subscribe(subscription.getKey(), subscription.getValue(), now);
+            }
+            restartPositionUpdates();
+        }
+    };
+    /**
+     * Queues position subscriptions of in process receivers, they reach service only while it is running.
+     */
+    private final PlayerEventBus.PositionSubscriber positionSubscriber = new PlayerEventBus.PositionSubscriber() {
+        @Override
+        public void subscribePosition(String subscriberId, int interval) {
+            offerCommand(createCommand(IntentGenerator.createSubscribePositionIntent(AudioMediaService.this,
+                    subscriberId, interval)));
+        }
+
+        @Override
+        public void unsubscribePosition(String subscriberId) {
+            offerCommand(createCommand(IntentGenerator.createUnsubscribePositionIntent(AudioMediaService.this,
+                    subscriberId)));
+        }
+    };
+    /**
+     * Handles messages of {@link Messenger} clients, commands are queued as intent commands.
+     */
+    private final Handler.Callback messengerCallback = new Handler.Callback() {
+        @Override
+        public boolean handleMessage(Message msg) {
+            switch (msg.what) {
+                case PlayerMessages.PLAY:
+                    startSelf();
+                    offerCommand(new PlayerCommand(ACTION_PLAY, 0, 0f, null));
+                    return true;
+                case PlayerMessages.PAUSE:
+                    offerCommand(new PlayerCommand(ACTION_PAUSE, 0, 0f, null));
+                    return true;
+                case PlayerMessages.STOP:
+                    offerCommand(new PlayerCommand(ACTION_STOP, 0, 0f, null));
+                    return true;
+                case PlayerMessages.PLAY_TOGGLE:
+                    startSelf();
+                    offerCommand(new PlayerCommand(ACTION_PLAY_TOGGLE, 0, 0f, null));
+                    return true;
+                case PlayerMessages.SEEK:
+                    offerCommand(new PlayerCommand(ACTION_SEEK, msg.arg1, 0f, null));
+                    return true;
+                case PlayerMessages.SEEK_BY:
+                    offerCommand(new PlayerCommand(ACTION_SEEK_BY, msg.arg1, 0f, null));
+                    return true;
+                case PlayerMessages.SET_VOLUME:
+                    offerCommand(new PlayerCommand(ACTION_CHANGE_VOLUME, 0, msg.arg1 / 1000f, null));
+                    return true;
+                case PlayerMessages.MUTE_TOGGLE:
+                    offerCommand(new PlayerCommand(ACTION_MUTE_TOGGLE, 0, 0f, null));
+                    return true;
+                case PlayerMessages.GET_STATUS:
+                    replyStatus(msg.replyTo);
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    };
+    /**
+     * Playback thread message loop, every MediaPlayer operation runs through it.
+     */
+    private final Handler.Callback playbackCallback = new Handler.Callback() {
+        @Override
+        public boolean handleMessage(Message msg) {
+            switch (msg.what) {
+                case MSG_COMMAND:
+                    long queueDelay = SystemClock.uptimeMillis() - msg.getWhen();
+                    PlayerCommand command;
+                    while ((command = commandQueue.poll()) != null) {
+                        long startTime = System.nanoTime();
+                        handleCommand(command);
+                        commandLatencyStats.recordCommand(queueDelay, System.nanoTime() - startTime);
+                    }
+                    return true;
+                case MSG_AUDIO_FOCUS_CHANGE:
+                    handleAudioFocusChange(msg.arg1);
+                    return true;
+                case MSG_SHUTDOWN:
+                    shutdownPlayback();
+                    return true;
+                default:
+                    return false;
             }
         }
     };
@@ -199,9 +518,25 @@ public class AudioMediaService extends Service
      */
     private MediaPlayer mediaPlayer;
     /**
-     * Media player state
+     * Media player preparing next queued media, chained to {@link #mediaPlayer} for gapless playback.
+     */
+    private MediaPlayer nextMediaPlayer;
+    /**
+     * Media info loaded into {@link #nextMediaPlayer}.
+     */
+    private MediaInfo nextMediaInfo;
+    /**
+     * Flag if {@link #nextMediaPlayer} finished preparing.
+     */
+    private boolean isNextPlayerPrepared = false;
+    /**
+     * Media to play after current one.
+     */
+    private final PlaybackQueue playbackQueue = new PlaybackQueue();
+    /**
+     * Media player state, written only on playback thread.
      */
-    private MediaPlayerState playerState;
+    private volatile MediaPlayerState playerState;
     /**
      * Notification manager instance.
      */
@@ -213,18 +548,101 @@ public class AudioMediaService extends Service
     /**
      * Currently playing media info.
      */
-    private MediaInfo mediaInfo;
+    private volatile MediaInfo mediaInfo;
     /**
      * Flag if video autoplays.
      */
     private boolean autoplay;
-    private float volume;
+    private volatile float volume = 1.0f;
     private WifiManager.WifiLock wifiStreamLock;
-    private Handler updatesHandler;
+    /**
+     * Thread that owns media player, all player state changes happen on it.
+     */
+    private HandlerThread playbackThread;
+    /**
+     * Handler of {@link #playbackThread} looper.
+     */
+    private Handler playbackHandler;
+    /**
+     * Measures main thread time taken back by playback thread.
+     */
+    private final CommandLatencyStats commandLatencyStats = new CommandLatencyStats();
+    /**
+     * Commands waiting for playback thread, superseded commands are merged.
+     */
+    private final CommandQueue commandQueue = new CommandQueue();
+    /**
+     * Playback latencies and state transitions.
+     */
+    private final PlaybackMetrics playbackMetrics = new PlaybackMetrics();
+    /**
+     * Receives operations rejected because of player state.
+     */
+    private volatile InvalidStateListener invalidStateListener = LOGGING_INVALID_STATE_LISTENER;
+    /**
+     * Flag if media player seek is in progress.
+     */
+    private boolean isSeeking = false;
+    /**
+     * Seek position requested while previous seek was in progress, -1 if none.
+     */
+    private int pendingSeekPosition = -1;
     private volatile boolean isPositionUpdateActive = false;
+    /**
+     * Position update subscribers, playback thread only.
+     */
+    private final PositionSubscriptions positionSubscriptions = new PositionSubscriptions(POSITION_SUBSCRIPTION_TIMEOUT);
+    /**
+     * Flag if media player is rebuffering, position doesn't advance.
+     */
+    private boolean isBuffering = false;
+    /**
+     * Throttles buffer progress reported by media player.
+     */
+    private final BufferingThrottle bufferingThrottle = new BufferingThrottle(BUFFER_PROGRESS_MIN_DELTA, BUFFER_PROGRESS_MIN_INTERVAL);
+    /**
+     * Publishes buffer progress held back by {@link #bufferingThrottle}.
+     */
+    private final Runnable bufferProgressFlush = new Runnable() {
+        @Override
+        public void run() {
+            int progress = bufferingThrottle.flush(SystemClock.elapsedRealtime());
+            if (progress != BufferingThrottle.NO_PROGRESS) {
+                intentBroadcaster.buffering(progress);
+            }
+        }
+    };
+    /**
+     * Last published position anchor.
+     */
+    private volatile PositionAnchor positionAnchor;
     private float previousVolume = 0f;
-    private MediaProgressPreferences mediaProgressPreferences;
+    private ProgressStore progressStore;
+    /**
+     * Flag if progress flush is posted to playback thread.
+     */
+    private boolean isProgressFlushScheduled;
+    /**
+     * Store of playback session restored after process death.
+     */
+    private SessionStore sessionStore;
     private int startPlaybackPosition = 0;
+    /**
+     * Loopback proxy that caches remote streams.
+     */
+    private StreamProxy streamProxy;
+    /**
+     * Idle media players ready to replace current or next player.
+     */
+    private MediaPlayerPool<MediaPlayer> playerPool;
+    /**
+     * Binder of clients in the same process.
+     */
+    private final LocalBinder localBinder = new LocalBinder();
+    /**
+     * Messenger of clients in other processes, handled on playback thread.
+     */
+    private Messenger messenger;
 
     /**
      * Gets volume value
@@ -249,6 +667,9 @@ public class AudioMediaService extends Service
             Log.v(TAG, String.format("Volume change from %f to %f", this.previousVolume, volume));
             this.volume = volume;
             mediaPlayer.setVolume(volume, volume);
+            if (nextMediaPlayer != null) {
+                nextMediaPlayer.setVolume(volume, volume);
+            }
         } finally {
             intentBroadcaster.volume(getVolume());
         }
@@ -259,7 +680,7 @@ public class AudioMediaService extends Service
      *
      * @param state state of media player
      */
-    protected synchronized void setPlayerState(MediaPlayerState state) {
+    protected void setPlayerState(MediaPlayerState state) {
         setPlayerState(state, true);
     }
 
@@ -271,80 +692,301 @@ public class AudioMediaService extends Service
 
     /**
      * Prepares value for wifi stream lock.s
+     * Starts playback thread, media player is created on it so its callbacks are delivered on playback thread.
      */
     @Override
     public void onCreate() {
         super.onCreate();
 
-        initMediaPlayer();
         // todo: initialize only when notification is enabled - it does by default.
         notificationManager = new NotificationHelper(this);
         intentBroadcaster = new IntentBroadcaster(this);
-        mediaProgressPreferences = new MediaProgressPreferences(this);
-
-        updatesHandler = new Handler();
+        progressStore = createProgressStore();
+        sessionStore = new SessionStore(new File(getFilesDir(), SESSION_FILE_NAME));
         wifiStreamLock = ((WifiManager) getSystemService(Context.WIFI_SERVICE))
                 .createWifiLock(WifiManager.WIFI_MODE_FULL, "Audio Stream Lock");
+
+        playbackThread = new HandlerThread(TAG + ".Playback", Process.THREAD_PRIORITY_AUDIO);
+        playbackThread.start();
+        playbackHandler = new Handler(playbackThread.getLooper(), playbackCallback);
+        playerPool = new MediaPlayerPool<>(playerFactory, getPlayerPoolSize());
+        messenger = new Messenger(new Handler(playbackThread.getLooper(), messengerCallback));
+        playbackHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                initMediaPlayer();
+                startStreamProxy();
+            }
+        });
+        playbackHandler.post(subscriptionRestore);
+        PlayerEventBus.getInstance().setPositionSubscriber(positionSubscriber);
+    }
+
+    @Override
+    public void onDestroy() {
+        PlayerEventBus.getInstance().setPositionSubscriber(null);
+        playbackHandler.sendEmptyMessage(MSG_SHUTDOWN);
+        super.onDestroy();
+    }
+
+    /**
+     * Writes pending playback progress, process may be killed soon.
+     */
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        playbackHandler.post(progressFlush);
+    }
+
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        playbackHandler.post(progressFlush);
+    }
+
+    /**
+     * Gets time measurements of commands handled on playback thread.
+     *
+     * @return command latency stats
+     */
+    public CommandLatencyStats getCommandLatencyStats() {
+        return commandLatencyStats;
+    }
+
+    /**
+     * Gets playback latency histograms and state transition counters.
+     *
+     * @return playback metrics
+     */
+    public PlaybackMetrics getPlaybackMetrics() {
+        return playbackMetrics;
+    }
+
+    /**
+     * Gets maximum size of remote streams disk cache, override to change default size.
+     *
+     * @return cache size in bytes
+     */
+    protected long getStreamCacheSize() {
+        return STREAM_CACHE_SIZE_DEFAULT;
+    }
+
+    /**
+     * Gets interval of writing playback progress to disk, progress is also written on pause, stop and low memory.
+     * Override to change default interval.
+     *
+     * @return progress flush interval in milliseconds
+     */
+    protected long getProgressFlushInterval() {
+        return PROGRESS_FLUSH_INTERVAL_DEFAULT;
+    }
+
+    /**
+     * Creates store of playback progress, called once in {@link #onCreate()}.
+     * Override to keep progress of large libraries in {@link MappedProgressStore}:
+     * <pre>
+     * try {
+     *     return MappedProgressStore.open(new File(getFilesDir(), "progress.log"), new MediaProgressPreferences(this));
+     * } catch (IOException e) {
+     *     return super.createProgressStore();
+     * }
+     * </pre>
+     * Store implementing {@link Closeable} is closed on service shutdown.
+     *
+     * @return progress store, {@link MediaProgressPreferences} by default
+     */
+    protected ProgressStore createProgressStore() {
+        return new MediaProgressPreferences(this);
+    }
+
+    /**
+     * Gets number of idle media players kept ready for instant swap, override to change default size.
+     *
+     * @return player pool size
+     */
+    protected int getPlayerPoolSize() {
+        return PLAYER_POOL_SIZE_DEFAULT;
+    }
+
+    /**
+     * Gets remote streams cache usage counters.
+     *
+     * @return cache stats or null if cache is not available
+     */
+    @Nullable
+    public CacheStats getStreamCacheStats() {
+        return streamProxy != null ? streamProxy.getCache().getStats() : null;
     }
 
     @Override
     public void onTaskRemoved(Intent rootIntent) {
         Log.i(TAG, "Closing Audio Media Service.");
-        release();
-        notificationManager.clear();
+        playbackHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                release();
+                notificationManager.clear();
+            }
+        });
+    }
+
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        writer.println(String.format("%s state = %s, media = %s", TAG, playerState, mediaInfo != null ? mediaInfo.streamUrl : null));
+        playbackMetrics.dump(writer);
+        writer.println(commandLatencyStats);
+        writer.println(String.format("Merged commands = %d", commandQueue.getCoalescedCount()));
+        writer.println(PlayerStateRegion.getInstance().read(new PlayerStateSnapshot()));
+        writer.println(playerPool);
+        writer.println(String.format("Progress store = %s", progressStore));
+        writer.println(notificationManager);
+        CacheStats cacheStats = getStreamCacheStats();
+        if (cacheStats != null) {
+            writer.println(cacheStats);
+        }
     }
 
+    /**
+     * Returns {@link PlayerController} binder for clients in the same process,
+     * {@link Messenger} binder for {@link #ACTION_BIND_MESSENGER} intent.
+     */
     @Override
     public IBinder onBind(Intent intent) {
-        throw new UnsupportedOperationException("Communication with service allowed only through Intents. Use MediaService to generate intents.");
+        if (ACTION_BIND_MESSENGER.equals(intent.getAction())) {
+            return messenger.getBinder();
+        }
+        return localBinder;
     }
 
+    /**
+     * Passes command intent to playback thread, main thread is not blocked by media player.
+     * Commands are queued and merged with superseded ones until playback thread drains the queue.
+     */
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
         if (intent == null) {
+            // restarted after process death
+            playbackHandler.post(sessionRestore);
             return super.onStartCommand(intent, flags, startId);
         }
-        String action = intent.getAction();
-        if (action == null) {
+        if (intent.getAction() == null) {
             return super.onStartCommand(intent, flags, startId);
         }
+        offerCommand(createCommand(intent));
+        return super.onStartCommand(intent, flags, startId);
+    }
+
+    /**
+     * Queues command for playback thread.
+     *
+     * @param command player command
+     */
+    private void offerCommand(PlayerCommand command) {
+        long startTime = System.nanoTime();
+        if (commandQueue.offer(command)) {
+            playbackHandler.sendEmptyMessage(MSG_COMMAND);
+        }
+        commandLatencyStats.recordEnqueue(System.nanoTime() - startTime);
+    }
+
+    /**
+     * Moves service to started state for playback commands of bound clients,
+     * so playback is not destroyed when the last client unbinds. Service stops itself after playback is over.
+     */
+    private void startSelf() {
+        startService(new Intent(this, getClass()));
+    }
+
+    /**
+     * Sends current status to messenger client.
+     *
+     * @param replyTo client messenger
+     */
+    private void replyStatus(@Nullable Messenger replyTo) {
+        if (replyTo == null) {
+            return;
+        }
+        Message reply = Message.obtain(null, PlayerMessages.STATUS);
+        Bundle data = reply.getData();
+        MediaPlayerState state = playerState;
+        data.putString(PlayerMessages.STATE_KEY, state != null ? state.name() : null);
+        data.putInt(PlayerMessages.POSITION_KEY, localBinder.getCurrentPosition());
+        data.putInt(PlayerMessages.DURATION_KEY, localBinder.getDuration());
+        data.putFloat(PlayerMessages.VOLUME_KEY, volume);
+        try {
+            replyTo.send(reply);
+        } catch (RemoteException e) {
+            Log.w(TAG, "Could not send status to messenger client", e);
+        }
+    }
+
+    /**
+     * Creates queued command from intent, arguments of mergeable commands are read upfront.
+     *
+     * @param intent command intent
+     * @return player command
+     */
+    private PlayerCommand createCommand(Intent intent) {
+        String action = intent.getAction();
+        switch (action) {
+            case ACTION_SEEK:
+                return new PlayerCommand(action, fetchIntParameter(intent, SEEK_POSITION_ARG, 0), 0f, intent);
+            case ACTION_SEEK_BY:
+                return new PlayerCommand(action, fetchIntParameter(intent, SEEK_POSITION_DELTA_ARG, 0), 0f, intent);
+            case ACTION_CHANGE_VOLUME:
+                return new PlayerCommand(action, 0, fetchFloatParameter(intent, VOLUME_VALUE_ARG, volume), intent);
+            default:
+                return new PlayerCommand(action, 0, 0f, intent);
+        }
+    }
+
+    /**
+     * Executes queued command on playback thread.
+     *
+     * @param command player command
+     */
+    private void handleCommand(PlayerCommand command) {
+        String action = command.action;
+        Intent intent = command.intent;
         try {
-            Log.d(TAG, String.format("onStartCommand, action = %s", action));
+            Log.d(TAG, String.format("handleCommand, action = %s", action));
             switch (action) {
                 case ACTION_PLAY:
+                    playbackMetrics.markPlayRequested(command.enqueueNanos);
                     // parse arguments and optionals
-                    String newUrl = fetchStringParameter(intent, SOURCE_URL_ARG);
-                    boolean loadAndPlay = !(mediaInfo == null || !newUrl.equalsIgnoreCase(mediaInfo.streamUrl));
+                    String newUrl = intent != null ? fetchStringParameter(intent, SOURCE_URL_ARG) : null;
+                    if (newUrl == null) {
+                        // play without source url - resume or start current media
+                        resumeCurrentMedia();
+                        break;
+                    }
+                    boolean loadAndPlay = mediaInfo != null && newUrl.equalsIgnoreCase(mediaInfo.streamUrl);
                     Log.v(TAG, String.format("old URL: %s - newUrl %s  -> %bs", (mediaInfo != null) ? mediaInfo.streamUrl : "(null)", newUrl, loadAndPlay));
                     if (fetchBooleanParameter(intent, RESUME_PLAY_ARG, false)) {
-                        startPlaybackPosition = mediaProgressPreferences.getProgress(newUrl);
+                        startPlaybackPosition = progressStore.getProgress(newUrl);
                     }
                     updateMediaInfoFromIntent(intent);
-                    if (newUrl != null) {
-                        if (loadAndPlay) {
-                            // same stream - just start
-                            start();// force start or load data again
-                        } else {
-                            // enable autoplay and load
-                            autoplay = fetchBooleanParameter(intent, AUTO_PLAY_ARG, true);
-                            setDataSource(mediaInfo.streamUrl, true);
-                            prepare();
-                            // check for notification details in intent
-                            String style = fetchStringParameter(intent, NOTIFICATION_STYLE_ARG, notificationManager.getCurrentStyle());
-                            int flag = fetchIntParameter(intent, NOTIFICATION_CONFIG_FLAG_ARG, notificationManager.getCurrentFlags());
-                            notificationManager.updateStyle(style, flag, mediaInfo);
-                        }
+                    if (loadAndPlay) {
+                        // same stream - just start
+                        start();// force start or load data again
                     } else {
-                        Log.w(TAG, "playback url is empty");
-                        if (mediaInfo != null && mediaInfo.streamUrl != null) {
-                            start();
-                        }
+                        // enable autoplay and load
+                        autoplay = fetchBooleanParameter(intent, AUTO_PLAY_ARG, true);
+                        setDataSource(mediaInfo.streamUrl, true);
+                        prepare();
+                        // check for notification details in intent
+                        String style = fetchStringParameter(intent, NOTIFICATION_STYLE_ARG, notificationManager.getCurrentStyle());
+                        int flag = fetchIntParameter(intent, NOTIFICATION_CONFIG_FLAG_ARG, notificationManager.getCurrentFlags());
+                        notificationManager.updateStyle(style, flag, mediaInfo);
                     }
                     break;
                 case ACTION_PLAY_TOGGLE:
                     if (playerState == MediaPlayerState.STARTED) {
                         pause();
-                    } else if (playerState == MediaPlayerState.STOPPED) {
+                        break;
+                    }
+                    playbackMetrics.markPlayRequested(command.enqueueNanos);
+                    if (playerState == MediaPlayerState.STOPPED) {
                         autoplay = true;
                         prepare();
                     } else {
@@ -358,45 +1000,124 @@ public class AudioMediaService extends Service
                     stop();
                     break;
                 case ACTION_SEEK:
-                    int position = fetchIntParameter(intent, SEEK_POSITION_ARG, 0);
-                    seekTo(position);
+                    seekTo(command.intValue);
                     break;
                 case ACTION_SEEK_BY:
-                    int deltaSeek = fetchIntParameter(intent, SEEK_POSITION_DELTA_ARG, 0);
-                    seekBy(deltaSeek);
+                    seekBy(command.intValue);
                     break;
                 case ACTION_NOTIFICATION_STYLE:
                     String style = fetchStringParameter(intent, NOTIFICATION_STYLE_ARG);
                     int flag = fetchIntParameter(intent, NOTIFICATION_CONFIG_FLAG_ARG, DEFAULT_NOTIFICATION_FLAG);
                     updateMediaInfoFromIntent(intent);
                     notificationManager.updateStyle(style, flag, mediaInfo);
+                    saveSession();
                     break;
                 case ACTION_MUTE_TOGGLE:
                     toggleVolume();
+                    saveSession();
+                    break;
+                case ACTION_ENQUEUE:
+                    MediaInfo queuedMedia = createMediaInfoFromIntent(intent);
+                    if (queuedMedia.streamUrl != null) {
+                        playbackQueue.add(queuedMedia);
+                        prepareNextPlayer();
+                    } else {
+                        Log.w(TAG, "Enqueued media url is empty");
+                    }
+                    break;
+                case ACTION_ENQUEUE_BATCH:
+                    enqueueBatch(intent.getByteArrayExtra(MEDIA_INFO_BATCH_ARG));
+                    break;
+                case ACTION_CLEAR_QUEUE:
+                    playbackQueue.clear();
+                    releaseNextPlayer();
                     break;
                 case ACTION_CHANGE_VOLUME:
-                    float newVolume = fetchFloatParameter(intent, VOLUME_VALUE_ARG, getVolume());
-                    setVolume(newVolume);
+                    setVolume(command.floatValue);
+                    saveSession();
+                    break;
+                case ACTION_SUBSCRIBE_POSITION:
+                    String subscriberId = fetchStringParameter(intent, POSITION_SUBSCRIBER_ID_ARG);
+                    if (subscriberId == null) {
+                        Log.w(TAG, "Position subscriber id is empty");
+                        break;
+                    }
+                    boolean isFirst = !positionSubscriptions.hasSubscribers();
+                    int subscriberCount = positionSubscriptions.size();
+                    if (positionSubscriptions.subscribe(subscriberId,
+                            fetchIntParameter(intent, POSITION_UPDATE_INTERVAL_ARG, POSITION_UPDATE_INTERVAL_DEFAULT),
+                            SystemClock.elapsedRealtime()) || isFirst) {
+                        restartPositionUpdates();
+                    }
+                    if (positionSubscriptions.size() != subscriberCount) {
+                        saveSession();
+                    }
+                    delayStopWhenIdle();
+                    break;
+                case ACTION_BROADCAST_MODE:
+                    intentBroadcaster.setCrossProcessEnabled(fetchBooleanParameter(intent, BROADCAST_ENABLED_ARG, false));
+                    break;
+                case ACTION_UNSUBSCRIBE_POSITION:
+                    subscriberCount = positionSubscriptions.size();
+                    if (positionSubscriptions.unsubscribe(fetchStringParameter(intent, POSITION_SUBSCRIBER_ID_ARG))
+                            && !positionSubscriptions.hasSubscribers()) {
+                        playbackHandler.removeCallbacks(positionUpdate);
+                    }
+                    if (positionSubscriptions.size() != subscriberCount) {
+                        saveSession();
+                    }
+                    delayStopWhenIdle();
+                    break;
                 default:
-                    return START_CONTINUATION_MASK;
-
+                    Log.w(TAG, String.format("Unknown command action: %s", action));
+                    break;
             }
         } catch (Exception ex) {
             Log.e(TAG, String.format("Error processing command from intent action: %s ", action), ex);
         }
-        return super.onStartCommand(intent, flags, startId);
     }
 
     @Override
     public void onCompletion(MediaPlayer mp) {
-        setPlayerState(MediaPlayerState.COMPLETE);
-        delayStop();
+        if (mp != mediaPlayer) {
+            return;
+        }
+        if (mediaInfo != null) {
+            // finished media starts from beginning next time
+            removeProgress(mediaInfo.streamUrl);
+        }
+        if (isNextPlayerPrepared && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            // next player was started by media player already
+            switchToNextPlayer();
+        } else if (!playbackQueue.isEmpty()) {
+            // next media was not ready on time - load it on current player
+            releaseNextPlayer();
+            mediaInfo = playbackQueue.pollNext();
+            notificationManager.updateMediaInfo(mediaInfo);
+            intentBroadcaster.mediaInfoChanged(mediaInfo);
+            autoplay = true;
+            setDataSource(mediaInfo.streamUrl, true);
+            prepare();
+        } else {
+            setPlayerState(MediaPlayerState.COMPLETE);
+            delayStop();
+        }
     }
 
     @Override
     public boolean onError(MediaPlayer mp, int what, int extra) {
+        if (mp == nextMediaPlayer) {
+            Log.w(TAG, String.format("Error preparing next media, what = %d, extra = %d", what, extra));
+            releaseNextPlayer();
+            return true;
+        }
+        if (mp != mediaPlayer) {
+            // player already returned to the pool
+            return true;
+        }
         // report error
         // broadcast error from player
+        clearPlayerTracking();
         setPlayerState(MediaPlayerState.ERROR);
         releaseWifiLock();
         loseAudioFocus();
@@ -404,22 +1125,97 @@ public class AudioMediaService extends Service
         return true;
     }
 
-    @Override
-    public boolean onInfo(MediaPlayer mp, int what, int extra) {
-        return false;
+    @Override
+    public boolean onInfo(MediaPlayer mp, int what, int extra) {
+        if (mp != mediaPlayer) {
+            return false;
+        }
+        switch (what) {
+            case MEDIA_INFO_BUFFERING_START:
+                setBuffering(true);
+                publishPositionAnchor();
+                return true;
+            case MEDIA_INFO_BUFFERING_END:
+                setBuffering(false);
+                publishPositionAnchor();
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Passes buffer progress through {@link #bufferingThrottle}, progress held back by interval is published later.
+     */
+    @Override
+    public void onBufferingUpdate(MediaPlayer mp, int percent) {
+        if (mp != mediaPlayer) {
+            return;
+        }
+        long now = SystemClock.elapsedRealtime();
+        if (bufferingThrottle.offer(percent, now)) {
+            playbackHandler.removeCallbacks(bufferProgressFlush);
+            intentBroadcaster.buffering(percent);
+            return;
+        }
+        long delay = bufferingThrottle.getPendingDelay(now);
+        if (delay >= 0) {
+            playbackHandler.removeCallbacks(bufferProgressFlush);
+            playbackHandler.postDelayed(bufferProgressFlush, delay);
+        }
+    }
+
+    /**
+     * Tracks rebuffering of started playback and reports its start and end to clients.
+     *
+     * @param buffering true when playback stalls on empty buffer
+     */
+    private void setBuffering(boolean buffering) {
+        if (isBuffering == buffering) {
+            return;
+        }
+        isBuffering = buffering;
+        if (buffering) {
+            playbackMetrics.markRebufferStarted(System.nanoTime());
+        } else {
+            playbackMetrics.markRebufferEnded(System.nanoTime());
+        }
+        intentBroadcaster.rebuffering(buffering);
     }
 
     @Override
     public void onSeekComplete(MediaPlayer mp) {
+        if (mp != mediaPlayer) {
+            return;
+        }
+        isSeeking = false;
+        playbackMetrics.markSeekComplete(System.nanoTime());
+        if (pendingSeekPosition >= 0) {
+            // seeks requested meanwhile are superseded by the last one
+            int position = pendingSeekPosition;
+            pendingSeekPosition = -1;
+            seekTo(position);
+            return;
+        }
         // no change on player state
         // broadcast seek complete intent
         int currentPosition = mp.getCurrentPosition();
-        mediaProgressPreferences.putProgress(mediaInfo.streamUrl, currentPosition);
+        saveProgress(currentPosition);
         intentBroadcaster.currentPosition(currentPosition, mp.getDuration());
+        publishPositionAnchor();
     }
 
     @Override
     public void onAudioFocusChange(int focusChange) {
+        playbackHandler.obtainMessage(MSG_AUDIO_FOCUS_CHANGE, focusChange, 0).sendToTarget();
+    }
+
+    /**
+     * Handles audio focus change on playback thread.
+     *
+     * @param focusChange audio focus change
+     */
+    private void handleAudioFocusChange(int focusChange) {
         switch (focusChange) {
             case AudioManager.AUDIOFOCUS_GAIN:
                 setVolume(1.0f);
@@ -449,12 +1245,30 @@ public class AudioMediaService extends Service
      */
     @Override
     public void onPrepared(MediaPlayer mp) {
-        if (playerAtStates("onPrepared(mp)", MediaPlayerState.PREPARING)) {
+        if (mp == nextMediaPlayer) {
+            Log.v(TAG, "Next player prepared");
+            isNextPlayerPrepared = true;
+            chainNextPlayer();
+            return;
+        }
+        if (mp != mediaPlayer) {
+            return;
+        }
+        if (isAllowed(PlayerOperation.ON_PREPARED)) {
+            playbackMetrics.markPrepared(System.nanoTime());
             setPlayerState(MediaPlayerState.PREPARED);
             if (autoplay) {
                 seekTo(startPlaybackPosition);
                 start();
+            } else {
+                playbackMetrics.cancelPlayRequest();
+                if (startPlaybackPosition > 0) {
+                    // wait for start at resume position
+                    seekTo(startPlaybackPosition);
+                }
             }
+            prepareNextPlayer();
+            chainNextPlayer();
         }
     }
 
@@ -465,27 +1279,57 @@ public class AudioMediaService extends Service
      * @param broadcast if true, the state change is broadcasted with intent.
      */
     protected void setPlayerState(MediaPlayerState state, boolean broadcast) {
-        Log.d(TAG, String.format("Player state change from %s to %s", this.playerState.toString(), state.toString()));
+        Log.d(TAG, String.format("Player state change from %s to %s", this.playerState, state));
+        playbackMetrics.recordTransition(this.playerState, state, System.nanoTime());
         this.playerState = state;
         if (broadcast) {
             intentBroadcaster.stateChange(state);
         }
         notificationManager.updateNotification(state);
+        publishPositionAnchor();
+        saveSession();
+    }
+
+    /**
+     * Publishes current position with time and playback rate, clients extrapolate position from it.
+     * Called on every change of playback timeline - state change, seek and rebuffering.
+     */
+    private void publishPositionAnchor() {
+        PositionAnchor anchor;
+        long now = SystemClock.elapsedRealtime();
+        if (mediaPlayer != null && PlayerOperation.POSITION_ANCHOR.isAllowed(playerState)) {
+            float rate = playerState == MediaPlayerState.STARTED && !isBuffering ? 1f : 0f;
+            anchor = new PositionAnchor(mediaPlayer.getCurrentPosition(), mediaPlayer.getDuration(), now, rate);
+        } else {
+            anchor = new PositionAnchor(0, 0, now, 0f);
+        }
+        positionAnchor = anchor;
+        intentBroadcaster.positionAnchor(anchor);
+    }
+
+    /**
+     * Gets last published position anchor.
+     *
+     * @return position anchor, null before first state change
+     */
+    @Nullable
+    public PositionAnchor getPositionAnchor() {
+        return positionAnchor;
     }
 
     /**
      * Safe reset of media Player instance.
      */
     protected void reset(final boolean force) {
-        if (playerNotAtStates("reset(force)", MediaPlayerState.END, MediaPlayerState.ERROR)) {
+        if (isAllowed(PlayerOperation.RESET)) {
             Log.v(TAG, String.format("Reset player (forced = %s", String.valueOf(force)));
             mediaPlayer.reset();
+            clearPlayerTracking();
             loseAudioFocus();
             releaseWifiLock();
             stopPositionUpdateBroadcast();
         } else if (force) {
-            release();
-            initMediaPlayer();
+            replacePlayer();
         }
         delayStop();
     }
@@ -497,10 +1341,10 @@ public class AudioMediaService extends Service
      * @param force if true, it forces to set data source, if state is not IDLE it will reset media player.
      */
     protected void setDataSource(final String url, final boolean force) {
-        if (playerAtStates("setDataSource(url, force)", MediaPlayerState.IDLE)) {
+        if (isAllowed(PlayerOperation.SET_DATA_SOURCE)) {
             try {
                 Log.d(TAG, String.format("Sets data source url = %s", url));
-                mediaPlayer.setDataSource(this, Uri.fromFile(new File(url)));
+                setPlayerDataSource(mediaPlayer, url);
                 setPlayerState(MediaPlayerState.INITIALIZED);
             } catch (Exception e) {
                 Log.w(TAG, String.format("Error setting data source, url = %s", url), e);
@@ -520,7 +1364,9 @@ public class AudioMediaService extends Service
      */
     protected void release() {
         Log.v(TAG, "Release player");
+        releaseNextPlayer();
         mediaPlayer.release();
+        clearPlayerTracking();
         loseAudioFocus();
         releaseWifiLock();
         setPlayerState(MediaPlayerState.END);
@@ -532,8 +1378,9 @@ public class AudioMediaService extends Service
      * Safe prepare method for media player.
      */
     protected void prepare() {
-        if (playerAtStates("prepare()", MediaPlayerState.INITIALIZED, MediaPlayerState.STOPPED)) {
+        if (isAllowed(PlayerOperation.PREPARE)) {
             Log.v(TAG, "Preparing player");
+            playbackMetrics.markPrepareStarted(System.nanoTime());
             mediaPlayer.prepareAsync();
             setPlayerState(MediaPlayerState.PREPARING);
         }
@@ -545,14 +1392,14 @@ public class AudioMediaService extends Service
      * @param positionDetla
      */
     protected void seekBy(final int positionDetla) {
-        if (playerAtStates("seekBy(posDelta)", MediaPlayerState.STARTED, MediaPlayerState.COMPLETE,
-                MediaPlayerState.PREPARED, MediaPlayerState.PAUSED)) {
+        if (isAllowed(PlayerOperation.SEEK)) {
             // no seek if no value
             if (positionDetla == 0) {
                 return;
             }
             int duration = mediaPlayer.getDuration();
-            int newPosition = mediaPlayer.getCurrentPosition() + positionDetla;
+            int basePosition = pendingSeekPosition >= 0 ? pendingSeekPosition : mediaPlayer.getCurrentPosition();
+            int newPosition = basePosition + positionDetla;
             if (newPosition < 0) {
                 seekTo(0); //seek to begining
             } else if (newPosition > duration) {
@@ -565,12 +1412,18 @@ public class AudioMediaService extends Service
 
     /**
      * Safe seek to media player method.
+     * Seek requested while previous one is in progress is deferred until it completes, only the last one is executed.
      *
      * @param pos position in miliseconds
      */
     protected void seekTo(final int pos) {
-        if (playerAtStates("seekTo(pos)", MediaPlayerState.STARTED, MediaPlayerState.COMPLETE,
-                MediaPlayerState.PREPARED, MediaPlayerState.PAUSED)) {
+        if (isAllowed(PlayerOperation.SEEK)) {
+            if (isSeeking) {
+                pendingSeekPosition = Math.max(pos, 0);
+                return;
+            }
+            isSeeking = true;
+            playbackMetrics.markSeekStarted(System.nanoTime());
             if (pos > 0) {
                 mediaPlayer.seekTo(pos);
             } else {
@@ -579,19 +1432,120 @@ public class AudioMediaService extends Service
         }
     }
 
+    /**
+     * Stores progress of current media in memory, it is written to disk in batch after flush interval.
+     *
+     * @param position current position in milliseconds
+     */
+    private void saveProgress(int position) {
+        if (mediaInfo == null || playerState == MediaPlayerState.COMPLETE) {
+            return;
+        }
+        progressStore.putProgress(mediaInfo.streamUrl, position);
+        scheduleProgressFlush();
+    }
+
+    /**
+     * Removes progress of finished media, removal is written to disk with the next batch.
+     *
+     * @param url playback url
+     */
+    private void removeProgress(String url) {
+        progressStore.removeProgress(url);
+        scheduleProgressFlush();
+    }
+
+    /**
+     * Schedules write of progress stored in memory after flush interval, unless it is scheduled already.
+     */
+    private void scheduleProgressFlush() {
+        if (!isProgressFlushScheduled) {
+            isProgressFlushScheduled = true;
+            playbackHandler.postDelayed(progressFlush, getProgressFlushInterval());
+        }
+    }
+
+    /**
+     * Writes playback progress stored in memory to disk now.
+     */
+    private void flushProgress() {
+        playbackHandler.removeCallbacks(progressFlush);
+        isProgressFlushScheduled = false;
+        progressStore.flush();
+        saveSession();
+    }
+
+    /**
+     * Saves snapshot of playback session, it is written to disk in background.
+     */
+    private void saveSession() {
+        if (sessionStore == null) {
+            return;
+        }
+        PositionAnchor anchor = positionAnchor;
+        int position = anchor != null && anchor.getDuration() > 0
+                ? anchor.getPositionAt(SystemClock.elapsedRealtime()) : startPlaybackPosition;
+        sessionStore.save(new SessionSnapshot(mediaInfo, playerState, volume, position,
+                notificationManager.getCurrentStyle(), notificationManager.getCurrentFlags(),
+                positionSubscriptions.getIntervals()));
+    }
+
+    /**
+     * Restores media, volume and notification of saved session and prepares player at saved position.
+     * Playback is not started, user resumes it from notification or app, service stops after timeout otherwise.
+     */
+    private void restoreSession() {
+        if (mediaInfo != null) {
+            // command came before restore
+            return;
+        }
+        SessionSnapshot snapshot = sessionStore.load();
+        if (snapshot == null || !snapshot.isRestorable()) {
+            delayStop();
+            return;
+        }
+        Log.d(TAG, String.format("Restoring session %s", snapshot));
+        mediaInfo = snapshot.mediaInfo;
+        setVolume(snapshot.volume);
+        if (snapshot.notificationStyle != null) {
+            notificationManager.updateStyle(snapshot.notificationStyle, snapshot.notificationFlags, mediaInfo);
+        } else {
+            notificationManager.updateMediaInfo(mediaInfo);
+        }
+        intentBroadcaster.mediaInfoChanged(mediaInfo);
+        startPlaybackPosition = snapshot.position > 0 ? snapshot.position : progressStore.getProgress(mediaInfo.streamUrl);
+        autoplay = false;
+        setDataSource(mediaInfo.streamUrl, true);
+        prepare();
+        delayStop();
+    }
+
+    /**
+     * Drops seek and buffering tracking after player was reset, released or replaced, its events will not come.
+     */
+    private void clearPlayerTracking() {
+        isSeeking = false;
+        pendingSeekPosition = -1;
+        setBuffering(false);
+        bufferingThrottle.reset();
+        playbackHandler.removeCallbacks(bufferProgressFlush);
+    }
+
     /**
      * Safe start playback MediaPlayer method.
      */
     protected void start() {
-        if (playerAtStates("start()", MediaPlayerState.PREPARED, MediaPlayerState.STARTED,
-                MediaPlayerState.PAUSED, MediaPlayerState.COMPLETE)) {
+        if (isAllowed(PlayerOperation.START)) {
             startPlaybackPosition = 0;
+            long startTime = System.nanoTime();
             mediaPlayer.start();
+            playbackMetrics.recordStart(System.nanoTime() - startTime);
             autoplay = false;
             getAudioFocus();
             acquireWifiLock();
             setPlayerState(MediaPlayerState.STARTED);
             updatePositionBroadcast();
+            startProgressCheckpoints();
         } else {
             // force
             reset(true);
@@ -601,14 +1555,49 @@ public class AudioMediaService extends Service
         }
     }
 
+    /**
+     * Starts current media for play command without source url, prepares it first when it is not prepared.
+     */
+    private void resumeCurrentMedia() {
+        if (mediaInfo == null || mediaInfo.streamUrl == null) {
+            Log.w(TAG, "playback url is empty");
+            playbackMetrics.cancelPlayRequest();
+            delayStop();
+            return;
+        }
+        switch (playerState) {
+            case STARTED:
+                playbackMetrics.cancelPlayRequest();
+                break;
+            case PREPARING:
+                autoplay = true;
+                break;
+            case PREPARED:
+            case PAUSED:
+            case COMPLETE:
+                start();
+                break;
+            case INITIALIZED:
+            case STOPPED:
+                autoplay = true;
+                prepare();
+                break;
+            default:
+                // idle, error or released player - load current media again
+                autoplay = true;
+                setDataSource(mediaInfo.streamUrl, true);
+                prepare();
+                break;
+        }
+    }
+
     /**
      * Safe pause playback MediaPlayer method.
      */
     protected void pause() {
-        if (playerAtStates("pause()", MediaPlayerState.STARTED)) {
-            if (mediaInfo != null) {
-                mediaProgressPreferences.putProgress(mediaInfo.streamUrl, mediaPlayer.getCurrentPosition());
-            }
+        if (isAllowed(PlayerOperation.PAUSE)) {
+            saveProgress(mediaPlayer.getCurrentPosition());
+            flushProgress();
             mediaPlayer.pause();
             loseAudioFocus();
             releaseWifiLock();
@@ -621,11 +1610,9 @@ public class AudioMediaService extends Service
      * Safe stop playback MediaPlayer method.
      */
     protected void stop() {
-        if (playerAtStates("stop()", MediaPlayerState.STARTED, MediaPlayerState.COMPLETE,
-                MediaPlayerState.STOPPED, MediaPlayerState.PREPARED, MediaPlayerState.PAUSED)) {
-            if (mediaInfo != null) {
-                mediaProgressPreferences.putProgress(mediaInfo.streamUrl, mediaPlayer.getCurrentPosition());
-            }
+        if (isAllowed(PlayerOperation.STOP)) {
+            saveProgress(mediaPlayer.getCurrentPosition());
+            flushProgress();
             mediaPlayer.stop();
             loseAudioFocus();
             releaseWifiLock();
@@ -635,10 +1622,102 @@ public class AudioMediaService extends Service
         }
     }
 
+    /**
+     * Prepares next queued media on second media player instance, to be chained for gapless playback.
+     * Gapless playback requires {@link MediaPlayer#setNextMediaPlayer(MediaPlayer)} available from API 16.
+     */
+    private void prepareNextPlayer() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN || nextMediaPlayer != null) {
+            return;
+        }
+        MediaInfo nextMedia = playbackQueue.peekNext();
+        if (nextMedia == null
+                || !isAllowed(PlayerOperation.CHAIN_NEXT_PLAYER)) {
+            return;
+        }
+        try {
+            Log.v(TAG, String.format("Preparing next player, url = %s", nextMedia.streamUrl));
+            nextMediaPlayer = playerPool.acquire();
+            schedulePlayerPoolFill();
+            nextMediaPlayer.setVolume(volume, volume);
+            nextMediaInfo = nextMedia;
+            isNextPlayerPrepared = false;
+            setPlayerDataSource(nextMediaPlayer, nextMedia.streamUrl);
+            nextMediaPlayer.prepareAsync();
+        } catch (Exception e) {
+            Log.w(TAG, String.format("Error preparing next player, url = %s", nextMedia.streamUrl), e);
+            releaseNextPlayer();
+        }
+    }
+
+    /**
+     * Chains prepared next media player to current one, it will start as soon as current completes.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void chainNextPlayer() {
+        if (isNextPlayerPrepared && nextMediaPlayer != null
+                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN
+                && isAllowed(PlayerOperation.CHAIN_NEXT_PLAYER)) {
+            mediaPlayer.setNextMediaPlayer(nextMediaPlayer);
+        }
+    }
+
+    /**
+     * Switches current media player to the chained next player that was started on completion.
+     */
+    private void switchToNextPlayer() {
+        Log.d(TAG, String.format("Switching to next player, url = %s", nextMediaInfo.streamUrl));
+        MediaPlayer completedPlayer = mediaPlayer;
+        mediaPlayer = nextMediaPlayer;
+        mediaInfo = nextMediaInfo;
+        nextMediaPlayer = null;
+        nextMediaInfo = null;
+        isNextPlayerPrepared = false;
+        playbackQueue.pollNext();
+        playerPool.recycle(completedPlayer);
+        clearPlayerTracking();
+
+        notificationManager.updateMediaInfo(mediaInfo);
+        intentBroadcaster.mediaInfoChanged(mediaInfo);
+        setPlayerState(MediaPlayerState.STARTED);
+        if (!isPositionUpdateActive) {
+            updatePositionBroadcast();
+        }
+        startProgressCheckpoints();
+        prepareNextPlayer();
+    }
+
+    /**
+     * Releases next media player and removes it from chain.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void releaseNextPlayer() {
+        if (nextMediaPlayer == null) {
+            return;
+        }
+        if (isNextPlayerPrepared && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN
+                && isAllowed(PlayerOperation.CHAIN_NEXT_PLAYER)) {
+            mediaPlayer.setNextMediaPlayer(null);
+        }
+        playerPool.recycle(nextMediaPlayer);
+        nextMediaPlayer = null;
+        nextMediaInfo = null;
+        isNextPlayerPrepared = false;
+    }
+
     private void delayStop() {
         Log.d(TAG, "Delayed stop service called");
         // 1min timeout to self close
-        updatesHandler.postDelayed(stopService, STOP_DELAY_TIMER);
+        playbackHandler.postDelayed(stopService, STOP_DELAY_TIMER);
+    }
+
+    /**
+     * Schedules stop of service that was started by a command other than playback, e.g. position subscription.
+     */
+    private void delayStopWhenIdle() {
+        if (PlayerOperation.STOP_SERVICE.isAllowed(playerState)) {
+            delayStop();
+        }
     }
 
     private void toggleVolume() {
@@ -651,12 +1730,41 @@ public class AudioMediaService extends Service
 
     private void stopPositionUpdateBroadcast() {
         isPositionUpdateActive = false;
+        playbackHandler.removeCallbacks(positionUpdate);
+        playbackHandler.removeCallbacks(progressCheckpoint);
+    }
+
+    /**
+     * Starts periodic progress checkpoints of playing media.
+     */
+    private void startProgressCheckpoints() {
+        playbackHandler.removeCallbacks(progressCheckpoint);
+        playbackHandler.postDelayed(progressCheckpoint, PROGRESS_SAVE_INTERVAL);
     }
 
+    /**
+     * Schedules next position update at the fastest subscribed interval, updates stop without subscribers.
+     * Subscriptions that were not renewed in time expire first.
+     */
     private void updatePositionBroadcast() {
-        int positionUpdateTimespan = POSITION_UPDATE_TIMESPAN_DEFAULT;
         isPositionUpdateActive = true;
-        updatesHandler.postDelayed(positionUpdate, positionUpdateTimespan);
+        if (positionSubscriptions.expire(SystemClock.elapsedRealtime())) {
+            saveSession();
+        }
+        if (positionSubscriptions.hasSubscribers()) {
+            playbackHandler.postDelayed(positionUpdate, positionSubscriptions.getFastestInterval());
+        }
+    }
+
+    /**
+     * Reschedules running position updates after subscriptions changed, subscriber gets current position at once.
+     */
+    private void restartPositionUpdates() {
+        playbackHandler.removeCallbacks(positionUpdate);
+        if (isPositionUpdateActive || PlayerOperation.POSITION_UPDATE.isAllowed(playerState)) {
+            // single update if playback is not running
+            playbackHandler.post(positionUpdate);
+        }
     }
 
     private void acquireWifiLock() {
@@ -687,32 +1795,62 @@ public class AudioMediaService extends Service
         }
     }
 
+    /**
+     * Adds media batch encoded with {@link MediaInfoCodec} to playback queue, media without url is skipped.
+     */
+    private void enqueueBatch(@Nullable byte[] batch) {
+        if (batch == null) {
+            Log.w(TAG, "Enqueued media batch is empty");
+            return;
+        }
+        List<MediaInfo> mediaInfos;
+        try {
+            mediaInfos = MediaInfoCodec.decode(batch);
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "Could not decode enqueued media batch", e);
+            return;
+        }
+        int added = 0;
+        for (MediaInfo queuedMedia : mediaInfos) {
+            if (queuedMedia.streamUrl != null) {
+                playbackQueue.add(queuedMedia);
+                added++;
+            }
+        }
+        Log.d(TAG, String.format("Enqueued %d of %d batch media", added, mediaInfos.size()));
+        prepareNextPlayer();
+    }
+
+    /**
+     * Creates media information from intent extras.
+     *
+     * @param intent
+     * @return media info
+     */
+    private MediaInfo createMediaInfoFromIntent(Intent intent) {
+        MediaInfo info = new MediaInfo();
+        info.streamUrl = fetchStringParameter(intent, SOURCE_URL_ARG);
+        info.title = fetchStringParameter(intent, SOURCE_TITLE_ARG);
+        info.description = fetchStringParameter(intent, SOURCE_DESC_ARG);
+        info.artUri = fetchStringParameter(intent, SOURCE_ART_URI_ARG);
+        return info;
+    }
+
     /**
      * Updates media information if changed on notification.
+     * Changed media gets new instance, published instance is never modified.
      *
      * @param intent
      */
     private void updateMediaInfoFromIntent(Intent intent) {
-        String title = fetchStringParameter(intent, SOURCE_TITLE_ARG);
-        String description = fetchStringParameter(intent, SOURCE_DESC_ARG);
-        String artUriString = fetchStringParameter(intent, SOURCE_ART_URI_ARG);
-        String newUrl = fetchStringParameter(intent, SOURCE_URL_ARG);
-
-        boolean changes = false;
-        if (mediaInfo == null) {
-            mediaInfo = new MediaInfo();
-            changes = true;
-        } else {
-            hasValueChanged(newUrl, mediaInfo.streamUrl);
-            changes |= hasValueChanged(title, mediaInfo.title);
-            changes |= hasValueChanged(description, mediaInfo.description);
-            changes |= hasValueChanged(artUriString, mediaInfo.artUri);
-        }
+        MediaInfo info = createMediaInfoFromIntent(intent);
+        boolean changes = mediaInfo == null
+                || hasValueChanged(info.streamUrl, mediaInfo.streamUrl)
+                || hasValueChanged(info.title, mediaInfo.title)
+                || hasValueChanged(info.description, mediaInfo.description)
+                || hasValueChanged(info.artUri, mediaInfo.artUri);
         if (changes) {
-            mediaInfo.streamUrl = newUrl;
-            mediaInfo.title = title;
-            mediaInfo.description = description;
-            mediaInfo.artUri = artUriString;
+            mediaInfo = info;
             notificationManager.updateMediaInfo(mediaInfo);
             intentBroadcaster.mediaInfoChanged(mediaInfo);
         }
@@ -809,63 +1947,234 @@ public class AudioMediaService extends Service
     /**
      * Initialize media player, releases previous isntance if was created.s
      */
-    private synchronized void initMediaPlayer() {
+    private void initMediaPlayer() {
         if (mediaPlayer != null) {
             mediaPlayer.release();
             mediaPlayer = null;
         }
-        mediaPlayer = new MediaPlayer();
-        mediaPlayer.setOnCompletionListener(this);
-        mediaPlayer.setOnErrorListener(this);
-        mediaPlayer.setOnInfoListener(this);
-        mediaPlayer.setOnSeekCompleteListener(this);
-        mediaPlayer.setOnPreparedListener(this);
-        mediaPlayer.setWakeMode(getApplicationContext(), PowerManager.PARTIAL_WAKE_LOCK);
+        mediaPlayer = playerPool.acquire();
         playerState = MediaPlayerState.IDLE;
+        schedulePlayerPoolFill();
         AudioManager audioManager = (AudioManager) getSystemService(Context.AUDIO_SERVICE);
         previousVolume = audioManager.getStreamVolume(AudioManager.STREAM_MUSIC);
 
     }
 
     /**
-     * Checks if player is in listed states.
+     * Creates media player instance with service listeners attached.
      *
-     * @param states State array
-     * @return true if state is currently supported, false if not.
+     * @return media player in IDLE state
      */
-    private boolean playerAtStates(final String methodSourceTag, final MediaPlayerState... states) {
-        StringBuilder expectedState = new StringBuilder("allowed states: [");
-        for (MediaPlayerState state : states) {
-            expectedState.append(state.toString());
-            expectedState.append(", ");
-            if (state == playerState) {
-                expectedState.append("]");
-                Log.v(TAG, String.format("At %s matched expected state %s -> %s", methodSourceTag, playerState.toString(), expectedState.toString()));
-                return true;
+    private MediaPlayer createMediaPlayer() {
+        MediaPlayer player = new MediaPlayer();
+        player.setOnCompletionListener(this);
+        player.setOnErrorListener(this);
+        player.setOnInfoListener(this);
+        player.setOnSeekCompleteListener(this);
+        player.setOnPreparedListener(this);
+        player.setOnBufferingUpdateListener(this);
+        player.setWakeMode(getApplicationContext(), PowerManager.PARTIAL_WAKE_LOCK);
+        return player;
+    }
+
+    /**
+     * Swaps broken or released media player for idle one from the pool, broken player is recycled in background.
+     */
+    private void replacePlayer() {
+        Log.v(TAG, String.format("Replacing player at state %s", playerState));
+        releaseNextPlayer();
+        if (playerState != MediaPlayerState.END) {
+            playerPool.recycle(mediaPlayer);
+        }
+        mediaPlayer = playerPool.acquire();
+        playerState = MediaPlayerState.IDLE;
+        clearPlayerTracking();
+        loseAudioFocus();
+        releaseWifiLock();
+        stopPositionUpdateBroadcast();
+        schedulePlayerPoolFill();
+    }
+
+    /**
+     * Fills player pool once playback thread is idle, has to be called on playback thread.
+     */
+    private void schedulePlayerPoolFill() {
+        MessageQueue queue = Looper.myQueue();
+        queue.removeIdleHandler(fillPlayerPool);
+        queue.addIdleHandler(fillPlayerPool);
+    }
+
+    /**
+     * Sets data source of the given media player.
+     *
+     * @param player media player in IDLE state
+     * @param url    media url
+     * @throws IOException
+     */
+    private void setPlayerDataSource(MediaPlayer player, String url) throws IOException {
+        if (StreamProxy.isRemoteUrl(url)) {
+            if (streamProxy != null && streamProxy.isRunning()) {
+                player.setDataSource(streamProxy.getProxyUrl(url));
+            } else {
+                player.setDataSource(url);
             }
+        } else {
+            player.setDataSource(this, Uri.fromFile(new File(url)));
         }
-        expectedState.append("]");
-        Log.i(TAG, String.format("At %s player is not in expected state. state = %s, %s", methodSourceTag, playerState.toString(), expectedState.toString()));
-        return false;
     }
 
-    private boolean playerNotAtStates(final String methodSourceTag, final MediaPlayerState... states) {
-        StringBuilder notExpectedState = new StringBuilder("not allowed states: [");
-        boolean gotNotExpectedState = false;
-        for (MediaPlayerState state : states) {
-            notExpectedState.append(state.toString());
-            notExpectedState.append(", ");
-            if (state != playerState) {
-                notExpectedState.append("]");
-                Log.v(TAG, String.format("At %s matched not expected state %s -> %s", methodSourceTag, playerState.toString(), notExpectedState.toString()));
-                gotNotExpectedState = true;
+    /**
+     * Releases media player, stops stream proxy and playback thread.
+     */
+    private void shutdownPlayback() {
+        playbackHandler.removeCallbacksAndMessages(null);
+        commandQueue.clear();
+        flushProgress();
+        if (progressStore instanceof Closeable) {
+            try {
+                ((Closeable) progressStore).close();
+            } catch (IOException e) {
+                Log.w(TAG, "Could not close progress store", e);
             }
         }
-        notExpectedState.append("]");
-        if (!gotNotExpectedState) {
-            Log.i(TAG, String.format("At %s, player is in expected state. state = %s, %s", methodSourceTag, playerState.toString(), notExpectedState.toString()));
+        if (mediaPlayer != null && playerState != MediaPlayerState.END) {
+            release();
+        }
+        if (streamProxy != null) {
+            Log.d(TAG, String.format("Stream cache usage: %s", streamProxy.getCache().getStats()));
+            streamProxy.stop();
+        }
+        Log.d(TAG, String.format("Player pool usage: %s", playerPool));
+        playerPool.close();
+        sessionStore.close();
+        notificationManager.release();
+        Log.d(TAG, String.format("Playback thread usage: %s, merged commands = %d", commandLatencyStats, commandQueue.getCoalescedCount()));
+        playbackThread.quit();
+    }
+
+    /**
+     * Starts loopback proxy caching remote streams, streams are played directly if proxy fails to start.
+     */
+    private void startStreamProxy() {
+        StreamCache streamCache = new StreamCache(new File(getCacheDir(), STREAM_CACHE_DIR), getStreamCacheSize());
+        streamProxy = new StreamProxy(streamCache);
+        try {
+            streamProxy.start();
+        } catch (IOException e) {
+            Log.w(TAG, "Could not start stream cache proxy, remote streams will not be cached.", e);
+            streamProxy = null;
+        }
+    }
+
+    /**
+     * Checks if operation is allowed at current player state, rejected operation is reported to {@link #invalidStateListener}.
+     *
+     * @param operation player operation
+     * @return true if operation is allowed, false if not.
+     */
+    private boolean isAllowed(final PlayerOperation operation) {
+        MediaPlayerState state = playerState;
+        if (operation.isAllowed(state)) {
+            return true;
         }
-        return !gotNotExpectedState;
+        invalidStateListener.onInvalidState(operation, state);
+        return false;
+    }
+
+    /**
+     * Sets listener of operations rejected because of player state, by default they are logged.
+     *
+     * @param listener invalid state listener, null restores default one
+     */
+    protected void setInvalidStateListener(@Nullable final InvalidStateListener listener) {
+        invalidStateListener = listener != null ? listener : LOGGING_INVALID_STATE_LISTENER;
     }
 
+
+    /**
+     * Binder of clients in the same process, commands skip intent creation and resolution.
+     */
+    private final class LocalBinder extends Binder implements PlayerController {
+
+        @Override
+        public void play(MediaInfo mediaInfo, boolean resumePlayback) {
+            Intent intent = IntentGenerator.createPlayIntent(AudioMediaService.this, mediaInfo, resumePlayback);
+            startSelf();
+            offerCommand(new PlayerCommand(ACTION_PLAY, 0, 0f, intent));
+        }
+
+        @Override
+        public void play() {
+            startSelf();
+            offerCommand(new PlayerCommand(ACTION_PLAY, 0, 0f, null));
+        }
+
+        @Override
+        public void pause() {
+            offerCommand(new PlayerCommand(ACTION_PAUSE, 0, 0f, null));
+        }
+
+        @Override
+        public void stop() {
+            offerCommand(new PlayerCommand(ACTION_STOP, 0, 0f, null));
+        }
+
+        @Override
+        public void togglePlay() {
+            startSelf();
+            offerCommand(new PlayerCommand(ACTION_PLAY_TOGGLE, 0, 0f, null));
+        }
+
+        @Override
+        public void seekTo(int position) {
+            offerCommand(new PlayerCommand(ACTION_SEEK, position, 0f, null));
+        }
+
+        @Override
+        public void seekBy(int delta) {
+            offerCommand(new PlayerCommand(ACTION_SEEK_BY, delta, 0f, null));
+        }
+
+        @Override
+        public void setVolume(float volume) {
+            offerCommand(new PlayerCommand(ACTION_CHANGE_VOLUME, 0, volume, null));
+        }
+
+        @Override
+        public void toggleMute() {
+            offerCommand(new PlayerCommand(ACTION_MUTE_TOGGLE, 0, 0f, null));
+        }
+
+        @Override
+        public MediaPlayerState getPlayerState() {
+            return playerState;
+        }
+
+        @Override
+        public int getCurrentPosition() {
+            PositionAnchor anchor = positionAnchor;
+            return anchor != null ? anchor.getPositionAt(SystemClock.elapsedRealtime()) : 0;
+        }
+
+        @Override
+        public int getDuration() {
+            PositionAnchor anchor = positionAnchor;
+            return anchor != null ? anchor.getDuration() : 0;
+        }
+
+        @Override
+        public float getVolume() {
+            return volume;
+        }
+
+        @Override
+        public MediaInfo getMediaInfo() {
+            return mediaInfo;
+        }
+
+        @Override
+        public ProgressQuery getProgressQuery() {
+            return progressStore.getQuery();
+        }
+    }
 }
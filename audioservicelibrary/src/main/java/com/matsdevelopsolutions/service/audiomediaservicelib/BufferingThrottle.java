@@ -0,0 +1,98 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+/**
+ * Limits buffering progress events of media player, which reports progress many times per second.
+ * Progress is published only when it changed by minimum delta and not more often than minimum interval,
+ * full buffer is always published. Progress held back by interval is returned by {@link #flush(long)}.
+ * Not thread safe, used on playback thread.
+ */
+class BufferingThrottle {
+
+    /**
+     * No progress value.
+     */
+    static final int NO_PROGRESS = -1;
+
+    private static final int FULL_PROGRESS = 100;
+
+    private final int minDelta;
+    private final long minInterval;
+    private int publishedProgress = NO_PROGRESS;
+    private long publishedTime;
+    private int pendingProgress = NO_PROGRESS;
+
+    /**
+     * Creates instance of {@link BufferingThrottle}.
+     *
+     * @param minDelta    minimum progress change in percents
+     * @param minInterval minimum time between published progress in milliseconds
+     */
+    BufferingThrottle(int minDelta, long minInterval) {
+        this.minDelta = minDelta;
+        this.minInterval = minInterval;
+    }
+
+    /**
+     * Offers progress reported by media player.
+     *
+     * @param progress buffer progress from 0 to 100
+     * @param now      current time in milliseconds
+     * @return true if progress should be published now
+     */
+    boolean offer(int progress, long now) {
+        if (progress == publishedProgress) {
+            pendingProgress = NO_PROGRESS;
+            return false;
+        }
+        boolean changed = publishedProgress == NO_PROGRESS || progress == FULL_PROGRESS
+                || Math.abs(progress - publishedProgress) >= minDelta;
+        if (!changed) {
+            return false;
+        }
+        if (publishedProgress != NO_PROGRESS && now - publishedTime < minInterval && progress != FULL_PROGRESS) {
+            pendingProgress = progress;
+            return false;
+        }
+        publish(progress, now);
+        return true;
+    }
+
+    /**
+     * @param now current time in milliseconds
+     * @return delay until held back progress can be published, negative if nothing is held back
+     */
+    long getPendingDelay(long now) {
+        if (pendingProgress == NO_PROGRESS) {
+            return -1;
+        }
+        return Math.max(0, publishedTime + minInterval - now);
+    }
+
+    /**
+     * Takes progress held back by interval.
+     *
+     * @param now current time in milliseconds
+     * @return progress to publish or {@link #NO_PROGRESS}
+     */
+    int flush(long now) {
+        int progress = pendingProgress;
+        if (progress != NO_PROGRESS) {
+            publish(progress, now);
+        }
+        return progress;
+    }
+
+    /**
+     * Forgets published progress, next progress is published immediately.
+     */
+    void reset() {
+        publishedProgress = NO_PROGRESS;
+        pendingProgress = NO_PROGRESS;
+    }
+
+    private void publish(int progress, long now) {
+        publishedProgress = progress;
+        publishedTime = now;
+        pendingProgress = NO_PROGRESS;
+    }
+}
@@ -0,0 +1,123 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures time spent handling service commands on main thread and on playback thread.
+ * Playback thread time is work that used to block the main thread of the hosting application.
+ * Command execution times are kept in {@link LatencyHistogram} for percentiles.
+ */
+public class CommandLatencyStats {
+
+    private final AtomicLong commandCount = new AtomicLong();
+    private final AtomicLong mainThreadNanos = new AtomicLong();
+    private final AtomicLong playbackThreadNanos = new AtomicLong();
+    private final AtomicLong maxPlaybackThreadNanos = new AtomicLong();
+    private final AtomicLong queueDelayMillis = new AtomicLong();
+    private final AtomicLong tickCount = new AtomicLong();
+    private final AtomicLong tickNanos = new AtomicLong();
+    private volatile LatencyHistogram commandLatencies = new LatencyHistogram("command");
+
+    /**
+     * Records time of posting command from main thread to playback thread.
+     *
+     * @param nanos time spent on main thread
+     */
+    void recordEnqueue(long nanos) {
+        mainThreadNanos.addAndGet(nanos);
+    }
+
+    /**
+     * Records command execution on playback thread.
+     *
+     * @param queueDelay time command waited in playback queue in milliseconds
+     * @param nanos      time spent executing command
+     */
+    void recordCommand(long queueDelay, long nanos) {
+        commandCount.incrementAndGet();
+        queueDelayMillis.addAndGet(queueDelay);
+        playbackThreadNanos.addAndGet(nanos);
+        commandLatencies.record(nanos);
+        long max;
+        while (nanos > (max = maxPlaybackThreadNanos.get())) {
+            if (maxPlaybackThreadNanos.compareAndSet(max, nanos)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Records position update tick executed on playback thread.
+     *
+     * @param nanos time spent on position update
+     */
+    void recordTick(long nanos) {
+        tickCount.incrementAndGet();
+        tickNanos.addAndGet(nanos);
+    }
+
+    /**
+     * @return number of executed commands.
+     */
+    public long getCommandCount() {
+        return commandCount.get();
+    }
+
+    /**
+     * @return time spent on main thread posting commands, in nanoseconds.
+     */
+    public long getMainThreadNanos() {
+        return mainThreadNanos.get();
+    }
+
+    /**
+     * @return time spent on playback thread executing commands and position updates, in nanoseconds.
+     */
+    public long getPlaybackThreadNanos() {
+        return playbackThreadNanos.get() + tickNanos.get();
+    }
+
+    /**
+     * @return longest command execution, in nanoseconds.
+     */
+    public long getMaxCommandNanos() {
+        return maxPlaybackThreadNanos.get();
+    }
+
+    /**
+     * @return histogram of command execution times.
+     */
+    public LatencyHistogram.Snapshot getCommandLatencies() {
+        return commandLatencies.snapshot();
+    }
+
+    /**
+     * Clears all measurements, commands recorded concurrently may be counted partially.
+     */
+    public void reset() {
+        commandLatencies = new LatencyHistogram("command");
+        commandCount.set(0);
+        mainThreadNanos.set(0);
+        playbackThreadNanos.set(0);
+        maxPlaybackThreadNanos.set(0);
+        queueDelayMillis.set(0);
+        tickCount.set(0);
+        tickNanos.set(0);
+    }
+
+    /**
+     * @return main thread time taken back by running commands on playback thread, in nanoseconds.
+     */
+    public long getMainThreadNanosSaved() {
+        return getPlaybackThreadNanos() - getMainThreadNanos();
+    }
+
+    @Override
+    public String toString() {
+        long commands = Math.max(1, getCommandCount());
+        return String.format("CommandLatencyStats{commands=%d, ticks=%d, mainThread=%.3fms, playbackThread=%.3fms, " +
+                        "maxCommand=%.3fms, p95Command<=%.1fms, avgQueueDelay=%dms, mainThreadSaved=%.3fms}",
+                getCommandCount(), tickCount.get(), getMainThreadNanos() / 1e6, getPlaybackThreadNanos() / 1e6,
+                getMaxCommandNanos() / 1e6, getCommandLatencies().getPercentileMillis(95), queueDelayMillis.get() / commands, getMainThreadNanosSaved() / 1e6);
+    }
+}
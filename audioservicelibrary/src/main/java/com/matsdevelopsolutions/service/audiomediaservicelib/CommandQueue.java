@@ -0,0 +1,111 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import android.support.annotation.Nullable;
+
+import java.util.LinkedList;
+
+/**
+ * Queue of commands waiting for playback thread.
+ * New command is merged with the last queued one when it supersedes it:
+ * last seek and volume change wins, relative seeks are summed and toggle pairs cancel each other.
+ */
+class CommandQueue {
+
+    private final LinkedList<PlayerCommand> commands = new LinkedList<>();
+    private long coalescedCount = 0;
+
+    /**
+     * Adds command to the queue, merges it with the last queued command if possible.
+     *
+     * @param command command to add
+     * @return true if queue was empty before and has to be scheduled for draining
+     */
+    synchronized boolean offer(final PlayerCommand command) {
+        boolean wasEmpty = commands.isEmpty();
+        if (!wasEmpty && coalesce(commands.getLast(), command)) {
+            coalescedCount++;
+        } else {
+            commands.addLast(command);
+        }
+        return wasEmpty;
+    }
+
+    /**
+     * Removes next command from the queue.
+     *
+     * @return next command, null if queue is empty
+     */
+    @Nullable
+    synchronized PlayerCommand poll() {
+        return commands.isEmpty() ? null : commands.removeFirst();
+    }
+
+    /**
+     * @return number of queued commands.
+     */
+    synchronized int size() {
+        return commands.size();
+    }
+
+    /**
+     * Removes all queued commands.
+     */
+    synchronized void clear() {
+        commands.clear();
+    }
+
+    /**
+     * @return number of commands that were merged and didn't need own execution.
+     */
+    synchronized long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    /**
+     * Merges command into last queued command.
+     *
+     * @param last    last queued command
+     * @param command new command
+     * @return true if command was merged and must not be queued
+     */
+    private boolean coalesce(final PlayerCommand last, final PlayerCommand command) {
+        switch (command.action) {
+            case AudioMediaService.ACTION_SEEK:
+                if (last.action.equals(AudioMediaService.ACTION_SEEK) || last.action.equals(AudioMediaService.ACTION_SEEK_BY)) {
+                    // absolute seek supersedes any pending seek
+                    commands.removeLast();
+                    commands.addLast(command);
+                    return true;
+                }
+                return false;
+            case AudioMediaService.ACTION_SEEK_BY:
+                if (last.action.equals(AudioMediaService.ACTION_SEEK)) {
+                    last.intValue += command.intValue;
+                    return true;
+                } else if (last.action.equals(AudioMediaService.ACTION_SEEK_BY)) {
+                    last.intValue += command.intValue;
+                    if (last.intValue == 0) {
+                        commands.removeLast();
+                    }
+                    return true;
+                }
+                return false;
+            case AudioMediaService.ACTION_CHANGE_VOLUME:
+                if (last.action.equals(AudioMediaService.ACTION_CHANGE_VOLUME)) {
+                    last.floatValue = command.floatValue;
+                    return true;
+                }
+                return false;
+            case AudioMediaService.ACTION_PLAY_TOGGLE:
+            case AudioMediaService.ACTION_MUTE_TOGGLE:
+                if (last.action.equals(command.action)) {
+                    // second toggle cancels the first one
+                    commands.removeLast();
+                    return true;
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+}
@@ -2,10 +2,14 @@ package com.matsdevelopsolutions.service.audiomediaservicelib;
 
 import android.content.Context;
 import android.content.Intent;
+import android.os.Process;
+import android.os.SystemClock;
 import android.support.annotation.FloatRange;
+import android.support.annotation.Nullable;
 
 /**
- * Broadcasts intents for an defined actions
+ * Publishes service events to {@link PlayerEventBus} and {@link PlayerStateRegion} in process,
+ * broadcasts intents for an defined actions only if cross process broadcast is enabled.
  */
 public class IntentBroadcaster {
 
@@ -14,6 +18,11 @@ public class IntentBroadcaster {
      */
     public static final String ACTION_BUFFER_PROGRESS = IntentBroadcaster.class.getName() + ".ACTION_BUFFER_PROGRESS";
 
+    /**
+     * Action for rebuffering start and end intent.
+     */
+    public static final String ACTION_REBUFFERING_CHANGE = IntentBroadcaster.class.getName() + ".ACTION_REBUFFERING_CHANGE";
+
     /**
      * Action for audio state change intent.
      */
@@ -29,6 +38,11 @@ public class IntentBroadcaster {
      */
     public static final String ACTION_CURRENT_POSITION_CHANGE = IntentBroadcaster.class.getName() + ".ACTION_CURRENT_POSITION_CHANGE";
 
+    /**
+     * Action for position anchor change intent, published on start, pause, seek and rebuffering.
+     */
+    public static final String ACTION_POSITION_ANCHOR_CHANGE = IntentBroadcaster.class.getName() + ".ACTION_POSITION_ANCHOR_CHANGE";
+
     /**
      * Action for volume change intent.
      */
@@ -43,9 +57,17 @@ public class IntentBroadcaster {
      */
     public static final String BUFFER_PROGRESS_ARG = "BUFFER_PROGRESS_ARG";
     /**
-     * Media player status - Intent extra argument.
+     * Rebuffering flag - Intent extra argument.
+     */
+    public static final String REBUFFERING_ARG = "REBUFFERING_ARG";
+    /**
+     * Media player status name - Intent extra argument, sent by older service versions.
      */
     public static final String MEDIA_STATUS_ARG = "MEDIA_STATUS_ARG";
+    /**
+     * Media player state ordinal - Intent extra argument.
+     */
+    public static final String MEDIA_STATE_ORDINAL_ARG = "MEDIA_STATE_ORDINAL_ARG";
     /**
      * Media player current position - Intent extra argument.
      */
@@ -54,11 +76,37 @@ public class IntentBroadcaster {
      * Media duration - Intent extra argument.
      */
     public static final String MEDIA_DURATION_ARG = "MEDIA_DURATION_ARG";
+    /**
+     * Position anchor time from SystemClock.elapsedRealtime() - Intent extra argument.
+     */
+    public static final String ANCHOR_TIME_ARG = "ANCHOR_TIME_ARG";
+    /**
+     * Playback rate - Intent extra argument.
+     */
+    public static final String PLAYBACK_RATE_ARG = "PLAYBACK_RATE_ARG";
+    /**
+     * Process id of broadcasting service - Intent extra argument.
+     */
+    public static final String SENDER_PID_ARG = "SENDER_PID_ARG";
+
+    private static final MediaPlayerState[] STATES = MediaPlayerState.values();
 
     /**
      * Context.
      */
     private Context context;
+    /**
+     * In process event bus.
+     */
+    private final PlayerEventBus eventBus;
+    /**
+     * In process state region.
+     */
+    private final PlayerStateRegion stateRegion;
+    /**
+     * Flag if events are broadcast to other processes.
+     */
+    private volatile boolean isCrossProcessEnabled = false;
 
     /**
      * Creates instance of broacaster for the given context.
@@ -66,7 +114,46 @@ public class IntentBroadcaster {
      * @param context
      */
     public IntentBroadcaster(final Context context) {
+        this(context, PlayerEventBus.getInstance(), PlayerStateRegion.getInstance());
+    }
+
+    /**
+     * Creates instance of broacaster for the given context, event bus and state region.
+     *
+     * @param context
+     * @param eventBus    in process event bus
+     * @param stateRegion in process state region
+     */
+    IntentBroadcaster(final Context context, final PlayerEventBus eventBus, final PlayerStateRegion stateRegion) {
         this.context = context;
+        this.eventBus = eventBus;
+        this.stateRegion = stateRegion;
+    }
+
+    /**
+     * Enables or disables broadcasting of events to other processes, in process listeners always receive events.
+     *
+     * @param enabled true to send system broadcasts
+     */
+    public void setCrossProcessEnabled(boolean enabled) {
+        isCrossProcessEnabled = enabled;
+    }
+
+    /**
+     * @return true if events are broadcast to other processes.
+     */
+    public boolean isCrossProcessEnabled() {
+        return isCrossProcessEnabled;
+    }
+
+    /**
+     * Checks if broadcast intent was sent by service running in this process, its event was delivered by {@link PlayerEventBus}.
+     *
+     * @param intent received intent
+     * @return true if intent comes from this process
+     */
+    public static boolean isFromCurrentProcess(Intent intent) {
+        return intent.getIntExtra(SENDER_PID_ARG, -1) == Process.myPid();
     }
 
     /**
@@ -75,9 +162,37 @@ public class IntentBroadcaster {
      * @param state
      */
     public void stateChange(MediaPlayerState state) {
+        stateRegion.writeState(state);
+        eventBus.dispatchStateChanged(state);
+        if (!isCrossProcessEnabled) {
+            return;
+        }
         Intent intent = new Intent(ACTION_STATE_CHANGE);
-        intent.putExtra(MEDIA_STATUS_ARG, state.name());
-        context.sendBroadcast(intent);
+        intent.putExtra(MEDIA_STATE_ORDINAL_ARG, state.ordinal());
+        send(intent);
+    }
+
+    /**
+     * Reads player state from broadcast intent, state name of older service versions is parsed.
+     *
+     * @param intent state change intent
+     * @return player state or null if intent has no valid state
+     */
+    @Nullable
+    public static MediaPlayerState readPlayerState(Intent intent) {
+        int ordinal = intent.getIntExtra(MEDIA_STATE_ORDINAL_ARG, -1);
+        if (ordinal >= 0 && ordinal < STATES.length) {
+            return STATES[ordinal];
+        }
+        String name = intent.getStringExtra(MEDIA_STATUS_ARG);
+        if (name == null) {
+            return null;
+        }
+        try {
+            return MediaPlayerState.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
     }
 
     /**
@@ -86,9 +201,29 @@ public class IntentBroadcaster {
      * @param bufferProgress
      */
     public void buffering(int bufferProgress) {
+        stateRegion.writeBufferProgress(bufferProgress);
+        eventBus.dispatchBufferProgressChanged(bufferProgress);
+        if (!isCrossProcessEnabled) {
+            return;
+        }
         Intent intent = new Intent(ACTION_BUFFER_PROGRESS);
         intent.putExtra(BUFFER_PROGRESS_ARG, bufferProgress);
-        context.sendBroadcast(intent);
+        send(intent);
+    }
+
+    /**
+     * Broadcasts rebuffering start or end intent.
+     *
+     * @param rebuffering true if playback waits for data
+     */
+    public void rebuffering(boolean rebuffering) {
+        eventBus.dispatchRebufferingChanged(rebuffering);
+        if (!isCrossProcessEnabled) {
+            return;
+        }
+        Intent intent = new Intent(ACTION_REBUFFERING_CHANGE);
+        intent.putExtra(REBUFFERING_ARG, rebuffering);
+        send(intent);
     }
 
     /**
@@ -97,9 +232,14 @@ public class IntentBroadcaster {
      * @param mediaInfo
      */
     public void mediaInfoChanged(MediaInfo mediaInfo) {
+        stateRegion.writeMediaInfo(mediaInfo);
+        eventBus.dispatchMediaInfoChanged(mediaInfo);
+        if (!isCrossProcessEnabled) {
+            return;
+        }
         Intent intent = new Intent(ACTION_MEDIA_INFO_CHANGE);
         intent.putExtra(MEDIA_INFO_ARG, mediaInfo);
-        context.sendBroadcast(intent);
+        send(intent);
     }
 
     /**
@@ -108,10 +248,45 @@ public class IntentBroadcaster {
      * @param currentPosition
      */
     public void currentPosition(int currentPosition, int duration) {
+        stateRegion.writePosition(currentPosition, duration, SystemClock.elapsedRealtime());
+        eventBus.dispatchPositionChanged(currentPosition, duration);
+        if (!isCrossProcessEnabled) {
+            return;
+        }
         Intent intent = new Intent(ACTION_CURRENT_POSITION_CHANGE);
         intent.putExtra(CURRENT_POSITION_ARG, currentPosition);
         intent.putExtra(MEDIA_DURATION_ARG, duration);
-        context.sendBroadcast(intent);
+        send(intent);
+    }
+
+    /**
+     * Broadcasts position anchor.
+     *
+     * @param anchor
+     */
+    public void positionAnchor(PositionAnchor anchor) {
+        stateRegion.writePositionAnchor(anchor);
+        eventBus.dispatchPositionAnchorChanged(anchor);
+        if (!isCrossProcessEnabled) {
+            return;
+        }
+        Intent intent = new Intent(ACTION_POSITION_ANCHOR_CHANGE);
+        intent.putExtra(CURRENT_POSITION_ARG, anchor.getPosition());
+        intent.putExtra(MEDIA_DURATION_ARG, anchor.getDuration());
+        intent.putExtra(ANCHOR_TIME_ARG, anchor.getElapsedRealtime());
+        intent.putExtra(PLAYBACK_RATE_ARG, anchor.getRate());
+        send(intent);
+    }
+
+    /**
+     * Reads position anchor from broadcast intent.
+     *
+     * @param intent position anchor intent
+     * @return position anchor
+     */
+    public static PositionAnchor readPositionAnchor(Intent intent) {
+        return new PositionAnchor(intent.getIntExtra(CURRENT_POSITION_ARG, 0), intent.getIntExtra(MEDIA_DURATION_ARG, 0),
+                intent.getLongExtra(ANCHOR_TIME_ARG, 0), intent.getFloatExtra(PLAYBACK_RATE_ARG, 0f));
     }
 
     /**
@@ -120,8 +295,18 @@ public class IntentBroadcaster {
      * @param volume
      */
     public void volume(@FloatRange(from = 0f, to = 1.0) float volume) {
+        stateRegion.writeVolume(volume);
+        eventBus.dispatchVolumeChanged(volume);
+        if (!isCrossProcessEnabled) {
+            return;
+        }
         Intent intent = new Intent(ACTION_VOLUME_CHANGE);
         intent.putExtra(AudioMediaService.VOLUME_VALUE_ARG, volume);
+        send(intent);
+    }
+
+    private void send(Intent intent) {
+        intent.putExtra(SENDER_PID_ARG, Process.myPid());
         context.sendBroadcast(intent);
     }
 }
@@ -5,6 +5,8 @@ import android.content.Context;
 import android.content.Intent;
 import android.support.annotation.FloatRange;
 
+import java.util.List;
+
 /**
  * Helper class that creates intents for {AudioMediaService}.
  */
@@ -81,6 +83,93 @@ public final class IntentGenerator {
                 AudioMediaService.DEFAULT_NOTIFICATION_FLAG, AudioMediaService.FLAG_NOTIFICATION_STYLE_NORMAL);
     }
 
+    /**
+     * Creates intent that adds media to playback queue, played gapless after current media.
+     *
+     * @param context   context
+     * @param mediaInfo media to enqueue
+     * @return enqueue intent
+     */
+    public static Intent createEnqueueIntent(Context context, MediaInfo mediaInfo) {
+        Intent intent = new Intent(AudioMediaService.ACTION_ENQUEUE);
+        intent.setComponent(new ComponentName(context, AudioMediaService.class));
+        intent.putExtra(AudioMediaService.SOURCE_URL_ARG, mediaInfo.streamUrl);
+        intent.putExtra(AudioMediaService.SOURCE_TITLE_ARG, mediaInfo.title);
+        intent.putExtra(AudioMediaService.SOURCE_DESC_ARG, mediaInfo.description);
+        intent.putExtra(AudioMediaService.SOURCE_ART_URI_ARG, mediaInfo.artUri);
+        return intent;
+    }
+
+    /**
+     * Creates intent that adds media batch to playback queue, batch is encoded with {@link MediaInfoCodec}.
+     *
+     * @param context    context
+     * @param mediaInfos media to enqueue
+     * @return enqueue batch intent
+     */
+    public static Intent createEnqueueBatchIntent(Context context, List<MediaInfo> mediaInfos) {
+        Intent intent = new Intent(AudioMediaService.ACTION_ENQUEUE_BATCH);
+        intent.setComponent(new ComponentName(context, AudioMediaService.class));
+        intent.putExtra(AudioMediaService.MEDIA_INFO_BATCH_ARG, MediaInfoCodec.encode(mediaInfos));
+        return intent;
+    }
+
+    /**
+     * Creates intent that removes all upcoming media from playback queue.
+     *
+     * @param context context
+     * @return clear queue intent
+     */
+    public static Intent createClearQueueIntent(Context context) {
+        Intent intent = new Intent(AudioMediaService.ACTION_CLEAR_QUEUE);
+        intent.setComponent(new ComponentName(context, AudioMediaService.class));
+        return intent;
+    }
+
+    /**
+     * Creates intent that subscribes for position updates.
+     *
+     * @param context      context
+     * @param subscriberId unique subscriber id
+     * @param interval     update interval in milliseconds
+     * @return subscribe intent
+     */
+    public static Intent createSubscribePositionIntent(Context context, final String subscriberId, final int interval) {
+        Intent intent = new Intent(AudioMediaService.ACTION_SUBSCRIBE_POSITION);
+        intent.setComponent(new ComponentName(context, AudioMediaService.class));
+        intent.putExtra(AudioMediaService.POSITION_SUBSCRIBER_ID_ARG, subscriberId);
+        intent.putExtra(AudioMediaService.POSITION_UPDATE_INTERVAL_ARG, interval);
+        return intent;
+    }
+
+    /**
+     * Creates intent that cancels position updates subscription.
+     *
+     * @param context      context
+     * @param subscriberId subscriber id used to subscribe
+     * @return unsubscribe intent
+     */
+    public static Intent createUnsubscribePositionIntent(Context context, final String subscriberId) {
+        Intent intent = new Intent(AudioMediaService.ACTION_UNSUBSCRIBE_POSITION);
+        intent.setComponent(new ComponentName(context, AudioMediaService.class));
+        intent.putExtra(AudioMediaService.POSITION_SUBSCRIBER_ID_ARG, subscriberId);
+        return intent;
+    }
+
+    /**
+     * Creates intent that enables or disables cross process broadcasts of service events.
+     *
+     * @param context context
+     * @param enabled true to send system broadcasts to other processes
+     * @return broadcast mode intent
+     */
+    public static Intent createBroadcastModeIntent(Context context, final boolean enabled) {
+        Intent intent = new Intent(AudioMediaService.ACTION_BROADCAST_MODE);
+        intent.setComponent(new ComponentName(context, AudioMediaService.class));
+        intent.putExtra(AudioMediaService.BROADCAST_ENABLED_ARG, enabled);
+        return intent;
+    }
+
     /**
      * Creates media player stop intent.
      *
@@ -173,4 +262,40 @@ public final class IntentGenerator {
         return intent;
     }
 
+    /**
+     * Creates bind intent of {@link PlayerController} for clients in the same process.
+     *
+     * @param context context
+     * @return bind intent
+     */
+    public static Intent createBindIntent(Context context) {
+        Intent intent = new Intent();
+        intent.setComponent(new ComponentName(context, AudioMediaService.class));
+        return intent;
+    }
+
+    /**
+     * Creates bind intent of {@link android.os.Messenger} for clients in other processes of the same app,
+     * see {@link PlayerMessages}. Service is resolved in the package of given context.
+     *
+     * @param context context
+     * @return messenger bind intent
+     */
+    public static Intent createMessengerBindIntent(Context context) {
+        return createMessengerBindIntent(new ComponentName(context, AudioMediaService.class));
+    }
+
+    /**
+     * Creates bind intent of {@link android.os.Messenger} for service hosted by another app,
+     * the service has to be exported in manifest of that app.
+     *
+     * @param service component of the service, e.g. {@code new ComponentName("com.example.player", "com.example.player.PlayerService")}
+     * @return messenger bind intent
+     */
+    public static Intent createMessengerBindIntent(ComponentName service) {
+        Intent intent = new Intent(AudioMediaService.ACTION_BIND_MESSENGER);
+        intent.setComponent(service);
+        return intent;
+    }
+
 }
@@ -0,0 +1,17 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import android.support.annotation.Nullable;
+
+/**
+ * Listener of player operations rejected because of player state.
+ */
+public interface InvalidStateListener {
+
+    /**
+     * Called when operation is not allowed at current player state.
+     *
+     * @param operation rejected operation
+     * @param state     current player state
+     */
+    void onInvalidState(PlayerOperation operation, @Nullable MediaPlayerState state);
+}
@@ -0,0 +1,152 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free histogram of operation latencies with fixed millisecond buckets.
+ */
+public class LatencyHistogram {
+
+    /**
+     * Upper bounds of buckets in milliseconds, last bucket holds everything above.
+     */
+    private static final long[] BUCKET_BOUNDS_MS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000};
+
+    private final String name;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS_MS.length + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sumNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Creates instance of {@link LatencyHistogram}.
+     *
+     * @param name histogram name
+     */
+    public LatencyHistogram(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * Records single latency.
+     *
+     * @param nanos latency in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            return;
+        }
+        buckets.incrementAndGet(bucketOf(nanos / 1000000));
+        count.incrementAndGet();
+        sumNanos.addAndGet(nanos);
+        long max;
+        while (nanos > (max = maxNanos.get())) {
+            if (maxNanos.compareAndSet(max, nanos)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * @return histogram name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return copy of current values.
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[buckets.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return new Snapshot(name, counts, count.get(), sumNanos.get(), maxNanos.get());
+    }
+
+    private static int bucketOf(long millis) {
+        for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+            if (millis < BUCKET_BOUNDS_MS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_BOUNDS_MS.length;
+    }
+
+    /**
+     * Immutable copy of histogram values.
+     */
+    public static final class Snapshot {
+
+        private final String name;
+        private final long[] counts;
+        private final long count;
+        private final long sumNanos;
+        private final long maxNanos;
+
+        Snapshot(final String name, final long[] counts, final long count, final long sumNanos, final long maxNanos) {
+            this.name = name;
+            this.counts = counts;
+            this.count = count;
+            this.sumNanos = sumNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        /**
+         * @return histogram name.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return number of recorded latencies.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return mean latency in milliseconds, 0 if nothing was recorded.
+         */
+        public double getMeanMillis() {
+            return count > 0 ? sumNanos / 1e6 / count : 0;
+        }
+
+        /**
+         * @return maximum latency in milliseconds.
+         */
+        public double getMaxMillis() {
+            return maxNanos / 1e6;
+        }
+
+        /**
+         * Gets upper bound of bucket holding the percentile, maximum latency for the last bucket.
+         *
+         * @param percentile percentile in range (0, 100]
+         * @return latency in milliseconds, 0 if nothing was recorded
+         */
+        public double getPercentileMillis(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(count * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return i < BUCKET_BOUNDS_MS.length ? Math.min(BUCKET_BOUNDS_MS[i], getMaxMillis()) : getMaxMillis();
+                }
+            }
+            return getMaxMillis();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s{count=%d, mean=%.1fms, p50<=%.1fms, p95<=%.1fms, max=%.1fms}", name, count,
+                    getMeanMillis(), getPercentileMillis(50), getPercentileMillis(95), getMaxMillis());
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map of long keys to int values, without boxing nor entry objects.
+ * Key 0 is reserved for empty slots. Not thread safe.
+ */
+class LongIntHashMap {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+    private int resizeThreshold;
+
+    /**
+     * Creates instance of {@link LongIntHashMap}.
+     *
+     * @param expectedSize number of entries stored without resize
+     */
+    LongIntHashMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3 / 4 < expectedSize) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * Gets value of key.
+     *
+     * @param key          non zero key
+     * @param defaultValue value returned if key is missing
+     * @return value of key or default value
+     */
+    int get(long key, int defaultValue) {
+        int slot = mix(key) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Puts value of key.
+     *
+     * @param key   non zero key
+     * @param value value
+     */
+    void put(long key, int value) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Key 0 is reserved");
+        }
+        int slot = mix(key) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeThreshold) {
+            resize(keys.length << 1);
+        }
+    }
+
+    /**
+     * Removes key, following entries of its probe sequence are shifted back so lookups need no tombstones.
+     *
+     * @param key non zero key
+     * @return true if key was present
+     */
+    boolean remove(long key) {
+        int slot = mix(key) & mask;
+        while (keys[slot] != key) {
+            if (keys[slot] == 0) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keys[next] != 0) {
+            int home = mix(keys[next]) & mask;
+            // entry can fill the gap if its home slot is not between gap and its slot
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = 0;
+        size--;
+        return true;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    void clear() {
+        Arrays.fill(keys, 0);
+        size = 0;
+    }
+
+    /**
+     * @return number of entries.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return slot count, iterate slots with {@link #keyAt(int)} and {@link #valueAt(int)}.
+     */
+    int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * @param slot slot index
+     * @return key at slot, 0 for empty slot
+     */
+    long keyAt(int slot) {
+        return keys[slot];
+    }
+
+    /**
+     * @param slot slot index
+     * @return value at slot
+     */
+    int valueAt(int slot) {
+        return values[slot];
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeThreshold = capacity * 3 / 4;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,497 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Progress store backed by a memory mapped append-only log, for libraries with many media items.
+ * Every progress update appends fixed size record of 64-bit url hash, update time and position,
+ * in-memory {@link LongIntHashMap} index points to the latest record of every url.
+ * Opening the store scans records without parsing, log is compacted in background when most records are stale.
+ * Removal appends record with {@link #REMOVED_POSITION}. Least recently updated urls over capacity or max age
+ * are evicted by moving a cursor over log, replay of log on open evicts the same urls, so memory and log size
+ * stay bounded.
+ * Progress stored by {@link MediaProgressPreferences} is migrated on first access of its url.
+ * {@link #getQuery()} reads a copy of index with positions under its own lock, so queries don't wait for flush
+ * or compaction.
+ */
+public class MappedProgressStore implements ProgressStore, Closeable {
+
+    private static final String TAG = MappedProgressStore.class.getSimpleName();
+
+    private static final int MAGIC = 0x4D505331;
+    private static final int VERSION = 1;
+    /**
+     * Record layout: hash, update time, position, check value.
+     */
+    static final int RECORD_SIZE = 24;
+    private static final int HEADER_SIZE = RECORD_SIZE;
+    private static final int HASH_OFFSET = 0;
+    private static final int TIME_OFFSET = 8;
+    private static final int POSITION_OFFSET = 16;
+    private static final int CHECK_OFFSET = 20;
+    private static final int INITIAL_RECORD_CAPACITY = 1024;
+    /**
+     * Log is compacted when it has at least this many records and most of them are stale.
+     */
+    static final int MIN_COMPACT_RECORDS = 4096;
+    /**
+     * Position of record removing url progress.
+     */
+    private static final int REMOVED_POSITION = -1;
+
+    private final File file;
+    private final int capacity;
+    private final long maxAge;
+    @Nullable
+    private final MediaProgressPreferences legacyPreferences;
+    /**
+     * Urls migrated or removed, their legacy preferences are removed on flush.
+     */
+    private final List<String> legacyRemovals = new ArrayList<>();
+    private final LongIntHashMap index = new LongIntHashMap(INITIAL_RECORD_CAPACITY);
+    private final Object queryLock = new Object();
+    /**
+     * Position of every url for queries, guarded by {@link #queryLock}.
+     */
+    private LongIntHashMap queryPositions = new LongIntHashMap(INITIAL_RECORD_CAPACITY);
+    /**
+     * Latest record of every url for queries of recently played urls, guarded by {@link #queryLock}.
+     */
+    private LongIntHashMap queryRecords = new LongIntHashMap(INITIAL_RECORD_CAPACITY);
+    private final ProgressQuery query = new Query();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, TAG + ".Compactor");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    private RandomAccessFile randomAccessFile;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int recordCount;
+    private int recordCapacity;
+    /**
+     * Eviction cursor, records before it are stale or evicted.
+     */
+    private int oldestRecord;
+    private int evictionCount;
+    private boolean isDirty;
+    private boolean isCompactionScheduled;
+    private int compactionCount;
+
+    private MappedProgressStore(File file, @Nullable MediaProgressPreferences legacyPreferences, int capacity, long maxAge) {
+        this.file = file;
+        this.legacyPreferences = legacyPreferences;
+        this.capacity = capacity;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Opens progress store with default capacity and max age, log file is created if it doesn't exist.
+     *
+     * @param file              log file
+     * @param legacyPreferences preferences of older versions to migrate progress from, null if not needed
+     * @return opened store
+     * @throws IOException if log file can't be opened or mapped
+     */
+    public static MappedProgressStore open(File file, @Nullable MediaProgressPreferences legacyPreferences) throws IOException {
+        return open(file, legacyPreferences, DEFAULT_CAPACITY, DEFAULT_MAX_AGE);
+    }
+
+    /**
+     * Opens progress store, log file is created if it doesn't exist.
+     *
+     * @param file              log file
+     * @param legacyPreferences preferences of older versions to migrate progress from, null if not needed
+     * @param capacity          maximum number of urls with stored progress
+     * @param maxAge            maximum age of stored progress in milliseconds, 0 for no limit
+     * @return opened store
+     * @throws IOException if log file can't be opened or mapped
+     */
+    public static MappedProgressStore open(File file, @Nullable MediaProgressPreferences legacyPreferences,
+                                           int capacity, long maxAge) throws IOException {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Progress store capacity must be positive");
+        }
+        MappedProgressStore store = new MappedProgressStore(file, legacyPreferences, capacity, maxAge);
+        synchronized (store) {
+            store.openLog();
+        }
+        return store;
+    }
+
+    @Override
+    public synchronized int getProgress(String url) {
+        long hash = UrlHash.hash64(url);
+        int record = index.get(hash, -1);
+        if (record >= 0) {
+            return buffer.getInt(offset(record) + POSITION_OFFSET);
+        }
+        if (legacyPreferences != null) {
+            int position = legacyPreferences.getStoredProgress(url);
+            if (position >= 0) {
+                append(hash, position);
+                legacyRemovals.add(url);
+                return position;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public synchronized void getProgress(String[] urls, int[] positions) {
+        for (int i = 0; i < urls.length; i++) {
+            positions[i] = getProgress(urls[i]);
+        }
+    }
+
+    /**
+     * Records are appended in time order and compaction keeps it, so later record means more recent progress.
+     */
+    @Override
+    public synchronized int getRecentlyPlayed(String[] urls, int[] indices) {
+        RecentSelector selector = new RecentSelector(indices.length);
+        for (int i = 0; i < urls.length; i++) {
+            int record = index.get(UrlHash.hash64(urls[i]), -1);
+            if (record >= 0) {
+                selector.offer(record, i);
+            }
+        }
+        return selector.copyTo(indices);
+    }
+
+    @Override
+    public synchronized void putProgress(String url, int position) {
+        append(UrlHash.hash64(url), position);
+    }
+
+    @Override
+    public synchronized void removeProgress(String url) {
+        long hash = UrlHash.hash64(url);
+        if (index.get(hash, -1) >= 0 && append(hash, REMOVED_POSITION)) {
+            unindex(hash);
+        }
+        if (legacyPreferences != null) {
+            legacyRemovals.add(url);
+        }
+    }
+
+    @Override
+    public synchronized boolean hasPendingProgress() {
+        return isDirty;
+    }
+
+    /**
+     * Forces mapped log to disk, progress of killed process is already safe in page cache.
+     */
+    @Override
+    public synchronized void flush() {
+        if (isDirty) {
+            buffer.force();
+            isDirty = false;
+        }
+        if (legacyPreferences != null && !legacyRemovals.isEmpty()) {
+            legacyPreferences.removeProgress(legacyRemovals);
+            legacyRemovals.clear();
+        }
+    }
+
+    @Override
+    public ProgressQuery getQuery() {
+        return query;
+    }
+
+    /**
+     * Flushes and closes log, store can't be used afterwards.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        compactor.shutdown();
+        channel.close();
+        randomAccessFile.close();
+    }
+
+    /**
+     * @return number of urls with stored progress.
+     */
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * @return number of records in log, including stale ones.
+     */
+    synchronized int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Rewrites log with the latest record of every url.
+     *
+     * @throws IOException if log can't be written
+     */
+    synchronized void compact() throws IOException {
+        File compacted = new File(file.getPath() + ".compact");
+        RandomAccessFile compactedFile = new RandomAccessFile(compacted, "rw");
+        try {
+            int liveCount = index.size();
+            int compactedCapacity = Math.max(INITIAL_RECORD_CAPACITY, liveCount * 2);
+            compactedFile.setLength(HEADER_SIZE + (long) compactedCapacity * RECORD_SIZE);
+            MappedByteBuffer target = compactedFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, compactedFile.length());
+            writeHeader(target);
+            // log order is kept, records stay sorted by update time
+            int written = 0;
+            for (int record = 0; record < recordCount; record++) {
+                long hash = buffer.getLong(offset(record) + HASH_OFFSET);
+                if (index.get(hash, -1) == record) {
+                    copyRecord(record, target, written++);
+                }
+            }
+            target.force();
+        } finally {
+            compactedFile.close();
+        }
+        channel.close();
+        randomAccessFile.close();
+        if (!compacted.renameTo(file)) {
+            throw new IOException(String.format("Could not replace %s with compacted log", file));
+        }
+        compactionCount++;
+        openLog();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("MappedProgressStore{urls=%d/%d, records=%d/%d, evictions=%d, compactions=%d}",
+                index.size(), capacity, recordCount, recordCapacity, evictionCount, compactionCount);
+    }
+
+    /**
+     * Maps log file and rebuilds index from its records, torn record at the end of log is dropped.
+     */
+    private void openLog() throws IOException {
+        boolean isNew = !file.exists() || file.length() < HEADER_SIZE;
+        randomAccessFile = new RandomAccessFile(file, "rw");
+        channel = randomAccessFile.getChannel();
+        if (isNew) {
+            randomAccessFile.setLength(HEADER_SIZE + (long) INITIAL_RECORD_CAPACITY * RECORD_SIZE);
+        }
+        map();
+        if (isNew) {
+            writeHeader(buffer);
+        } else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException(String.format("Unsupported progress log %s", file));
+        }
+        index.clear();
+        // queries read the previous copy until the log is replayed
+        LongIntHashMap positions = new LongIntHashMap(INITIAL_RECORD_CAPACITY);
+        LongIntHashMap records = new LongIntHashMap(INITIAL_RECORD_CAPACITY);
+        recordCount = 0;
+        while (recordCount < recordCapacity) {
+            int offset = offset(recordCount);
+            long hash = buffer.getLong(offset + HASH_OFFSET);
+            int position = buffer.getInt(offset + POSITION_OFFSET);
+            if (hash == 0 || buffer.getInt(offset + CHECK_OFFSET) != check(hash, buffer.getLong(offset + TIME_OFFSET),
+                    position)) {
+                break;
+            }
+            if (position == REMOVED_POSITION) {
+                index.remove(hash);
+                positions.remove(hash);
+                records.remove(hash);
+            } else {
+                index.put(hash, recordCount);
+                positions.put(hash, position);
+                records.put(hash, recordCount);
+            }
+            recordCount++;
+        }
+        synchronized (queryLock) {
+            queryPositions = positions;
+            queryRecords = records;
+        }
+        oldestRecord = 0;
+        evict();
+    }
+
+    private void map() throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, randomAccessFile.length());
+        recordCapacity = (int) ((randomAccessFile.length() - HEADER_SIZE) / RECORD_SIZE);
+    }
+
+    /**
+     * Appends record and points index to it, removal record is not indexed.
+     *
+     * @return false if log could not grow
+     */
+    private boolean append(long hash, int position) {
+        if (recordCount == recordCapacity) {
+            try {
+                buffer.force();
+                randomAccessFile.setLength(HEADER_SIZE + (long) recordCapacity * 2 * RECORD_SIZE);
+                map();
+            } catch (IOException e) {
+                Log.w(TAG, "Could not grow progress log, progress is not stored", e);
+                return false;
+            }
+        }
+        long time = System.currentTimeMillis();
+        int offset = offset(recordCount);
+        buffer.putLong(offset + HASH_OFFSET, hash);
+        buffer.putLong(offset + TIME_OFFSET, time);
+        buffer.putInt(offset + POSITION_OFFSET, position);
+        buffer.putInt(offset + CHECK_OFFSET, check(hash, time, position));
+        if (position != REMOVED_POSITION) {
+            indexRecord(hash, recordCount, position);
+        }
+        recordCount++;
+        isDirty = true;
+        evict();
+        scheduleCompaction();
+        return true;
+    }
+
+    /**
+     * Evicts least recently updated urls while store is over capacity or their progress is older than max age.
+     * Log is in update order, so the first record still pointed by index is the least recently updated url.
+     */
+    private void evict() {
+        long minTime = maxAge > 0 ? System.currentTimeMillis() - maxAge : Long.MIN_VALUE;
+        while (oldestRecord < recordCount && index.size() > 0) {
+            int offset = offset(oldestRecord);
+            long hash = buffer.getLong(offset + HASH_OFFSET);
+            if (index.get(hash, -1) == oldestRecord) {
+                if (index.size() <= capacity && buffer.getLong(offset + TIME_OFFSET) >= minTime) {
+                    return;
+                }
+                unindex(hash);
+                evictionCount++;
+            }
+            oldestRecord++;
+        }
+    }
+
+    /**
+     * Points index and query copy to the latest record of url.
+     */
+    private void indexRecord(long hash, int record, int position) {
+        index.put(hash, record);
+        synchronized (queryLock) {
+            queryPositions.put(hash, position);
+            queryRecords.put(hash, record);
+        }
+    }
+
+    private void unindex(long hash) {
+        index.remove(hash);
+        synchronized (queryLock) {
+            queryPositions.remove(hash);
+            queryRecords.remove(hash);
+        }
+    }
+
+    private void scheduleCompaction() {
+        if (isCompactionScheduled || recordCount < MIN_COMPACT_RECORDS || recordCount < index.size() * 2) {
+            return;
+        }
+        isCompactionScheduled = true;
+        compactor.execute(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (MappedProgressStore.this) {
+                    isCompactionScheduled = false;
+                    try {
+                        compact();
+                    } catch (IOException e) {
+                        Log.w(TAG, "Progress log compaction failed", e);
+                    }
+                }
+            }
+        });
+    }
+
+    private void copyRecord(int record, MappedByteBuffer target, int targetRecord) {
+        int from = offset(record);
+        int to = offset(targetRecord);
+        target.putLong(to + HASH_OFFSET, buffer.getLong(from + HASH_OFFSET));
+        target.putLong(to + TIME_OFFSET, buffer.getLong(from + TIME_OFFSET));
+        target.putInt(to + POSITION_OFFSET, buffer.getInt(from + POSITION_OFFSET));
+        target.putInt(to + CHECK_OFFSET, buffer.getInt(from + CHECK_OFFSET));
+    }
+
+    private static void writeHeader(MappedByteBuffer target) {
+        target.putInt(0, MAGIC);
+        target.putInt(4, VERSION);
+    }
+
+    private static int offset(int record) {
+        return HEADER_SIZE + record * RECORD_SIZE;
+    }
+
+    private static int check(long hash, long time, int position) {
+        long value = hash ^ (time * 31) ^ ((long) position << 17) ^ MAGIC;
+        return (int) (value ^ (value >>> 32));
+    }
+
+    /**
+     * Queries of the index copy, progress of older versions is read from their query without migration.
+     */
+    private final class Query implements ProgressQuery {
+
+        @Override
+        public int getProgress(String url) {
+            int position;
+            synchronized (queryLock) {
+                position = queryPositions.get(UrlHash.hash64(url), -1);
+            }
+            if (position >= 0) {
+                return position;
+            }
+            return legacyPreferences != null ? legacyPreferences.getQuery().getProgress(url) : 0;
+        }
+
+        @Override
+        public void getProgress(String[] urls, int[] positions) {
+            synchronized (queryLock) {
+                for (int i = 0; i < urls.length; i++) {
+                    positions[i] = queryPositions.get(UrlHash.hash64(urls[i]), -1);
+                }
+            }
+            for (int i = 0; i < urls.length; i++) {
+                if (positions[i] < 0) {
+                    positions[i] = legacyPreferences != null ? legacyPreferences.getQuery().getProgress(urls[i]) : 0;
+                }
+            }
+        }
+
+        @Override
+        public int getRecentlyPlayed(String[] urls, int[] indices) {
+            RecentSelector selector = new RecentSelector(indices.length);
+            synchronized (queryLock) {
+                for (int i = 0; i < urls.length; i++) {
+                    int record = queryRecords.get(UrlHash.hash64(urls[i]), -1);
+                    if (record >= 0) {
+                        selector.offer(record, i);
+                    }
+                }
+            }
+            return selector.copyTo(indices);
+        }
+    }
+}
@@ -1,12 +1,14 @@
 package com.matsdevelopsolutions.service.audiomediaservicelib;
 
 
-import java.io.Serializable;
+import android.os.Parcel;
+import android.os.Parcelable;
 
 /**
  * Media Info class stores details about media stream.
+ * Travels in intents as {@link Parcelable}, batches are encoded with {@link MediaInfoCodec}.
  */
-public class MediaInfo implements Serializable {
+public class MediaInfo implements Parcelable {
     /**
      * Title of the media stream.
      */
@@ -23,4 +25,51 @@ public class MediaInfo implements Serializable {
      * Media stream url.
      */
     public String streamUrl;
+
+    public MediaInfo() {
+    }
+
+    /**
+     * Creates copy of media info.
+     *
+     * @param other copied media info
+     */
+    public MediaInfo(MediaInfo other) {
+        title = other.title;
+        description = other.description;
+        artUri = other.artUri;
+        streamUrl = other.streamUrl;
+    }
+
+    protected MediaInfo(Parcel in) {
+        title = in.readString();
+        description = in.readString();
+        artUri = in.readString();
+        streamUrl = in.readString();
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeString(title);
+        dest.writeString(description);
+        dest.writeString(artUri);
+        dest.writeString(streamUrl);
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    public static final Creator<MediaInfo> CREATOR = new Creator<MediaInfo>() {
+        @Override
+        public MediaInfo createFromParcel(Parcel in) {
+            return new MediaInfo(in);
+        }
+
+        @Override
+        public MediaInfo[] newArray(int size) {
+            return new MediaInfo[size];
+        }
+    };
 }
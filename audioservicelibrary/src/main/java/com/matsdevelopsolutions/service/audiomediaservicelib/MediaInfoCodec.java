@@ -0,0 +1,216 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Versioned compact binary encoding of {@link MediaInfo} batches, e.g. queue payloads crossing process boundary.
+ * <p>
+ * Layout: version byte, field count, item count, then field strings of every item.
+ * Numbers are unsigned varints. String is 0 for null, index + 2 of earlier string repeated in the batch,
+ * or 1 followed by length of prefix shared with the same field of previous item, suffix length and suffix UTF-8 bytes,
+ * so art uris repeated across batch and stream urls of the same host are written once.
+ * Fields appended by newer encoders are skipped, incompatible layout changes bump {@link #VERSION}.
+ */
+public final class MediaInfoCodec {
+
+    /**
+     * Encoding version, decoders reject other versions.
+     */
+    public static final int VERSION = 1;
+
+    private static final int FIELD_COUNT = 4;
+    private static final int NULL_STRING = 0;
+    private static final int NEW_STRING = 1;
+    private static final int STRING_REFERENCE = 2;
+    private static final String UTF_8 = "UTF-8";
+
+    private MediaInfoCodec() {
+    }
+
+    /**
+     * Encodes media info batch.
+     *
+     * @param mediaInfos media items
+     * @return encoded batch
+     */
+    public static byte[] encode(List<MediaInfo> mediaInfos) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + mediaInfos.size() * 32);
+        Map<String, Integer> strings = new HashMap<>();
+        String[] previous = new String[FIELD_COUNT];
+        out.write(VERSION);
+        writeVarint(out, FIELD_COUNT);
+        writeVarint(out, mediaInfos.size());
+        for (MediaInfo mediaInfo : mediaInfos) {
+            writeString(out, strings, previous, 0, mediaInfo.title);
+            writeString(out, strings, previous, 1, mediaInfo.description);
+            writeString(out, strings, previous, 2, mediaInfo.artUri);
+            writeString(out, strings, previous, 3, mediaInfo.streamUrl);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes media info batch.
+     *
+     * @param data encoded batch
+     * @return media items
+     * @throws IllegalArgumentException if data has unsupported version or is malformed
+     */
+    public static List<MediaInfo> decode(byte[] data) {
+        Reader in = new Reader(data);
+        int version = in.readByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException(String.format("Unsupported media info encoding version %d", version));
+        }
+        int fieldCount = in.readVarint();
+        int count = in.readVarint();
+        if (fieldCount < FIELD_COUNT || count < 0) {
+            throw new IllegalArgumentException("Malformed media info data header");
+        }
+        List<MediaInfo> mediaInfos = new ArrayList<>(Math.min(count, data.length));
+        List<String> strings = new ArrayList<>();
+        String[] previous = new String[fieldCount];
+        for (int i = 0; i < count; i++) {
+            for (int field = 0; field < fieldCount; field++) {
+                previous[field] = in.readString(strings, previous[field]);
+            }
+            MediaInfo mediaInfo = new MediaInfo();
+            mediaInfo.title = previous[0];
+            mediaInfo.description = previous[1];
+            mediaInfo.artUri = previous[2];
+            mediaInfo.streamUrl = previous[3];
+            mediaInfos.add(mediaInfo);
+        }
+        return mediaInfos;
+    }
+
+    private static void writeString(ByteArrayOutputStream out, Map<String, Integer> strings,
+                                    String[] previous, int field, String value) {
+        String previousValue = previous[field];
+        previous[field] = value;
+        if (value == null) {
+            writeVarint(out, NULL_STRING);
+            return;
+        }
+        Integer index = strings.get(value);
+        if (index != null) {
+            writeVarint(out, STRING_REFERENCE + index);
+            return;
+        }
+        strings.put(value, strings.size());
+        int prefix = sharedPrefixLength(previousValue, value);
+        byte[] suffix = encodeUtf8(value.substring(prefix));
+        writeVarint(out, NEW_STRING);
+        writeVarint(out, prefix);
+        writeVarint(out, suffix.length);
+        out.write(suffix, 0, suffix.length);
+    }
+
+    /**
+     * Counts chars shared at start of both strings, surrogate pairs are not split.
+     */
+    private static int sharedPrefixLength(String previous, String value) {
+        if (previous == null) {
+            return 0;
+        }
+        int max = Math.min(previous.length(), value.length());
+        int length = 0;
+        while (length < max && previous.charAt(length) == value.charAt(length)) {
+            length++;
+        }
+        if (length > 0 && Character.isHighSurrogate(value.charAt(length - 1))) {
+            length--;
+        }
+        return length;
+    }
+
+    /**
+     * Encodes string with charset name, {@code Charset} overloads are not available before API 9.
+     */
+    private static byte[] encodeUtf8(String value) {
+        try {
+            return value.getBytes(UTF_8);
+        } catch (UnsupportedEncodingException e) {
+            // UTF-8 is supported on every platform
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String decodeUtf8(byte[] data, int offset, int length) {
+        try {
+            return new String(data, offset, length, UTF_8);
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * Reads encoded data sequentially.
+     */
+    private static final class Reader {
+
+        private final byte[] data;
+        private int position;
+
+        Reader(byte[] data) {
+            this.data = data;
+        }
+
+        int readByte() {
+            if (position >= data.length) {
+                throw new IllegalArgumentException("Truncated media info data");
+            }
+            return data[position++] & 0xFF;
+        }
+
+        int readVarint() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in media info data");
+        }
+
+        String readString(List<String> strings, String previous) {
+            int tag = readVarint();
+            if (tag == NULL_STRING) {
+                return null;
+            }
+            if (tag == NEW_STRING) {
+                int prefix = readVarint();
+                int length = readVarint();
+                if (prefix < 0 || prefix > (previous != null ? previous.length() : 0)
+                        || length < 0 || length > data.length - position) {
+                    throw new IllegalArgumentException("Truncated media info data");
+                }
+                String suffix = decodeUtf8(data, position, length);
+                position += length;
+                String value = prefix > 0 ? previous.substring(0, prefix) + suffix : suffix;
+                strings.add(value);
+                return value;
+            }
+            int index = tag - STRING_REFERENCE;
+            if (index < 0 || index >= strings.size()) {
+                throw new IllegalArgumentException(String.format("Invalid string reference %d", index));
+            }
+            return strings.get(index);
+        }
+    }
+}
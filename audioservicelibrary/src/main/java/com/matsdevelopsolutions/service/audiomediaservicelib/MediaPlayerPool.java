@@ -0,0 +1,165 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import android.util.Log;
+
+import java.util.LinkedList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Pool of idle, listener-wired media players ready to be swapped in.
+ * Players are created by {@link Factory} on the thread calling {@link #acquire()} and {@link #fill()},
+ * so their callbacks are delivered on that thread looper. Returned players are reset on background thread.
+ *
+ * @param <P> player type, {@link android.media.MediaPlayer} in the service
+ */
+class MediaPlayerPool<P> {
+
+    /**
+     * Logging tag.
+     */
+    private static final String TAG = MediaPlayerPool.class.getSimpleName();
+
+    /**
+     * Creates, resets and releases media players.
+     */
+    interface Factory<P> {
+        /**
+         * @return new media player with listeners set.
+         */
+        P createMediaPlayer();
+
+        /**
+         * Resets player to IDLE state.
+         *
+         * @param player media player
+         */
+        void resetMediaPlayer(P player);
+
+        /**
+         * Releases resources of player.
+         *
+         * @param player media player
+         */
+        void releaseMediaPlayer(P player);
+    }
+
+    private final Factory<P> factory;
+    private final int maxSize;
+    private final ExecutorService recycler = Executors.newSingleThreadExecutor();
+    private final LinkedList<P> idlePlayers = new LinkedList<>();
+    private boolean isClosed = false;
+    private long hitCount = 0;
+    private long missCount = 0;
+
+    /**
+     * Creates instance of {@link MediaPlayerPool}.
+     *
+     * @param factory media player factory
+     * @param maxSize maximum number of idle players
+     */
+    MediaPlayerPool(final Factory<P> factory, final int maxSize) {
+        this.factory = factory;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Takes idle player from the pool, creates new one if pool is empty.
+     *
+     * @return media player in IDLE state
+     */
+    P acquire() {
+        synchronized (this) {
+            if (!idlePlayers.isEmpty()) {
+                hitCount++;
+                return idlePlayers.removeFirst();
+            }
+            missCount++;
+        }
+        return factory.createMediaPlayer();
+    }
+
+    /**
+     * Creates players until the pool is full, should run when the owning thread is not busy.
+     */
+    void fill() {
+        while (true) {
+            synchronized (this) {
+                if (isClosed || idlePlayers.size() >= maxSize) {
+                    return;
+                }
+            }
+            P player = factory.createMediaPlayer();
+            if (!offer(player)) {
+                factory.releaseMediaPlayer(player);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns player that is no longer used, it is reset in background and kept in the pool if there is room.
+     * Player must not be released.
+     *
+     * @param player media player
+     */
+    void recycle(final P player) {
+        synchronized (this) {
+            if (isClosed) {
+                factory.releaseMediaPlayer(player);
+                return;
+            }
+        }
+        recycler.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    factory.resetMediaPlayer(player);
+                } catch (Exception e) {
+                    factory.releaseMediaPlayer(player);
+                    Log.w(TAG, "Could not reset player, released it", e);
+                    return;
+                }
+                if (!offer(player)) {
+                    factory.releaseMediaPlayer(player);
+                }
+            }
+        });
+    }
+
+    /**
+     * Releases idle players and stops background recycling, players returned later are released.
+     */
+    void close() {
+        LinkedList<P> players;
+        synchronized (this) {
+            isClosed = true;
+            players = new LinkedList<>(idlePlayers);
+            idlePlayers.clear();
+        }
+        for (P player : players) {
+            factory.releaseMediaPlayer(player);
+        }
+        recycler.shutdown();
+    }
+
+    /**
+     * @return number of idle players.
+     */
+    synchronized int getIdleCount() {
+        return idlePlayers.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("MediaPlayerPool{idle=%d, max=%d, hits=%d, misses=%d}", idlePlayers.size(), maxSize, hitCount, missCount);
+    }
+
+    private synchronized boolean offer(final P player) {
+        if (isClosed || idlePlayers.size() >= maxSize) {
+            return false;
+        }
+        idlePlayers.addLast(player);
+        return true;
+    }
+}
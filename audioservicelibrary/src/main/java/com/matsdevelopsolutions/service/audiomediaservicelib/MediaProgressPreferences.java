@@ -4,57 +4,445 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.os.Build;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
- * Class that stores and fetches media positions per url in SharedPreferences
+ * Class that stores and fetches media positions per url in SharedPreferences.
+ * Progress is kept in memory and written to preferences in one batch on {@link #flush()},
+ * every write rewrites the whole preferences file. Position and update time are keyed by 64-bit url hash,
+ * least recently updated urls over capacity or max age are evicted on flush, so the file stays bounded.
+ * Progress of older versions keyed by {@link String#hashCode()} is migrated on first access of its url.
+ * Its url is unknown until then, so it counts to capacity and is evicted first, or all of it after max age
+ * since it was found.
+ * In-memory progress is kept in concurrent maps, so {@link #getQuery()} reads it without the store lock.
  */
-public class MediaProgressPreferences {
+public class MediaProgressPreferences implements ProgressStore {
 
     private static final String SHARE_PREF_NAME = "MediaProgressPreferences";
-    private static final String URL_KEY_PRE = "URL_KEY_";
+    /**
+     * Key prefix of progress stored by older versions.
+     */
+    private static final String LEGACY_KEY_PRE = "URL_KEY_";
+    private static final String POSITION_KEY_PRE = "URL_POS_";
+    private static final String TIME_KEY_PRE = "URL_TIME_";
+    /**
+     * Time when progress of older versions was found, its max age is counted from it.
+     */
+    private static final String LEGACY_TIME_KEY = "LEGACY_TIME";
     private final SharedPreferences sharedPreferences;
+    private final int capacity;
+    private final long maxAge;
+    /**
+     * Progress not written to preferences yet, by url hash.
+     */
+    private final Map<Long, Integer> pendingProgress = new ConcurrentHashMap<>();
+    /**
+     * Url hashes of progress removed since last flush, as keys.
+     */
+    private final Map<Long, Boolean> pendingRemovals = new ConcurrentHashMap<>();
+    /**
+     * Keys of older versions to remove on next flush.
+     */
+    private final Set<String> legacyRemovals = new HashSet<>();
+    /**
+     * Keys of older versions not migrated yet, in preferences order, loaded on first flush.
+     */
+    private Set<String> legacyKeys;
+    /**
+     * Update time of stored and pending progress by url hash, loaded on first use.
+     */
+    private volatile Map<Long, Long> updateTimes;
+    private final Object updateTimesLock = new Object();
+    private final ProgressQuery query = new Query();
+    private int writeCount;
+    private int evictionCount;
 
     /**
-     * Creates instance of {@link MediaProgressPreferences}.
+     * Creates instance of {@link MediaProgressPreferences} with default capacity and max age.
      *
      * @param context context
      */
     public MediaProgressPreferences(Context context) {
-        sharedPreferences = context.getSharedPreferences(SHARE_PREF_NAME, Context.MODE_PRIVATE);
+        this(context, DEFAULT_CAPACITY, DEFAULT_MAX_AGE);
     }
 
     /**
-     * Store playback progress to shared preferences
+     * Creates instance of {@link MediaProgressPreferences}.
+     *
+     * @param context  context
+     * @param capacity maximum number of urls with stored progress
+     * @param maxAge   maximum age of stored progress in milliseconds, 0 for no limit
+     */
+    public MediaProgressPreferences(Context context, int capacity, long maxAge) {
+        this(context.getSharedPreferences(SHARE_PREF_NAME, Context.MODE_PRIVATE), capacity, maxAge);
+    }
+
+    /**
+     * Creates instance of {@link MediaProgressPreferences} backed by given preferences.
+     *
+     * @param sharedPreferences progress preferences
+     */
+    MediaProgressPreferences(SharedPreferences sharedPreferences) {
+        this(sharedPreferences, DEFAULT_CAPACITY, DEFAULT_MAX_AGE);
+    }
+
+    /**
+     * Creates instance of {@link MediaProgressPreferences} backed by given preferences.
+     *
+     * @param sharedPreferences progress preferences
+     * @param capacity          maximum number of urls with stored progress
+     * @param maxAge            maximum age of stored progress in milliseconds, 0 for no limit
+     */
+    MediaProgressPreferences(SharedPreferences sharedPreferences, int capacity, long maxAge) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Progress store capacity must be positive");
+        }
+        this.sharedPreferences = sharedPreferences;
+        this.capacity = capacity;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Stores playback progress in memory until next {@link #flush()}.
      *
      * @param url      playback url
      * @param position current progress in miliseconds
      */
-    public void putProgress(String url, int position) {
+    @Override
+    public synchronized void putProgress(String url, int position) {
+        long hash = UrlHash.hash64(url);
+        pendingProgress.put(hash, position);
+        pendingRemovals.remove(hash);
+        getUpdateTimes().put(hash, System.currentTimeMillis());
+    }
+
+    /**
+     * Gets playback progress stored for the url, 0 if none.
+     *
+     * @param url playback url
+     * @return progress status in miliseconds
+     */
+    @Override
+    public synchronized int getProgress(String url) {
+        long hash = UrlHash.hash64(url);
+        int position = getStoredProgress(hash);
+        if (position >= 0) {
+            return position;
+        }
+        String legacyKey = getLegacyKey(url);
+        position = sharedPreferences.getInt(legacyKey, -1);
+        if (position >= 0) {
+            // migrate to 64-bit key on next flush
+            pendingProgress.put(hash, position);
+            getUpdateTimes().put(hash, System.currentTimeMillis());
+            removeLegacyKey(legacyKey);
+            return position;
+        }
+        return 0;
+    }
+
+    /**
+     * Gets progress of many urls under one lock, preferences are served from their in-memory copy.
+     */
+    @Override
+    public synchronized void getProgress(String[] urls, int[] positions) {
+        for (int i = 0; i < urls.length; i++) {
+            positions[i] = getProgress(urls[i]);
+        }
+    }
+
+    @Override
+    public int getRecentlyPlayed(String[] urls, int[] indices) {
+        return query.getRecentlyPlayed(urls, indices);
+    }
+
+    /**
+     * Removes progress of url on next {@link #flush()}.
+     *
+     * @param url playback url
+     */
+    @Override
+    public synchronized void removeProgress(String url) {
+        long hash = UrlHash.hash64(url);
+        pendingProgress.remove(hash);
+        pendingRemovals.put(hash, Boolean.TRUE);
+        getUpdateTimes().remove(hash);
+        removeLegacyKey(getLegacyKey(url));
+    }
+
+    /**
+     * @return true if progress was stored or removed since last flush.
+     */
+    @Override
+    public synchronized boolean hasPendingProgress() {
+        return !pendingProgress.isEmpty() || !pendingRemovals.isEmpty() || !legacyRemovals.isEmpty();
+    }
+
+    /**
+     * Writes progress stored since last flush to shared preferences in one edit, with evictions.
+     */
+    @Override
+    public synchronized void flush() {
+        if (!hasPendingProgress()) {
+            return;
+        }
         SharedPreferences.Editor editor = sharedPreferences.edit();
-        editor.putInt(getKey(url), position);
+        evict(editor);
+        Map<Long, Long> times = getUpdateTimes();
+        for (Map.Entry<Long, Integer> entry : pendingProgress.entrySet()) {
+            editor.putInt(getPositionKey(entry.getKey()), entry.getValue());
+            editor.putLong(getTimeKey(entry.getKey()), times.get(entry.getKey()));
+        }
+        for (Long hash : pendingRemovals.keySet()) {
+            editor.remove(getPositionKey(hash));
+            editor.remove(getTimeKey(hash));
+        }
+        for (String legacyKey : legacyRemovals) {
+            editor.remove(legacyKey);
+        }
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.GINGERBREAD) {
             editor.apply();
         } else {
             editor.commit();
         }
+        pendingProgress.clear();
+        pendingRemovals.clear();
+        legacyRemovals.clear();
+        writeCount++;
+    }
+
+    @Override
+    public ProgressQuery getQuery() {
+        return query;
     }
 
     /**
-     * Gets playback progress stored for the url, 0 if none.
+     * @return number of preferences file writes.
+     */
+    public synchronized int getWriteCount() {
+        return writeCount;
+    }
+
+    /**
+     * Gets progress stored by this store or older versions, {@link MappedProgressStore} migrates it on first access of url.
      *
      * @param url playback url
-     * @return progress status in miliseconds
+     * @return progress in milliseconds, -1 if none
+     */
+    synchronized int getStoredProgress(String url) {
+        int position = getStoredProgress(UrlHash.hash64(url));
+        return position >= 0 ? position : sharedPreferences.getInt(getLegacyKey(url), -1);
+    }
+
+    /**
+     * Removes progress of migrated urls in one edit.
+     *
+     * @param urls playback urls
+     */
+    synchronized void removeProgress(Iterable<String> urls) {
+        for (String url : urls) {
+            removeProgress(url);
+        }
+        flush();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("MediaProgressPreferences{urls=%s/%d, writes=%d, pending=%d, evictions=%d}",
+                updateTimes != null ? String.valueOf(updateTimes.size()) : "?", capacity, writeCount,
+                pendingProgress.size(), evictionCount);
+    }
+
+    private int getStoredProgress(long hash) {
+        if (pendingRemovals.containsKey(hash)) {
+            return -1;
+        }
+        Integer position = pendingProgress.get(hash);
+        return position != null ? position : sharedPreferences.getInt(getPositionKey(hash), -1);
+    }
+
+    /**
+     * Removes progress older than max age and least recently updated progress over capacity.
+     * Progress of older versions is older than any other, it is evicted first.
+     *
+     * @param editor editor of the flush
+     */
+    private void evict(SharedPreferences.Editor editor) {
+        Map<Long, Long> times = getUpdateTimes();
+        long now = System.currentTimeMillis();
+        long minTime = maxAge > 0 ? now - maxAge : Long.MIN_VALUE;
+        Set<String> legacy = getLegacyKeys();
+        if (!legacy.isEmpty()) {
+            long legacyTime = sharedPreferences.getLong(LEGACY_TIME_KEY, -1);
+            if (legacyTime < 0) {
+                legacyTime = now;
+                editor.putLong(LEGACY_TIME_KEY, legacyTime);
+            }
+            int legacyExcess = times.size() + legacy.size() - capacity;
+            Iterator<String> iterator = legacy.iterator();
+            while (iterator.hasNext() && (legacyTime < minTime || legacyExcess > 0)) {
+                editor.remove(iterator.next());
+                iterator.remove();
+                legacyExcess--;
+                evictionCount++;
+            }
+        }
+        if (legacy.isEmpty() && sharedPreferences.contains(LEGACY_TIME_KEY)) {
+            editor.remove(LEGACY_TIME_KEY);
+        }
+        int excess = times.size() + legacy.size() - capacity;
+        long maxEvictedTime = Long.MIN_VALUE;
+        if (excess > 0) {
+            long[] sortedTimes = new long[times.size()];
+            int i = 0;
+            for (Long time : times.values()) {
+                sortedTimes[i++] = time;
+            }
+            Arrays.sort(sortedTimes);
+            maxEvictedTime = sortedTimes[excess - 1];
+        }
+        Iterator<Map.Entry<Long, Long>> iterator = times.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, Long> entry = iterator.next();
+            long time = entry.getValue();
+            if (time < minTime || (excess > 0 && time <= maxEvictedTime)) {
+                long hash = entry.getKey();
+                iterator.remove();
+                pendingProgress.remove(hash);
+                editor.remove(getPositionKey(hash));
+                editor.remove(getTimeKey(hash));
+                excess--;
+                evictionCount++;
+            }
+        }
+    }
+
+    /**
+     * Gets update times, loads them from preferences on first use.
+     *
+     * @return update time by url hash
+     */
+    private Map<Long, Long> getUpdateTimes() {
+        Map<Long, Long> times = updateTimes;
+        if (times != null) {
+            return times;
+        }
+        synchronized (updateTimesLock) {
+            if (updateTimes == null) {
+                times = new ConcurrentHashMap<>();
+                for (Map.Entry<String, ?> entry : sharedPreferences.getAll().entrySet()) {
+                    if (entry.getKey().startsWith(TIME_KEY_PRE) && entry.getValue() instanceof Long) {
+                        try {
+                            times.put(Long.parseLong(entry.getKey().substring(TIME_KEY_PRE.length())), (Long) entry.getValue());
+                        } catch (NumberFormatException e) {
+                            // not a progress time key
+                        }
+                    }
+                }
+                updateTimes = times;
+            }
+            return updateTimes;
+        }
+    }
+
+    /**
+     * Gets keys of older versions, loads them from preferences on first use.
+     *
+     * @return keys not migrated nor removed yet
+     */
+    private Set<String> getLegacyKeys() {
+        if (legacyKeys == null) {
+            legacyKeys = new LinkedHashSet<>();
+            for (Map.Entry<String, ?> entry : sharedPreferences.getAll().entrySet()) {
+                if (entry.getKey().startsWith(LEGACY_KEY_PRE) && entry.getValue() instanceof Integer
+                        && !legacyRemovals.contains(entry.getKey())) {
+                    legacyKeys.add(entry.getKey());
+                }
+            }
+        }
+        return legacyKeys;
+    }
+
+    /**
+     * Removes key of older versions on next flush.
+     *
+     * @param legacyKey key of older versions
+     */
+    private void removeLegacyKey(String legacyKey) {
+        legacyRemovals.add(legacyKey);
+        if (legacyKeys != null) {
+            legacyKeys.remove(legacyKey);
+        }
+    }
+
+    /**
+     * Gets key of the position preference
+     *
+     * @param hash 64-bit hash of url
+     * @return key value
      */
-    public int getProgress(String url) {
-        return sharedPreferences.getInt(getKey(url), 0);
+    private static String getPositionKey(long hash) {
+        return POSITION_KEY_PRE + String.valueOf(hash);
     }
 
     /**
-     * Gets key of the shared preference
+     * Gets key of the update time preference.
+     *
+     * @param hash 64-bit hash of url
+     * @return key value
+     */
+    private static String getTimeKey(long hash) {
+        return TIME_KEY_PRE + String.valueOf(hash);
+    }
+
+    /**
+     * Gets key of the position preference of older versions.
      *
      * @param url url to generate key for
      * @return key value
      */
-    private String getKey(String url) {
-        return URL_KEY_PRE + String.valueOf(url.hashCode());
+    private static String getLegacyKey(String url) {
+        return LEGACY_KEY_PRE + String.valueOf(url.hashCode());
+    }
+
+    /**
+     * Queries of in-memory progress and preferences, progress of older versions is read without migration.
+     */
+    private final class Query implements ProgressQuery {
+
+        @Override
+        public int getProgress(String url) {
+            int position = getStoredProgress(UrlHash.hash64(url));
+            if (position < 0) {
+                position = sharedPreferences.getInt(getLegacyKey(url), -1);
+            }
+            return position >= 0 ? position : 0;
+        }
+
+        @Override
+        public void getProgress(String[] urls, int[] positions) {
+            for (int i = 0; i < urls.length; i++) {
+                positions[i] = getProgress(urls[i]);
+            }
+        }
+
+        @Override
+        public int getRecentlyPlayed(String[] urls, int[] indices) {
+            Map<Long, Long> times = getUpdateTimes();
+            RecentSelector selector = new RecentSelector(indices.length);
+            for (int i = 0; i < urls.length; i++) {
+                Long time = times.get(UrlHash.hash64(urls[i]));
+                if (time != null) {
+                    selector.offer(time, i);
+                }
+            }
+            return selector.copyTo(indices);
+        }
     }
 }
@@ -5,20 +5,103 @@ import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
 import android.support.v4.app.NotificationCompat;
 
+import com.matsdevelopsolutions.service.audiomediaservicelib.art.AlbumArtLoader;
+import com.matsdevelopsolutions.service.audiomediaservicelib.art.ArtPaletteCache;
+
+import java.io.File;
+
 /**
  * Class that manages notification and its styling/configuration.
+ * Notification is posted only when its visible content changes, posts during rapid state transitions
+ * are merged and delayed to {@link #MIN_UPDATE_INTERVAL}.
+ * Media art is loaded in background, notification is posted without it and updated when it is loaded.
+ * With {@link AudioMediaService#FLAG_NOTIFICATION_PALETTE_BACKGROUND} notification is colored by cached color of art,
+ * or by default color until color of loaded art is extracted.
  */
 public class NotificationHelper {
 
     // randomize notification ID per applciation
     private static final int NOTIFICATION_ID = (int) System.currentTimeMillis();
+    /**
+     * Minimum interval between notification posts in milliseconds.
+     */
+    private static final long MIN_UPDATE_INTERVAL = 250;
+    /**
+     * Large icon size on platforms without notification dimensions.
+     */
+    private static final int LARGE_ICON_SIZE_DP = 64;
+    private static final String ART_CACHE_DIR = "notification-art";
+    private static final long ART_MEMORY_CACHE_SIZE = 4 * 1024 * 1024;
+    private static final long ART_DISK_CACHE_SIZE = 10 * 1024 * 1024;
+    private static final int PALETTE_CACHE_SIZE = 500;
     private Context context;
+    private NotificationManager notificationManager;
     private String currentStyle;
     private int currentFlags;
     private MediaInfo mediaInfo;
     private PendingIntent appPendingIntent;
+    private PendingIntent playTogglePendingIntent;
+    private PendingIntent pausePendingIntent;
+    private PendingIntent stopPendingIntent;
+    private final AlbumArtLoader artLoader;
+    /**
+     * Updates notification when art of current media is loaded, update is rate limited and skipped if unchanged.
+     */
+    private final AlbumArtLoader.Callback artCallback = new AlbumArtLoader.Callback() {
+        @Override
+        public void onArtLoaded(String artUri, @Nullable Bitmap art) {
+            synchronized (NotificationHelper.this) {
+                if (art != null && postedModel.isVisible() && mediaInfo != null && artUri.equals(mediaInfo.artUri)) {
+                    updateNotification(pendingState);
+                }
+            }
+        }
+    };
+    private final ArtPaletteCache paletteCache;
+    /**
+     * Updates notification when color of current art is extracted, update is rate limited and skipped if unchanged.
+     */
+    private final ArtPaletteCache.Callback paletteCallback = new ArtPaletteCache.Callback() {
+        @Override
+        public void onColorExtracted(String artUri, int color) {
+            synchronized (NotificationHelper.this) {
+                if (postedModel.isVisible() && mediaInfo != null && artUri.equals(mediaInfo.artUri)) {
+                    updateNotification(pendingState);
+                }
+            }
+        }
+    };
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    /**
+     * Posts notification of the last state after rate limit delay.
+     */
+    private final Runnable delayedUpdate = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (NotificationHelper.this) {
+                isUpdateScheduled = false;
+                post(createModel(pendingState));
+            }
+        }
+    };
+    /**
+     * Content of posted notification.
+     */
+    private NotificationModel postedModel = NotificationModel.HIDDEN;
+    private MediaPlayerState pendingState;
+    private boolean isUpdateScheduled;
+    private long lastPostTime = -MIN_UPDATE_INTERVAL;
+    private int postCount;
+    private int skipCount;
 
     public String getCurrentStyle() {
         return currentStyle;
@@ -35,11 +118,23 @@ public class NotificationHelper {
      */
     public NotificationHelper(final Context context) {
         this.context = context;
+        notificationManager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
         // default app Intent
         Intent defaultApp = new Intent(Intent.ACTION_MAIN);
         defaultApp.setPackage(context.getPackageName());
         appPendingIntent = PendingIntent.getActivity(context, 0, defaultApp, PendingIntent.FLAG_ONE_SHOT);
-
+        Resources resources = context.getResources();
+        int artWidth;
+        int artHeight;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+            artWidth = resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_width);
+            artHeight = resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_height);
+        } else {
+            artWidth = artHeight = Math.round(LARGE_ICON_SIZE_DP * resources.getDisplayMetrics().density);
+        }
+        artLoader = new AlbumArtLoader(context, new File(context.getCacheDir(), ART_CACHE_DIR), artWidth, artHeight,
+                ART_MEMORY_CACHE_SIZE, ART_DISK_CACHE_SIZE);
+        paletteCache = new ArtPaletteCache(context, PALETTE_CACHE_SIZE);
     }
 
     /**
@@ -49,13 +144,13 @@ public class NotificationHelper {
      * @param configFlag - configuration flags
      * @param mediaInfo
      */
-    public void updateStyle(final String style, final int configFlag, MediaInfo mediaInfo) {
+    public synchronized void updateStyle(final String style, final int configFlag, MediaInfo mediaInfo) {
         this.currentFlags = configFlag;
         this.currentStyle = style;
         this.mediaInfo = mediaInfo;
     }
 
-    public void updateMediaInfo(MediaInfo mediaInfo) {
+    public synchronized void updateMediaInfo(MediaInfo mediaInfo) {
         this.mediaInfo = mediaInfo;
     }
 
@@ -63,62 +158,143 @@ public class NotificationHelper {
     // todo find way to pass pending intent for opening main application
 
     /**
-     * Updates notification based on state.
+     * Updates notification based on state, posts it only if visible content changed.
+     * Update sooner than {@link #MIN_UPDATE_INTERVAL} after previous post is delayed and merged with following ones.
      *
      * @param state
      */
-    public void updateNotification(MediaPlayerState state) {
-        if (mediaInfo != null) {
-            NotificationManager notificationManager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
-            // buildNotification
-            NotificationCompat.Builder builder = new NotificationCompat.Builder(context);
-            builder.setTicker(mediaInfo.title)
-                    .setContentTitle(mediaInfo.title)
-                    .setContentInfo(mediaInfo.description)
-                    .setSmallIcon(R.drawable.abc_btn_radio_material)
-                    .setContentTitle(mediaInfo.title);
-            builder.setContentText(mediaInfo.description);
-            // download art
-            //builder.setLargeIcon(mediaInfo.)
-            // buttons based on state
-            switch (state) {
-                case PAUSED:
-                case COMPLETE:
-                    builder.addAction(android.R.drawable.ic_media_play, context.getString(R.string.label_play),
-                            PendingIntent.getService(context, 0, IntentGenerator.createPlayToggleIntent(context), PendingIntent.FLAG_ONE_SHOT));
-                    break;
-                case STARTED:
-                    builder.addAction(android.R.drawable.ic_media_pause, context.getString(R.string.label_pause),
-                            PendingIntent.getService(context, 0, IntentGenerator.createPauseIntent(context), PendingIntent.FLAG_ONE_SHOT));
-                    break;
-                default:
-                    notificationManager.cancel(NOTIFICATION_ID);
-                    return;
-            }
-            builder.addAction(android.R.drawable.ic_delete, context.getString(R.string.label_stop),
-                    PendingIntent.getService(context, 0, IntentGenerator.createStopIntent(context), PendingIntent.FLAG_ONE_SHOT));
+    public synchronized void updateNotification(MediaPlayerState state) {
+        pendingState = state;
+        if (isUpdateScheduled) {
+            return;
+        }
+        long delay = lastPostTime + MIN_UPDATE_INTERVAL - SystemClock.uptimeMillis();
+        if (delay > 0) {
+            isUpdateScheduled = true;
+            handler.postDelayed(delayedUpdate, delay);
+        } else {
+            post(createModel(state));
+        }
+    }
 
+    public synchronized void clear() {
+        handler.removeCallbacks(delayedUpdate);
+        isUpdateScheduled = false;
+        postedModel = NotificationModel.HIDDEN;
+        notificationManager.cancel(NOTIFICATION_ID);
+    }
 
-            builder.setDeleteIntent(PendingIntent.getService(context, 0,
-                    IntentGenerator.createStopIntent(context),
-                    PendingIntent.FLAG_ONE_SHOT));
+    /**
+     * Stops art loading and color extraction, called when service is destroyed.
+     */
+    public void release() {
+        artLoader.close();
+        paletteCache.close();
+    }
 
-            if (appPendingIntent != null) {
-                builder.setContentIntent(appPendingIntent);
-            }
+    @Override
+    public synchronized String toString() {
+        return String.format("NotificationHelper{posts=%d, skipped=%d, art=%s, palette=%s}", postCount, skipCount,
+                artLoader, paletteCache);
+    }
 
-            Notification notification = builder.build();
+    /**
+     * Creates model of current media in state, with its art and color if they are cached.
+     *
+     * @param state player state
+     * @return notification model
+     */
+    private NotificationModel createModel(MediaPlayerState state) {
+        Bitmap art = null;
+        int color = NotificationModel.NO_COLOR;
+        if (mediaInfo != null && mediaInfo.artUri != null) {
+            art = artLoader.getCached(mediaInfo.artUri);
+            if (isPaletteEnabled()) {
+                color = paletteCache.getCachedColor(mediaInfo.artUri);
+            }
+        }
+        return NotificationModel.of(mediaInfo, state, currentStyle, currentFlags, art, color);
+    }
 
-            notification.flags |= Notification.FLAG_NO_CLEAR | Notification.FLAG_ONGOING_EVENT;
-            notificationManager.
-                    notify(NOTIFICATION_ID, notification);
+    /**
+     * Posts or cancels notification if model differs from posted one.
+     *
+     * @param model notification model
+     */
+    private void post(NotificationModel model) {
+        if (model.equals(postedModel)) {
+            skipCount++;
+            return;
+        }
+        postedModel = model;
+        lastPostTime = SystemClock.uptimeMillis();
+        postCount++;
+        if (!model.isVisible()) {
+            notificationManager.cancel(NOTIFICATION_ID);
+            return;
+        }
+        // buildNotification
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context);
+        builder.setTicker(model.title)
+                .setContentTitle(model.title)
+                .setContentInfo(model.description)
+                .setSmallIcon(R.drawable.abc_btn_radio_material);
+        builder.setContentText(model.description);
+        if (model.art != null) {
+            builder.setLargeIcon(model.art);
+            if (isPaletteEnabled() && model.color == NotificationModel.NO_COLOR) {
+                paletteCache.extract(mediaInfo.artUri, model.art, paletteCallback);
+            }
+        } else if (mediaInfo.artUri != null) {
+            artLoader.load(mediaInfo.artUri, artCallback);
+        }
+        if (model.color != NotificationModel.NO_COLOR) {
+            builder.setColor(model.color);
+        }
+        // buttons based on state
+        if (model.action == NotificationModel.ACTION_PLAY) {
+            builder.addAction(android.R.drawable.ic_media_play, context.getString(R.string.label_play), getPlayTogglePendingIntent());
         } else {
-            clear();
+            builder.addAction(android.R.drawable.ic_media_pause, context.getString(R.string.label_pause), getPausePendingIntent());
         }
+        builder.addAction(android.R.drawable.ic_delete, context.getString(R.string.label_stop), getStopPendingIntent());
+        builder.setDeleteIntent(getStopPendingIntent());
+
+        if (appPendingIntent != null) {
+            builder.setContentIntent(appPendingIntent);
+        }
+
+        Notification notification = builder.build();
+
+        notification.flags |= Notification.FLAG_NO_CLEAR | Notification.FLAG_ONGOING_EVENT;
+        notificationManager.notify(NOTIFICATION_ID, notification);
     }
 
-    public void clear() {
-        NotificationManager notificationManager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
-        notificationManager.cancel(NOTIFICATION_ID);
+    private boolean isPaletteEnabled() {
+        return (currentFlags & AudioMediaService.FLAG_NOTIFICATION_PALETTE_BACKGROUND) != 0;
+    }
+
+    /**
+     * Pending intents of buttons are created once and reused by every post, so they are not one shot.
+     */
+    private PendingIntent getPlayTogglePendingIntent() {
+        if (playTogglePendingIntent == null) {
+            playTogglePendingIntent = PendingIntent.getService(context, 0, IntentGenerator.createPlayToggleIntent(context), 0);
+        }
+        return playTogglePendingIntent;
+    }
+
+    private PendingIntent getPausePendingIntent() {
+        if (pausePendingIntent == null) {
+            pausePendingIntent = PendingIntent.getService(context, 0, IntentGenerator.createPauseIntent(context), 0);
+        }
+        return pausePendingIntent;
+    }
+
+    private PendingIntent getStopPendingIntent() {
+        if (stopPendingIntent == null) {
+            stopPendingIntent = PendingIntent.getService(context, 0, IntentGenerator.createStopIntent(context), 0);
+        }
+        return stopPendingIntent;
     }
 }
@@ -0,0 +1,131 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import android.graphics.Bitmap;
+import android.support.annotation.Nullable;
+
+/**
+ * Visible content of player notification, {@link NotificationHelper} posts notification only when it changes.
+ */
+final class NotificationModel {
+
+    /**
+     * Notification is hidden.
+     */
+    static final int ACTION_NONE = 0;
+    /**
+     * Notification shows play button.
+     */
+    static final int ACTION_PLAY = 1;
+    /**
+     * Notification shows pause button.
+     */
+    static final int ACTION_PAUSE = 2;
+
+    /**
+     * Notification has no palette color, system default color is used.
+     */
+    static final int NO_COLOR = 0;
+
+    static final NotificationModel HIDDEN = new NotificationModel(null, null, ACTION_NONE, null, 0, null, NO_COLOR);
+
+    @Nullable
+    final String title;
+    @Nullable
+    final String description;
+    final int action;
+    @Nullable
+    final String style;
+    final int flags;
+    /**
+     * Loaded art, compared by identity.
+     */
+    @Nullable
+    final Bitmap art;
+    /**
+     * Background color extracted from art, {@link #NO_COLOR} if it is not extracted yet.
+     */
+    final int color;
+
+    private NotificationModel(@Nullable String title, @Nullable String description, int action,
+                              @Nullable String style, int flags, @Nullable Bitmap art, int color) {
+        this.title = title;
+        this.description = description;
+        this.action = action;
+        this.style = style;
+        this.flags = flags;
+        this.art = art;
+        this.color = color;
+    }
+
+    /**
+     * Creates model of notification for media in player state.
+     *
+     * @param mediaInfo current media
+     * @param state     player state
+     * @param style     notification style
+     * @param flags     notification flags
+     * @param art       loaded art of media
+     * @param color     background color of art
+     * @return notification model, {@link #HIDDEN} if notification is not shown in the state
+     */
+    static NotificationModel of(@Nullable MediaInfo mediaInfo, @Nullable MediaPlayerState state,
+                                @Nullable String style, int flags, @Nullable Bitmap art, int color) {
+        int action = getAction(state);
+        if (mediaInfo == null || action == ACTION_NONE) {
+            return HIDDEN;
+        }
+        return new NotificationModel(mediaInfo.title, mediaInfo.description, action, style, flags, art, color);
+    }
+
+    /**
+     * @return true if notification is shown.
+     */
+    boolean isVisible() {
+        return action != ACTION_NONE;
+    }
+
+    private static int getAction(@Nullable MediaPlayerState state) {
+        if (state == null) {
+            return ACTION_NONE;
+        }
+        switch (state) {
+            case PREPARED:
+            case PAUSED:
+            case COMPLETE:
+                return ACTION_PLAY;
+            case STARTED:
+                return ACTION_PAUSE;
+            default:
+                return ACTION_NONE;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof NotificationModel)) {
+            return false;
+        }
+        NotificationModel that = (NotificationModel) o;
+        return action == that.action && flags == that.flags && art == that.art && color == that.color
+                && equal(title, that.title) && equal(description, that.description) && equal(style, that.style);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = action;
+        result = 31 * result + flags;
+        result = 31 * result + (title != null ? title.hashCode() : 0);
+        result = 31 * result + (description != null ? description.hashCode() : 0);
+        result = 31 * result + (style != null ? style.hashCode() : 0);
+        result = 31 * result + System.identityHashCode(art);
+        result = 31 * result + color;
+        return result;
+    }
+
+    private static boolean equal(@Nullable Object a, @Nullable Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -0,0 +1,272 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import java.io.PrintWriter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Playback latency and state transition metrics of {@link AudioMediaService}.
+ * Marks are set on playback thread, snapshots can be taken from any thread.
+ */
+public class PlaybackMetrics {
+
+    private static final int STATE_COUNT = MediaPlayerState.values().length;
+
+    private final LatencyHistogram timeToStarted = new LatencyHistogram("timeToStarted");
+    private final LatencyHistogram prepareLatency = new LatencyHistogram("prepare");
+    private final LatencyHistogram seekLatency = new LatencyHistogram("seek");
+    private final LatencyHistogram startLatency = new LatencyHistogram("start");
+    private final LatencyHistogram rebufferDuration = new LatencyHistogram("rebuffer");
+    /**
+     * Transition counts indexed by from state ordinal * state count + to state ordinal.
+     */
+    private final AtomicLongArray transitions = new AtomicLongArray(STATE_COUNT * STATE_COUNT);
+    private final AtomicLong errorCount = new AtomicLong();
+    private long playRequestedNanos = -1;
+    private long prepareStartedNanos = -1;
+    private long seekStartedNanos = -1;
+    private long rebufferStartedNanos = -1;
+
+    /**
+     * Marks play request, measured until player reaches {@link MediaPlayerState#STARTED}.
+     * Earlier pending request is kept, so the whole wait is measured.
+     *
+     * @param nanos time of request
+     */
+    void markPlayRequested(long nanos) {
+        if (playRequestedNanos < 0) {
+            playRequestedNanos = nanos;
+        }
+    }
+
+    /**
+     * Drops pending play request that will not start playback, like prepare without autoplay.
+     */
+    void cancelPlayRequest() {
+        playRequestedNanos = -1;
+    }
+
+    /**
+     * Marks start of async prepare.
+     *
+     * @param nanos current time
+     */
+    void markPrepareStarted(long nanos) {
+        prepareStartedNanos = nanos;
+    }
+
+    /**
+     * Records prepare completion.
+     *
+     * @param nanos current time
+     */
+    void markPrepared(long nanos) {
+        if (prepareStartedNanos >= 0) {
+            prepareLatency.record(nanos - prepareStartedNanos);
+            prepareStartedNanos = -1;
+        }
+    }
+
+    /**
+     * Marks start of seek.
+     *
+     * @param nanos current time
+     */
+    void markSeekStarted(long nanos) {
+        seekStartedNanos = nanos;
+    }
+
+    /**
+     * Records seek completion.
+     *
+     * @param nanos current time
+     */
+    void markSeekComplete(long nanos) {
+        if (seekStartedNanos >= 0) {
+            seekLatency.record(nanos - seekStartedNanos);
+            seekStartedNanos = -1;
+        }
+    }
+
+    /**
+     * Marks stall of started playback on empty buffer.
+     *
+     * @param nanos current time
+     */
+    void markRebufferStarted(long nanos) {
+        rebufferStartedNanos = nanos;
+    }
+
+    /**
+     * Records rebuffering duration.
+     *
+     * @param nanos current time
+     */
+    void markRebufferEnded(long nanos) {
+        if (rebufferStartedNanos >= 0) {
+            rebufferDuration.record(nanos - rebufferStartedNanos);
+            rebufferStartedNanos = -1;
+        }
+    }
+
+    /**
+     * Records duration of media player start call.
+     *
+     * @param nanos start duration
+     */
+    void recordStart(long nanos) {
+        startLatency.record(nanos);
+    }
+
+    /**
+     * Records player state transition, completes pending play request when playback starts.
+     *
+     * @param from  previous state, null if not known
+     * @param to    new state
+     * @param nanos current time
+     */
+    void recordTransition(MediaPlayerState from, MediaPlayerState to, long nanos) {
+        if (from != null) {
+            transitions.incrementAndGet(from.ordinal() * STATE_COUNT + to.ordinal());
+        }
+        switch (to) {
+            case STARTED:
+                if (playRequestedNanos >= 0) {
+                    timeToStarted.record(nanos - playRequestedNanos);
+                }
+                playRequestedNanos = -1;
+                break;
+            case PAUSED:
+                // paused before start, pending request will not complete
+                playRequestedNanos = -1;
+                break;
+            case ERROR:
+                errorCount.incrementAndGet();
+                // fall through - pending operations will not complete
+            case STOPPED:
+            case IDLE:
+            case END:
+                playRequestedNanos = -1;
+                prepareStartedNanos = -1;
+                seekStartedNanos = -1;
+                rebufferStartedNanos = -1;
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * @return copy of current metrics.
+     */
+    public Snapshot snapshot() {
+        long[] transitionCounts = new long[transitions.length()];
+        for (int i = 0; i < transitionCounts.length; i++) {
+            transitionCounts[i] = transitions.get(i);
+        }
+        return new Snapshot(timeToStarted.snapshot(), prepareLatency.snapshot(), seekLatency.snapshot(),
+                startLatency.snapshot(), rebufferDuration.snapshot(), transitionCounts, errorCount.get());
+    }
+
+    /**
+     * Prints current metrics.
+     *
+     * @param writer output writer
+     */
+    public void dump(PrintWriter writer) {
+        Snapshot snapshot = snapshot();
+        writer.println("Playback metrics:");
+        writer.println("  " + snapshot.getTimeToStarted());
+        writer.println("  " + snapshot.getPrepare());
+        writer.println("  " + snapshot.getSeek());
+        writer.println("  " + snapshot.getStart());
+        writer.println("  " + snapshot.getRebuffer());
+        writer.println(String.format("  errors=%d", snapshot.getErrorCount()));
+        writer.println("  State transitions:");
+        MediaPlayerState[] states = MediaPlayerState.values();
+        for (MediaPlayerState from : states) {
+            for (MediaPlayerState to : states) {
+                long count = snapshot.getTransitionCount(from, to);
+                if (count > 0) {
+                    writer.println(String.format("    %s -> %s: %d", from, to, count));
+                }
+            }
+        }
+    }
+
+    /**
+     * Immutable copy of playback metrics.
+     */
+    public static final class Snapshot {
+
+        private final LatencyHistogram.Snapshot timeToStarted;
+        private final LatencyHistogram.Snapshot prepare;
+        private final LatencyHistogram.Snapshot seek;
+        private final LatencyHistogram.Snapshot start;
+        private final LatencyHistogram.Snapshot rebuffer;
+        private final long[] transitionCounts;
+        private final long errorCount;
+
+        Snapshot(LatencyHistogram.Snapshot timeToStarted, LatencyHistogram.Snapshot prepare, LatencyHistogram.Snapshot seek,
+                 LatencyHistogram.Snapshot start, LatencyHistogram.Snapshot rebuffer, long[] transitionCounts, long errorCount) {
+            this.timeToStarted = timeToStarted;
+            this.prepare = prepare;
+            this.seek = seek;
+            this.start = start;
+            this.rebuffer = rebuffer;
+            this.transitionCounts = transitionCounts;
+            this.errorCount = errorCount;
+        }
+
+        /**
+         * @return latencies from play command to {@link MediaPlayerState#STARTED}.
+         */
+        public LatencyHistogram.Snapshot getTimeToStarted() {
+            return timeToStarted;
+        }
+
+        /**
+         * @return latencies from prepareAsync to onPrepared.
+         */
+        public LatencyHistogram.Snapshot getPrepare() {
+            return prepare;
+        }
+
+        /**
+         * @return latencies from seekTo to onSeekComplete.
+         */
+        public LatencyHistogram.Snapshot getSeek() {
+            return seek;
+        }
+
+        /**
+         * @return durations of media player start calls.
+         */
+        public LatencyHistogram.Snapshot getStart() {
+            return start;
+        }
+
+        /**
+         * @return durations of playback stalls on empty buffer, count is number of rebuffering events.
+         */
+        public LatencyHistogram.Snapshot getRebuffer() {
+            return rebuffer;
+        }
+
+        /**
+         * @param from previous state
+         * @param to   new state
+         * @return number of transitions between states
+         */
+        public long getTransitionCount(MediaPlayerState from, MediaPlayerState to) {
+            return transitionCounts[from.ordinal() * STATE_COUNT + to.ordinal()];
+        }
+
+        /**
+         * @return number of player errors.
+         */
+        public long getErrorCount() {
+            return errorCount;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import android.support.annotation.Nullable;
+
+import java.util.LinkedList;
+
+/**
+ * Queue of media items to be played after the current media stream.
+ */
+class PlaybackQueue {
+
+    /**
+     * Upcoming media items, head is played next.
+     */
+    private final LinkedList<MediaInfo> upcoming = new LinkedList<>();
+
+    /**
+     * Adds media to the end of the queue.
+     *
+     * @param mediaInfo media to enqueue
+     */
+    void add(final MediaInfo mediaInfo) {
+        upcoming.addLast(mediaInfo);
+    }
+
+    /**
+     * Gets next media item without removing it from the queue.
+     *
+     * @return next media or null if queue is empty
+     */
+    @Nullable
+    MediaInfo peekNext() {
+        return upcoming.peek();
+    }
+
+    /**
+     * Removes next media item from the queue.
+     *
+     * @return next media or null if queue is empty
+     */
+    @Nullable
+    MediaInfo pollNext() {
+        return upcoming.poll();
+    }
+
+    /**
+     * Removes all upcoming media.
+     */
+    void clear() {
+        upcoming.clear();
+    }
+
+    /**
+     * @return true if there is no media queued.
+     */
+    boolean isEmpty() {
+        return upcoming.isEmpty();
+    }
+
+    /**
+     * @return number of media items in the queue.
+     */
+    int size() {
+        return upcoming.size();
+    }
+}
@@ -0,0 +1,52 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import android.content.Intent;
+import android.support.annotation.Nullable;
+
+/**
+ * Command waiting in {@link CommandQueue} for execution on playback thread.
+ */
+class PlayerCommand {
+
+    /**
+     * Command action, one of AudioMediaService actions.
+     */
+    final String action;
+    /**
+     * Integer argument - seek position or seek delta.
+     */
+    int intValue;
+    /**
+     * Float argument - volume.
+     */
+    float floatValue;
+    /**
+     * Source intent with remaining arguments.
+     */
+    @Nullable
+    final Intent intent;
+    /**
+     * Time command was queued, from {@link System#nanoTime()}.
+     */
+    final long enqueueNanos = System.nanoTime();
+
+    /**
+     * Creates instance of {@link PlayerCommand}.
+     *
+     * @param action     command action
+     * @param intValue   integer argument
+     * @param floatValue float argument
+     * @param intent     source intent
+     */
+    PlayerCommand(final String action, final int intValue, final float floatValue, @Nullable final Intent intent) {
+        this.action = action;
+        this.intValue = intValue;
+        this.floatValue = floatValue;
+        this.intent = intent;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PlayerCommand{%s, %d, %f}", action, intValue, floatValue);
+    }
+}
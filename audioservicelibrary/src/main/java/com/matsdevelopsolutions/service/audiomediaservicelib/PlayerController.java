@@ -0,0 +1,99 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import android.support.annotation.FloatRange;
+import android.support.annotation.Nullable;
+
+/**
+ * Direct control of {@link AudioMediaService} bound in the same process, see {@link IntentGenerator#createBindIntent}.
+ * Commands are queued for playback thread like intent commands, queries return last published values without blocking.
+ */
+public interface PlayerController {
+
+    /**
+     * Loads and plays media.
+     *
+     * @param mediaInfo      media to play
+     * @param resumePlayback true to resume from last stored position
+     */
+    void play(MediaInfo mediaInfo, boolean resumePlayback);
+
+    /**
+     * Starts or resumes playback of current media.
+     */
+    void play();
+
+    /**
+     * Pauses playback.
+     */
+    void pause();
+
+    /**
+     * Stops playback.
+     */
+    void stop();
+
+    /**
+     * Toggles play and pause.
+     */
+    void togglePlay();
+
+    /**
+     * Seeks to position.
+     *
+     * @param position position in milliseconds
+     */
+    void seekTo(int position);
+
+    /**
+     * Seeks by delta.
+     *
+     * @param delta position delta in milliseconds
+     */
+    void seekBy(int delta);
+
+    /**
+     * Changes volume.
+     *
+     * @param volume volume value from 0 to 1.0
+     */
+    void setVolume(@FloatRange(from = 0, to = 1f) float volume);
+
+    /**
+     * Toggles mute.
+     */
+    void toggleMute();
+
+    /**
+     * @return current player state.
+     */
+    @Nullable
+    MediaPlayerState getPlayerState();
+
+    /**
+     * @return current position in milliseconds, extrapolated from last position anchor.
+     */
+    int getCurrentPosition();
+
+    /**
+     * @return media duration in milliseconds, 0 if not known.
+     */
+    int getDuration();
+
+    /**
+     * @return current volume.
+     */
+    float getVolume();
+
+    /**
+     * @return current media.
+     */
+    @Nullable
+    MediaInfo getMediaInfo();
+
+    /**
+     * Gets read-only progress queries of the service, use its batch queries to show resume positions in media lists.
+     *
+     * @return progress queries
+     */
+    ProgressQuery getProgressQuery();
+}
@@ -0,0 +1,35 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+/**
+ * Empty implementation of {@link PlayerEventListener}, override only needed callbacks.
+ */
+public abstract class PlayerEventAdapter implements PlayerEventListener {
+
+    @Override
+    public void onStateChanged(MediaPlayerState state) {
+    }
+
+    @Override
+    public void onBufferProgressChanged(int progress) {
+    }
+
+    @Override
+    public void onRebufferingChanged(boolean rebuffering) {
+    }
+
+    @Override
+    public void onMediaInfoChanged(MediaInfo mediaInfo) {
+    }
+
+    @Override
+    public void onPositionChanged(int currentPosition, int duration) {
+    }
+
+    @Override
+    public void onPositionAnchorChanged(PositionAnchor anchor) {
+    }
+
+    @Override
+    public void onVolumeChanged(float volume) {
+    }
+}
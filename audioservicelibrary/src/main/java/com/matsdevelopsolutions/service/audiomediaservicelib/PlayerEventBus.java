@@ -0,0 +1,317 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import android.os.Handler;
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * In-process dispatcher of {@link AudioMediaService} events, no IPC nor intent marshalling is involved.
+ * Listener registry is a copy-on-write array, dispatch reads it without locking.
+ * The latest event of every type is kept, so new subscribers get current player state right away.
+ */
+public final class PlayerEventBus {
+
+    private static final PlayerEventBus INSTANCE = new PlayerEventBus();
+    private static final Subscription[] EMPTY = new Subscription[0];
+
+    /*
+     * Event types in replay order.
+     */
+    private static final int EVENT_MEDIA_INFO = 0;
+    private static final int EVENT_STATE = 1;
+    private static final int EVENT_VOLUME = 2;
+    private static final int EVENT_BUFFER_PROGRESS = 3;
+    private static final int EVENT_REBUFFERING = 4;
+    private static final int EVENT_POSITION_ANCHOR = 5;
+    private static final int EVENT_POSITION = 6;
+    private static final int EVENT_TYPE_COUNT = 7;
+
+    private final AtomicReference<Subscription[]> subscriptions = new AtomicReference<>(EMPTY);
+    /**
+     * Latest event of every type, replayed to new subscribers.
+     */
+    private final AtomicReferenceArray<Event> latestEvents = new AtomicReferenceArray<>(EVENT_TYPE_COUNT);
+    /**
+     * Position subscriptions of service running in this process, null while service is not running.
+     */
+    private volatile PositionSubscriber positionSubscriber;
+
+    /**
+     * Creates instance of {@link PlayerEventBus}, use {@link #getInstance()} to reach service events.
+     */
+    PlayerEventBus() {
+    }
+
+    /**
+     * @return process wide event bus used by {@link AudioMediaService}.
+     */
+    public static PlayerEventBus getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Subscribes listener, callbacks are called on service playback thread.
+     *
+     * @param listener event listener
+     */
+    public void subscribe(PlayerEventListener listener) {
+        subscribe(listener, null);
+    }
+
+    /**
+     * Subscribes listener with callbacks posted to handler, e.g. main thread handler for UI updates.
+     * The latest event of every type is replayed to new listener through handler,
+     * or on calling thread if handler is null. Listener that is already subscribed is not added again.
+     *
+     * @param listener event listener
+     * @param handler  callback handler, null to call listener on playback thread
+     */
+    public void subscribe(final PlayerEventListener listener, @Nullable Handler handler) {
+        Subscription subscription = new Subscription(listener, handler);
+        while (true) {
+            Subscription[] current = subscriptions.get();
+            if (indexOf(current, listener) >= 0) {
+                return;
+            }
+            Subscription[] updated = new Subscription[current.length + 1];
+            System.arraycopy(current, 0, updated, 0, current.length);
+            updated[current.length] = subscription;
+            if (subscriptions.compareAndSet(current, updated)) {
+                break;
+            }
+        }
+        if (handler == null) {
+            replay(listener);
+        } else {
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (indexOf(subscriptions.get(), listener) >= 0) {
+                        replay(listener);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Removes listener subscription.
+     *
+     * @param listener event listener
+     */
+    public void unsubscribe(PlayerEventListener listener) {
+        while (true) {
+            Subscription[] current = subscriptions.get();
+            int index = indexOf(current, listener);
+            if (index < 0) {
+                return;
+            }
+            Subscription[] updated;
+            if (current.length == 1) {
+                updated = EMPTY;
+            } else {
+                updated = new Subscription[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, index);
+                System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+            }
+            if (subscriptions.compareAndSet(current, updated)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return true if any listener is subscribed.
+     */
+    public boolean hasSubscribers() {
+        return subscriptions.get().length > 0;
+    }
+
+    /**
+     * Subscribes for position updates of service running in this process, service is not started for it.
+     *
+     * @param subscriberId subscriber id
+     * @param interval     update interval in milliseconds
+     * @return true if service is running and got subscription
+     */
+    public boolean subscribePosition(String subscriberId, int interval) {
+        PositionSubscriber subscriber = positionSubscriber;
+        if (subscriber == null) {
+            return false;
+        }
+        subscriber.subscribePosition(subscriberId, interval);
+        return true;
+    }
+
+    /**
+     * Cancels position updates subscription in service running in this process, service is not started for it.
+     *
+     * @param subscriberId subscriber id
+     * @return true if service is running and got unsubscription
+     */
+    public boolean unsubscribePosition(String subscriberId) {
+        PositionSubscriber subscriber = positionSubscriber;
+        if (subscriber == null) {
+            return false;
+        }
+        subscriber.unsubscribePosition(subscriberId);
+        return true;
+    }
+
+    /**
+     * Sets position subscriptions of running service.
+     *
+     * @param subscriber position subscriptions, null when service is destroyed
+     */
+    void setPositionSubscriber(@Nullable PositionSubscriber subscriber) {
+        positionSubscriber = subscriber;
+    }
+
+    void dispatchStateChanged(final MediaPlayerState state) {
+        dispatch(new Event(EVENT_STATE) {
+            @Override
+            void deliver(PlayerEventListener listener) {
+                listener.onStateChanged(state);
+            }
+        });
+    }
+
+    void dispatchBufferProgressChanged(final int progress) {
+        dispatch(new Event(EVENT_BUFFER_PROGRESS) {
+            @Override
+            void deliver(PlayerEventListener listener) {
+                listener.onBufferProgressChanged(progress);
+            }
+        });
+    }
+
+    void dispatchRebufferingChanged(final boolean rebuffering) {
+        dispatch(new Event(EVENT_REBUFFERING) {
+            @Override
+            void deliver(PlayerEventListener listener) {
+                listener.onRebufferingChanged(rebuffering);
+            }
+        });
+    }
+
+    void dispatchMediaInfoChanged(final MediaInfo mediaInfo) {
+        dispatch(new Event(EVENT_MEDIA_INFO) {
+            @Override
+            void deliver(PlayerEventListener listener) {
+                listener.onMediaInfoChanged(mediaInfo);
+            }
+        });
+    }
+
+    void dispatchPositionChanged(final int currentPosition, final int duration) {
+        dispatch(new Event(EVENT_POSITION) {
+            @Override
+            void deliver(PlayerEventListener listener) {
+                listener.onPositionChanged(currentPosition, duration);
+            }
+        });
+    }
+
+    void dispatchPositionAnchorChanged(final PositionAnchor anchor) {
+        dispatch(new Event(EVENT_POSITION_ANCHOR) {
+            @Override
+            void deliver(PlayerEventListener listener) {
+                listener.onPositionAnchorChanged(anchor);
+            }
+        });
+    }
+
+    void dispatchVolumeChanged(final float volume) {
+        dispatch(new Event(EVENT_VOLUME) {
+            @Override
+            void deliver(PlayerEventListener listener) {
+                listener.onVolumeChanged(volume);
+            }
+        });
+    }
+
+    /**
+     * Stores event as the latest of its type, then delivers it to subscribers.
+     * Subscription added meanwhile gets the event either live or from replay.
+     * New media info or position anchor drops the latest position, it is older and is not replayed after them.
+     */
+    private void dispatch(final Event event) {
+        if (event.type == EVENT_MEDIA_INFO || event.type == EVENT_POSITION_ANCHOR) {
+            latestEvents.set(EVENT_POSITION, null);
+        }
+        latestEvents.set(event.type, event);
+        for (final Subscription subscription : subscriptions.get()) {
+            if (subscription.handler == null) {
+                event.deliver(subscription.listener);
+            } else {
+                subscription.handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        event.deliver(subscription.listener);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Delivers the latest event of every type, media info and state go first so screens paint in order.
+     * Events are read when replay runs, so replay never delivers older event after a newer live one.
+     */
+    private void replay(PlayerEventListener listener) {
+        for (int i = 0; i < EVENT_TYPE_COUNT; i++) {
+            Event event = latestEvents.get(i);
+            if (event != null) {
+                event.deliver(listener);
+            }
+        }
+    }
+
+    private static int indexOf(Subscription[] subscriptions, PlayerEventListener listener) {
+        for (int i = 0; i < subscriptions.length; i++) {
+            if (subscriptions[i].listener == listener) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Receives position subscriptions in running service.
+     */
+    interface PositionSubscriber {
+
+        void subscribePosition(String subscriberId, int interval);
+
+        void unsubscribePosition(String subscriberId);
+    }
+
+    /**
+     * Event of one type, delivered to every subscriber.
+     */
+    private abstract static class Event {
+        final int type;
+
+        Event(int type) {
+            this.type = type;
+        }
+
+        abstract void deliver(PlayerEventListener listener);
+    }
+
+    /**
+     * Listener with its callback handler.
+     */
+    private static final class Subscription {
+        final PlayerEventListener listener;
+        @Nullable
+        final Handler handler;
+
+        Subscription(PlayerEventListener listener, @Nullable Handler handler) {
+            this.listener = listener;
+            this.handler = handler;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import android.support.annotation.FloatRange;
+import android.support.annotation.IntRange;
+import android.support.annotation.Nullable;
+
+/**
+ * Typed callbacks of {@link AudioMediaService} events, dispatched in process by {@link PlayerEventBus}.
+ */
+public interface PlayerEventListener {
+
+    /**
+     * Called on media player state change.
+     *
+     * @param state new player state
+     */
+    void onStateChanged(MediaPlayerState state);
+
+    /**
+     * Called on buffering progress change.
+     *
+     * @param progress progress value in 0-100
+     */
+    void onBufferProgressChanged(@IntRange(from = 0, to = 100) int progress);
+
+    /**
+     * Called when started playback stalls on empty buffer and when it continues.
+     *
+     * @param rebuffering true if playback waits for data
+     */
+    void onRebufferingChanged(boolean rebuffering);
+
+    /**
+     * Called when current media changed.
+     *
+     * @param mediaInfo current media
+     */
+    void onMediaInfoChanged(@Nullable MediaInfo mediaInfo);
+
+    /**
+     * Called on periodic position update.
+     *
+     * @param currentPosition current position in milliseconds
+     * @param duration        media duration in milliseconds
+     */
+    void onPositionChanged(int currentPosition, int duration);
+
+    /**
+     * Called when playback timeline changed.
+     *
+     * @param anchor new position anchor
+     */
+    void onPositionAnchorChanged(PositionAnchor anchor);
+
+    /**
+     * Called on volume change.
+     *
+     * @param volume volume value
+     */
+    void onVolumeChanged(@FloatRange(from = 0f, to = 1.0) float volume);
+}
@@ -0,0 +1,69 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+/**
+ * Message codes of {@link android.os.Messenger} interface of {@link AudioMediaService}, used across processes.
+ * Bind with {@link IntentGenerator#createMessengerBindIntent} and send messages to returned messenger.
+ */
+public final class PlayerMessages {
+
+    /**
+     * Start or resume playback of current media.
+     */
+    public static final int PLAY = 1;
+    /**
+     * Pause playback.
+     */
+    public static final int PAUSE = 2;
+    /**
+     * Stop playback.
+     */
+    public static final int STOP = 3;
+    /**
+     * Toggle play and pause.
+     */
+    public static final int PLAY_TOGGLE = 4;
+    /**
+     * Seek to position in arg1, milliseconds.
+     */
+    public static final int SEEK = 5;
+    /**
+     * Seek by delta in arg1, milliseconds.
+     */
+    public static final int SEEK_BY = 6;
+    /**
+     * Change volume to arg1 per mille, 0 - 1000.
+     */
+    public static final int SET_VOLUME = 7;
+    /**
+     * Toggle mute.
+     */
+    public static final int MUTE_TOGGLE = 8;
+    /**
+     * Request status, reply {@link #STATUS} is sent to replyTo messenger.
+     */
+    public static final int GET_STATUS = 9;
+    /**
+     * Status reply, data contains {@link #STATE_KEY}, {@link #POSITION_KEY}, {@link #DURATION_KEY} and {@link #VOLUME_KEY}.
+     */
+    public static final int STATUS = 10;
+
+    /**
+     * Player state name - status data key.
+     */
+    public static final String STATE_KEY = "STATE";
+    /**
+     * Current position in milliseconds - status data key.
+     */
+    public static final String POSITION_KEY = "POSITION";
+    /**
+     * Media duration in milliseconds - status data key.
+     */
+    public static final String DURATION_KEY = "DURATION";
+    /**
+     * Volume value - status data key.
+     */
+    public static final String VOLUME_KEY = "VOLUME";
+
+    private PlayerMessages() {
+    }
+}
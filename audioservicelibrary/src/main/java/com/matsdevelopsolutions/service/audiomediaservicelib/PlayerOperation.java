@@ -0,0 +1,90 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+/**
+ * Media player operations guarded by player state.
+ * Allowed states of each operation are precomputed to a bitmask of {@link MediaPlayerState} ordinals,
+ * so state check is a single lookup without allocations.
+ */
+public enum PlayerOperation {
+    /**
+     * Handling of prepared callback.
+     */
+    ON_PREPARED(MediaPlayerState.PREPARING),
+    /**
+     * Setting data source.
+     */
+    SET_DATA_SOURCE(MediaPlayerState.IDLE),
+    /**
+     * Async prepare.
+     */
+    PREPARE(MediaPlayerState.INITIALIZED, MediaPlayerState.STOPPED),
+    /**
+     * Seek to position or by delta.
+     */
+    SEEK(MediaPlayerState.STARTED, MediaPlayerState.COMPLETE, MediaPlayerState.PREPARED, MediaPlayerState.PAUSED),
+    /**
+     * Start or resume playback.
+     */
+    START(MediaPlayerState.PREPARED, MediaPlayerState.STARTED, MediaPlayerState.PAUSED, MediaPlayerState.COMPLETE),
+    /**
+     * Pause playback.
+     */
+    PAUSE(MediaPlayerState.STARTED),
+    /**
+     * Stop playback.
+     */
+    STOP(MediaPlayerState.STARTED, MediaPlayerState.COMPLETE, MediaPlayerState.STOPPED, MediaPlayerState.PREPARED,
+            MediaPlayerState.PAUSED),
+    /**
+     * Reset of player, any state except released or error.
+     */
+    RESET(except(MediaPlayerState.END, MediaPlayerState.ERROR)),
+    /**
+     * Position update broadcast.
+     */
+    POSITION_UPDATE(MediaPlayerState.PAUSED, MediaPlayerState.STARTED, MediaPlayerState.STOPPED),
+    /**
+     * Reading position for position anchor, other states publish stopped anchor.
+     */
+    POSITION_ANCHOR(MediaPlayerState.PREPARED, MediaPlayerState.STARTED, MediaPlayerState.PAUSED, MediaPlayerState.COMPLETE),
+    /**
+     * Chaining of next media player for gapless playback.
+     */
+    CHAIN_NEXT_PLAYER(MediaPlayerState.PREPARED, MediaPlayerState.STARTED, MediaPlayerState.PAUSED),
+    /**
+     * Stopping service after inactivity timeout, not allowed while playback is active.
+     */
+    STOP_SERVICE(except(MediaPlayerState.PAUSED, MediaPlayerState.STARTED));
+
+    private final int allowedStates;
+
+    PlayerOperation(final MediaPlayerState... states) {
+        this(mask(states));
+    }
+
+    PlayerOperation(final int allowedStates) {
+        this.allowedStates = allowedStates;
+    }
+
+    /**
+     * Checks if operation is allowed at player state.
+     *
+     * @param state player state
+     * @return true if operation is allowed
+     */
+    public boolean isAllowed(final MediaPlayerState state) {
+        return state != null && (allowedStates & (1 << state.ordinal())) != 0;
+    }
+
+    private static int mask(final MediaPlayerState... states) {
+        int mask = 0;
+        for (MediaPlayerState state : states) {
+            mask |= 1 << state.ordinal();
+        }
+        return mask;
+    }
+
+    private static int except(final MediaPlayerState... states) {
+        return ~mask(states);
+    }
+}
@@ -0,0 +1,163 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latest player state shared with clients in the same process, written by {@link AudioMediaService} on every change.
+ * Region is guarded by a sequence lock, readers copy a consistent {@link PlayerStateSnapshot} without locking nor allocation.
+ */
+public final class PlayerStateRegion {
+
+    private static final PlayerStateRegion INSTANCE = new PlayerStateRegion();
+
+    private static final int SEQUENCE = 0;
+    private static final int STATE = 1;
+    private static final int POSITION = 2;
+    private static final int DURATION = 3;
+    private static final int ANCHOR_TIME = 4;
+    private static final int RATE = 5;
+    private static final int VOLUME = 6;
+    private static final int BUFFER_PROGRESS = 7;
+    private static final int SLOT_COUNT = 8;
+
+    /**
+     * Ordinal of missing player state.
+     */
+    static final int NO_STATE = -1;
+
+    private final AtomicLongArray slots = new AtomicLongArray(SLOT_COUNT);
+    private volatile MediaInfo mediaInfo;
+
+    /**
+     * Creates instance of {@link PlayerStateRegion}, use {@link #getInstance()} to reach service state.
+     */
+    PlayerStateRegion() {
+        slots.set(STATE, NO_STATE);
+        slots.set(VOLUME, Float.floatToIntBits(1.0f));
+    }
+
+    /**
+     * @return process wide state region written by {@link AudioMediaService}.
+     */
+    public static PlayerStateRegion getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Copies consistent state into snapshot, retries while service is writing.
+     *
+     * @param snapshot reused snapshot instance
+     * @return the same snapshot
+     */
+    public PlayerStateSnapshot read(PlayerStateSnapshot snapshot) {
+        while (true) {
+            long sequence = slots.get(SEQUENCE);
+            if ((sequence & 1) != 0) {
+                continue;
+            }
+            snapshot.stateOrdinal = (int) slots.get(STATE);
+            snapshot.position = (int) slots.get(POSITION);
+            snapshot.duration = (int) slots.get(DURATION);
+            snapshot.anchorTime = slots.get(ANCHOR_TIME);
+            snapshot.rate = Float.intBitsToFloat((int) slots.get(RATE));
+            snapshot.volume = Float.intBitsToFloat((int) slots.get(VOLUME));
+            snapshot.bufferProgress = (int) slots.get(BUFFER_PROGRESS);
+            snapshot.mediaInfo = mediaInfo;
+            if (slots.get(SEQUENCE) == sequence) {
+                snapshot.sequence = sequence;
+                return snapshot;
+            }
+        }
+    }
+
+    /**
+     * @return write sequence, changes on every update, readers can skip unchanged state.
+     */
+    public long getSequence() {
+        return slots.get(SEQUENCE);
+    }
+
+    /**
+     * Writes player state.
+     *
+     * @param state player state
+     */
+    synchronized void writeState(@Nullable MediaPlayerState state) {
+        beginWrite();
+        slots.set(STATE, state != null ? state.ordinal() : NO_STATE);
+        endWrite();
+    }
+
+    /**
+     * Writes position anchor.
+     *
+     * @param anchor position anchor
+     */
+    synchronized void writePositionAnchor(PositionAnchor anchor) {
+        beginWrite();
+        slots.set(POSITION, anchor.getPosition());
+        slots.set(DURATION, anchor.getDuration());
+        slots.set(ANCHOR_TIME, anchor.getElapsedRealtime());
+        slots.set(RATE, Float.floatToIntBits(anchor.getRate()));
+        endWrite();
+    }
+
+    /**
+     * Writes polled position, position doesn't advance until next anchor.
+     *
+     * @param position        media position in milliseconds
+     * @param duration        media duration in milliseconds
+     * @param elapsedRealtime time of position
+     */
+    synchronized void writePosition(int position, int duration, long elapsedRealtime) {
+        beginWrite();
+        slots.set(POSITION, position);
+        slots.set(DURATION, duration);
+        slots.set(ANCHOR_TIME, elapsedRealtime);
+        endWrite();
+    }
+
+    /**
+     * Writes volume.
+     *
+     * @param volume volume from 0 to 1.0
+     */
+    synchronized void writeVolume(float volume) {
+        beginWrite();
+        slots.set(VOLUME, Float.floatToIntBits(volume));
+        endWrite();
+    }
+
+    /**
+     * Writes buffer progress.
+     *
+     * @param bufferProgress buffer progress from 0 to 100
+     */
+    synchronized void writeBufferProgress(int bufferProgress) {
+        beginWrite();
+        slots.set(BUFFER_PROGRESS, bufferProgress);
+        endWrite();
+    }
+
+    /**
+     * Writes copy of media info, later changes of the written instance are not published.
+     *
+     * @param mediaInfo media info
+     */
+    synchronized void writeMediaInfo(@Nullable MediaInfo mediaInfo) {
+        MediaInfo copy = mediaInfo != null ? new MediaInfo(mediaInfo) : null;
+        beginWrite();
+        this.mediaInfo = copy;
+        endWrite();
+    }
+
+    private void beginWrite() {
+        slots.incrementAndGet(SEQUENCE);
+    }
+
+    private void endWrite() {
+        slots.incrementAndGet(SEQUENCE);
+    }
+}
@@ -0,0 +1,100 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import android.support.annotation.Nullable;
+
+/**
+ * Consistent copy of {@link PlayerStateRegion}, reuse one instance to poll state without allocation.
+ */
+public final class PlayerStateSnapshot {
+
+    private static final MediaPlayerState[] STATES = MediaPlayerState.values();
+
+    long sequence;
+    int stateOrdinal = PlayerStateRegion.NO_STATE;
+    int position;
+    int duration;
+    long anchorTime;
+    float rate;
+    float volume;
+    int bufferProgress;
+    MediaInfo mediaInfo;
+
+    /**
+     * @return write sequence of region at time of read.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return player state, null before service publishes first state.
+     */
+    @Nullable
+    public MediaPlayerState getPlayerState() {
+        return stateOrdinal >= 0 ? STATES[stateOrdinal] : null;
+    }
+
+    /**
+     * @return media position at anchor time, in milliseconds.
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * Extrapolates media position at given time, see {@link PositionAnchor#getPositionAt(long)}.
+     *
+     * @param nowElapsedRealtime current time, from {@link android.os.SystemClock#elapsedRealtime()}
+     * @return position in milliseconds, limited to media duration
+     */
+    public int getPositionAt(final long nowElapsedRealtime) {
+        long elapsed = Math.max(0, nowElapsedRealtime - anchorTime);
+        long extrapolated = position + (long) (elapsed * rate);
+        if (duration > 0 && extrapolated > duration) {
+            return duration;
+        }
+        return (int) extrapolated;
+    }
+
+    /**
+     * @return media duration in milliseconds.
+     */
+    public int getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return playback rate, 0 if position doesn't advance.
+     */
+    public float getRate() {
+        return rate;
+    }
+
+    /**
+     * @return volume from 0 to 1.0
+     */
+    public float getVolume() {
+        return volume;
+    }
+
+    /**
+     * @return buffer progress from 0 to 100
+     */
+    public int getBufferProgress() {
+        return bufferProgress;
+    }
+
+    /**
+     * @return current media info.
+     */
+    @Nullable
+    public MediaInfo getMediaInfo() {
+        return mediaInfo;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PlayerStateSnapshot{sequence=%d, state=%s, position=%d, duration=%d, rate=%.2f, volume=%.2f, buffer=%d}",
+                sequence, getPlayerState(), position, duration, rate, volume, bufferProgress);
+    }
+}
@@ -0,0 +1,76 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+/**
+ * Media position at a point of time, published when playback timeline changes.
+ * Current position is extrapolated from the anchor, so clients don't need periodic position updates.
+ */
+public final class PositionAnchor {
+
+    private final int position;
+    private final int duration;
+    private final long elapsedRealtime;
+    private final float rate;
+
+    /**
+     * Creates instance of {@link PositionAnchor}.
+     *
+     * @param position        media position in milliseconds
+     * @param duration        media duration in milliseconds
+     * @param elapsedRealtime time of position, from {@link android.os.SystemClock#elapsedRealtime()}
+     * @param rate            playback rate, 0 if position doesn't advance
+     */
+    public PositionAnchor(final int position, final int duration, final long elapsedRealtime, final float rate) {
+        this.position = position;
+        this.duration = duration;
+        this.elapsedRealtime = elapsedRealtime;
+        this.rate = rate;
+    }
+
+    /**
+     * @return media position at anchor time, in milliseconds.
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * @return media duration in milliseconds.
+     */
+    public int getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return anchor time, from {@link android.os.SystemClock#elapsedRealtime()}.
+     */
+    public long getElapsedRealtime() {
+        return elapsedRealtime;
+    }
+
+    /**
+     * @return playback rate, 0 if position doesn't advance.
+     */
+    public float getRate() {
+        return rate;
+    }
+
+    /**
+     * Extrapolates media position at given time.
+     *
+     * @param nowElapsedRealtime current time, from {@link android.os.SystemClock#elapsedRealtime()}
+     * @return position in milliseconds, limited to media duration
+     */
+    public int getPositionAt(final long nowElapsedRealtime) {
+        long elapsed = Math.max(0, nowElapsedRealtime - elapsedRealtime);
+        long extrapolated = position + (long) (elapsed * rate);
+        if (duration > 0 && extrapolated > duration) {
+            return duration;
+        }
+        return (int) extrapolated;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PositionAnchor{position=%d, duration=%d, time=%d, rate=%.2f}", position, duration, elapsedRealtime, rate);
+    }
+}
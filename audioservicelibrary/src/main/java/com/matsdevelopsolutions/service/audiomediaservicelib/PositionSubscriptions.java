@@ -0,0 +1,134 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Position update subscribers with their requested update intervals.
+ * Position is updated at the fastest requested interval, not at all without subscribers.
+ * Subscription expires when it is not renewed within timeout, so subscribers that disappeared
+ * without unsubscribing don't keep updates running.
+ */
+class PositionSubscriptions {
+
+    /**
+     * Value of {@link #getFastestInterval()} when nobody is subscribed.
+     */
+    static final int NO_SUBSCRIBERS = -1;
+    /**
+     * Shortest allowed update interval in milliseconds, about 60 updates per second.
+     */
+    static final int MIN_INTERVAL = 16;
+
+    private final long timeout;
+    private final Map<String, Subscription> subscriptions = new HashMap<>();
+    private int fastestInterval = NO_SUBSCRIBERS;
+
+    /**
+     * Creates instance of {@link PositionSubscriptions}.
+     *
+     * @param timeout time after which subscription that was not renewed expires, in milliseconds
+     */
+    PositionSubscriptions(final long timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Adds subscriber, or renews its subscription and changes its interval.
+     *
+     * @param subscriberId subscriber id
+     * @param interval     update interval in milliseconds
+     * @param now          current time in milliseconds
+     * @return true if fastest interval changed
+     */
+    boolean subscribe(final String subscriberId, final int interval, final long now) {
+        subscriptions.put(subscriberId, new Subscription(Math.max(interval, MIN_INTERVAL), now + timeout));
+        return updateFastestInterval();
+    }
+
+    /**
+     * Removes subscriber.
+     *
+     * @param subscriberId subscriber id
+     * @return true if fastest interval changed
+     */
+    boolean unsubscribe(final String subscriberId) {
+        return subscriptions.remove(subscriberId) != null && updateFastestInterval();
+    }
+
+    /**
+     * Removes subscriptions that were not renewed in time.
+     *
+     * @param now current time in milliseconds
+     * @return true if any subscription expired
+     */
+    boolean expire(final long now) {
+        boolean expired = false;
+        Iterator<Subscription> iterator = subscriptions.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().expirationTime <= now) {
+                iterator.remove();
+                expired = true;
+            }
+        }
+        if (expired) {
+            updateFastestInterval();
+        }
+        return expired;
+    }
+
+    /**
+     * @return true if there is at least one subscriber.
+     */
+    boolean hasSubscribers() {
+        return fastestInterval != NO_SUBSCRIBERS;
+    }
+
+    /**
+     * @return shortest requested interval in milliseconds, {@link #NO_SUBSCRIBERS} if nobody is subscribed.
+     */
+    int getFastestInterval() {
+        return fastestInterval;
+    }
+
+    /**
+     * @return number of subscribers.
+     */
+    int size() {
+        return subscriptions.size();
+    }
+
+    /**
+     * @return copy of update intervals by subscriber id.
+     */
+    Map<String, Integer> getIntervals() {
+        Map<String, Integer> intervals = new HashMap<>();
+        for (Map.Entry<String, Subscription> entry : subscriptions.entrySet()) {
+            intervals.put(entry.getKey(), entry.getValue().interval);
+        }
+        return intervals;
+    }
+
+    private boolean updateFastestInterval() {
+        int fastest = NO_SUBSCRIBERS;
+        for (Subscription subscription : subscriptions.values()) {
+            if (fastest == NO_SUBSCRIBERS || subscription.interval < fastest) {
+                fastest = subscription.interval;
+            }
+        }
+        boolean changed = fastest != fastestInterval;
+        fastestInterval = fastest;
+        return changed;
+    }
+
+    private static final class Subscription {
+        final int interval;
+        final long expirationTime;
+
+        Subscription(final int interval, final long expirationTime) {
+            this.interval = interval;
+            this.expirationTime = expirationTime;
+        }
+    }
+}
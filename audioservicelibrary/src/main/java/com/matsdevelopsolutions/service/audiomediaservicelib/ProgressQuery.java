@@ -0,0 +1,33 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+/**
+ * Read-only queries of stored playback progress, for binding of media lists.
+ * Queries read in-memory progress, they never migrate nor write progress and don't wait for flush of the store.
+ */
+public interface ProgressQuery {
+
+    /**
+     * Gets playback progress stored for the url.
+     *
+     * @param url playback url
+     * @return progress in milliseconds, 0 if none
+     */
+    int getProgress(String url);
+
+    /**
+     * Gets playback progress of many urls in one call, for binding of media lists.
+     *
+     * @param urls      playback urls
+     * @param positions filled with progress of url at the same index in milliseconds, 0 if none
+     */
+    void getProgress(String[] urls, int[] positions);
+
+    /**
+     * Gets the most recently played of given urls.
+     *
+     * @param urls    playback urls, for example all media of a library
+     * @param indices filled with indices of the most recently played urls, newest first, its length limits the result
+     * @return number of filled indices, urls without stored progress are skipped
+     */
+    int getRecentlyPlayed(String[] urls, int[] indices);
+}
@@ -0,0 +1,49 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+/**
+ * Storage of playback progress per media url, used to resume playback.
+ * Progress is put on every position update, implementations write it to disk in batches on {@link #flush()}.
+ * Stores are bounded, progress of least recently played urls is evicted over capacity or max age.
+ * Reads of the store may migrate progress of older versions, clients query progress through {@link #getQuery()}.
+ */
+public interface ProgressStore extends ProgressQuery {
+
+    /**
+     * Default maximum number of urls with stored progress.
+     */
+    int DEFAULT_CAPACITY = 2000;
+    /**
+     * Default maximum age of stored progress in milliseconds, 180 days.
+     */
+    long DEFAULT_MAX_AGE = 180L * 24 * 60 * 60 * 1000;
+
+    /**
+     * Stores playback progress.
+     *
+     * @param url      playback url
+     * @param position progress in milliseconds
+     */
+    void putProgress(String url, int position);
+
+    /**
+     * Removes progress of url, e.g. when its media was played to the end.
+     *
+     * @param url playback url
+     */
+    void removeProgress(String url);
+
+    /**
+     * @return true if progress was stored since last flush.
+     */
+    boolean hasPendingProgress();
+
+    /**
+     * Writes progress stored since last flush to disk.
+     */
+    void flush();
+
+    /**
+     * @return read-only view of stored progress, safe to use from any thread.
+     */
+    ProgressQuery getQuery();
+}
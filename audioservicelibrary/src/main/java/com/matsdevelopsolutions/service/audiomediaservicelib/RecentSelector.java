@@ -0,0 +1,57 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+/**
+ * Selects indices of items with the highest recency keys, newest first, without sorting all items.
+ * Used by {@link ProgressStore#getRecentlyPlayed(String[], int[])} implementations.
+ */
+final class RecentSelector {
+
+    private final long[] keys;
+    private final int[] indices;
+    private int count;
+
+    /**
+     * Creates instance of {@link RecentSelector}.
+     *
+     * @param limit maximum number of selected items
+     */
+    RecentSelector(int limit) {
+        keys = new long[limit];
+        indices = new int[limit];
+    }
+
+    /**
+     * Offers item, it is kept if it is newer than the oldest selected one.
+     *
+     * @param key   recency of item, higher is newer
+     * @param index index of item
+     */
+    void offer(long key, int index) {
+        int position = count < keys.length ? count++ : keys.length;
+        if (position == keys.length && (position == 0 || key <= keys[position - 1])) {
+            return;
+        }
+        // insertion into descending order, the oldest item falls off when full
+        while (position > 0 && keys[position - 1] < key) {
+            if (position < keys.length) {
+                keys[position] = keys[position - 1];
+                indices[position] = indices[position - 1];
+            }
+            position--;
+        }
+        keys[position] = key;
+        indices[position] = index;
+    }
+
+    /**
+     * Copies selected indices, newest first.
+     *
+     * @param out target array
+     * @return number of copied indices
+     */
+    int copyTo(int[] out) {
+        int length = Math.min(count, out.length);
+        System.arraycopy(indices, 0, out, 0, length);
+        return length;
+    }
+}
@@ -0,0 +1,162 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import android.support.annotation.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Playback session state persisted by {@link SessionStore}, restored when service is restarted after process death.
+ * <p>
+ * Layout: version byte, state ordinal byte, volume, position, notification flags, optional notification style,
+ * position subscription count with subscriber id and interval of each, and media info encoded with {@link MediaInfoCodec}.
+ * Version 1 snapshots without position subscriptions are still read.
+ */
+final class SessionSnapshot {
+
+    /**
+     * Encoding version, snapshots of other versions are not restored.
+     */
+    static final int VERSION = 2;
+    private static final int VERSION_WITHOUT_SUBSCRIPTIONS = 1;
+
+    @Nullable
+    final MediaInfo mediaInfo;
+    @Nullable
+    final MediaPlayerState state;
+    final float volume;
+    final int position;
+    @Nullable
+    final String notificationStyle;
+    final int notificationFlags;
+    /**
+     * Position update intervals by subscriber id.
+     */
+    final Map<String, Integer> positionSubscriptions;
+
+    /**
+     * Creates instance of {@link SessionSnapshot} without position subscriptions.
+     */
+    SessionSnapshot(@Nullable MediaInfo mediaInfo, @Nullable MediaPlayerState state, float volume,
+                    int position, @Nullable String notificationStyle, int notificationFlags) {
+        this(mediaInfo, state, volume, position, notificationStyle, notificationFlags, Collections.<String, Integer>emptyMap());
+    }
+
+    /**
+     * Creates instance of {@link SessionSnapshot}.
+     */
+    SessionSnapshot(@Nullable MediaInfo mediaInfo, @Nullable MediaPlayerState state, float volume,
+                    int position, @Nullable String notificationStyle, int notificationFlags,
+                    Map<String, Integer> positionSubscriptions) {
+        this.mediaInfo = mediaInfo;
+        this.state = state;
+        this.volume = volume;
+        this.position = position;
+        this.notificationStyle = notificationStyle;
+        this.notificationFlags = notificationFlags;
+        this.positionSubscriptions = positionSubscriptions;
+    }
+
+    /**
+     * @return true if snapshot has media that was playing or loaded when session ended.
+     */
+    boolean isRestorable() {
+        if (mediaInfo == null || mediaInfo.streamUrl == null || state == null) {
+            return false;
+        }
+        switch (state) {
+            case INITIALIZED:
+            case PREPARING:
+            case PREPARED:
+            case STARTED:
+            case PAUSED:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Encodes snapshot.
+     *
+     * @return encoded snapshot
+     */
+    byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(VERSION);
+            out.writeByte(state != null ? state.ordinal() : -1);
+            out.writeFloat(volume);
+            out.writeInt(position);
+            out.writeInt(notificationFlags);
+            out.writeBoolean(notificationStyle != null);
+            if (notificationStyle != null) {
+                out.writeUTF(notificationStyle);
+            }
+            out.writeShort(positionSubscriptions.size());
+            for (Map.Entry<String, Integer> subscription : positionSubscriptions.entrySet()) {
+                out.writeUTF(subscription.getKey());
+                out.writeInt(subscription.getValue());
+            }
+            List<MediaInfo> mediaInfos = mediaInfo != null ? Collections.singletonList(mediaInfo) : Collections.<MediaInfo>emptyList();
+            out.write(MediaInfoCodec.encode(mediaInfos));
+        } catch (IOException e) {
+            // not thrown by in-memory stream
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes snapshot.
+     *
+     * @param data encoded snapshot
+     * @return session snapshot
+     * @throws IllegalArgumentException if data has unsupported version or is malformed
+     */
+    static SessionSnapshot decode(byte[] data) {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        try {
+            int version = in.readByte();
+            if (version != VERSION && version != VERSION_WITHOUT_SUBSCRIPTIONS) {
+                throw new IllegalArgumentException(String.format("Unsupported session snapshot version %d", version));
+            }
+            int ordinal = in.readByte();
+            MediaPlayerState[] states = MediaPlayerState.values();
+            MediaPlayerState state = ordinal >= 0 && ordinal < states.length ? states[ordinal] : null;
+            float volume = in.readFloat();
+            int position = in.readInt();
+            int notificationFlags = in.readInt();
+            String notificationStyle = in.readBoolean() ? in.readUTF() : null;
+            Map<String, Integer> positionSubscriptions = new HashMap<>();
+            if (version != VERSION_WITHOUT_SUBSCRIPTIONS) {
+                int count = in.readUnsignedShort();
+                for (int i = 0; i < count; i++) {
+                    positionSubscriptions.put(in.readUTF(), in.readInt());
+                }
+            }
+            byte[] media = new byte[in.available()];
+            in.readFully(media);
+            List<MediaInfo> mediaInfos = MediaInfoCodec.decode(media);
+            MediaInfo mediaInfo = mediaInfos.isEmpty() ? null : mediaInfos.get(0);
+            return new SessionSnapshot(mediaInfo, state, volume, position, notificationStyle, notificationFlags,
+                    positionSubscriptions);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed session snapshot", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SessionSnapshot{state=%s, url=%s, position=%d, volume=%.2f, subscriptions=%d}",
+                state, mediaInfo != null ? mediaInfo.streamUrl : null, position, volume, positionSubscriptions.size());
+    }
+}
@@ -0,0 +1,154 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Persists {@link SessionSnapshot} on a background thread. Snapshots saved while previous one is being written
+ * are merged, only the latest one is written. File is replaced atomically, so torn snapshot is never read.
+ */
+class SessionStore {
+
+    private static final String TAG = SessionStore.class.getSimpleName();
+    /**
+     * Maximum wait for pending write on close, in milliseconds.
+     */
+    private static final long CLOSE_TIMEOUT = 1000;
+
+    private final File file;
+    /**
+     * Snapshot waiting for writer thread.
+     */
+    private final AtomicReference<SessionSnapshot> pendingSnapshot = new AtomicReference<>();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, TAG + ".Writer");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    private final Runnable writeTask = new Runnable() {
+        @Override
+        public void run() {
+            SessionSnapshot snapshot = pendingSnapshot.getAndSet(null);
+            if (snapshot != null) {
+                write(snapshot);
+            }
+        }
+    };
+    private volatile int writeCount;
+
+    /**
+     * Creates instance of {@link SessionStore}.
+     *
+     * @param file snapshot file
+     */
+    SessionStore(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Saves snapshot in background.
+     *
+     * @param snapshot session snapshot
+     */
+    void save(SessionSnapshot snapshot) {
+        if (pendingSnapshot.getAndSet(snapshot) == null) {
+            writer.execute(writeTask);
+        }
+    }
+
+    /**
+     * Loads last saved snapshot, blocks on file read.
+     *
+     * @return session snapshot, null if none was saved or it is not readable
+     */
+    @Nullable
+    SessionSnapshot load() {
+        if (!file.exists()) {
+            return null;
+        }
+        FileInputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            byte[] data = new byte[(int) file.length()];
+            int read = 0;
+            while (read < data.length) {
+                int count = in.read(data, read, data.length - read);
+                if (count < 0) {
+                    throw new IOException("Unexpected end of session file");
+                }
+                read += count;
+            }
+            return SessionSnapshot.decode(data);
+        } catch (IOException | IllegalArgumentException e) {
+            Log.w(TAG, "Could not load session snapshot", e);
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    /**
+     * Waits for pending snapshot write and stops writer thread.
+     */
+    void close() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(CLOSE_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                Log.w(TAG, "Session snapshot write did not finish on close");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return number of snapshot file writes.
+     */
+    int getWriteCount() {
+        return writeCount;
+    }
+
+    private void write(SessionSnapshot snapshot) {
+        File tempFile = new File(file.getPath() + ".tmp");
+        FileOutputStream out = null;
+        try {
+            out = new FileOutputStream(tempFile);
+            out.write(snapshot.encode());
+            out.getFD().sync();
+            out.close();
+            out = null;
+            if (!tempFile.renameTo(file)) {
+                throw new IOException(String.format("Could not replace %s", file));
+            }
+            writeCount++;
+        } catch (IOException e) {
+            Log.w(TAG, "Could not save session snapshot", e);
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    private static void closeQuietly(@Nullable Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // nothing to do
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+/**
+ * 64-bit hash of media urls used as progress keys, collisions are negligible even for huge libraries
+ * unlike 32-bit {@link String#hashCode()}.
+ */
+final class UrlHash {
+
+    private UrlHash() {
+    }
+
+    /**
+     * Computes 64-bit hash of url, FNV-1a of its chars with final avalanche mix.
+     *
+     * @param url media url
+     * @return non zero hash
+     */
+    static long hash64(String url) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < url.length(); i++) {
+            hash ^= url.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash != 0 ? hash : 1;
+    }
+}
@@ -0,0 +1,513 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib.art;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+import android.util.Log;
+
+import com.matsdevelopsolutions.service.audiomediaservicelib.cache.StreamCache;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Loads album art of local and remote uris on background threads, downsampled to target size.
+ * Decoded bitmaps are kept in memory LRU bounded by bytes, downsized images are kept in disk cache,
+ * so repeated art is neither downloaded nor decoded at full resolution again.
+ * Loads of the same uri in progress are merged, callbacks are delivered on main thread.
+ * Failed uris are not loaded again until failure TTL passes, loads after {@link #close()} are dropped.
+ */
+public class AlbumArtLoader {
+
+    /**
+     * Callback of art load.
+     */
+    public interface Callback {
+
+        /**
+         * Called on main thread when art is loaded.
+         *
+         * @param artUri art uri
+         * @param art    downsampled art, null if it could not be loaded
+         */
+        void onArtLoaded(String artUri, @Nullable Bitmap art);
+    }
+
+    /**
+     * Logging tag.
+     */
+    private static final String TAG = AlbumArtLoader.class.getSimpleName();
+    private static final String ART_EXT = ".art";
+    private static final String DOWNLOAD_EXT = ".download";
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int CONNECT_TIMEOUT = 15 * 1000;
+    private static final int READ_TIMEOUT = 30 * 1000;
+    private static final int LOADER_THREADS = 2;
+    private static final int JPEG_QUALITY = 90;
+    /**
+     * Maximum number of remembered failed uris, the oldest failure is forgotten over it.
+     */
+    private static final int MAX_FAILED_URIS = 64;
+    /**
+     * Time in milliseconds after which failed uri is loaded again.
+     */
+    private static final long FAILURE_TTL = 5 * 60 * 1000;
+
+    private final Context context;
+    private final File directory;
+    private final int targetWidth;
+    private final int targetHeight;
+    private final long maxMemoryBytes;
+    private final long maxDiskBytes;
+    private final long failureTtl;
+    /**
+     * Decoded bitmaps in access order.
+     */
+    private final LinkedHashMap<String, Bitmap> memoryCache = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+    /**
+     * Callbacks of loads in progress by uri.
+     */
+    private final Map<String, List<Callback>> pendingLoads = new HashMap<>();
+    /**
+     * Failure time in milliseconds by uri, oldest first.
+     */
+    private final LinkedHashMap<String, Long> failedUris = new LinkedHashMap<>();
+    private final ExecutorService executor;
+    private final Executor callbackExecutor;
+    private boolean isClosed;
+    private int memoryHits;
+    private int diskHits;
+    private int downloads;
+    private int decodes;
+
+    /**
+     * Creates instance of {@link AlbumArtLoader}.
+     *
+     * @param context        context
+     * @param directory      disk cache directory
+     * @param targetWidth    target width in pixels
+     * @param targetHeight   target height in pixels
+     * @param maxMemoryBytes maximum bytes of bitmaps kept in memory
+     * @param maxDiskBytes   maximum bytes of downsized images kept on disk
+     */
+    public AlbumArtLoader(final Context context, final File directory, final int targetWidth, final int targetHeight,
+                          final long maxMemoryBytes, final long maxDiskBytes) {
+        this(context, directory, targetWidth, targetHeight, maxMemoryBytes, maxDiskBytes, FAILURE_TTL,
+                Executors.newFixedThreadPool(LOADER_THREADS, new ThreadFactory() {
+                    @Override
+                    public Thread newThread(final Runnable runnable) {
+                        Thread thread = new Thread(runnable, TAG);
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                }),
+                new Executor() {
+                    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+                    @Override
+                    public void execute(final Runnable runnable) {
+                        mainHandler.post(runnable);
+                    }
+                });
+    }
+
+    /**
+     * Creates instance of {@link AlbumArtLoader} with given threads.
+     *
+     * @param context          context
+     * @param directory        disk cache directory
+     * @param targetWidth      target width in pixels
+     * @param targetHeight     target height in pixels
+     * @param maxMemoryBytes   maximum bytes of bitmaps kept in memory
+     * @param maxDiskBytes     maximum bytes of downsized images kept on disk
+     * @param failureTtl       time in milliseconds after which failed uri is loaded again
+     * @param executor         executor of loads
+     * @param callbackExecutor executor of callbacks
+     */
+    AlbumArtLoader(final Context context, final File directory, final int targetWidth, final int targetHeight,
+                   final long maxMemoryBytes, final long maxDiskBytes, final long failureTtl,
+                   final ExecutorService executor, final Executor callbackExecutor) {
+        this.context = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+        this.directory = directory;
+        this.targetWidth = targetWidth;
+        this.targetHeight = targetHeight;
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.maxDiskBytes = maxDiskBytes;
+        this.failureTtl = failureTtl;
+        this.executor = executor;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * Gets art from memory cache without blocking.
+     *
+     * @param artUri art uri
+     * @return cached art, null if it is not loaded
+     */
+    @Nullable
+    public synchronized Bitmap getCached(final String artUri) {
+        Bitmap art = memoryCache.get(artUri);
+        if (art != null) {
+            memoryHits++;
+        }
+        return art;
+    }
+
+    /**
+     * Loads art in background, cached art is delivered without loading. Load after {@link #close()} is dropped.
+     *
+     * @param artUri   art uri
+     * @param callback callback called on main thread
+     */
+    public void load(final String artUri, final Callback callback) {
+        synchronized (this) {
+            if (isClosed) {
+                Log.d(TAG, String.format("Loader is closed, art %s is not loaded", artUri));
+                return;
+            }
+            final Bitmap cached = getCached(artUri);
+            if (cached != null || hasFailed(artUri)) {
+                callbackExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onArtLoaded(artUri, cached);
+                    }
+                });
+                return;
+            }
+            List<Callback> callbacks = pendingLoads.get(artUri);
+            if (callbacks != null) {
+                // same art is loading already
+                callbacks.add(callback);
+                return;
+            }
+            callbacks = new ArrayList<>();
+            callbacks.add(callback);
+            pendingLoads.put(artUri, callbacks);
+        }
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    Bitmap art = null;
+                    try {
+                        art = loadArt(artUri);
+                    } catch (IOException | RuntimeException | OutOfMemoryError e) {
+                        Log.w(TAG, String.format("Could not load art %s", artUri), e);
+                    }
+                    deliver(artUri, art);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // closed meanwhile
+            synchronized (this) {
+                pendingLoads.remove(artUri);
+            }
+        }
+    }
+
+    /**
+     * Stops loader threads, loads in progress are finished and following loads are dropped.
+     */
+    public void close() {
+        synchronized (this) {
+            isClosed = true;
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * @return number of art loads served from disk cache.
+     */
+    synchronized int getDiskHits() {
+        return diskHits;
+    }
+
+    /**
+     * @return number of art decodes from source.
+     */
+    synchronized int getDecodes() {
+        return decodes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("AlbumArtLoader{memory=%d/%d bytes, bitmaps=%d, memoryHits=%d, diskHits=%d, downloads=%d, decodes=%d}",
+                memoryBytes, maxMemoryBytes, memoryCache.size(), memoryHits, diskHits, downloads, decodes);
+    }
+
+    /**
+     * Computes power of two sample size, image decoded with it still covers the target size.
+     *
+     * @param width        image width
+     * @param height       image height
+     * @param targetWidth  target width
+     * @param targetHeight target height
+     * @return sample size for {@link BitmapFactory.Options#inSampleSize}
+     */
+    static int calculateInSampleSize(final int width, final int height, final int targetWidth, final int targetHeight) {
+        int sampleSize = 1;
+        while (width / (sampleSize * 2) >= targetWidth && height / (sampleSize * 2) >= targetHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    private void deliver(final String artUri, @Nullable final Bitmap art) {
+        final List<Callback> callbacks;
+        synchronized (this) {
+            callbacks = pendingLoads.remove(artUri);
+            if (art != null) {
+                putMemory(artUri, art);
+            } else {
+                failedUris.remove(artUri);
+                failedUris.put(artUri, now());
+                Iterator<String> iterator = failedUris.keySet().iterator();
+                while (failedUris.size() > MAX_FAILED_URIS && iterator.hasNext()) {
+                    iterator.next();
+                    iterator.remove();
+                }
+            }
+        }
+        callbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (Callback callback : callbacks) {
+                    callback.onArtLoaded(artUri, art);
+                }
+            }
+        });
+    }
+
+    /**
+     * Checks if uri failed within failure TTL, expired failure is forgotten.
+     */
+    private boolean hasFailed(final String artUri) {
+        Long failureTime = failedUris.get(artUri);
+        if (failureTime == null) {
+            return false;
+        }
+        if (now() - failureTime < failureTtl) {
+            return true;
+        }
+        failedUris.remove(artUri);
+        return false;
+    }
+
+    private void putMemory(final String artUri, final Bitmap art) {
+        Bitmap previous = memoryCache.put(artUri, art);
+        if (previous != null) {
+            memoryBytes -= getByteCount(previous);
+        }
+        memoryBytes += getByteCount(art);
+        Iterator<Map.Entry<String, Bitmap>> iterator = memoryCache.entrySet().iterator();
+        while (memoryBytes > maxMemoryBytes && iterator.hasNext()) {
+            Bitmap evicted = iterator.next().getValue();
+            if (evicted == art) {
+                // keep the newest art even if it is over limit alone
+                break;
+            }
+            iterator.remove();
+            memoryBytes -= getByteCount(evicted);
+        }
+    }
+
+    /**
+     * Loads downsized art from disk cache, or decodes it from source and stores it on disk.
+     */
+    @WorkerThread
+    private Bitmap loadArt(final String artUri) throws IOException {
+        File cached = new File(directory, StreamCache.keyFor(artUri) + "_" + targetWidth + "x" + targetHeight + ART_EXT);
+        if (cached.exists()) {
+            Bitmap art = BitmapFactory.decodeFile(cached.getPath());
+            if (art != null) {
+                cached.setLastModified(System.currentTimeMillis());
+                synchronized (this) {
+                    diskHits++;
+                }
+                return art;
+            }
+            cached.delete();
+        }
+        Uri uri = Uri.parse(artUri);
+        String scheme = uri.getScheme();
+        Bitmap art;
+        if ("http".equalsIgnoreCase(scheme) || "https".equalsIgnoreCase(scheme)) {
+            File download = new File(directory, StreamCache.keyFor(artUri) + DOWNLOAD_EXT);
+            try {
+                download(artUri, download);
+                art = decode(Uri.fromFile(download));
+            } finally {
+                download.delete();
+            }
+        } else if (scheme == null) {
+            art = decode(Uri.fromFile(new File(artUri)));
+        } else {
+            art = decode(uri);
+        }
+        store(art, cached);
+        return art;
+    }
+
+    /**
+     * Decodes image bounds first, then decodes it with sample size and scales it down to target size.
+     */
+    private Bitmap decode(final Uri uri) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        decodeStream(uri, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            throw new IOException(String.format("Not an image %s", uri));
+        }
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, targetWidth, targetHeight);
+        options.inJustDecodeBounds = false;
+        Bitmap decoded = decodeStream(uri, options);
+        if (decoded == null) {
+            throw new IOException(String.format("Could not decode image %s", uri));
+        }
+        synchronized (this) {
+            decodes++;
+        }
+        float scale = Math.max((float) targetWidth / decoded.getWidth(), (float) targetHeight / decoded.getHeight());
+        if (scale >= 1f) {
+            return decoded;
+        }
+        Bitmap scaled = Bitmap.createScaledBitmap(decoded, Math.max(1, Math.round(decoded.getWidth() * scale)),
+                Math.max(1, Math.round(decoded.getHeight() * scale)), true);
+        if (scaled != decoded) {
+            decoded.recycle();
+        }
+        return scaled;
+    }
+
+    private Bitmap decodeStream(final Uri uri, final BitmapFactory.Options options) throws IOException {
+        InputStream in = "file".equals(uri.getScheme())
+                ? new FileInputStream(uri.getPath()) : context.getContentResolver().openInputStream(uri);
+        if (in == null) {
+            throw new IOException(String.format("Could not open %s", uri));
+        }
+        try {
+            return BitmapFactory.decodeStream(in, null, options);
+        } finally {
+            in.close();
+        }
+    }
+
+    private void download(final String url, final File target) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT);
+        connection.setReadTimeout(READ_TIMEOUT);
+        try {
+            int responseCode = connection.getResponseCode();
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                throw new IOException(String.format("Art download failed with response %d", responseCode));
+            }
+            directory.mkdirs();
+            InputStream in = connection.getInputStream();
+            OutputStream out = new FileOutputStream(target);
+            try {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int count;
+                while ((count = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, count);
+                }
+            } finally {
+                out.close();
+                in.close();
+            }
+            synchronized (this) {
+                downloads++;
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Writes downsized art to disk cache and trims cache to its maximum size.
+     */
+    private void store(final Bitmap art, final File file) {
+        directory.mkdirs();
+        File temp = new File(file.getPath() + DOWNLOAD_EXT);
+        try {
+            OutputStream out = new FileOutputStream(temp);
+            try {
+                art.compress(art.hasAlpha() ? Bitmap.CompressFormat.PNG : Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out);
+            } finally {
+                out.close();
+            }
+            if (!temp.renameTo(file)) {
+                throw new IOException(String.format("Could not store art %s", file));
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Could not store art in disk cache", e);
+            temp.delete();
+            return;
+        }
+        trimDisk();
+    }
+
+    /**
+     * Removes least recently used images until disk cache is below maximum size.
+     */
+    private synchronized void trimDisk() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        long size = 0;
+        for (File file : files) {
+            size += file.length();
+        }
+        if (size <= maxDiskBytes) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File lhs, File rhs) {
+                long lhsModified = lhs.lastModified();
+                long rhsModified = rhs.lastModified();
+                return lhsModified < rhsModified ? -1 : (lhsModified == rhsModified ? 0 : 1);
+            }
+        });
+        for (int i = 0; i < files.length && size > maxDiskBytes; i++) {
+            if (files[i].getName().endsWith(ART_EXT)) {
+                size -= files[i].length();
+                files[i].delete();
+            }
+        }
+    }
+
+    private static long now() {
+        return System.nanoTime() / 1000000;
+    }
+
+    private static int getByteCount(final Bitmap bitmap) {
+        return bitmap.getRowBytes() * bitmap.getHeight();
+    }
+}
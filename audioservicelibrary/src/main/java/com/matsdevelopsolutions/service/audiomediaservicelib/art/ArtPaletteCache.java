@@ -0,0 +1,253 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib.art;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.WorkerThread;
+import android.util.Log;
+
+import com.matsdevelopsolutions.service.audiomediaservicelib.cache.StreamCache;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Extracts background colors of art with {@link ColorQuantizer} on a background thread over downscaled copy of art.
+ * Colors are kept in SharedPreferences by art uri, so cached color is available without blocking
+ * and art is not quantized again. Least recently used colors over capacity are evicted.
+ * Colors are loaded from preferences on the extraction thread, no color is cached until they are loaded.
+ */
+public class ArtPaletteCache {
+
+    /**
+     * Callback of color extraction.
+     */
+    public interface Callback {
+
+        /**
+         * Called on main thread when color is extracted.
+         *
+         * @param artUri art uri
+         * @param color  background color of art
+         */
+        void onColorExtracted(String artUri, int color);
+    }
+
+    /**
+     * Color of art that is not extracted yet.
+     */
+    public static final int NO_COLOR = 0;
+    /**
+     * Logging tag.
+     */
+    private static final String TAG = ArtPaletteCache.class.getSimpleName();
+    private static final String SHARE_PREF_NAME = "ArtPaletteCache";
+    private static final String COLOR_KEY_PRE = "ART_COLOR_";
+    /**
+     * Maximum side of art copy that is quantized.
+     */
+    private static final int SAMPLE_SIZE = 48;
+    /**
+     * Color of art without opaque pixels.
+     */
+    private static final int FALLBACK_COLOR = 0xff424242;
+
+    private final SharedPreferences sharedPreferences;
+    private final int capacity;
+    /**
+     * Colors by preference key in access order, null until loaded.
+     */
+    private LinkedHashMap<String, Integer> colors;
+    /**
+     * Keys of extractions in progress.
+     */
+    private final Set<String> pendingKeys = new HashSet<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            Thread thread = new Thread(runnable, TAG);
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    });
+    private int hits;
+    private int extractions;
+
+    /**
+     * Creates instance of {@link ArtPaletteCache}.
+     *
+     * @param context  context
+     * @param capacity maximum number of cached colors
+     */
+    public ArtPaletteCache(final Context context, final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Palette cache capacity must be positive");
+        }
+        this.sharedPreferences = context.getSharedPreferences(SHARE_PREF_NAME, Context.MODE_PRIVATE);
+        this.capacity = capacity;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                loadColors();
+            }
+        });
+    }
+
+    /**
+     * Gets cached color of art without extracting it.
+     *
+     * @param artUri art uri
+     * @return background color, {@link #NO_COLOR} if it is not extracted or colors are not loaded yet
+     */
+    public synchronized int getCachedColor(final String artUri) {
+        if (colors == null) {
+            return NO_COLOR;
+        }
+        Integer color = colors.get(getKey(artUri));
+        if (color == null) {
+            return NO_COLOR;
+        }
+        hits++;
+        return color;
+    }
+
+    /**
+     * Extracts background color of art in background and caches it, art is not modified.
+     * Extraction of art with cached color or extraction in progress is ignored.
+     *
+     * @param artUri   art uri
+     * @param art      loaded art
+     * @param callback callback called on main thread
+     */
+    public void extract(final String artUri, final Bitmap art, final Callback callback) {
+        final String key = getKey(artUri);
+        synchronized (this) {
+            if ((colors != null && colors.containsKey(key)) || !pendingKeys.add(key)) {
+                return;
+            }
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Integer loadedColor;
+                synchronized (ArtPaletteCache.this) {
+                    // color may have been loaded from preferences meanwhile
+                    loadedColor = colors.get(key);
+                    if (loadedColor != null) {
+                        pendingKeys.remove(key);
+                    }
+                }
+                final int color;
+                if (loadedColor != null) {
+                    color = loadedColor;
+                } else {
+                    try {
+                        color = quantize(art);
+                    } catch (RuntimeException | OutOfMemoryError e) {
+                        Log.w(TAG, String.format("Could not extract color of art %s", artUri), e);
+                        synchronized (ArtPaletteCache.this) {
+                            pendingKeys.remove(key);
+                        }
+                        return;
+                    }
+                    put(key, color);
+                }
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onColorExtracted(artUri, color);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Stops extraction thread, extractions in progress are finished.
+     */
+    public void close() {
+        executor.shutdown();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("ArtPaletteCache{colors=%s/%d, hits=%d, extractions=%d}",
+                colors != null ? String.valueOf(colors.size()) : "?", capacity, hits, extractions);
+    }
+
+    /**
+     * Quantizes copy of art scaled down to {@link #SAMPLE_SIZE}.
+     */
+    @WorkerThread
+    private int quantize(final Bitmap art) {
+        float scale = Math.min(1f, (float) SAMPLE_SIZE / Math.max(art.getWidth(), art.getHeight()));
+        Bitmap sample = Bitmap.createScaledBitmap(art, Math.max(1, Math.round(art.getWidth() * scale)),
+                Math.max(1, Math.round(art.getHeight() * scale)), true);
+        int width = sample.getWidth();
+        int height = sample.getHeight();
+        int[] pixels = new int[width * height];
+        sample.getPixels(pixels, 0, width, 0, 0, width, height);
+        if (sample != art) {
+            sample.recycle();
+        }
+        return ColorQuantizer.getDominantColor(pixels, FALLBACK_COLOR);
+    }
+
+    /**
+     * Caches color in memory and preferences, evicts least recently used colors over capacity.
+     */
+    private synchronized void put(final String key, final int color) {
+        pendingKeys.remove(key);
+        extractions++;
+        colors.put(key, color);
+        SharedPreferences.Editor editor = sharedPreferences.edit();
+        editor.putInt(key, color);
+        Iterator<String> iterator = colors.keySet().iterator();
+        while (colors.size() > capacity && iterator.hasNext()) {
+            editor.remove(iterator.next());
+            iterator.remove();
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.GINGERBREAD) {
+            editor.apply();
+        } else {
+            editor.commit();
+        }
+    }
+
+    /**
+     * Loads colors from preferences, runs first on extraction thread so extractions see loaded colors.
+     */
+    @WorkerThread
+    private void loadColors() {
+        LinkedHashMap<String, Integer> loaded = new LinkedHashMap<>(16, 0.75f, true);
+        for (Map.Entry<String, ?> entry : sharedPreferences.getAll().entrySet()) {
+            if (entry.getKey().startsWith(COLOR_KEY_PRE) && entry.getValue() instanceof Integer) {
+                loaded.put(entry.getKey(), (Integer) entry.getValue());
+            }
+        }
+        synchronized (this) {
+            colors = loaded;
+        }
+    }
+
+    /**
+     * Gets key of the color preference.
+     *
+     * @param artUri art uri
+     * @return key value
+     */
+    private static String getKey(final String artUri) {
+        return COLOR_KEY_PRE + StreamCache.keyFor(artUri);
+    }
+}
@@ -0,0 +1,84 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib.art;
+
+/**
+ * Fast dominant color quantizer of art pixels, one pass over pixels into a 4096 bucket RGB histogram.
+ * Buckets are scored by population and saturation, near black and white buckets are penalized,
+ * so the result suits notification background.
+ */
+public final class ColorQuantizer {
+
+    private static final int BUCKET_BITS = 4;
+    private static final int BUCKET_COUNT = 1 << (BUCKET_BITS * 3);
+    private static final int MIN_ALPHA = 128;
+    private static final float MIN_LIGHTNESS = 0.08f;
+    private static final float MAX_LIGHTNESS = 0.92f;
+    private static final float EXTREME_LIGHTNESS_WEIGHT = 0.1f;
+    private static final float BASE_WEIGHT = 0.3f;
+
+    private ColorQuantizer() {
+    }
+
+    /**
+     * Gets dominant color of pixels.
+     *
+     * @param pixels       ARGB pixels
+     * @param defaultColor color returned when pixels have no opaque color
+     * @return opaque dominant color, average of its bucket
+     */
+    public static int getDominantColor(final int[] pixels, final int defaultColor) {
+        int[] counts = new int[BUCKET_COUNT];
+        long[] reds = new long[BUCKET_COUNT];
+        long[] greens = new long[BUCKET_COUNT];
+        long[] blues = new long[BUCKET_COUNT];
+        for (int pixel : pixels) {
+            if ((pixel >>> 24) < MIN_ALPHA) {
+                continue;
+            }
+            int red = (pixel >> 16) & 0xff;
+            int green = (pixel >> 8) & 0xff;
+            int blue = pixel & 0xff;
+            int bucket = ((red >> (8 - BUCKET_BITS)) << (BUCKET_BITS * 2))
+                    | ((green >> (8 - BUCKET_BITS)) << BUCKET_BITS)
+                    | (blue >> (8 - BUCKET_BITS));
+            counts[bucket]++;
+            reds[bucket] += red;
+            greens[bucket] += green;
+            blues[bucket] += blue;
+        }
+        int bestBucket = -1;
+        float bestScore = 0f;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            int count = counts[bucket];
+            if (count == 0) {
+                continue;
+            }
+            float score = count * getWeight((int) (reds[bucket] / count), (int) (greens[bucket] / count),
+                    (int) (blues[bucket] / count));
+            if (score > bestScore) {
+                bestScore = score;
+                bestBucket = bucket;
+            }
+        }
+        if (bestBucket < 0) {
+            return defaultColor;
+        }
+        int count = counts[bestBucket];
+        return 0xff000000 | ((int) (reds[bestBucket] / count) << 16) | ((int) (greens[bestBucket] / count) << 8)
+                | (int) (blues[bestBucket] / count);
+    }
+
+    /**
+     * Weight of color, saturated colors of medium lightness are preferred.
+     */
+    private static float getWeight(final int red, final int green, final int blue) {
+        int max = Math.max(red, Math.max(green, blue));
+        int min = Math.min(red, Math.min(green, blue));
+        float lightness = (max + min) / 510f;
+        if (lightness < MIN_LIGHTNESS || lightness > MAX_LIGHTNESS) {
+            return EXTREME_LIGHTNESS_WEIGHT;
+        }
+        // HSL saturation
+        float saturation = (max - min) / (255f - Math.abs(max + min - 255f));
+        return BASE_WEIGHT + saturation;
+    }
+}
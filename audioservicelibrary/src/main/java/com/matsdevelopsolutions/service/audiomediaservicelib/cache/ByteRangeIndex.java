@@ -0,0 +1,179 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib.cache;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Sparse index of byte ranges stored on disk.
+ * Ranges are kept sorted and merged, start is inclusive and end is exclusive.
+ */
+public class ByteRangeIndex {
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private long[] starts = new long[INITIAL_CAPACITY];
+    private long[] ends = new long[INITIAL_CAPACITY];
+    private int count = 0;
+    private long coveredBytes = 0;
+
+    /**
+     * Adds range to index, merges it with overlapping and adjacent ranges.
+     *
+     * @param start range start, inclusive
+     * @param end   range end, exclusive
+     */
+    public void add(long start, long end) {
+        if (end <= start) {
+            return;
+        }
+        // first range that ends at or after start - it can be merged
+        int first = 0;
+        while (first < count && ends[first] < start) {
+            first++;
+        }
+        // ranges [first, last) overlap or touch new range
+        int last = first;
+        while (last < count && starts[last] <= end) {
+            start = Math.min(start, starts[last]);
+            end = Math.max(end, ends[last]);
+            coveredBytes -= ends[last] - starts[last];
+            last++;
+        }
+        int removed = last - first;
+        if (removed == 0) {
+            ensureCapacity(count + 1);
+            System.arraycopy(starts, first, starts, first + 1, count - first);
+            System.arraycopy(ends, first, ends, first + 1, count - first);
+            count++;
+        } else if (removed > 1) {
+            System.arraycopy(starts, last, starts, first + 1, count - last);
+            System.arraycopy(ends, last, ends, first + 1, count - last);
+            count -= removed - 1;
+        }
+        starts[first] = start;
+        ends[first] = end;
+        coveredBytes += end - start;
+    }
+
+    /**
+     * Gets end of the cached range that contains position.
+     *
+     * @param position byte position
+     * @return exclusive end of cached range, or position if it is not cached
+     */
+    public long getCachedEnd(long position) {
+        int index = find(position);
+        return index >= 0 ? ends[index] : position;
+    }
+
+    /**
+     * Gets start of the first cached range at or after position.
+     *
+     * @param position byte position
+     * @return start of next cached range, or {@link Long#MAX_VALUE} if there is none
+     */
+    public long getNextCachedStart(long position) {
+        for (int i = 0; i < count; i++) {
+            if (ends[i] > position) {
+                return Math.max(starts[i], position);
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Checks if whole range is cached.
+     *
+     * @param start range start, inclusive
+     * @param end   range end, exclusive
+     * @return true if range is cached
+     */
+    public boolean contains(long start, long end) {
+        return getCachedEnd(start) >= end;
+    }
+
+    /**
+     * @return number of cached bytes.
+     */
+    public long getCoveredBytes() {
+        return coveredBytes;
+    }
+
+    /**
+     * @return number of separate cached ranges.
+     */
+    public int getRangeCount() {
+        return count;
+    }
+
+    /**
+     * Removes all ranges.
+     */
+    public void clear() {
+        count = 0;
+        coveredBytes = 0;
+    }
+
+    /**
+     * Writes ranges to output.
+     *
+     * @param out data output
+     * @throws IOException
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            out.writeLong(starts[i]);
+            out.writeLong(ends[i]);
+        }
+    }
+
+    /**
+     * Reads ranges written with {@link #writeTo(DataOutput)}, replaces current ranges.
+     *
+     * @param in data input
+     * @throws IOException
+     */
+    public void readFrom(DataInput in) throws IOException {
+        clear();
+        int rangeCount = in.readInt();
+        for (int i = 0; i < rangeCount; i++) {
+            long start = in.readLong();
+            add(start, in.readLong());
+        }
+    }
+
+    /**
+     * Binary search of range containing position.
+     *
+     * @return range index, -1 if position is not cached
+     */
+    private int find(long position) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (ends[middle] <= position) {
+                low = middle + 1;
+            } else if (starts[middle] > position) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > starts.length) {
+            int newCapacity = Math.max(capacity, starts.length * 2);
+            long[] newStarts = new long[newCapacity];
+            long[] newEnds = new long[newCapacity];
+            System.arraycopy(starts, 0, newStarts, 0, count);
+            System.arraycopy(ends, 0, newEnds, 0, count);
+            starts = newStarts;
+            ends = newEnds;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib.cache;
+
+import android.support.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Sparse on-disk copy of a media stream.
+ * Stream bytes are written at their stream offsets to data file, {@link ByteRangeIndex} tracks which ranges are stored.
+ */
+public class CacheEntry {
+
+    /**
+     * Index file format version.
+     */
+    private static final int INDEX_VERSION = 1;
+
+    final String key;
+    final File dataFile;
+    final File indexFile;
+    private final ByteRangeIndex ranges = new ByteRangeIndex();
+    private long contentLength = -1;
+    private String contentType;
+    private RandomAccessFile file;
+    private boolean indexChanged = false;
+    /**
+     * Number of open connections using the entry, used entries are not evicted. Guarded by {@link StreamCache}.
+     */
+    int useCount = 0;
+
+    CacheEntry(final File directory, final String key) {
+        this.key = key;
+        this.dataFile = new File(directory, key + StreamCache.DATA_EXT);
+        this.indexFile = new File(directory, key + StreamCache.INDEX_EXT);
+    }
+
+    /**
+     * Sets stream length and content type, as reported by origin.
+     * Stored ranges are dropped if stream length changed on origin.
+     *
+     * @param length      stream length in bytes
+     * @param contentType stream content type
+     * @return number of stored bytes dropped
+     */
+    synchronized long setContentInfo(final long length, @Nullable final String contentType) {
+        long dropped = 0;
+        if (contentLength >= 0 && length != contentLength) {
+            dropped = ranges.getCoveredBytes();
+            ranges.clear();
+        }
+        if (length != contentLength || (contentType != null && !contentType.equals(this.contentType))) {
+            this.contentLength = length;
+            this.contentType = contentType;
+            indexChanged = true;
+        }
+        return dropped;
+    }
+
+    /**
+     * @return stream length in bytes, -1 if not known yet.
+     */
+    public synchronized long getContentLength() {
+        return contentLength;
+    }
+
+    /**
+     * @return stream content type, null if not known.
+     */
+    @Nullable
+    public synchronized String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @return number of stream bytes stored on disk.
+     */
+    public synchronized long getCachedBytes() {
+        return ranges.getCoveredBytes();
+    }
+
+    /**
+     * @return true if whole stream is stored on disk.
+     */
+    public synchronized boolean isComplete() {
+        return contentLength >= 0 && ranges.contains(0, contentLength);
+    }
+
+    /**
+     * @param position stream position
+     * @return exclusive end of stored range containing position, position itself if it is not stored
+     */
+    public synchronized long getCachedEnd(final long position) {
+        return ranges.getCachedEnd(position);
+    }
+
+    /**
+     * @param position stream position
+     * @return start of next stored range at or after position, {@link Long#MAX_VALUE} if there is none
+     */
+    public synchronized long getNextCachedStart(final long position) {
+        return ranges.getNextCachedStart(position);
+    }
+
+    /**
+     * Writes stream bytes at stream position.
+     *
+     * @return number of bytes added to the cache
+     * @throws IOException
+     */
+    long write(final long position, final byte[] buffer, final int offset, final int count) throws IOException {
+        synchronized (this) {
+            RandomAccessFile randomAccessFile = openFile();
+            randomAccessFile.seek(position);
+            randomAccessFile.write(buffer, offset, count);
+            long covered = ranges.getCoveredBytes();
+            ranges.add(position, position + count);
+            indexChanged = true;
+            return ranges.getCoveredBytes() - covered;
+        }
+    }
+
+    /**
+     * Maps stored stream range to memory for reading.
+     *
+     * @param position stream position
+     * @param length   number of bytes, range has to be stored
+     * @return read only buffer
+     * @throws IOException
+     */
+    MappedByteBuffer map(final long position, final long length) throws IOException {
+        synchronized (this) {
+            return openFile().getChannel().map(FileChannel.MapMode.READ_ONLY, position, length);
+        }
+    }
+
+    /**
+     * Stores range index next to data file, so entry can be restored.
+     *
+     * @throws IOException
+     */
+    synchronized void saveIndex() throws IOException {
+        if (!indexChanged) {
+            return;
+        }
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+        try {
+            out.writeInt(INDEX_VERSION);
+            out.writeLong(contentLength);
+            out.writeUTF(contentType != null ? contentType : "");
+            ranges.writeTo(out);
+        } finally {
+            out.close();
+        }
+        indexChanged = false;
+    }
+
+    /**
+     * Restores range index stored with {@link #saveIndex()}.
+     *
+     * @throws IOException
+     */
+    synchronized void loadIndex() throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+        try {
+            if (in.readInt() != INDEX_VERSION) {
+                throw new IOException("Unsupported cache index version");
+            }
+            contentLength = in.readLong();
+            String type = in.readUTF();
+            contentType = type.length() > 0 ? type : null;
+            ranges.readFrom(in);
+        } finally {
+            in.close();
+        }
+        if (!dataFile.exists()) {
+            ranges.clear();
+        }
+        indexChanged = false;
+    }
+
+    /**
+     * Closes data file, it will be opened again on next access.
+     */
+    synchronized void closeFile() {
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                // ignore
+            }
+            file = null;
+        }
+    }
+
+    /**
+     * Removes entry files.
+     */
+    synchronized void delete() {
+        closeFile();
+        ranges.clear();
+        dataFile.delete();
+        indexFile.delete();
+    }
+
+    private RandomAccessFile openFile() throws IOException {
+        if (file == null) {
+            file = new RandomAccessFile(dataFile, "rw");
+        }
+        return file;
+    }
+}
@@ -0,0 +1,76 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of stream cache usage.
+ */
+public class CacheStats {
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+    private final AtomicLong bytesDownloaded = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * @return number of stream requests served from disk cache.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return number of stream requests that had to be fetched from origin.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return number of bytes served from disk instead of downloaded again.
+     */
+    public long getBytesSaved() {
+        return bytesSaved.get();
+    }
+
+    /**
+     * @return number of bytes fetched from origin.
+     */
+    public long getBytesDownloaded() {
+        return bytesDownloaded.get();
+    }
+
+    /**
+     * @return number of cache entries removed to keep cache size bounded.
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    void recordHit() {
+        hitCount.incrementAndGet();
+    }
+
+    void recordMiss() {
+        missCount.incrementAndGet();
+    }
+
+    void recordBytesSaved(long bytes) {
+        bytesSaved.addAndGet(bytes);
+    }
+
+    void recordBytesDownloaded(long bytes) {
+        bytesDownloaded.addAndGet(bytes);
+    }
+
+    void recordEviction() {
+        evictionCount.incrementAndGet();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CacheStats{hits=%d, misses=%d, bytesSaved=%d, bytesDownloaded=%d, evictions=%d}",
+                getHitCount(), getMissCount(), getBytesSaved(), getBytesDownloaded(), getEvictionCount());
+    }
+}
@@ -0,0 +1,260 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib.cache;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size bounded disk cache of media streams.
+ * Entries are sparse stream copies keyed by url, least recently used entries are evicted first.
+ */
+public class StreamCache {
+
+    /**
+     * Entry data file extension.
+     */
+    static final String DATA_EXT = ".data";
+    /**
+     * Entry range index file extension.
+     */
+    static final String INDEX_EXT = ".idx";
+    /**
+     * Logging tag.
+     */
+    private static final String TAG = StreamCache.class.getSimpleName();
+
+    private final File directory;
+    private final long maxSize;
+    private final CacheStats stats = new CacheStats();
+    /**
+     * Cache entries in access order, eldest first.
+     */
+    private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size = 0;
+
+    /**
+     * Creates instance of {@link StreamCache} in the given directory.
+     * Entries already stored in the directory are restored in order of last usage.
+     *
+     * @param directory cache directory
+     * @param maxSize   maximum size of all entries in bytes
+     */
+    public StreamCache(final File directory, final long maxSize) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        if (!directory.exists() && !directory.mkdirs()) {
+            Log.w(TAG, String.format("Could not create cache directory %s", directory));
+        }
+        restoreEntries();
+    }
+
+    /**
+     * Opens cache entry for url, creates empty one if stream was not cached, and marks it as recently used.
+     * Entry has to be closed with {@link #close(CacheEntry)}, open entries are not evicted.
+     *
+     * @param url stream url
+     * @return cache entry
+     */
+    public synchronized CacheEntry open(final String url) {
+        String key = keyFor(url);
+        CacheEntry entry = entries.get(key);
+        if (entry == null) {
+            entry = new CacheEntry(directory, key);
+            entries.put(key, entry);
+        }
+        entry.useCount++;
+        entry.dataFile.setLastModified(System.currentTimeMillis());
+        return entry;
+    }
+
+    /**
+     * Closes entry opened with {@link #open(String)}, stores its range index.
+     *
+     * @param entry cache entry
+     */
+    public synchronized void close(final CacheEntry entry) {
+        entry.useCount--;
+        try {
+            entry.saveIndex();
+        } catch (IOException e) {
+            Log.w(TAG, String.format("Could not store cache index %s", entry.indexFile), e);
+        }
+        if (entry.useCount == 0) {
+            entry.closeFile();
+            if (entry.getCachedBytes() == 0 && entry.getContentLength() < 0) {
+                entries.remove(entry.key);
+                entry.delete();
+            }
+        }
+        trimToSize(maxSize);
+    }
+
+    /**
+     * Sets stream length and content type of entry, as reported by origin.
+     *
+     * @param entry       open cache entry
+     * @param length      stream length in bytes
+     * @param contentType stream content type
+     */
+    public void setContentInfo(final CacheEntry entry, final long length, final String contentType) {
+        long dropped = entry.setContentInfo(length, contentType);
+        if (dropped > 0) {
+            synchronized (this) {
+                size -= dropped;
+            }
+        }
+    }
+
+    /**
+     * Writes stream bytes to entry at stream position.
+     *
+     * @param entry    open cache entry
+     * @param position stream position
+     * @param buffer   stream bytes
+     * @param offset   buffer offset
+     * @param count    number of bytes
+     * @throws IOException
+     */
+    public void write(final CacheEntry entry, final long position, final byte[] buffer, final int offset, final int count) throws IOException {
+        long added = entry.write(position, buffer, offset, count);
+        if (added > 0) {
+            synchronized (this) {
+                size += added;
+                trimToSize(maxSize);
+            }
+        }
+    }
+
+    /**
+     * Checks if whole stream is cached, it doesn't change usage order nor statistics.
+     *
+     * @param url stream url
+     * @return true if complete stream is cached
+     */
+    public synchronized boolean contains(final String url) {
+        CacheEntry entry = entries.get(keyFor(url));
+        return entry != null && entry.isComplete();
+    }
+
+    /**
+     * Removes all cache entries that are not used.
+     */
+    public synchronized void clear() {
+        trimToSize(0);
+    }
+
+    /**
+     * @return number of stream bytes stored in cache.
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * @return maximum size of all cache entries in bytes.
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return cache directory.
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return cache usage counters.
+     */
+    public CacheStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Gets cache key for url.
+     *
+     * @param url stream url
+     * @return key value
+     */
+    public static String keyFor(final String url) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            byte[] hash = digest.digest(url.getBytes("UTF-8"));
+            StringBuilder key = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                key.append(Character.forDigit((b >> 4) & 0xf, 16));
+                key.append(Character.forDigit(b & 0xf, 16));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException | UnsupportedEncodingException e) {
+            return String.valueOf(url.hashCode());
+        }
+    }
+
+    /**
+     * Removes least recently used entries until cache size is below maximum size.
+     * Entries that are currently open are skipped.
+     *
+     * @param maxSize size to trim to
+     */
+    private void trimToSize(final long maxSize) {
+        Iterator<Map.Entry<String, CacheEntry>> iterator = entries.entrySet().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            CacheEntry entry = iterator.next().getValue();
+            if (entry.useCount > 0) {
+                continue;
+            }
+            iterator.remove();
+            size -= entry.getCachedBytes();
+            entry.delete();
+            stats.recordEviction();
+        }
+    }
+
+    /**
+     * Restores entries stored in cache directory, removes files without valid index.
+     */
+    private void restoreEntries() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File lhs, File rhs) {
+                long lhsModified = lhs.lastModified();
+                long rhsModified = rhs.lastModified();
+                return lhsModified < rhsModified ? -1 : (lhsModified == rhsModified ? 0 : 1);
+            }
+        });
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(DATA_EXT)) {
+                String key = name.substring(0, name.length() - DATA_EXT.length());
+                CacheEntry entry = new CacheEntry(directory, key);
+                try {
+                    entry.loadIndex();
+                    entries.put(key, entry);
+                    size += entry.getCachedBytes();
+                } catch (IOException e) {
+                    Log.w(TAG, String.format("Could not restore cache entry %s", name));
+                    entry.delete();
+                }
+            } else if (!name.endsWith(INDEX_EXT) || !new File(directory, name.substring(0, name.length() - INDEX_EXT.length()) + DATA_EXT).exists()) {
+                // orphaned index or file from previous cache format
+                file.delete();
+            }
+        }
+        trimToSize(maxSize);
+    }
+}
@@ -0,0 +1,598 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib.cache;
+
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Loopback HTTP proxy that streams remote media to MediaPlayer and stores it in {@link StreamCache} while playing.
+ * Byte ranges already stored are served from disk through memory mapped reads,
+ * only missing ranges are requested from origin, so seeks back into played audio don't wait for network.
+ * Only urls registered by {@link #getProxyUrl(String)} are served, under a random token path of the session,
+ * so other apps can't use the proxy to reach arbitrary hosts.
+ * Stalled origin and client connections are dropped after read timeout and connections served at once are bounded,
+ * so they can't pin threads and cache entries.
+ */
+public class StreamProxy {
+
+    /**
+     * Logging tag.
+     */
+    private static final String TAG = StreamProxy.class.getSimpleName();
+    private static final String CRLF = "\r\n";
+    private static final String DEFAULT_CONTENT_TYPE = "audio/mpeg";
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int CONNECT_TIMEOUT = 15 * 1000;
+    /**
+     * Time without data after which stalled origin or client connection is dropped.
+     */
+    private static final int READ_TIMEOUT_DEFAULT = 30 * 1000;
+    /**
+     * Maximum number of connections served at once, current and next media player open a few each.
+     */
+    private static final int MAX_CONNECTIONS_DEFAULT = 8;
+    private static final Pattern RANGE_PATTERN = Pattern.compile("bytes=(\\d+)-(\\d*)");
+    private static final Pattern CONTENT_RANGE_PATTERN = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+|\\*)");
+    /**
+     * Maximum size of cached range mapped to memory at once.
+     */
+    private static final long MAP_CHUNK_SIZE = 1024 * 1024;
+    private static final int TOKEN_BYTES = 16;
+
+    private final StreamCache cache;
+    private final int readTimeout;
+    private final int maxConnections;
+    /**
+     * Registered origin urls by their cache key.
+     */
+    private final Map<String, String> originUrls = new HashMap<>();
+    /**
+     * Random path prefix of the session, requests without it are rejected.
+     */
+    private String token;
+    private ServerSocket serverSocket;
+    private ExecutorService connectionExecutor;
+    /**
+     * Outputs of connected clients, checked by {@link #writeWatchdog}.
+     */
+    private final Set<ClientOutputStream> clientOutputs = Collections.synchronizedSet(new HashSet<ClientOutputStream>());
+    /**
+     * Closes clients whose writes are blocked longer than read timeout, socket timeout covers reads only.
+     */
+    private Timer writeWatchdog;
+    private volatile boolean running = false;
+
+    /**
+     * Creates instance of {@link StreamProxy} backed by the cache.
+     *
+     * @param cache stream cache
+     */
+    public StreamProxy(final StreamCache cache) {
+        this(cache, READ_TIMEOUT_DEFAULT, MAX_CONNECTIONS_DEFAULT);
+    }
+
+    /**
+     * Creates instance of {@link StreamProxy} with connection limits.
+     *
+     * @param cache          stream cache
+     * @param readTimeout    time without data after which origin or client connection is dropped, in milliseconds
+     * @param maxConnections maximum number of connections served at once, others are closed right away
+     */
+    StreamProxy(final StreamCache cache, final int readTimeout, final int maxConnections) {
+        this.cache = cache;
+        this.readTimeout = readTimeout;
+        this.maxConnections = maxConnections;
+    }
+
+    /**
+     * Checks if url points to remote stream that can be proxied.
+     *
+     * @param url media url
+     * @return true for http and https urls
+     */
+    public static boolean isRemoteUrl(final String url) {
+        return url != null && (url.regionMatches(true, 0, "http://", 0, 7) || url.regionMatches(true, 0, "https://", 0, 8));
+    }
+
+    /**
+     * Starts proxy on loopback interface.
+     *
+     * @throws IOException when server socket could not be opened
+     */
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        serverSocket = new ServerSocket(0, 8, InetAddress.getByName("127.0.0.1"));
+        token = createToken();
+        connectionExecutor = new ThreadPoolExecutor(0, maxConnections, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>());
+        running = true;
+        writeWatchdog = new Timer(TAG + ".Watchdog", true);
+        writeWatchdog.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                closeBlockedClients();
+            }
+        }, readTimeout, Math.max(readTimeout / 2, 1));
+        Thread acceptThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                acceptConnections();
+            }
+        }, TAG);
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+        Log.d(TAG, String.format("Stream proxy started at port %d", serverSocket.getLocalPort()));
+    }
+
+    /**
+     * Stops proxy and closes all connections.
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        originUrls.clear();
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Error closing proxy socket", e);
+        }
+        connectionExecutor.shutdownNow();
+        writeWatchdog.cancel();
+    }
+
+    /**
+     * @return true if proxy accepts connections.
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Registers remote stream and gets its loopback url.
+     *
+     * @param originUrl remote stream url
+     * @return url served by this proxy
+     * @throws IllegalArgumentException when url is not http or https url
+     */
+    public synchronized String getProxyUrl(final String originUrl) {
+        if (!isRemoteUrl(originUrl)) {
+            throw new IllegalArgumentException(String.format("Not a remote url %s", originUrl));
+        }
+        String key = StreamCache.keyFor(originUrl);
+        originUrls.put(key, originUrl);
+        return String.format("http://127.0.0.1:%d/%s/%s", serverSocket.getLocalPort(), token, key);
+    }
+
+    /**
+     * @return cache used by proxy.
+     */
+    public StreamCache getCache() {
+        return cache;
+    }
+
+    private void acceptConnections() {
+        while (running) {
+            try {
+                final Socket socket = serverSocket.accept();
+                try {
+                    connectionExecutor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            handleConnection(socket);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    if (running) {
+                        Log.w(TAG, String.format("Closed proxy connection over limit of %d", maxConnections));
+                    }
+                    socket.close();
+                }
+            } catch (IOException e) {
+                if (running) {
+                    Log.w(TAG, "Error accepting proxy connection", e);
+                }
+            }
+        }
+    }
+
+    private void handleConnection(final Socket socket) {
+        ClientOutputStream out = null;
+        try {
+            // client that never sends its request doesn't hold connection thread
+            socket.setSoTimeout(readTimeout);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "ISO-8859-1"));
+            String requestLine = reader.readLine();
+            if (requestLine == null) {
+                return;
+            }
+            String[] request = requestLine.split(" ");
+            long rangeStart = 0;
+            long rangeEnd = -1;
+            boolean rangeRequested = false;
+            String header;
+            while ((header = reader.readLine()) != null && header.length() > 0) {
+                int separator = header.indexOf(':');
+                if (separator > 0 && header.substring(0, separator).trim().equalsIgnoreCase("Range")) {
+                    Matcher matcher = RANGE_PATTERN.matcher(header.substring(separator + 1).trim());
+                    if (matcher.matches()) {
+                        rangeRequested = true;
+                        rangeStart = Long.parseLong(matcher.group(1));
+                        rangeEnd = matcher.group(2).length() > 0 ? Long.parseLong(matcher.group(2)) : -1;
+                    }
+                }
+            }
+            out = new ClientOutputStream(socket);
+            clientOutputs.add(out);
+            if (request.length < 2 || !"GET".equals(request[0])) {
+                writeStatus(out, "405 Method Not Allowed", 0);
+                return;
+            }
+            String originUrl = getOriginUrl(request[1]);
+            if (originUrl == null) {
+                Log.w(TAG, "Rejected proxy request of unregistered path");
+                writeStatus(out, "404 Not Found", 0);
+                return;
+            }
+            CacheEntry entry = cache.open(originUrl);
+            try {
+                if (entry.getContentLength() < 0) {
+                    serveOrigin(out, originUrl, entry, rangeStart, rangeEnd, rangeRequested);
+                } else {
+                    serveRanges(out, originUrl, entry, rangeStart, rangeEnd, rangeRequested);
+                }
+            } finally {
+                cache.close(entry);
+            }
+        } catch (SocketException e) {
+            Log.v(TAG, "Proxy client closed connection");
+        } catch (IOException e) {
+            Log.w(TAG, "Error handling proxy connection", e);
+        } finally {
+            if (out != null) {
+                clientOutputs.remove(out);
+            }
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * Gets origin url of request path "/token/key".
+     *
+     * @param path request path
+     * @return registered origin url, null if token doesn't match or url is not registered
+     */
+    private synchronized String getOriginUrl(final String path) {
+        int separator = path.indexOf('/', 1);
+        if (!path.startsWith("/") || separator < 0 || token == null) {
+            return null;
+        }
+        try {
+            if (!MessageDigest.isEqual(token.getBytes("ISO-8859-1"), path.substring(1, separator).getBytes("ISO-8859-1"))) {
+                return null;
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return originUrls.get(path.substring(separator + 1));
+    }
+
+    /**
+     * Serves stream range of known length. Stored parts are read from memory mapped cache file,
+     * only missing holes are fetched from origin and stored.
+     */
+    private void serveRanges(final OutputStream out, final String originUrl, final CacheEntry entry,
+                             final long rangeStart, final long rangeEnd, final boolean rangeRequested) throws IOException {
+        long length = entry.getContentLength();
+        if (rangeStart >= length) {
+            writeStatus(out, "416 Requested Range Not Satisfiable", 0);
+            return;
+        }
+        long end = (rangeEnd < 0 || rangeEnd >= length) ? length - 1 : rangeEnd;
+        if (entry.getCachedEnd(rangeStart) > end) {
+            cache.getStats().recordHit();
+        } else {
+            cache.getStats().recordMiss();
+        }
+        String contentType = entry.getContentType();
+        writeHeaders(out, rangeRequested ? "206 Partial Content" : "200 OK",
+                contentType != null ? contentType : guessContentType(originUrl), end - rangeStart + 1,
+                rangeRequested ? String.format("bytes %d-%d/%d", rangeStart, end, length) : null);
+
+        WritableByteChannel channel = Channels.newChannel(out);
+        long position = rangeStart;
+        while (position <= end && running) {
+            long cachedEnd = Math.min(entry.getCachedEnd(position), end + 1);
+            if (cachedEnd > position) {
+                writeCached(channel, entry, position, cachedEnd);
+                position = cachedEnd;
+            } else {
+                long holeEnd = Math.min(entry.getNextCachedStart(position), end + 1);
+                fetchHole(out, originUrl, entry, position, holeEnd);
+                position = holeEnd;
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes stored range to client through memory mapped buffers.
+     */
+    private void writeCached(final WritableByteChannel channel, final CacheEntry entry,
+                             final long start, final long end) throws IOException {
+        long position = start;
+        while (position < end) {
+            long length = Math.min(MAP_CHUNK_SIZE, end - position);
+            MappedByteBuffer buffer = entry.map(position, length);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            cache.getStats().recordBytesSaved(length);
+            position += length;
+        }
+    }
+
+    /**
+     * Fetches missing range from origin, writes it to client and cache.
+     *
+     * @throws IOException when origin fails or client disconnects, bytes fetched so far stay in cache
+     */
+    private void fetchHole(final OutputStream out, final String originUrl, final CacheEntry entry,
+                           final long start, final long end) throws IOException {
+        Log.v(TAG, String.format("Fetching range %d-%d from origin", start, end - 1));
+        HttpURLConnection connection = openOrigin(originUrl, String.format("bytes=%d-%d", start, end - 1));
+        try {
+            int responseCode = connection.getResponseCode();
+            long streamPosition;
+            if (responseCode == HttpURLConnection.HTTP_PARTIAL) {
+                streamPosition = parseRangeStart(connection.getHeaderField("Content-Range"));
+            } else if (responseCode == HttpURLConnection.HTTP_OK) {
+                // origin ignores ranges - full stream is read and stored from the start
+                streamPosition = 0;
+            } else {
+                throw new IOException(String.format("Origin responded %d for range request", responseCode));
+            }
+            InputStream in = connection.getInputStream();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int count;
+            while (streamPosition < end && running && (count = in.read(buffer)) >= 0) {
+                cache.getStats().recordBytesDownloaded(count);
+                cache.write(entry, streamPosition, buffer, 0, count);
+                long from = Math.max(start, streamPosition);
+                long to = Math.min(end, streamPosition + count);
+                if (to > from) {
+                    out.write(buffer, (int) (from - streamPosition), (int) (to - from));
+                }
+                streamPosition += count;
+            }
+            if (streamPosition < end && running) {
+                throw new IOException("Origin closed stream before range end");
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Serves stream that was not requested before, origin response is passed to client and stored in cache.
+     * Streams without known length, like live streams, are not stored.
+     */
+    private void serveOrigin(final OutputStream out, final String originUrl, final CacheEntry entry,
+                             final long rangeStart, final long rangeEnd, final boolean rangeRequested) throws IOException {
+        cache.getStats().recordMiss();
+        HttpURLConnection connection = openOrigin(originUrl, rangeRequested
+                ? String.format("bytes=%d-%s", rangeStart, rangeEnd >= 0 ? String.valueOf(rangeEnd) : "") : null);
+        try {
+            int responseCode = connection.getResponseCode();
+            long contentLength = parseLong(connection.getHeaderField("Content-Length"));
+            String contentRange = connection.getHeaderField("Content-Range");
+            String contentType = connection.getContentType();
+            writeHeaders(out, responseCode + " " + connection.getResponseMessage(),
+                    contentType != null ? contentType : guessContentType(originUrl), contentLength, contentRange);
+            if (responseCode >= HttpURLConnection.HTTP_BAD_REQUEST) {
+                return;
+            }
+            long streamPosition = 0;
+            long streamLength = -1;
+            if (responseCode == HttpURLConnection.HTTP_PARTIAL) {
+                streamPosition = parseRangeStart(contentRange);
+                streamLength = parseRangeLength(contentRange);
+            } else if (responseCode == HttpURLConnection.HTTP_OK) {
+                streamLength = contentLength;
+            }
+            boolean writeToCache = streamLength >= 0 && streamLength <= cache.getMaxSize();
+            if (writeToCache) {
+                cache.setContentInfo(entry, streamLength, contentType);
+            }
+            InputStream in = connection.getInputStream();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int count;
+            while (running && (count = in.read(buffer)) >= 0) {
+                cache.getStats().recordBytesDownloaded(count);
+                if (writeToCache) {
+                    cache.write(entry, streamPosition, buffer, 0, count);
+                }
+                out.write(buffer, 0, count);
+                streamPosition += count;
+            }
+            out.flush();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Closes clients that stopped reading stream, their connection threads and cache entries are released.
+     */
+    private void closeBlockedClients() {
+        List<ClientOutputStream> outputs;
+        synchronized (clientOutputs) {
+            outputs = new ArrayList<>(clientOutputs);
+        }
+        long now = System.nanoTime();
+        for (ClientOutputStream output : outputs) {
+            if (output.isBlocked(now, TimeUnit.MILLISECONDS.toNanos(readTimeout))) {
+                Log.d(TAG, "Closing proxy client that stopped reading");
+                try {
+                    output.socket.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    private HttpURLConnection openOrigin(final String originUrl, final String range) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(originUrl).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT);
+        connection.setReadTimeout(readTimeout);
+        if (range != null) {
+            connection.setRequestProperty("Range", range);
+        }
+        return connection;
+    }
+
+    private void writeHeaders(final OutputStream out, final String status, final String contentType,
+                              final long contentLength, final String contentRange) throws IOException {
+        StringBuilder headers = new StringBuilder();
+        headers.append("HTTP/1.1 ").append(status).append(CRLF);
+        headers.append("Content-Type: ").append(contentType).append(CRLF);
+        if (contentLength >= 0) {
+            headers.append("Content-Length: ").append(contentLength).append(CRLF);
+        }
+        if (contentRange != null) {
+            headers.append("Content-Range: ").append(contentRange).append(CRLF);
+        }
+        headers.append("Accept-Ranges: bytes").append(CRLF);
+        headers.append("Connection: close").append(CRLF).append(CRLF);
+        out.write(headers.toString().getBytes("ISO-8859-1"));
+    }
+
+    private void writeStatus(final OutputStream out, final String status, final int contentLength) throws IOException {
+        String response = "HTTP/1.1 " + status + CRLF + "Content-Length: " + contentLength + CRLF + "Connection: close" + CRLF + CRLF;
+        out.write(response.getBytes("ISO-8859-1"));
+        out.flush();
+    }
+
+    private static String createToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder token = new StringBuilder(TOKEN_BYTES * 2);
+        for (byte b : bytes) {
+            token.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return token.toString();
+    }
+
+    private static String guessContentType(final String url) {
+        String contentType = URLConnection.guessContentTypeFromName(url);
+        return contentType != null ? contentType : DEFAULT_CONTENT_TYPE;
+    }
+
+    /**
+     * Parses start of "bytes start-end/length" content range.
+     */
+    private static long parseRangeStart(final String contentRange) throws IOException {
+        Matcher matcher = CONTENT_RANGE_PATTERN.matcher(contentRange != null ? contentRange : "");
+        if (!matcher.matches()) {
+            throw new IOException(String.format("Invalid content range %s", contentRange));
+        }
+        return Long.parseLong(matcher.group(1));
+    }
+
+    /**
+     * Parses length of "bytes start-end/length" content range, -1 if length is unknown.
+     */
+    private static long parseRangeLength(final String contentRange) {
+        Matcher matcher = CONTENT_RANGE_PATTERN.matcher(contentRange != null ? contentRange : "");
+        return matcher.matches() ? parseLong(matcher.group(3)) : -1;
+    }
+
+    private static long parseLong(final String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Output of client socket that records when a pending write started.
+     */
+    private static final class ClientOutputStream extends FilterOutputStream {
+
+        final Socket socket;
+        /**
+         * Start time of pending write in nanoseconds, 0 while no write is pending.
+         */
+        private volatile long writeStartTime;
+
+        ClientOutputStream(final Socket socket) throws IOException {
+            super(socket.getOutputStream());
+            this.socket = socket;
+        }
+
+        @Override
+        public void write(final byte[] buffer, final int offset, final int count) throws IOException {
+            writeStartTime = System.nanoTime();
+            try {
+                out.write(buffer, offset, count);
+            } finally {
+                writeStartTime = 0;
+            }
+        }
+
+        @Override
+        public void write(final int oneByte) throws IOException {
+            write(new byte[]{(byte) oneByte}, 0, 1);
+        }
+
+        boolean isBlocked(final long now, final long timeout) {
+            long startTime = writeStartTime;
+            return startTime != 0 && now - startTime >= timeout;
+        }
+    }
+}
@@ -4,10 +4,14 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.os.Handler;
 import android.support.annotation.IntRange;
 import android.util.Log;
 
 import com.matsdevelopsolutions.service.audiomediaservicelib.IntentBroadcaster;
+import com.matsdevelopsolutions.service.audiomediaservicelib.PlayerEventAdapter;
+import com.matsdevelopsolutions.service.audiomediaservicelib.PlayerEventBus;
+import com.matsdevelopsolutions.service.audiomediaservicelib.PlayerEventListener;
 
 /**
  * Broadcast receiver that process buffering progress messages.
@@ -19,25 +23,60 @@ public abstract class MediaBufferProgressBroadcastReceiver extends BroadcastRece
      */
     private static final String TAG = MediaBufferProgressBroadcastReceiver.class.getSimpleName();
 
+    /**
+     * Listener of in process events, forwards them to receiver callbacks.
+     */
+    private final PlayerEventListener eventListener = new PlayerEventAdapter() {
+        @Override
+        public void onBufferProgressChanged(int progress) {
+            MediaBufferProgressBroadcastReceiver.this.onBufferProgressChanged(progress);
+        }
 
+        @Override
+        public void onRebufferingChanged(boolean rebuffering) {
+            MediaBufferProgressBroadcastReceiver.this.onRebufferingChanged(rebuffering);
+        }
+    };
     /**
-     * Registers {MediaBufferProgressBroadcastReceiver} with the context.
+     * Flag if receiver gets events through {@link PlayerEventBus}, broadcasts from this process are ignored then.
+     */
+    private volatile boolean isSubscribed = false;
+
+
+    /**
+     * Registers {MediaBufferProgressBroadcastReceiver} with the context, events from service in this process are delivered without broadcast.
      *
      * @param context  Context.
      * @param receiver receiver to be registered with context.
      * @return register intent.
      */
     public static Intent register(Context context, MediaBufferProgressBroadcastReceiver receiver) {
+        receiver.isSubscribed = true;
+        PlayerEventBus.getInstance().subscribe(receiver.eventListener, new Handler(context.getMainLooper()));
         return context.registerReceiver(receiver, getIntentFilter());
     }
 
+    /**
+     * Unregisters receiver registered with {@link #register(Context, MediaBufferProgressBroadcastReceiver)}.
+     *
+     * @param context  Context.
+     * @param receiver registered receiver.
+     */
+    public static void unregister(Context context, MediaBufferProgressBroadcastReceiver receiver) {
+        PlayerEventBus.getInstance().unsubscribe(receiver.eventListener);
+        receiver.isSubscribed = false;
+        context.unregisterReceiver(receiver);
+    }
+
     /**
      * Returns intent filter for this broadcast receiver.
      *
      * @return
      */
     public static IntentFilter getIntentFilter() {
-        return new IntentFilter(IntentBroadcaster.ACTION_BUFFER_PROGRESS);
+        IntentFilter filter = new IntentFilter(IntentBroadcaster.ACTION_BUFFER_PROGRESS);
+        filter.addAction(IntentBroadcaster.ACTION_REBUFFERING_CHANGE);
+        return filter;
     }
 
     /**
@@ -48,6 +87,14 @@ public abstract class MediaBufferProgressBroadcastReceiver extends BroadcastRece
      */
     @Override
     public void onReceive(Context context, Intent intent) {
+        if (isSubscribed && IntentBroadcaster.isFromCurrentProcess(intent)) {
+            // already delivered by event bus
+            return;
+        }
+        if (IntentBroadcaster.ACTION_REBUFFERING_CHANGE.equals(intent.getAction())) {
+            onRebufferingChanged(intent.getBooleanExtra(IntentBroadcaster.REBUFFERING_ARG, false));
+            return;
+        }
         try {
             int bufferProgressValue = intent.getIntExtra(IntentBroadcaster.BUFFER_PROGRESS_ARG, -1);
             if (bufferProgressValue >= 0) {
@@ -68,4 +115,12 @@ public abstract class MediaBufferProgressBroadcastReceiver extends BroadcastRece
      */
     public abstract void onBufferProgressChanged(@IntRange(from = 0, to = 100) final int progress);
 
+    /**
+     * Called when started playback stalls on empty buffer and when it continues.
+     *
+     * @param rebuffering true if playback waits for data
+     */
+    public void onRebufferingChanged(boolean rebuffering) {
+    }
+
 }
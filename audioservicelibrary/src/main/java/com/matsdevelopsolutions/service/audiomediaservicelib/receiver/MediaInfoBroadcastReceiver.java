@@ -4,11 +4,15 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.os.Handler;
 import android.support.annotation.Nullable;
 import android.util.Log;
 
 import com.matsdevelopsolutions.service.audiomediaservicelib.IntentBroadcaster;
 import com.matsdevelopsolutions.service.audiomediaservicelib.MediaInfo;
+import com.matsdevelopsolutions.service.audiomediaservicelib.PlayerEventAdapter;
+import com.matsdevelopsolutions.service.audiomediaservicelib.PlayerEventBus;
+import com.matsdevelopsolutions.service.audiomediaservicelib.PlayerEventListener;
 
 /**
  * Broadcast receiver that receives media info updates.
@@ -20,18 +24,46 @@ public abstract class MediaInfoBroadcastReceiver extends BroadcastReceiver {
      */
     private static final String TAG = MediaInfoBroadcastReceiver.class.getSimpleName();
 
+    /**
+     * Listener of in process events, forwards them to receiver callbacks.
+     */
+    private final PlayerEventListener eventListener = new PlayerEventAdapter() {
+        @Override
+        public void onMediaInfoChanged(MediaInfo mediaInfo) {
+            MediaInfoBroadcastReceiver.this.onMediaInfoChanged(mediaInfo);
+        }
+    };
+    /**
+     * Flag if receiver gets events through {@link PlayerEventBus}, broadcasts from this process are ignored then.
+     */
+    private volatile boolean isSubscribed = false;
+
 
     /**
-     * Registers {MediaInfoBroadcastReceiver} with the context.
+     * Registers {MediaInfoBroadcastReceiver} with the context, events from service in this process are delivered without broadcast.
      *
      * @param context  Context.
      * @param receiver receiver to be registered with context.
      * @return register intent.
      */
     public static Intent register(Context context, MediaInfoBroadcastReceiver receiver) {
+        receiver.isSubscribed = true;
+        PlayerEventBus.getInstance().subscribe(receiver.eventListener, new Handler(context.getMainLooper()));
         return context.registerReceiver(receiver, getIntentFilter());
     }
 
+    /**
+     * Unregisters receiver registered with {@link #register(Context, MediaInfoBroadcastReceiver)}.
+     *
+     * @param context  Context.
+     * @param receiver registered receiver.
+     */
+    public static void unregister(Context context, MediaInfoBroadcastReceiver receiver) {
+        PlayerEventBus.getInstance().unsubscribe(receiver.eventListener);
+        receiver.isSubscribed = false;
+        context.unregisterReceiver(receiver);
+    }
+
     /**
      * Returns intent filter for this broadcast receiver.
      *
@@ -49,8 +81,12 @@ public abstract class MediaInfoBroadcastReceiver extends BroadcastReceiver {
      */
     @Override
     public void onReceive(Context context, Intent intent) {
+        if (isSubscribed && IntentBroadcaster.isFromCurrentProcess(intent)) {
+            // already delivered by event bus
+            return;
+        }
         try {
-            MediaInfo mediaInfo = (MediaInfo) intent.getSerializableExtra(IntentBroadcaster.MEDIA_INFO_ARG);
+            MediaInfo mediaInfo = intent.getParcelableExtra(IntentBroadcaster.MEDIA_INFO_ARG);
             onMediaInfoChanged(mediaInfo);
         } catch (Exception ex) {
             Log.w(TAG, String.format("Error receiving intent %s", IntentBroadcaster.ACTION_MEDIA_INFO_CHANGE), ex);
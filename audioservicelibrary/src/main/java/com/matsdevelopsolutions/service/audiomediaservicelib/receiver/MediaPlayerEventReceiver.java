@@ -0,0 +1,353 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib.receiver;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.support.annotation.FloatRange;
+import android.support.annotation.IntRange;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.matsdevelopsolutions.service.audiomediaservicelib.AudioMediaService;
+import com.matsdevelopsolutions.service.audiomediaservicelib.IntentBroadcaster;
+import com.matsdevelopsolutions.service.audiomediaservicelib.IntentGenerator;
+import com.matsdevelopsolutions.service.audiomediaservicelib.MediaInfo;
+import com.matsdevelopsolutions.service.audiomediaservicelib.MediaPlayerState;
+import com.matsdevelopsolutions.service.audiomediaservicelib.PlayerEventBus;
+import com.matsdevelopsolutions.service.audiomediaservicelib.PlayerEventListener;
+import com.matsdevelopsolutions.service.audiomediaservicelib.PositionAnchor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Broadcast receiver of all player events - state, media info, position, buffering and volume.
+ * Registers a single intent filter and event bus subscription, override only needed callbacks.
+ * Position subscription is renewed while events are received, it expires after
+ * {@link AudioMediaService#POSITION_SUBSCRIPTION_TIMEOUT} if receiver is unregistered without {@link #unregister}.
+ * Registration doesn't start the service, receiver subscribes when service is running.
+ */
+public abstract class MediaPlayerEventReceiver extends BroadcastReceiver {
+
+    /**
+     * Logging tag.
+     */
+    private static final String TAG = MediaPlayerEventReceiver.class.getSimpleName();
+    /**
+     * Interval of subscription renewals, well within subscription timeout.
+     */
+    private static final long RENEW_INTERVAL = AudioMediaService.POSITION_SUBSCRIPTION_TIMEOUT / 3;
+
+    private static final int EVENT_STATE = 0;
+    private static final int EVENT_BUFFER_PROGRESS = 1;
+    private static final int EVENT_REBUFFERING = 2;
+    private static final int EVENT_MEDIA_INFO = 3;
+    private static final int EVENT_POSITION = 4;
+    private static final int EVENT_POSITION_ANCHOR = 5;
+    private static final int EVENT_VOLUME = 6;
+
+    /**
+     * Event type of every received action.
+     */
+    private static final Map<String, Integer> EVENTS = new HashMap<>();
+
+    static {
+        EVENTS.put(IntentBroadcaster.ACTION_STATE_CHANGE, EVENT_STATE);
+        EVENTS.put(IntentBroadcaster.ACTION_BUFFER_PROGRESS, EVENT_BUFFER_PROGRESS);
+        EVENTS.put(IntentBroadcaster.ACTION_REBUFFERING_CHANGE, EVENT_REBUFFERING);
+        EVENTS.put(IntentBroadcaster.ACTION_MEDIA_INFO_CHANGE, EVENT_MEDIA_INFO);
+        EVENTS.put(IntentBroadcaster.ACTION_CURRENT_POSITION_CHANGE, EVENT_POSITION);
+        EVENTS.put(IntentBroadcaster.ACTION_POSITION_ANCHOR_CHANGE, EVENT_POSITION_ANCHOR);
+        EVENTS.put(IntentBroadcaster.ACTION_VOLUME_CHANGE, EVENT_VOLUME);
+    }
+
+    /**
+     * Last received position anchor.
+     */
+    private volatile PositionAnchor positionAnchor;
+    /**
+     * Listener of in process events, forwards them to receiver callbacks.
+     */
+    private final PlayerEventListener eventListener = new PlayerEventListener() {
+        @Override
+        public void onStateChanged(MediaPlayerState state) {
+            renewSubscription(false);
+            onPlayerStateChanged(state);
+        }
+
+        @Override
+        public void onBufferProgressChanged(int progress) {
+            MediaPlayerEventReceiver.this.onBufferProgressChanged(progress);
+        }
+
+        @Override
+        public void onRebufferingChanged(boolean rebuffering) {
+            MediaPlayerEventReceiver.this.onRebufferingChanged(rebuffering);
+        }
+
+        @Override
+        public void onMediaInfoChanged(MediaInfo mediaInfo) {
+            MediaPlayerEventReceiver.this.onMediaInfoChanged(mediaInfo);
+        }
+
+        @Override
+        public void onPositionChanged(int currentPosition, int duration) {
+            renewSubscription(false);
+            if (currentPosition >= 0 && duration > 0) {
+                onCurrentPositionChanged(currentPosition, duration);
+            }
+        }
+
+        @Override
+        public void onPositionAnchorChanged(PositionAnchor anchor) {
+            renewSubscription(false);
+            positionAnchor = anchor;
+            MediaPlayerEventReceiver.this.onPositionAnchorChanged(anchor);
+        }
+
+        @Override
+        public void onVolumeChanged(float volume) {
+            MediaPlayerEventReceiver.this.onVolumeChanged(volume);
+        }
+    };
+    /**
+     * Flag if receiver gets events through {@link PlayerEventBus}, broadcasts from this process are ignored then.
+     */
+    private volatile boolean isSubscribed = false;
+    /**
+     * Context of subscription, null if receiver doesn't subscribe for position updates.
+     */
+    private Context subscriptionContext;
+    private int subscriptionInterval;
+    private long lastRenewalTime;
+
+    /**
+     * Registers {MediaPlayerEventReceiver} with the context and subscribes for position updates at default interval.
+     *
+     * @param context  Context.
+     * @param receiver receiver to be registered with context.
+     * @return register intent.
+     */
+    public static Intent register(Context context, MediaPlayerEventReceiver receiver) {
+        return register(context, receiver, AudioMediaService.POSITION_UPDATE_INTERVAL_DEFAULT);
+    }
+
+    /**
+     * Registers {MediaPlayerEventReceiver} with the context and subscribes for position updates at given interval,
+     * events from service in this process are delivered without broadcast.
+     *
+     * @param context  Context.
+     * @param receiver receiver to be registered with context.
+     * @param interval position update interval in milliseconds, 0 to receive position anchors only.
+     * @return register intent.
+     */
+    public static Intent register(Context context, MediaPlayerEventReceiver receiver, int interval) {
+        receiver.isSubscribed = true;
+        PlayerEventBus.getInstance().subscribe(receiver.eventListener, new Handler(context.getMainLooper()));
+        Intent intent = context.registerReceiver(receiver, getIntentFilter());
+        if (interval > 0) {
+            receiver.subscriptionContext = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+            receiver.subscriptionInterval = interval;
+            // subscribed now if service is running, otherwise on its first event
+            receiver.lastRenewalTime = SystemClock.elapsedRealtime() - RENEW_INTERVAL;
+            receiver.renewSubscription(false);
+        }
+        return intent;
+    }
+
+    /**
+     * Unregisters receiver from the context and cancels its position updates subscription.
+     *
+     * @param context  Context.
+     * @param receiver registered receiver.
+     */
+    public static void unregister(Context context, MediaPlayerEventReceiver receiver) {
+        PlayerEventBus.getInstance().unsubscribe(receiver.eventListener);
+        receiver.isSubscribed = false;
+        receiver.subscriptionContext = null;
+        context.unregisterReceiver(receiver);
+        // service in other process forgets receiver when its subscription expires
+        PlayerEventBus.getInstance().unsubscribePosition(getSubscriberId(context, receiver));
+    }
+
+    /**
+     * Returns intent filter with all player event actions.
+     *
+     * @return intent filter.
+     */
+    public static IntentFilter getIntentFilter() {
+        IntentFilter filter = new IntentFilter();
+        for (String action : EVENTS.keySet()) {
+            filter.addAction(action);
+        }
+        return filter;
+    }
+
+    /**
+     * Gets subscriber id of receiver instance.
+     *
+     * @param context  Context.
+     * @param receiver receiver
+     * @return subscriber id
+     */
+    private static String getSubscriberId(Context context, MediaPlayerEventReceiver receiver) {
+        return String.format("%s/%s@%x", context.getPackageName(), receiver.getClass().getName(), System.identityHashCode(receiver));
+    }
+
+    /**
+     * Subscribes again when subscription is about to expire, service forgets receivers that stopped receiving.
+     * Subscription is sent only to running service, in this process through {@link PlayerEventBus},
+     * to service in other process when its broadcast was received.
+     *
+     * @param isBroadcast true if renewal is triggered by broadcast of service in other process
+     */
+    private void renewSubscription(boolean isBroadcast) {
+        Context context = subscriptionContext;
+        long now = SystemClock.elapsedRealtime();
+        if (context == null || now - lastRenewalTime < RENEW_INTERVAL) {
+            return;
+        }
+        String subscriberId = getSubscriberId(context, this);
+        if (PlayerEventBus.getInstance().subscribePosition(subscriberId, subscriptionInterval)) {
+            lastRenewalTime = now;
+        } else if (isBroadcast) {
+            lastRenewalTime = now;
+            context.startService(IntentGenerator.createSubscribePositionIntent(context, subscriberId, subscriptionInterval));
+        }
+    }
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (isSubscribed && IntentBroadcaster.isFromCurrentProcess(intent)) {
+            // already delivered by event bus
+            return;
+        }
+        Integer event = EVENTS.get(intent.getAction());
+        if (event == null) {
+            return;
+        }
+        renewSubscription(true);
+        try {
+            switch (event) {
+                case EVENT_STATE:
+                    MediaPlayerState state = IntentBroadcaster.readPlayerState(intent);
+                    if (state != null) {
+                        onPlayerStateChanged(state);
+                    }
+                    break;
+                case EVENT_BUFFER_PROGRESS:
+                    int progress = intent.getIntExtra(IntentBroadcaster.BUFFER_PROGRESS_ARG, -1);
+                    if (progress >= 0) {
+                        onBufferProgressChanged(progress);
+                    }
+                    break;
+                case EVENT_REBUFFERING:
+                    onRebufferingChanged(intent.getBooleanExtra(IntentBroadcaster.REBUFFERING_ARG, false));
+                    break;
+                case EVENT_MEDIA_INFO:
+                    MediaInfo mediaInfo = intent.getParcelableExtra(IntentBroadcaster.MEDIA_INFO_ARG);
+                    onMediaInfoChanged(mediaInfo);
+                    break;
+                case EVENT_POSITION:
+                    int currentPosition = intent.getIntExtra(IntentBroadcaster.CURRENT_POSITION_ARG, -1);
+                    int duration = intent.getIntExtra(IntentBroadcaster.MEDIA_DURATION_ARG, 0);
+                    if (currentPosition >= 0 && duration > 0) {
+                        onCurrentPositionChanged(currentPosition, duration);
+                    }
+                    break;
+                case EVENT_POSITION_ANCHOR:
+                    PositionAnchor anchor = IntentBroadcaster.readPositionAnchor(intent);
+                    positionAnchor = anchor;
+                    onPositionAnchorChanged(anchor);
+                    break;
+                case EVENT_VOLUME:
+                    onVolumeChanged(intent.getFloatExtra(AudioMediaService.VOLUME_VALUE_ARG, 1f));
+                    break;
+                default:
+                    break;
+            }
+        } catch (Exception ex) {
+            Log.w(TAG, String.format("Error receiving intent %s", intent.getAction()), ex);
+        }
+    }
+
+    /**
+     * Gets last received position anchor.
+     *
+     * @return position anchor, null if none was received yet
+     */
+    @Nullable
+    public PositionAnchor getPositionAnchor() {
+        return positionAnchor;
+    }
+
+    /**
+     * Extrapolates current media position from the last position anchor, without any communication with service.
+     *
+     * @return current position in milliseconds, -1 if no anchor was received yet
+     */
+    public int getCurrentPosition() {
+        PositionAnchor anchor = positionAnchor;
+        return anchor != null ? anchor.getPositionAt(SystemClock.elapsedRealtime()) : -1;
+    }
+
+    /**
+     * Called on player state change.
+     *
+     * @param playerState current player state
+     */
+    public void onPlayerStateChanged(MediaPlayerState playerState) {
+    }
+
+    /**
+     * Called on buffer progress change.
+     *
+     * @param progress progress value in 0-100
+     */
+    public void onBufferProgressChanged(@IntRange(from = 0, to = 100) int progress) {
+    }
+
+    /**
+     * Called when started playback stalls on empty buffer and when it continues.
+     *
+     * @param rebuffering true if playback waits for data
+     */
+    public void onRebufferingChanged(boolean rebuffering) {
+    }
+
+    /**
+     * Called when current media changed.
+     *
+     * @param mediaInfo current media
+     */
+    public void onMediaInfoChanged(@Nullable MediaInfo mediaInfo) {
+    }
+
+    /**
+     * Called on periodic position update.
+     *
+     * @param currentPosition current position in milliseconds
+     * @param duration        media duration in milliseconds
+     */
+    public void onCurrentPositionChanged(int currentPosition, int duration) {
+    }
+
+    /**
+     * Called when playback timeline changed - on start, pause, seek, rate change or rebuffering.
+     *
+     * @param anchor new position anchor
+     */
+    public void onPositionAnchorChanged(PositionAnchor anchor) {
+    }
+
+    /**
+     * Called on volume change.
+     *
+     * @param volume volume value
+     */
+    public void onVolumeChanged(@FloatRange(from = 0f, to = 1.0) float volume) {
+    }
+}
@@ -4,28 +4,120 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
 import android.util.Log;
 
+import com.matsdevelopsolutions.service.audiomediaservicelib.AudioMediaService;
 import com.matsdevelopsolutions.service.audiomediaservicelib.IntentBroadcaster;
+import com.matsdevelopsolutions.service.audiomediaservicelib.IntentGenerator;
+import com.matsdevelopsolutions.service.audiomediaservicelib.PlayerEventAdapter;
+import com.matsdevelopsolutions.service.audiomediaservicelib.PlayerEventBus;
+import com.matsdevelopsolutions.service.audiomediaservicelib.PlayerEventListener;
+import com.matsdevelopsolutions.service.audiomediaservicelib.PositionAnchor;
 
 /**
  * Broadcast receiver that receives updates about current media position.
+ * Besides periodic updates it receives position anchors on playback changes,
+ * current position can be extrapolated from the last anchor with {@link #getCurrentPosition()} at any rate.
+ * Position subscription is renewed while events are received, it expires after
+ * {@link AudioMediaService#POSITION_SUBSCRIPTION_TIMEOUT} if receiver is unregistered without {@link #unregister}.
+ * Registration doesn't start the service, receiver subscribes when service is running.
  */
 public abstract class MediaPositionBroadcastReceiver extends BroadcastReceiver {
     /**
      * Logging tag.
      */
     private static final String TAG = MediaPositionBroadcastReceiver.class.getSimpleName();
+    /**
+     * Interval of subscription renewals, well within subscription timeout.
+     */
+    private static final long RENEW_INTERVAL = AudioMediaService.POSITION_SUBSCRIPTION_TIMEOUT / 3;
+
+    /**
+     * Last received position anchor.
+     */
+    private volatile PositionAnchor positionAnchor;
+    /**
+     * Listener of in process events, forwards them to receiver callbacks.
+     */
+    private final PlayerEventListener eventListener = new PlayerEventAdapter() {
+        @Override
+        public void onPositionChanged(int currentPosition, int duration) {
+            renewSubscription(false);
+            if (currentPosition >= 0 && duration > 0) {
+                onCurrentPositionChanged(currentPosition, duration);
+            }
+        }
+
+        @Override
+        public void onPositionAnchorChanged(PositionAnchor anchor) {
+            renewSubscription(false);
+            positionAnchor = anchor;
+            MediaPositionBroadcastReceiver.this.onPositionAnchorChanged(anchor);
+        }
+    };
+    /**
+     * Flag if receiver gets events through {@link PlayerEventBus}, broadcasts from this process are ignored then.
+     */
+    private volatile boolean isSubscribed = false;
+    /**
+     * Context of subscription, null if receiver doesn't subscribe for position updates.
+     */
+    private Context subscriptionContext;
+    private int subscriptionInterval;
+    private long lastRenewalTime;
 
     /**
-     * Registers {MediaPositionBroadcastReceiver} with the context.
+     * Registers {MediaPositionBroadcastReceiver} with the context and subscribes for updates at default interval.
      *
      * @param context  Context.
      * @param receiver receiver to be registered with context.
      * @return register intent.
      */
     public static Intent register(Context context, MediaPositionBroadcastReceiver receiver) {
-        return context.registerReceiver(receiver, getIntentFilter());
+        return register(context, receiver, AudioMediaService.POSITION_UPDATE_INTERVAL_DEFAULT);
+    }
+
+    /**
+     * Registers {MediaPositionBroadcastReceiver} with the context and subscribes for updates at given interval.
+     * Service broadcasts position at the fastest interval of all subscribers, receiver has to be unregistered
+     * with {@link #unregister(Context, MediaPositionBroadcastReceiver)} so updates stop.
+     *
+     * @param context  Context.
+     * @param receiver receiver to be registered with context.
+     * @param interval update interval in milliseconds, e.g. 16 for scrubber or 1000 for widget,
+     *                 0 to receive position anchors only.
+     * @return register intent.
+     */
+    public static Intent register(Context context, MediaPositionBroadcastReceiver receiver, int interval) {
+        receiver.isSubscribed = true;
+        PlayerEventBus.getInstance().subscribe(receiver.eventListener, new Handler(context.getMainLooper()));
+        Intent intent = context.registerReceiver(receiver, getIntentFilter());
+        if (interval > 0) {
+            receiver.subscriptionContext = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+            receiver.subscriptionInterval = interval;
+            // subscribed now if service is running, otherwise on its first event
+            receiver.lastRenewalTime = SystemClock.elapsedRealtime() - RENEW_INTERVAL;
+            receiver.renewSubscription(false);
+        }
+        return intent;
+    }
+
+    /**
+     * Unregisters receiver from the context and cancels its position updates subscription.
+     *
+     * @param context  Context.
+     * @param receiver registered receiver.
+     */
+    public static void unregister(Context context, MediaPositionBroadcastReceiver receiver) {
+        PlayerEventBus.getInstance().unsubscribe(receiver.eventListener);
+        receiver.isSubscribed = false;
+        receiver.subscriptionContext = null;
+        context.unregisterReceiver(receiver);
+        // service in other process forgets receiver when its subscription expires
+        PlayerEventBus.getInstance().unsubscribePosition(getSubscriberId(context, receiver));
     }
 
     /**
@@ -34,7 +126,42 @@ public abstract class MediaPositionBroadcastReceiver extends BroadcastReceiver {
      * @return
      */
     public static IntentFilter getIntentFilter() {
-        return new IntentFilter(IntentBroadcaster.ACTION_CURRENT_POSITION_CHANGE);
+        IntentFilter filter = new IntentFilter(IntentBroadcaster.ACTION_CURRENT_POSITION_CHANGE);
+        filter.addAction(IntentBroadcaster.ACTION_POSITION_ANCHOR_CHANGE);
+        return filter;
+    }
+
+    /**
+     * Gets subscriber id of receiver instance.
+     *
+     * @param context  Context.
+     * @param receiver receiver
+     * @return subscriber id
+     */
+    private static String getSubscriberId(Context context, MediaPositionBroadcastReceiver receiver) {
+        return String.format("%s/%s@%x", context.getPackageName(), receiver.getClass().getName(), System.identityHashCode(receiver));
+    }
+
+    /**
+     * Subscribes again when subscription is about to expire, service forgets receivers that stopped receiving.
+     * Subscription is sent only to running service, in this process through {@link PlayerEventBus},
+     * to service in other process when its broadcast was received.
+     *
+     * @param isBroadcast true if renewal is triggered by broadcast of service in other process
+     */
+    private void renewSubscription(boolean isBroadcast) {
+        Context context = subscriptionContext;
+        long now = SystemClock.elapsedRealtime();
+        if (context == null || now - lastRenewalTime < RENEW_INTERVAL) {
+            return;
+        }
+        String subscriberId = getSubscriberId(context, this);
+        if (PlayerEventBus.getInstance().subscribePosition(subscriberId, subscriptionInterval)) {
+            lastRenewalTime = now;
+        } else if (isBroadcast) {
+            lastRenewalTime = now;
+            context.startService(IntentGenerator.createSubscribePositionIntent(context, subscriberId, subscriptionInterval));
+        }
     }
 
     /**
@@ -45,7 +172,18 @@ public abstract class MediaPositionBroadcastReceiver extends BroadcastReceiver {
      */
     @Override
     public void onReceive(Context context, Intent intent) {
+        if (isSubscribed && IntentBroadcaster.isFromCurrentProcess(intent)) {
+            // already delivered by event bus
+            return;
+        }
         try {
+            renewSubscription(true);
+            if (IntentBroadcaster.ACTION_POSITION_ANCHOR_CHANGE.equals(intent.getAction())) {
+                PositionAnchor anchor = IntentBroadcaster.readPositionAnchor(intent);
+                positionAnchor = anchor;
+                onPositionAnchorChanged(anchor);
+                return;
+            }
             int currentPosition = intent.getIntExtra(IntentBroadcaster.CURRENT_POSITION_ARG, -1);
             int duration = intent.getIntExtra(IntentBroadcaster.MEDIA_DURATION_ARG, 0);
             if (currentPosition >= 0 && duration > 0) {
@@ -58,6 +196,38 @@ public abstract class MediaPositionBroadcastReceiver extends BroadcastReceiver {
         }
     }
 
+    /**
+     * Gets last received position anchor.
+     *
+     * @return position anchor, null if none was received yet
+     */
+    @Nullable
+    public PositionAnchor getPositionAnchor() {
+        return positionAnchor;
+    }
+
+    /**
+     * Extrapolates current media position from the last position anchor, without any communication with service.
+     *
+     * @return current position in milliseconds, -1 if no anchor was received yet
+     */
+    public int getCurrentPosition() {
+        PositionAnchor anchor = positionAnchor;
+        return anchor != null ? anchor.getPositionAt(SystemClock.elapsedRealtime()) : -1;
+    }
+
+    /**
+     * Called when playback timeline changed - on start, pause, seek, rate change or rebuffering.
+     * By default reports anchor position to {@link #onCurrentPositionChanged(int, int)}.
+     *
+     * @param anchor new position anchor
+     */
+    public void onPositionAnchorChanged(PositionAnchor anchor) {
+        if (anchor.getDuration() > 0) {
+            onCurrentPositionChanged(anchor.getPosition(), anchor.getDuration());
+        }
+    }
+
     /**
      * Called when current position event is received.
      *
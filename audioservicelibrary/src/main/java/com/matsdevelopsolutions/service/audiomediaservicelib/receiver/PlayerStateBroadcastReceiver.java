@@ -4,10 +4,14 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.os.Handler;
 import android.util.Log;
 
 import com.matsdevelopsolutions.service.audiomediaservicelib.IntentBroadcaster;
 import com.matsdevelopsolutions.service.audiomediaservicelib.MediaPlayerState;
+import com.matsdevelopsolutions.service.audiomediaservicelib.PlayerEventAdapter;
+import com.matsdevelopsolutions.service.audiomediaservicelib.PlayerEventBus;
+import com.matsdevelopsolutions.service.audiomediaservicelib.PlayerEventListener;
 
 /**
  * Broadcast receiver that receives media player state updates.
@@ -20,16 +24,44 @@ public abstract class PlayerStateBroadcastReceiver extends BroadcastReceiver {
     public static final String TAG = PlayerStateBroadcastReceiver.class.getSimpleName();
 
     /**
-     * Registers {PlayerStateBroadcastReceiver} with the context.
+     * Listener of in process events, forwards them to receiver callbacks.
+     */
+    private final PlayerEventListener eventListener = new PlayerEventAdapter() {
+        @Override
+        public void onStateChanged(MediaPlayerState state) {
+            onPlayerStateChanged(state);
+        }
+    };
+    /**
+     * Flag if receiver gets events through {@link PlayerEventBus}, broadcasts from this process are ignored then.
+     */
+    private volatile boolean isSubscribed = false;
+
+    /**
+     * Registers {PlayerStateBroadcastReceiver} with the context, events from service in this process are delivered without broadcast.
      *
      * @param context  Context.
      * @param receiver receiver to be registered with context.
      * @return register intent.
      */
     public static Intent register(Context context, PlayerStateBroadcastReceiver receiver) {
+        receiver.isSubscribed = true;
+        PlayerEventBus.getInstance().subscribe(receiver.eventListener, new Handler(context.getMainLooper()));
         return context.registerReceiver(receiver, getIntentFilter());
     }
 
+    /**
+     * Unregisters receiver registered with {@link #register(Context, PlayerStateBroadcastReceiver)}.
+     *
+     * @param context  Context.
+     * @param receiver registered receiver.
+     */
+    public static void unregister(Context context, PlayerStateBroadcastReceiver receiver) {
+        PlayerEventBus.getInstance().unsubscribe(receiver.eventListener);
+        receiver.isSubscribed = false;
+        context.unregisterReceiver(receiver);
+    }
+
     /**
      * Returns intent filter for this broadcast receiver.
      *
@@ -41,12 +73,15 @@ public abstract class PlayerStateBroadcastReceiver extends BroadcastReceiver {
 
     @Override
     public void onReceive(Context context, Intent intent) {
-        try {
-            String statusString = intent.getStringExtra(IntentBroadcaster.MEDIA_STATUS_ARG);
-            MediaPlayerState playerState = MediaPlayerState.valueOf(statusString);
+        if (isSubscribed && IntentBroadcaster.isFromCurrentProcess(intent)) {
+            // already delivered by event bus
+            return;
+        }
+        MediaPlayerState playerState = IntentBroadcaster.readPlayerState(intent);
+        if (playerState != null) {
             onPlayerStateChanged(playerState);
-        } catch (Exception ex) {
-            Log.w(TAG, "Error parsing media status change.", ex);
+        } else {
+            Log.w(TAG, "Error parsing media status change.");
         }
     }
 
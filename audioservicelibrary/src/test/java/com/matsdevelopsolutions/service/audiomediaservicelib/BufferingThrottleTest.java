@@ -0,0 +1,46 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BufferingThrottleTest {
+
+    @Test
+    public void publishChangesOnlyTest() {
+        BufferingThrottle throttle = new BufferingThrottle(5, 250);
+        assertTrue(throttle.offer(10, 0));
+        // same and small changes are dropped
+        assertFalse(throttle.offer(10, 1000));
+        assertFalse(throttle.offer(14, 1000));
+        assertEquals(-1, throttle.getPendingDelay(1000));
+        assertTrue(throttle.offer(15, 1000));
+        // full buffer is always published
+        assertTrue(throttle.offer(100, 1001));
+    }
+
+    @Test
+    public void holdBackByIntervalTest() {
+        BufferingThrottle throttle = new BufferingThrottle(5, 250);
+        assertTrue(throttle.offer(10, 0));
+        assertFalse(throttle.offer(20, 100));
+        assertFalse(throttle.offer(30, 200));
+        assertEquals(50, throttle.getPendingDelay(200));
+        assertEquals(30, throttle.flush(250));
+        assertEquals(BufferingThrottle.NO_PROGRESS, throttle.flush(300));
+        assertFalse(throttle.offer(40, 300));
+        // returning to published value drops held back progress
+        assertFalse(throttle.offer(30, 400));
+        assertEquals(BufferingThrottle.NO_PROGRESS, throttle.flush(600));
+    }
+
+    @Test
+    public void resetTest() {
+        BufferingThrottle throttle = new BufferingThrottle(5, 250);
+        assertTrue(throttle.offer(50, 0));
+        throttle.reset();
+        assertTrue(throttle.offer(0, 10));
+    }
+}
@@ -0,0 +1,59 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class CommandLatencyStatsTest {
+
+    private static final long MS = 1000000L;
+
+    @Test
+    public void recordingTest() {
+        CommandLatencyStats stats = new CommandLatencyStats();
+        stats.recordEnqueue(MS);
+        stats.recordEnqueue(MS);
+        stats.recordCommand(4, 3 * MS);
+        stats.recordCommand(6, 7 * MS);
+        stats.recordTick(2 * MS);
+
+        assertEquals(2, stats.getCommandCount());
+        assertEquals(2 * MS, stats.getMainThreadNanos());
+        assertEquals(12 * MS, stats.getPlaybackThreadNanos());
+        assertEquals(7 * MS, stats.getMaxCommandNanos());
+        assertEquals(10 * MS, stats.getMainThreadNanosSaved());
+        assertEquals(2, stats.getCommandLatencies().getCount());
+        assertEquals(5.0, stats.getCommandLatencies().getMeanMillis(), 0.001);
+    }
+
+    @Test
+    public void percentileTest() {
+        CommandLatencyStats stats = new CommandLatencyStats();
+        for (int i = 0; i < 100; i++) {
+            stats.recordCommand(0, (i < 90 ? 3 : 150) * MS);
+        }
+        LatencyHistogram.Snapshot latencies = stats.getCommandLatencies();
+        assertEquals(5.0, latencies.getPercentileMillis(50), 0.001);
+        assertEquals(150.0, latencies.getPercentileMillis(95), 0.001);
+        assertEquals(150 * MS, stats.getMaxCommandNanos());
+    }
+
+    @Test
+    public void resetTest() {
+        CommandLatencyStats stats = new CommandLatencyStats();
+        stats.recordEnqueue(MS);
+        stats.recordCommand(5, 8 * MS);
+        stats.recordTick(MS);
+        stats.reset();
+
+        assertEquals(0, stats.getCommandCount());
+        assertEquals(0, stats.getMainThreadNanos());
+        assertEquals(0, stats.getPlaybackThreadNanos());
+        assertEquals(0, stats.getMaxCommandNanos());
+        assertEquals(0, stats.getCommandLatencies().getCount());
+
+        stats.recordCommand(0, 2 * MS);
+        assertEquals(1, stats.getCommandCount());
+        assertEquals(2 * MS, stats.getMaxCommandNanos());
+    }
+}
@@ -0,0 +1,88 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CommandQueueTest {
+
+    @Test
+    public void seekBurstTest() {
+        CommandQueue queue = new CommandQueue();
+        assertTrue(queue.offer(command(AudioMediaService.ACTION_PLAY, 0, 0f)));
+        for (int i = 0; i < 500; i++) {
+            assertFalse(queue.offer(command(AudioMediaService.ACTION_SEEK, i * 100, 0f)));
+        }
+        assertEquals(2, queue.size());
+        assertEquals(499, queue.getCoalescedCount());
+        assertEquals(AudioMediaService.ACTION_PLAY, queue.poll().action);
+        assertEquals(49900, queue.poll().intValue);
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void seekByDeltaTest() {
+        CommandQueue queue = new CommandQueue();
+        for (int i = 0; i < 100; i++) {
+            queue.offer(command(AudioMediaService.ACTION_SEEK_BY, 1000, 0f));
+        }
+        queue.offer(command(AudioMediaService.ACTION_SEEK_BY, -30000, 0f));
+        assertEquals(1, queue.size());
+        assertEquals(70000, queue.poll().intValue);
+
+        // relative seek after absolute one is added to it
+        queue.offer(command(AudioMediaService.ACTION_SEEK, 5000, 0f));
+        queue.offer(command(AudioMediaService.ACTION_SEEK_BY, 1000, 0f));
+        PlayerCommand seek = queue.poll();
+        assertEquals(AudioMediaService.ACTION_SEEK, seek.action);
+        assertEquals(6000, seek.intValue);
+
+        // deltas that sum to zero cancel out
+        queue.offer(command(AudioMediaService.ACTION_SEEK_BY, 1000, 0f));
+        queue.offer(command(AudioMediaService.ACTION_SEEK_BY, -1000, 0f));
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void volumeLastWinsTest() {
+        CommandQueue queue = new CommandQueue();
+        for (int i = 0; i <= 100; i++) {
+            queue.offer(command(AudioMediaService.ACTION_CHANGE_VOLUME, 0, i / 100f));
+        }
+        assertEquals(1, queue.size());
+        assertEquals(1.0f, queue.poll().floatValue, 0.0001f);
+    }
+
+    @Test
+    public void togglePairsCancelTest() {
+        CommandQueue queue = new CommandQueue();
+        for (int i = 0; i < 300; i++) {
+            queue.offer(command(AudioMediaService.ACTION_PLAY_TOGGLE, 0, 0f));
+        }
+        assertEquals(0, queue.size());
+        queue.offer(command(AudioMediaService.ACTION_PLAY_TOGGLE, 0, 0f));
+        assertEquals(1, queue.size());
+
+        // toggles separated by other command are not merged
+        queue.offer(command(AudioMediaService.ACTION_SEEK, 1000, 0f));
+        queue.offer(command(AudioMediaService.ACTION_PLAY_TOGGLE, 0, 0f));
+        assertEquals(3, queue.size());
+    }
+
+    @Test
+    public void unrelatedCommandsKeptTest() {
+        CommandQueue queue = new CommandQueue();
+        queue.offer(command(AudioMediaService.ACTION_PAUSE, 0, 0f));
+        queue.offer(command(AudioMediaService.ACTION_PAUSE, 0, 0f));
+        queue.offer(command(AudioMediaService.ACTION_STOP, 0, 0f));
+        assertEquals(3, queue.size());
+        assertEquals(0, queue.getCoalescedCount());
+    }
+
+    private static PlayerCommand command(String action, int intValue, float floatValue) {
+        return new PlayerCommand(action, intValue, floatValue, null);
+    }
+}
@@ -1,5 +1,6 @@
 package com.matsdevelopsolutions.service.audiomediaservicelib;
 
+import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 
@@ -10,7 +11,11 @@ import org.robolectric.RobolectricGradleTestRunner;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
 
+import java.util.Arrays;
+import java.util.List;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 /**
  * To work on unit tests, switch the Test Artifact in the Build Variants view.
@@ -52,6 +57,27 @@ public class IntentGenerationTest {
         assertEquals(playIntent.getStringExtra(AudioMediaService.SOURCE_DESC_ARG), mediaInfo.description);
     }
 
+    @Test
+    public void generateEnqueueIntentTest() {
+        MediaInfo mediaInfo = new MediaInfo();
+        mediaInfo.streamUrl = "http://stream.com/next";
+        mediaInfo.title = "Test 2";
+        Intent intent = IntentGenerator.createEnqueueIntent(context, mediaInfo);
+        assertEquals(intent.getComponent().getPackageName(), context.getPackageName());
+        assertEquals(intent.getAction(), AudioMediaService.ACTION_ENQUEUE);
+        assertEquals(intent.getStringExtra(AudioMediaService.SOURCE_URL_ARG), mediaInfo.streamUrl);
+        assertEquals(intent.getStringExtra(AudioMediaService.SOURCE_TITLE_ARG), mediaInfo.title);
+    }
+
+    @Test
+    public void generateSubscribePositionIntentTest() {
+        Intent intent = IntentGenerator.createSubscribePositionIntent(context, "scrubber", 16);
+        assertEquals(intent.getComponent().getPackageName(), context.getPackageName());
+        assertEquals(intent.getAction(), AudioMediaService.ACTION_SUBSCRIBE_POSITION);
+        assertEquals(intent.getStringExtra(AudioMediaService.POSITION_SUBSCRIBER_ID_ARG), "scrubber");
+        assertEquals(intent.getIntExtra(AudioMediaService.POSITION_UPDATE_INTERVAL_ARG, 0), 16);
+    }
+
     @Test
     public void generateMuteToggleIntentTest() {
         Intent intent = IntentGenerator.createToggleMuteIntent(context);
@@ -103,4 +129,29 @@ public class IntentGenerationTest {
         assertEquals(intent.getFloatExtra(AudioMediaService.VOLUME_VALUE_ARG, 0.1f), 0.6f, 0.5f);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void generateBindIntents() {
+        Intent intent = IntentGenerator.createBindIntent(context);
+        assertEquals(intent.getComponent().getPackageName(), context.getPackageName());
+        assertNull(intent.getAction());
+        intent = IntentGenerator.createMessengerBindIntent(context);
+        assertEquals(intent.getComponent().getPackageName(), context.getPackageName());
+        assertEquals(intent.getAction(), AudioMediaService.ACTION_BIND_MESSENGER);
+        intent = IntentGenerator.createMessengerBindIntent(new ComponentName("com.example.player", "com.example.player.PlayerService"));
+        assertEquals(intent.getComponent().getPackageName(), "com.example.player");
+        assertEquals(intent.getAction(), AudioMediaService.ACTION_BIND_MESSENGER);
+    }
+
+    @Test
+    public void generateEnqueueBatchIntent() {
+        MediaInfo mediaInfo = new MediaInfo();
+        mediaInfo.streamUrl = "http://example.com/stream.mp3";
+        Intent intent = IntentGenerator.createEnqueueBatchIntent(context, Arrays.asList(mediaInfo, mediaInfo));
+        assertEquals(intent.getComponent().getPackageName(), context.getPackageName());
+        assertEquals(intent.getAction(), AudioMediaService.ACTION_ENQUEUE_BATCH);
+        List<MediaInfo> decoded = MediaInfoCodec.decode(intent.getByteArrayExtra(AudioMediaService.MEDIA_INFO_BATCH_ARG));
+        assertEquals(2, decoded.size());
+        assertEquals(mediaInfo.streamUrl, decoded.get(1).streamUrl);
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LongIntHashMapTest {
+
+    @Test
+    public void putGetRemoveTest() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        map.put(1, 10);
+        map.put(-1, 20);
+        map.put(Long.MAX_VALUE, 30);
+        map.put(1, 11);
+        assertEquals(3, map.size());
+        assertEquals(11, map.get(1, -1));
+        assertEquals(20, map.get(-1, -1));
+        assertEquals(30, map.get(Long.MAX_VALUE, -1));
+        assertEquals(-1, map.get(2, -1));
+        assertTrue(map.remove(-1));
+        assertFalse(map.remove(-1));
+        assertEquals(-1, map.get(-1, -1));
+        assertEquals(2, map.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void reservedKeyTest() {
+        new LongIntHashMap(4).put(0, 1);
+    }
+
+    @Test
+    public void randomOperationsTest() {
+        Random random = new Random(42);
+        LongIntHashMap map = new LongIntHashMap(16);
+        Map<Long, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 100000; i++) {
+            // small key range gives long probe sequences and many removals
+            long key = random.nextInt(2000) + 1;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key) != null, map.remove(key));
+            } else {
+                map.put(key, i);
+                expected.put(key, i);
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (long key = 1; key <= 2000; key++) {
+            Integer value = expected.get(key);
+            assertEquals(value != null ? value : -1, map.get(key, -1));
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MappedProgressStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void persistProgressTest() throws IOException {
+        File file = new File(folder.getRoot(), "progress.log");
+        MappedProgressStore store = MappedProgressStore.open(file, null, 5000, 0);
+        assertEquals(0, store.getProgress("http://test.stream.url/1"));
+        // more records than initial capacity grows the log
+        for (int i = 0; i < 3000; i++) {
+            store.putProgress("http://test.stream.url/" + i, i);
+        }
+        store.putProgress("http://test.stream.url/1", 4242);
+        assertTrue(store.hasPendingProgress());
+        store.close();
+
+        store = MappedProgressStore.open(file, null, 5000, 0);
+        assertEquals(3000, store.size());
+        assertEquals(3001, store.getRecordCount());
+        assertEquals(4242, store.getProgress("http://test.stream.url/1"));
+        assertEquals(2999, store.getProgress("http://test.stream.url/2999"));
+        store.close();
+    }
+
+    @Test
+    public void compactTest() throws IOException {
+        File file = new File(folder.getRoot(), "progress.log");
+        MappedProgressStore store = MappedProgressStore.open(file, null);
+        for (int i = 0; i < 1000; i++) {
+            store.putProgress("http://test.stream.url/" + (i % 10), i);
+        }
+        store.compact();
+        assertEquals(10, store.getRecordCount());
+        assertEquals(999, store.getProgress("http://test.stream.url/9"));
+        store.putProgress("http://test.stream.url/0", 1);
+        store.close();
+
+        store = MappedProgressStore.open(file, null);
+        assertEquals(11, store.getRecordCount());
+        assertEquals(1, store.getProgress("http://test.stream.url/0"));
+        assertEquals(991, store.getProgress("http://test.stream.url/1"));
+        store.close();
+    }
+
+    @Test
+    public void tornRecordTest() throws IOException {
+        File file = new File(folder.getRoot(), "progress.log");
+        MappedProgressStore store = MappedProgressStore.open(file, null);
+        store.putProgress("http://test.stream.url/1", 100);
+        store.putProgress("http://test.stream.url/2", 200);
+        store.close();
+
+        // damage position of the last record as if the process died while writing it
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        randomAccessFile.seek(2 * MappedProgressStore.RECORD_SIZE + 16);
+        randomAccessFile.writeInt(12345);
+        randomAccessFile.close();
+
+        store = MappedProgressStore.open(file, null);
+        assertEquals(1, store.getRecordCount());
+        assertEquals(100, store.getProgress("http://test.stream.url/1"));
+        assertEquals(0, store.getProgress("http://test.stream.url/2"));
+        store.putProgress("http://test.stream.url/2", 300);
+        assertEquals(300, store.getProgress("http://test.stream.url/2"));
+        store.close();
+    }
+
+    @Test
+    public void batchQueryTest() throws IOException {
+        MappedProgressStore store = MappedProgressStore.open(new File(folder.getRoot(), "progress.log"), null);
+        String[] urls = new String[5];
+        for (int i = 0; i < urls.length; i++) {
+            urls[i] = "http://test.stream.url/" + i;
+        }
+        store.putProgress(urls[3], 300);
+        store.putProgress(urls[1], 100);
+        store.putProgress(urls[4], 400);
+        store.putProgress(urls[3], 310);
+
+        int[] positions = new int[urls.length];
+        store.getProgress(urls, positions);
+        assertArrayEquals(new int[]{0, 100, 0, 310, 400}, positions);
+
+        int[] recent = new int[2];
+        assertEquals(2, store.getRecentlyPlayed(urls, recent));
+        assertArrayEquals(new int[]{3, 4}, recent);
+        recent = new int[5];
+        assertEquals(3, store.getRecentlyPlayed(urls, recent));
+        assertArrayEquals(new int[]{3, 4, 1, 0, 0}, recent);
+        store.close();
+    }
+
+    @Test(timeout = 10000)
+    public void queryWithoutStoreLockTest() throws IOException, InterruptedException {
+        final MappedProgressStore store = MappedProgressStore.open(new File(folder.getRoot(), "progress.log"), null);
+        ProgressQuery query = store.getQuery();
+        String[] urls = new String[3];
+        for (int i = 0; i < urls.length; i++) {
+            urls[i] = "http://test.stream.url/" + i;
+        }
+        store.putProgress(urls[2], 200);
+        store.putProgress(urls[0], 100);
+        store.putProgress(urls[2], 210);
+        store.removeProgress(urls[0]);
+        store.putProgress(urls[1], 110);
+
+        // store is locked as by long flush or compaction
+        final CountDownLatch locked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (store) {
+                    locked.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        });
+        holder.start();
+        locked.await();
+        try {
+            assertEquals(210, query.getProgress(urls[2]));
+            int[] positions = new int[urls.length];
+            query.getProgress(urls, positions);
+            assertArrayEquals(new int[]{0, 110, 210}, positions);
+            int[] recent = new int[3];
+            assertEquals(2, query.getRecentlyPlayed(urls, recent));
+            assertArrayEquals(new int[]{1, 2, 0}, recent);
+        } finally {
+            release.countDown();
+            holder.join();
+        }
+
+        // query never appends records
+        int recordCount = store.getRecordCount();
+        query.getProgress("http://test.stream.url/unknown");
+        assertEquals(recordCount, store.getRecordCount());
+        assertFalse(store.getQuery() instanceof ProgressStore);
+
+        // compaction keeps progress and order visible to queries
+        store.compact();
+        assertEquals(210, query.getProgress(urls[2]));
+        int[] recent = new int[3];
+        assertEquals(2, query.getRecentlyPlayed(urls, recent));
+        assertArrayEquals(new int[]{1, 2, 0}, recent);
+        store.close();
+    }
+
+    @Test
+    public void removeProgressTest() throws IOException {
+        File file = new File(folder.getRoot(), "progress.log");
+        MappedProgressStore store = MappedProgressStore.open(file, null);
+        store.putProgress("http://test.stream.url/1", 100);
+        store.putProgress("http://test.stream.url/2", 200);
+        store.removeProgress("http://test.stream.url/1");
+        store.removeProgress("http://test.stream.url/3");
+        assertEquals(0, store.getProgress("http://test.stream.url/1"));
+        assertEquals(1, store.size());
+        store.close();
+
+        store = MappedProgressStore.open(file, null);
+        assertEquals(1, store.size());
+        assertEquals(0, store.getProgress("http://test.stream.url/1"));
+        assertEquals(200, store.getProgress("http://test.stream.url/2"));
+        store.compact();
+        assertEquals(1, store.getRecordCount());
+        store.close();
+    }
+
+    @Test
+    public void evictLeastRecentlyUpdatedTest() throws IOException {
+        File file = new File(folder.getRoot(), "progress.log");
+        MappedProgressStore store = MappedProgressStore.open(file, null, 3, 0);
+        store.putProgress("http://test.stream.url/1", 100);
+        store.putProgress("http://test.stream.url/2", 200);
+        store.putProgress("http://test.stream.url/3", 300);
+        // update moves url 1 to the most recent
+        store.putProgress("http://test.stream.url/1", 110);
+        store.putProgress("http://test.stream.url/4", 400);
+        assertEquals(3, store.size());
+        assertEquals(0, store.getProgress("http://test.stream.url/2"));
+        assertEquals(110, store.getProgress("http://test.stream.url/1"));
+        store.close();
+
+        store = MappedProgressStore.open(file, null, 3, 0);
+        assertEquals(3, store.size());
+        assertEquals(0, store.getProgress("http://test.stream.url/2"));
+        assertEquals(300, store.getProgress("http://test.stream.url/3"));
+        assertEquals(400, store.getProgress("http://test.stream.url/4"));
+        store.close();
+
+        // lower capacity evicts on open
+        store = MappedProgressStore.open(file, null, 1, 0);
+        assertEquals(1, store.size());
+        assertEquals(400, store.getProgress("http://test.stream.url/4"));
+        store.close();
+    }
+
+    @Test
+    public void evictByAgeTest() throws IOException, InterruptedException {
+        File file = new File(folder.getRoot(), "progress.log");
+        MappedProgressStore store = MappedProgressStore.open(file, null);
+        store.putProgress("http://test.stream.url/1", 100);
+        store.close();
+        Thread.sleep(20);
+
+        store = MappedProgressStore.open(file, null, 10, 10);
+        assertEquals(0, store.size());
+        assertEquals(0, store.getProgress("http://test.stream.url/1"));
+        store.close();
+    }
+
+    @Test
+    public void constantMemoryTest() throws IOException {
+        MappedProgressStore store = MappedProgressStore.open(new File(folder.getRoot(), "progress.log"), null, 100, 0);
+        for (int i = 0; i < 100000; i++) {
+            store.putProgress("http://test.stream.url/" + i, i);
+        }
+        assertEquals(100, store.size());
+        assertEquals(99999, store.getProgress("http://test.stream.url/99999"));
+        store.compact();
+        assertEquals(100, store.getRecordCount());
+        store.close();
+    }
+}
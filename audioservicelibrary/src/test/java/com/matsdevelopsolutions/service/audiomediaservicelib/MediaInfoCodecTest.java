@@ -0,0 +1,102 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MediaInfoCodecTest {
+
+    @Test
+    public void roundTripTest() {
+        MediaInfo first = createMediaInfo(1);
+        MediaInfo second = new MediaInfo();
+        second.streamUrl = "http://example.com/\u017c\u00f3\u0142w.mp3";
+        List<MediaInfo> decoded = MediaInfoCodec.decode(MediaInfoCodec.encode(Arrays.asList(first, second, first)));
+        assertEquals(3, decoded.size());
+        assertMediaInfoEquals(first, decoded.get(0));
+        assertMediaInfoEquals(second, decoded.get(1));
+        assertMediaInfoEquals(first, decoded.get(2));
+        assertNull(decoded.get(1).title);
+        assertEquals(0, MediaInfoCodec.decode(MediaInfoCodec.encode(new ArrayList<MediaInfo>())).size());
+    }
+
+    @Test
+    public void rejectInvalidDataTest() {
+        byte[] data = MediaInfoCodec.encode(Arrays.asList(createMediaInfo(1)));
+        data[0] = MediaInfoCodec.VERSION + 1;
+        try {
+            MediaInfoCodec.decode(data);
+            fail("Other version decoded");
+        } catch (IllegalArgumentException expected) {
+        }
+        data = MediaInfoCodec.encode(Arrays.asList(createMediaInfo(1)));
+        try {
+            MediaInfoCodec.decode(Arrays.copyOf(data, data.length - 1));
+            fail("Truncated data decoded");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void smallerThanSerializableTest() throws IOException {
+        List<MediaInfo> queue = new ArrayList<>();
+        ArrayList<SerializableMediaInfo> serializableQueue = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            MediaInfo mediaInfo = createMediaInfo(i);
+            queue.add(mediaInfo);
+            serializableQueue.add(new SerializableMediaInfo(mediaInfo));
+        }
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(serialized);
+        out.writeObject(serializableQueue);
+        out.close();
+        byte[] encoded = MediaInfoCodec.encode(queue);
+        assertTrue(String.format("encoded %d bytes, serialized %d bytes", encoded.length, serialized.size()),
+                encoded.length * 3 < serialized.size());
+        assertEquals(10000, MediaInfoCodec.decode(encoded).size());
+    }
+
+    private static MediaInfo createMediaInfo(int index) {
+        MediaInfo mediaInfo = new MediaInfo();
+        mediaInfo.title = "Episode " + index;
+        mediaInfo.description = "Podcast";
+        mediaInfo.artUri = "http://example.com/art.jpg";
+        mediaInfo.streamUrl = "http://example.com/episode" + index + ".mp3";
+        return mediaInfo;
+    }
+
+    private static void assertMediaInfoEquals(MediaInfo expected, MediaInfo actual) {
+        assertEquals(expected.title, actual.title);
+        assertEquals(expected.description, actual.description);
+        assertEquals(expected.artUri, actual.artUri);
+        assertEquals(expected.streamUrl, actual.streamUrl);
+    }
+
+    /**
+     * Media info as it was sent before {@link MediaInfoCodec}.
+     */
+    private static class SerializableMediaInfo implements Serializable {
+        final String title;
+        final String description;
+        final String artUri;
+        final String streamUrl;
+
+        SerializableMediaInfo(MediaInfo mediaInfo) {
+            title = mediaInfo.title;
+            description = mediaInfo.description;
+            artUri = mediaInfo.artUri;
+            streamUrl = mediaInfo.streamUrl;
+        }
+    }
+}
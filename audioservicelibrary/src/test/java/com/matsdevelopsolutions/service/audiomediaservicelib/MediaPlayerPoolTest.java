@@ -0,0 +1,148 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 18)
+public class MediaPlayerPoolTest {
+
+    @Test
+    public void acquireCreatesWhenEmptyTest() {
+        FakeFactory factory = new FakeFactory();
+        MediaPlayerPool<FakePlayer> pool = new MediaPlayerPool<>(factory, 2);
+        FakePlayer first = pool.acquire();
+        FakePlayer second = pool.acquire();
+        assertNotSame(first, second);
+        assertEquals(2, factory.created);
+        assertEquals(0, pool.getIdleCount());
+        pool.close();
+    }
+
+    @Test
+    public void fillBoundedBySizeTest() {
+        FakeFactory factory = new FakeFactory();
+        MediaPlayerPool<FakePlayer> pool = new MediaPlayerPool<>(factory, 2);
+        pool.fill();
+        pool.fill();
+        assertEquals(2, pool.getIdleCount());
+        assertEquals(2, factory.created);
+
+        // filled players are taken without creating new ones
+        pool.acquire();
+        pool.acquire();
+        assertEquals(2, factory.created);
+        pool.acquire();
+        assertEquals(3, factory.created);
+        pool.close();
+    }
+
+    @Test
+    public void recycledPlayerReusedTest() throws InterruptedException {
+        FakeFactory factory = new FakeFactory();
+        MediaPlayerPool<FakePlayer> pool = new MediaPlayerPool<>(factory, 1);
+        FakePlayer player = pool.acquire();
+        pool.recycle(player);
+        waitForIdleCount(pool, 1);
+        assertTrue(player.isReset);
+        assertFalse(player.isReleased);
+
+        assertSame(player, pool.acquire());
+        assertEquals(1, factory.created);
+        pool.close();
+    }
+
+    @Test
+    public void recycledOverSizeReleasedTest() throws InterruptedException {
+        FakeFactory factory = new FakeFactory();
+        MediaPlayerPool<FakePlayer> pool = new MediaPlayerPool<>(factory, 1);
+        FakePlayer first = pool.acquire();
+        FakePlayer second = pool.acquire();
+        pool.recycle(first);
+        pool.recycle(second);
+        for (int i = 0; i < 100 && !second.isReleased; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, pool.getIdleCount());
+        assertFalse(first.isReleased);
+        assertTrue(second.isReleased);
+        pool.close();
+    }
+
+    @Test
+    public void brokenPlayerReleasedTest() throws InterruptedException {
+        FakeFactory factory = new FakeFactory();
+        MediaPlayerPool<FakePlayer> pool = new MediaPlayerPool<>(factory, 1);
+        FakePlayer player = pool.acquire();
+        player.isBroken = true;
+        pool.recycle(player);
+        for (int i = 0; i < 100 && !player.isReleased; i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(player.isReleased);
+        assertEquals(0, pool.getIdleCount());
+        pool.close();
+    }
+
+    @Test
+    public void closeReleasesPlayersTest() {
+        FakeFactory factory = new FakeFactory();
+        MediaPlayerPool<FakePlayer> pool = new MediaPlayerPool<>(factory, 1);
+        pool.fill();
+        FakePlayer idle = pool.acquire();
+        pool.recycle(idle);
+        FakePlayer used = pool.acquire();
+        pool.close();
+        assertEquals(0, pool.getIdleCount());
+
+        // players returned or filled after close are released
+        pool.recycle(used);
+        assertTrue(used.isReleased);
+        pool.fill();
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    private static void waitForIdleCount(MediaPlayerPool<FakePlayer> pool, int count) throws InterruptedException {
+        for (int i = 0; i < 100 && pool.getIdleCount() != count; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, pool.getIdleCount());
+    }
+
+    static class FakePlayer {
+        volatile boolean isReset;
+        volatile boolean isReleased;
+        volatile boolean isBroken;
+    }
+
+    static class FakeFactory implements MediaPlayerPool.Factory<FakePlayer> {
+        int created;
+
+        @Override
+        public synchronized FakePlayer createMediaPlayer() {
+            created++;
+            return new FakePlayer();
+        }
+
+        @Override
+        public void resetMediaPlayer(FakePlayer player) {
+            if (player.isBroken) {
+                throw new IllegalStateException("Broken player");
+            }
+            player.isReset = true;
+        }
+
+        @Override
+        public void releaseMediaPlayer(FakePlayer player) {
+            player.isReleased = true;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 18)
+public class MediaProgressPreferencesTest {
+
+    private SharedPreferences sharedPreferences;
+
+    @Before
+    public void startup() {
+        sharedPreferences = RuntimeEnvironment.application.getSharedPreferences("MediaProgressPreferencesTest",
+                Context.MODE_PRIVATE);
+        sharedPreferences.edit().clear().commit();
+    }
+
+    @Test
+    public void legacyProgressEvictedOverCapacityTest() {
+        putLegacyProgress("http://test.stream.url/legacy/1", 100);
+        putLegacyProgress("http://test.stream.url/legacy/2", 200);
+        MediaProgressPreferences store = new MediaProgressPreferences(sharedPreferences, 3, 0);
+        store.putProgress("http://test.stream.url/1", 1000);
+        store.putProgress("http://test.stream.url/2", 2000);
+        store.flush();
+        // legacy progress is evicted before newer progress
+        assertEquals(1, countLegacyProgress());
+        assertEquals(1000, store.getProgress("http://test.stream.url/1"));
+        assertEquals(2000, store.getProgress("http://test.stream.url/2"));
+
+        store.putProgress("http://test.stream.url/3", 3000);
+        store.flush();
+        assertEquals(0, countLegacyProgress());
+        assertFalse(sharedPreferences.contains("LEGACY_TIME"));
+        assertEquals(3000, store.getProgress("http://test.stream.url/3"));
+    }
+
+    @Test
+    public void legacyProgressEvictedByAgeTest() throws InterruptedException {
+        putLegacyProgress("http://test.stream.url/legacy/1", 100);
+        MediaProgressPreferences store = new MediaProgressPreferences(sharedPreferences, 10, 50);
+        store.putProgress("http://test.stream.url/1", 1000);
+        store.flush();
+        // age of legacy progress is counted from the flush that found it
+        assertEquals(1, countLegacyProgress());
+        Thread.sleep(100);
+
+        store.putProgress("http://test.stream.url/2", 2000);
+        store.flush();
+        assertEquals(0, countLegacyProgress());
+        assertEquals(0, store.getQuery().getProgress("http://test.stream.url/legacy/1"));
+        assertEquals(2000, store.getProgress("http://test.stream.url/2"));
+    }
+
+    @Test
+    public void migratedLegacyProgressKeptTest() {
+        putLegacyProgress("http://test.stream.url/legacy/1", 100);
+        putLegacyProgress("http://test.stream.url/legacy/2", 200);
+        MediaProgressPreferences store = new MediaProgressPreferences(sharedPreferences, 1, 0);
+        // query doesn't migrate
+        assertEquals(100, store.getQuery().getProgress("http://test.stream.url/legacy/1"));
+        assertFalse(store.hasPendingProgress());
+
+        assertEquals(100, store.getProgress("http://test.stream.url/legacy/1"));
+        store.flush();
+        assertEquals(0, countLegacyProgress());
+        assertEquals(100, store.getProgress("http://test.stream.url/legacy/1"));
+        assertEquals(0, store.getProgress("http://test.stream.url/legacy/2"));
+    }
+
+    private void putLegacyProgress(String url, int position) {
+        sharedPreferences.edit().putInt("URL_KEY_" + url.hashCode(), position).commit();
+    }
+
+    private int countLegacyProgress() {
+        int count = 0;
+        for (String key : sharedPreferences.getAll().keySet()) {
+            if (key.startsWith("URL_KEY_")) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
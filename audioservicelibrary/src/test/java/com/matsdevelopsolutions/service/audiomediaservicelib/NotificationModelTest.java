@@ -0,0 +1,55 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class NotificationModelTest {
+
+    @Test
+    public void actionOfStateTest() {
+        MediaInfo mediaInfo = createMediaInfo("Test title");
+        assertEquals(NotificationModel.ACTION_PAUSE, NotificationModel.of(mediaInfo, MediaPlayerState.STARTED, null, 0, null, NotificationModel.NO_COLOR).action);
+        assertEquals(NotificationModel.ACTION_PLAY, NotificationModel.of(mediaInfo, MediaPlayerState.PAUSED, null, 0, null, NotificationModel.NO_COLOR).action);
+        assertEquals(NotificationModel.ACTION_PLAY, NotificationModel.of(mediaInfo, MediaPlayerState.PREPARED, null, 0, null, NotificationModel.NO_COLOR).action);
+        assertSame(NotificationModel.HIDDEN, NotificationModel.of(mediaInfo, MediaPlayerState.PREPARING, null, 0, null, NotificationModel.NO_COLOR));
+        assertSame(NotificationModel.HIDDEN, NotificationModel.of(null, MediaPlayerState.STARTED, null, 0, null, NotificationModel.NO_COLOR));
+        assertFalse(NotificationModel.HIDDEN.isVisible());
+        assertTrue(NotificationModel.of(mediaInfo, MediaPlayerState.STARTED, null, 0, null, NotificationModel.NO_COLOR).isVisible());
+    }
+
+    @Test
+    public void visibleChangesTest() {
+        NotificationModel started = NotificationModel.of(createMediaInfo("Test title"), MediaPlayerState.STARTED,
+                AudioMediaService.FLAG_NOTIFICATION_STYLE_NORMAL, AudioMediaService.DEFAULT_NOTIFICATION_FLAG, null, NotificationModel.NO_COLOR);
+        // equal media and state of other instances post nothing
+        assertEquals(started, NotificationModel.of(createMediaInfo("Test title"), MediaPlayerState.STARTED,
+                AudioMediaService.FLAG_NOTIFICATION_STYLE_NORMAL, AudioMediaService.DEFAULT_NOTIFICATION_FLAG, null, NotificationModel.NO_COLOR));
+        assertEquals(started.hashCode(), NotificationModel.of(createMediaInfo("Test title"), MediaPlayerState.STARTED,
+                AudioMediaService.FLAG_NOTIFICATION_STYLE_NORMAL, AudioMediaService.DEFAULT_NOTIFICATION_FLAG, null, NotificationModel.NO_COLOR).hashCode());
+        assertNotEquals(started, NotificationModel.of(createMediaInfo("Other title"), MediaPlayerState.STARTED,
+                AudioMediaService.FLAG_NOTIFICATION_STYLE_NORMAL, AudioMediaService.DEFAULT_NOTIFICATION_FLAG, null, NotificationModel.NO_COLOR));
+        assertNotEquals(started, NotificationModel.of(createMediaInfo("Test title"), MediaPlayerState.PAUSED,
+                AudioMediaService.FLAG_NOTIFICATION_STYLE_NORMAL, AudioMediaService.DEFAULT_NOTIFICATION_FLAG, null, NotificationModel.NO_COLOR));
+        assertNotEquals(started, NotificationModel.of(createMediaInfo("Test title"), MediaPlayerState.STARTED,
+                AudioMediaService.FLAG_NOTIFICATION_STYLE_COMPACT, AudioMediaService.DEFAULT_NOTIFICATION_FLAG, null, NotificationModel.NO_COLOR));
+        // extracted palette color is posted again
+        assertNotEquals(started, NotificationModel.of(createMediaInfo("Test title"), MediaPlayerState.STARTED,
+                AudioMediaService.FLAG_NOTIFICATION_STYLE_NORMAL, AudioMediaService.DEFAULT_NOTIFICATION_FLAG, null, 0xff336699));
+        // hidden states are equal regardless of media
+        assertEquals(NotificationModel.of(createMediaInfo("Test title"), MediaPlayerState.PREPARING, null, 0, null, NotificationModel.NO_COLOR),
+                NotificationModel.of(createMediaInfo("Other title"), MediaPlayerState.STOPPED, null, 0, null, NotificationModel.NO_COLOR));
+    }
+
+    private static MediaInfo createMediaInfo(String title) {
+        MediaInfo mediaInfo = new MediaInfo();
+        mediaInfo.title = title;
+        mediaInfo.description = "Test description";
+        mediaInfo.streamUrl = "http://test.stream.url";
+        return mediaInfo;
+    }
+}
@@ -0,0 +1,114 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PlaybackMetricsTest {
+
+    private static final long MS = 1000000L;
+
+    @Test
+    public void timeToStartedTest() {
+        PlaybackMetrics metrics = new PlaybackMetrics();
+        metrics.markPlayRequested(0);
+        metrics.recordTransition(MediaPlayerState.IDLE, MediaPlayerState.INITIALIZED, 5 * MS);
+        metrics.markPrepareStarted(10 * MS);
+        metrics.recordTransition(MediaPlayerState.INITIALIZED, MediaPlayerState.PREPARING, 10 * MS);
+        metrics.markPrepared(160 * MS);
+        metrics.recordTransition(MediaPlayerState.PREPARING, MediaPlayerState.PREPARED, 160 * MS);
+        metrics.recordStart(3 * MS);
+        metrics.recordTransition(MediaPlayerState.PREPARED, MediaPlayerState.STARTED, 170 * MS);
+
+        PlaybackMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(1, snapshot.getTimeToStarted().getCount());
+        assertEquals(170.0, snapshot.getTimeToStarted().getMaxMillis(), 0.001);
+        assertEquals(150.0, snapshot.getPrepare().getMeanMillis(), 0.001);
+        assertEquals(1, snapshot.getStart().getCount());
+        assertEquals(1, snapshot.getTransitionCount(MediaPlayerState.PREPARED, MediaPlayerState.STARTED));
+        assertEquals(0, snapshot.getTransitionCount(MediaPlayerState.STARTED, MediaPlayerState.PAUSED));
+
+        // resumed playback without play request is not measured
+        metrics.recordTransition(MediaPlayerState.STARTED, MediaPlayerState.PAUSED, 200 * MS);
+        metrics.recordTransition(MediaPlayerState.PAUSED, MediaPlayerState.STARTED, 300 * MS);
+        assertEquals(1, metrics.snapshot().getTimeToStarted().getCount());
+    }
+
+    @Test
+    public void errorCancelsPendingTest() {
+        PlaybackMetrics metrics = new PlaybackMetrics();
+        metrics.markPlayRequested(0);
+        metrics.markPrepareStarted(0);
+        metrics.recordTransition(MediaPlayerState.PREPARING, MediaPlayerState.ERROR, 50 * MS);
+        metrics.markPrepared(60 * MS);
+        metrics.recordTransition(MediaPlayerState.PREPARED, MediaPlayerState.STARTED, 70 * MS);
+
+        PlaybackMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(1, snapshot.getErrorCount());
+        assertEquals(0, snapshot.getPrepare().getCount());
+        assertEquals(0, snapshot.getTimeToStarted().getCount());
+    }
+
+    @Test
+    public void unfinishedRequestDroppedTest() {
+        PlaybackMetrics metrics = new PlaybackMetrics();
+        // prepared without autoplay
+        metrics.markPlayRequested(0);
+        metrics.recordTransition(MediaPlayerState.PREPARING, MediaPlayerState.PREPARED, 100 * MS);
+        metrics.cancelPlayRequest();
+        metrics.recordTransition(MediaPlayerState.PREPARED, MediaPlayerState.STARTED, 60000 * MS);
+        assertEquals(0, metrics.snapshot().getTimeToStarted().getCount());
+
+        // paused before start
+        metrics.markPlayRequested(61000 * MS);
+        metrics.recordTransition(MediaPlayerState.STARTED, MediaPlayerState.PAUSED, 61001 * MS);
+        metrics.recordTransition(MediaPlayerState.PAUSED, MediaPlayerState.STARTED, 90000 * MS);
+        assertEquals(0, metrics.snapshot().getTimeToStarted().getCount());
+
+        // stopped and failed requests
+        metrics.markPlayRequested(91000 * MS);
+        metrics.recordTransition(MediaPlayerState.STARTED, MediaPlayerState.STOPPED, 91001 * MS);
+        metrics.markPlayRequested(92000 * MS);
+        metrics.recordTransition(MediaPlayerState.PREPARING, MediaPlayerState.ERROR, 92001 * MS);
+        metrics.recordTransition(MediaPlayerState.PREPARED, MediaPlayerState.STARTED, 120000 * MS);
+        assertEquals(0, metrics.snapshot().getTimeToStarted().getCount());
+
+        // next request is measured from its own time
+        metrics.markPlayRequested(130000 * MS);
+        metrics.recordTransition(MediaPlayerState.PAUSED, MediaPlayerState.STARTED, 130040 * MS);
+        LatencyHistogram.Snapshot timeToStarted = metrics.snapshot().getTimeToStarted();
+        assertEquals(1, timeToStarted.getCount());
+        assertEquals(40.0, timeToStarted.getMaxMillis(), 0.001);
+    }
+
+    @Test
+    public void seekLatencyTest() {
+        PlaybackMetrics metrics = new PlaybackMetrics();
+        for (int i = 0; i < 100; i++) {
+            metrics.markSeekStarted(i * 1000 * MS);
+            metrics.markSeekComplete(i * 1000 * MS + (i < 90 ? 15 : 700) * MS);
+        }
+        // completion without seek is ignored
+        metrics.markSeekComplete(0);
+
+        LatencyHistogram.Snapshot seek = metrics.snapshot().getSeek();
+        assertEquals(100, seek.getCount());
+        assertEquals(20.0, seek.getPercentileMillis(50), 0.001);
+        assertEquals(700.0, seek.getPercentileMillis(95), 0.001);
+        assertEquals(700.0, seek.getMaxMillis(), 0.001);
+    }
+
+    @Test
+    public void dumpTest() {
+        PlaybackMetrics metrics = new PlaybackMetrics();
+        metrics.recordTransition(MediaPlayerState.PREPARED, MediaPlayerState.STARTED, 0);
+        StringWriter output = new StringWriter();
+        metrics.dump(new PrintWriter(output));
+        assertTrue(output.toString().contains("PREPARED -> STARTED: 1"));
+        assertTrue(output.toString().contains("errors=0"));
+    }
+}
@@ -0,0 +1,231 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PlayerEventBusTest {
+
+    @Test
+    public void dispatchTypedEventsTest() {
+        PlayerEventBus bus = new PlayerEventBus();
+        final List<Object> events = new ArrayList<>();
+        PlayerEventListener listener = new PlayerEventAdapter() {
+            @Override
+            public void onStateChanged(MediaPlayerState state) {
+                events.add(state);
+            }
+
+            @Override
+            public void onPositionChanged(int currentPosition, int duration) {
+                events.add(currentPosition);
+            }
+
+            @Override
+            public void onVolumeChanged(float volume) {
+                events.add(volume);
+            }
+        };
+        assertFalse(bus.hasSubscribers());
+        bus.subscribe(listener);
+        // second subscription of the same listener is ignored
+        bus.subscribe(listener);
+        assertTrue(bus.hasSubscribers());
+
+        bus.dispatchStateChanged(MediaPlayerState.STARTED);
+        bus.dispatchPositionChanged(1500, 60000);
+        bus.dispatchVolumeChanged(0.5f);
+        bus.dispatchBufferProgressChanged(50);
+        assertEquals(3, events.size());
+        assertSame(MediaPlayerState.STARTED, events.get(0));
+        assertEquals(1500, events.get(1));
+        assertEquals(0.5f, events.get(2));
+
+        bus.unsubscribe(listener);
+        assertFalse(bus.hasSubscribers());
+        bus.dispatchStateChanged(MediaPlayerState.PAUSED);
+        assertEquals(3, events.size());
+    }
+
+    @Test
+    public void replayLatestEventsTest() {
+        PlayerEventBus bus = new PlayerEventBus();
+        MediaInfo mediaInfo = new MediaInfo();
+        bus.dispatchStateChanged(MediaPlayerState.PREPARING);
+        bus.dispatchMediaInfoChanged(mediaInfo);
+        bus.dispatchPositionChanged(1000, 60000);
+        bus.dispatchStateChanged(MediaPlayerState.STARTED);
+        final List<Object> events = new ArrayList<>();
+        PlayerEventListener listener = new PlayerEventAdapter() {
+            @Override
+            public void onStateChanged(MediaPlayerState state) {
+                events.add(state);
+            }
+
+            @Override
+            public void onMediaInfoChanged(MediaInfo mediaInfo) {
+                events.add(mediaInfo);
+            }
+
+            @Override
+            public void onPositionChanged(int currentPosition, int duration) {
+                events.add(currentPosition);
+            }
+        };
+        bus.subscribe(listener);
+        // latest of each type, media info first
+        assertEquals(3, events.size());
+        assertSame(mediaInfo, events.get(0));
+        assertSame(MediaPlayerState.STARTED, events.get(1));
+        assertEquals(1000, events.get(2));
+        // no replay for listener already subscribed
+        bus.subscribe(listener);
+        assertEquals(3, events.size());
+    }
+
+    @Test
+    public void stalePositionNotReplayedTest() {
+        PlayerEventBus bus = new PlayerEventBus();
+        final List<Object> events = new ArrayList<>();
+        PlayerEventListener listener = new PlayerEventAdapter() {
+            @Override
+            public void onMediaInfoChanged(MediaInfo mediaInfo) {
+                events.add(mediaInfo);
+            }
+
+            @Override
+            public void onPositionAnchorChanged(PositionAnchor anchor) {
+                events.add(anchor);
+            }
+
+            @Override
+            public void onPositionChanged(int currentPosition, int duration) {
+                events.add(currentPosition);
+            }
+        };
+        // position of previous media is dropped with new media info
+        bus.dispatchPositionChanged(30000, 60000);
+        MediaInfo mediaInfo = new MediaInfo();
+        bus.dispatchMediaInfoChanged(mediaInfo);
+        bus.subscribe(listener);
+        assertEquals(1, events.size());
+        assertSame(mediaInfo, events.get(0));
+        bus.unsubscribe(listener);
+
+        // polled position older than new anchor is dropped
+        events.clear();
+        bus.dispatchPositionChanged(1000, 60000);
+        PositionAnchor anchor = new PositionAnchor(20000, 60000, 500, 1f);
+        bus.dispatchPositionAnchorChanged(anchor);
+        bus.subscribe(listener);
+        assertEquals(2, events.size());
+        assertSame(mediaInfo, events.get(0));
+        assertSame(anchor, events.get(1));
+        bus.unsubscribe(listener);
+
+        // position polled after anchor is replayed last
+        events.clear();
+        bus.dispatchPositionChanged(21000, 60000);
+        bus.subscribe(listener);
+        assertEquals(3, events.size());
+        assertSame(anchor, events.get(1));
+        assertEquals(21000, events.get(2));
+    }
+
+    @Test
+    public void unsubscribeKeepsOthersTest() {
+        PlayerEventBus bus = new PlayerEventBus();
+        CountingListener first = new CountingListener();
+        CountingListener second = new CountingListener();
+        CountingListener third = new CountingListener();
+        bus.subscribe(first);
+        bus.subscribe(second);
+        bus.subscribe(third);
+        bus.unsubscribe(second);
+        bus.dispatchStateChanged(MediaPlayerState.STARTED);
+        assertEquals(1, first.count.get());
+        assertEquals(0, second.count.get());
+        assertEquals(1, third.count.get());
+    }
+
+    @Test
+    public void positionSubscriptionOnlyToRunningServiceTest() {
+        PlayerEventBus bus = new PlayerEventBus();
+        // service is not running
+        assertFalse(bus.subscribePosition("receiver", 1000));
+        assertFalse(bus.unsubscribePosition("receiver"));
+
+        final List<String> subscriptions = new ArrayList<>();
+        bus.setPositionSubscriber(new PlayerEventBus.PositionSubscriber() {
+            @Override
+            public void subscribePosition(String subscriberId, int interval) {
+                subscriptions.add(subscriberId + ":" + interval);
+            }
+
+            @Override
+            public void unsubscribePosition(String subscriberId) {
+                subscriptions.add(subscriberId);
+            }
+        });
+        assertTrue(bus.subscribePosition("receiver", 1000));
+        assertTrue(bus.unsubscribePosition("receiver"));
+        assertEquals(2, subscriptions.size());
+        assertEquals("receiver:1000", subscriptions.get(0));
+        assertEquals("receiver", subscriptions.get(1));
+
+        // service destroyed
+        bus.setPositionSubscriber(null);
+        assertFalse(bus.subscribePosition("receiver", 1000));
+        assertEquals(2, subscriptions.size());
+    }
+
+    @Test
+    public void concurrentSubscribeTest() throws InterruptedException {
+        final PlayerEventBus bus = new PlayerEventBus();
+        final int threadCount = 8;
+        final int perThread = 200;
+        final CountDownLatch done = new CountDownLatch(threadCount);
+        final List<CountingListener> listeners = new ArrayList<>();
+        for (int i = 0; i < threadCount * perThread; i++) {
+            listeners.add(new CountingListener());
+        }
+        for (int t = 0; t < threadCount; t++) {
+            final int offset = t * perThread;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < perThread; i++) {
+                        bus.subscribe(listeners.get(offset + i));
+                        bus.dispatchStateChanged(MediaPlayerState.STARTED);
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+        done.await();
+        for (CountingListener listener : listeners) {
+            listener.count.set(0);
+        }
+        bus.dispatchStateChanged(MediaPlayerState.PAUSED);
+        for (CountingListener listener : listeners) {
+            assertEquals(1, listener.count.get());
+        }
+    }
+
+    private static class CountingListener extends PlayerEventAdapter {
+        final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public void onStateChanged(MediaPlayerState state) {
+            count.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PlayerOperationTest {
+
+    private static final int CHECK_COUNT = 1000000;
+
+    @Test
+    public void allowedStatesTest() {
+        assertTrue(PlayerOperation.START.isAllowed(MediaPlayerState.PAUSED));
+        assertFalse(PlayerOperation.START.isAllowed(MediaPlayerState.IDLE));
+        assertTrue(PlayerOperation.PAUSE.isAllowed(MediaPlayerState.STARTED));
+        assertFalse(PlayerOperation.PAUSE.isAllowed(MediaPlayerState.PAUSED));
+        assertTrue(PlayerOperation.PREPARE.isAllowed(MediaPlayerState.STOPPED));
+        assertFalse(PlayerOperation.SEEK.isAllowed(MediaPlayerState.PREPARING));
+        assertFalse(PlayerOperation.START.isAllowed(null));
+    }
+
+    @Test
+    public void exceptStatesTest() {
+        for (MediaPlayerState state : MediaPlayerState.values()) {
+            assertEquals(state != MediaPlayerState.END && state != MediaPlayerState.ERROR,
+                    PlayerOperation.RESET.isAllowed(state));
+            assertEquals(state != MediaPlayerState.PAUSED && state != MediaPlayerState.STARTED,
+                    PlayerOperation.STOP_SERVICE.isAllowed(state));
+        }
+    }
+
+    @Test
+    public void checkWithoutAllocationTest() {
+        java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+        Assume.assumeTrue(allocationBean.isThreadAllocatedMemorySupported());
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+
+        MediaPlayerState[] states = MediaPlayerState.values();
+        PlayerOperation[] operations = PlayerOperation.values();
+        // warm up
+        int allowed = runChecks(states, operations);
+
+        long threadId = Thread.currentThread().getId();
+        long before = allocationBean.getThreadAllocatedBytes(threadId);
+        allowed += runChecks(states, operations);
+        long allocated = allocationBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue(allowed > 0);
+        // allow for bytes allocated by measurement itself, far below one byte per check
+        assertTrue(String.format("Allocated %d bytes for %d checks", allocated, CHECK_COUNT), allocated < 1024);
+    }
+
+    private static int runChecks(MediaPlayerState[] states, PlayerOperation[] operations) {
+        int allowed = 0;
+        for (int i = 0; i < CHECK_COUNT; i++) {
+            if (operations[i % operations.length].isAllowed(states[i % states.length])) {
+                allowed++;
+            }
+        }
+        return allowed;
+    }
+}
@@ -0,0 +1,91 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+public class PlayerStateRegionTest {
+
+    @Test
+    public void readWrittenStateTest() {
+        PlayerStateRegion region = new PlayerStateRegion();
+        PlayerStateSnapshot snapshot = region.read(new PlayerStateSnapshot());
+        assertNull(snapshot.getPlayerState());
+        assertEquals(1.0f, snapshot.getVolume(), 0f);
+
+        MediaInfo mediaInfo = new MediaInfo();
+        mediaInfo.title = "Test title";
+        region.writeState(MediaPlayerState.STARTED);
+        region.writePositionAnchor(new PositionAnchor(1000, 60000, 500, 1f));
+        region.writeVolume(0.5f);
+        region.writeBufferProgress(40);
+        region.writeMediaInfo(mediaInfo);
+        region.read(snapshot);
+        assertEquals(MediaPlayerState.STARTED, snapshot.getPlayerState());
+        assertEquals(1000, snapshot.getPosition());
+        assertEquals(60000, snapshot.getDuration());
+        assertEquals(1500, snapshot.getPositionAt(1000));
+        assertEquals(0.5f, snapshot.getVolume(), 0f);
+        assertEquals(40, snapshot.getBufferProgress());
+        assertEquals("Test title", snapshot.getMediaInfo().title);
+        assertEquals(region.getSequence(), snapshot.getSequence());
+    }
+
+    @Test
+    public void writtenMediaInfoCopiedTest() {
+        PlayerStateRegion region = new PlayerStateRegion();
+        MediaInfo mediaInfo = new MediaInfo();
+        mediaInfo.title = "Test title";
+        mediaInfo.streamUrl = "http://test.stream.url";
+        region.writeMediaInfo(mediaInfo);
+        PlayerStateSnapshot snapshot = region.read(new PlayerStateSnapshot());
+        assertNotSame(mediaInfo, snapshot.getMediaInfo());
+
+        // changes of written instance are not visible to readers
+        long sequence = region.getSequence();
+        mediaInfo.title = "Changed title";
+        mediaInfo.streamUrl = "http://changed.stream.url";
+        region.read(snapshot);
+        assertEquals(sequence, snapshot.getSequence());
+        assertEquals("Test title", snapshot.getMediaInfo().title);
+        assertEquals("http://test.stream.url", snapshot.getMediaInfo().streamUrl);
+
+        region.writeMediaInfo(null);
+        assertNull(region.read(snapshot).getMediaInfo());
+    }
+
+    @Test
+    public void consistentSnapshotTest() throws InterruptedException {
+        final PlayerStateRegion region = new PlayerStateRegion();
+        final AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                int i = 0;
+                while (running.get()) {
+                    // position and duration are always written equal
+                    region.writePositionAnchor(new PositionAnchor(i, i, i, 1f));
+                    i++;
+                }
+            }
+        });
+        writer.start();
+        PlayerStateSnapshot snapshot = new PlayerStateSnapshot();
+        try {
+            for (int i = 0; i < 100000; i++) {
+                region.read(snapshot);
+                assertEquals(snapshot.getPosition(), snapshot.getDuration());
+                assertEquals(snapshot.getPosition(), snapshot.anchorTime);
+                assertTrue(snapshot.getSequence() % 2 == 0);
+            }
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+    }
+}
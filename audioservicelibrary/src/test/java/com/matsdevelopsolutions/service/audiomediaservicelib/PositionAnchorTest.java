@@ -0,0 +1,33 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class PositionAnchorTest {
+
+    @Test
+    public void extrapolatePlayingTest() {
+        PositionAnchor anchor = new PositionAnchor(10000, 60000, 1000, 1f);
+        assertEquals(10000, anchor.getPositionAt(1000));
+        assertEquals(10016, anchor.getPositionAt(1016));
+        assertEquals(25000, anchor.getPositionAt(16000));
+        // position never passes duration
+        assertEquals(60000, anchor.getPositionAt(100000));
+        // time before anchor keeps anchor position
+        assertEquals(10000, anchor.getPositionAt(500));
+    }
+
+    @Test
+    public void extrapolatePausedTest() {
+        PositionAnchor anchor = new PositionAnchor(10000, 60000, 1000, 0f);
+        assertEquals(10000, anchor.getPositionAt(50000));
+    }
+
+    @Test
+    public void extrapolateRateTest() {
+        PositionAnchor anchor = new PositionAnchor(0, 0, 0, 1.5f);
+        // unknown duration is not limited
+        assertEquals(15000, anchor.getPositionAt(10000));
+    }
+}
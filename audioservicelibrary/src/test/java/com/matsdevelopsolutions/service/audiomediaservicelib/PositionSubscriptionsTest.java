@@ -0,0 +1,75 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PositionSubscriptionsTest {
+
+    private static final long TIMEOUT = 60000;
+
+    @Test
+    public void fastestIntervalTest() {
+        PositionSubscriptions subscriptions = new PositionSubscriptions(TIMEOUT);
+        assertFalse(subscriptions.hasSubscribers());
+        assertEquals(PositionSubscriptions.NO_SUBSCRIBERS, subscriptions.getFastestInterval());
+
+        assertTrue(subscriptions.subscribe("widget", 1000, 0));
+        assertEquals(1000, subscriptions.getFastestInterval());
+        assertTrue(subscriptions.subscribe("scrubber", 16, 0));
+        assertEquals(16, subscriptions.getFastestInterval());
+        // slower subscriber doesn't change rate
+        assertFalse(subscriptions.subscribe("notification", 500, 0));
+        assertEquals(3, subscriptions.size());
+
+        assertTrue(subscriptions.unsubscribe("scrubber"));
+        assertEquals(500, subscriptions.getFastestInterval());
+        assertFalse(subscriptions.unsubscribe("scrubber"));
+        subscriptions.unsubscribe("widget");
+        assertTrue(subscriptions.unsubscribe("notification"));
+        assertFalse(subscriptions.hasSubscribers());
+    }
+
+    @Test
+    public void resubscribeAndClampTest() {
+        PositionSubscriptions subscriptions = new PositionSubscriptions(TIMEOUT);
+        subscriptions.subscribe("scrubber", 1, 0);
+        assertEquals(PositionSubscriptions.MIN_INTERVAL, subscriptions.getFastestInterval());
+        assertTrue(subscriptions.subscribe("scrubber", 250, 0));
+        assertEquals(250, subscriptions.getFastestInterval());
+        assertEquals(1, subscriptions.size());
+    }
+
+    @Test
+    public void expireTest() {
+        PositionSubscriptions subscriptions = new PositionSubscriptions(TIMEOUT);
+        subscriptions.subscribe("scrubber", 16, 0);
+        subscriptions.subscribe("widget", 1000, 0);
+        assertFalse(subscriptions.expire(TIMEOUT - 1));
+
+        // renewed subscription survives
+        subscriptions.subscribe("widget", 1000, 30000);
+        assertTrue(subscriptions.expire(TIMEOUT));
+        assertEquals(1, subscriptions.size());
+        assertEquals(1000, subscriptions.getFastestInterval());
+
+        assertTrue(subscriptions.expire(30000 + TIMEOUT));
+        assertFalse(subscriptions.hasSubscribers());
+        assertFalse(subscriptions.expire(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void intervalsTest() {
+        PositionSubscriptions subscriptions = new PositionSubscriptions(TIMEOUT);
+        subscriptions.subscribe("scrubber", 1, 0);
+        subscriptions.subscribe("widget", 1000, 0);
+        Map<String, Integer> intervals = subscriptions.getIntervals();
+        assertEquals(2, intervals.size());
+        assertEquals(PositionSubscriptions.MIN_INTERVAL, (int) intervals.get("scrubber"));
+        assertEquals(1000, (int) intervals.get("widget"));
+    }
+}
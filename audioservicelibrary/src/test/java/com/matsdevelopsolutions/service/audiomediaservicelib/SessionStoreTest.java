@@ -0,0 +1,95 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SessionStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void snapshotEncodingTest() {
+        MediaInfo mediaInfo = new MediaInfo();
+        mediaInfo.title = "Test title";
+        mediaInfo.streamUrl = "http://test.stream.url";
+        SessionSnapshot snapshot = new SessionSnapshot(mediaInfo, MediaPlayerState.STARTED, 0.5f, 48200,
+                AudioMediaService.FLAG_NOTIFICATION_STYLE_COMPACT, AudioMediaService.DEFAULT_NOTIFICATION_FLAG);
+        SessionSnapshot decoded = SessionSnapshot.decode(snapshot.encode());
+        assertEquals("Test title", decoded.mediaInfo.title);
+        assertNull(decoded.mediaInfo.description);
+        assertEquals("http://test.stream.url", decoded.mediaInfo.streamUrl);
+        assertEquals(MediaPlayerState.STARTED, decoded.state);
+        assertEquals(0.5f, decoded.volume, 0f);
+        assertEquals(48200, decoded.position);
+        assertEquals(AudioMediaService.FLAG_NOTIFICATION_STYLE_COMPACT, decoded.notificationStyle);
+        assertEquals(AudioMediaService.DEFAULT_NOTIFICATION_FLAG, decoded.notificationFlags);
+        assertTrue(decoded.isRestorable());
+
+        SessionSnapshot empty = SessionSnapshot.decode(new SessionSnapshot(null, null, 1f, 0, null, 0).encode());
+        assertNull(empty.mediaInfo);
+        assertNull(empty.state);
+        assertNull(empty.notificationStyle);
+        assertFalse(empty.isRestorable());
+    }
+
+    @Test
+    public void positionSubscriptionsTest() {
+        Map<String, Integer> subscriptions = new HashMap<>();
+        subscriptions.put("app/scrubber", 16);
+        subscriptions.put("app/widget", 1000);
+        SessionSnapshot decoded = SessionSnapshot.decode(new SessionSnapshot(null, MediaPlayerState.PAUSED, 1f, 0,
+                null, 0, subscriptions).encode());
+        assertEquals(subscriptions, decoded.positionSubscriptions);
+        assertEquals(MediaPlayerState.PAUSED, decoded.state);
+
+        // snapshot of previous version has no subscriptions
+        MediaInfo mediaInfo = new MediaInfo();
+        mediaInfo.streamUrl = "http://test.stream.url";
+        byte[] data = new SessionSnapshot(mediaInfo, MediaPlayerState.PAUSED, 1f, 1200, null, 0).encode();
+        byte[] previous = new byte[data.length - 2];
+        // drop subscription count after version, state, volume, position, flags and style presence
+        System.arraycopy(data, 0, previous, 0, 15);
+        System.arraycopy(data, 17, previous, 15, data.length - 17);
+        previous[0] = 1;
+        decoded = SessionSnapshot.decode(previous);
+        assertTrue(decoded.positionSubscriptions.isEmpty());
+        assertEquals(1200, decoded.position);
+        assertEquals("http://test.stream.url", decoded.mediaInfo.streamUrl);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsupportedVersionTest() {
+        byte[] data = new SessionSnapshot(null, MediaPlayerState.PAUSED, 1f, 0, null, 0).encode();
+        data[0] = SessionSnapshot.VERSION + 1;
+        SessionSnapshot.decode(data);
+    }
+
+    @Test
+    public void saveLatestSnapshotTest() {
+        File file = new File(folder.getRoot(), "session");
+        SessionStore store = new SessionStore(file);
+        assertNull(store.load());
+        MediaInfo mediaInfo = new MediaInfo();
+        mediaInfo.streamUrl = "http://test.stream.url";
+        for (int i = 0; i <= 100; i++) {
+            store.save(new SessionSnapshot(mediaInfo, MediaPlayerState.STARTED, 1f, i * 1000, null, 0));
+        }
+        store.close();
+        assertTrue(store.getWriteCount() >= 1);
+
+        SessionSnapshot snapshot = new SessionStore(file).load();
+        assertEquals(100 * 1000, snapshot.position);
+        assertFalse(new SessionSnapshot(mediaInfo, MediaPlayerState.STOPPED, 1f, 0, null, 0).isRestorable());
+    }
+}
@@ -0,0 +1,227 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib.art;
+
+import android.graphics.Bitmap;
+import android.support.annotation.Nullable;
+
+import com.matsdevelopsolutions.service.audiomediaservicelib.BuildConfig;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Caches, failure expiry and closing of {@link AlbumArtLoader}, bitmaps are decoded by Robolectric.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 18)
+public class AlbumArtLoaderCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File cacheDirectory;
+    private String artUri;
+
+    @Before
+    public void startup() throws IOException {
+        cacheDirectory = new File(folder.getRoot(), "art-cache");
+        File art = folder.newFile("art.png");
+        FileOutputStream out = new FileOutputStream(art);
+        try {
+            out.write(new byte[]{1, 2, 3, 4});
+        } finally {
+            out.close();
+        }
+        artUri = art.getPath();
+    }
+
+    @Test
+    public void memoryCacheTest() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        AlbumArtLoader loader = createLoader(executor);
+        assertNull(loader.getCached(artUri));
+
+        // memory miss decodes source
+        List<Bitmap> loads = load(loader, executor, artUri);
+        assertEquals(1, loads.size());
+        Bitmap art = loads.get(0);
+        assertNotNull(art);
+        assertEquals(1, loader.getDecodes());
+        assertSame(art, loader.getCached(artUri));
+
+        // memory hit is delivered without loading, loader threads are stopped already
+        final List<Bitmap> cachedLoads = new ArrayList<>();
+        loader.load(artUri, new AlbumArtLoader.Callback() {
+            @Override
+            public void onArtLoaded(String artUri, @Nullable Bitmap art) {
+                cachedLoads.add(art);
+            }
+        });
+        assertEquals(1, cachedLoads.size());
+        assertSame(art, cachedLoads.get(0));
+        assertEquals(1, loader.getDecodes());
+        assertEquals(0, loader.getDiskHits());
+    }
+
+    @Test
+    public void diskCacheTest() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        AlbumArtLoader loader = createLoader(executor);
+        load(loader, executor, artUri);
+        assertEquals(0, loader.getDiskHits());
+        assertEquals(1, loader.getDecodes());
+        File[] stored = cacheDirectory.listFiles();
+        assertNotNull(stored);
+        assertEquals(1, stored.length);
+
+        // new loader has empty memory, art is decoded from disk cache
+        executor = Executors.newSingleThreadExecutor();
+        loader = createLoader(executor);
+        assertNull(loader.getCached(artUri));
+        List<Bitmap> loads = load(loader, executor, artUri);
+        assertNotNull(loads.get(0));
+        assertEquals(1, loader.getDiskHits());
+        assertEquals(0, loader.getDecodes());
+
+        // disk miss after cached file is gone
+        assertTrue(stored[0].delete());
+        executor = Executors.newSingleThreadExecutor();
+        loader = createLoader(executor);
+        load(loader, executor, artUri);
+        assertEquals(0, loader.getDiskHits());
+        assertEquals(1, loader.getDecodes());
+    }
+
+    @Test
+    public void sampleSizeCoversTargetTest() {
+        assertEquals(1, AlbumArtLoader.calculateInSampleSize(128, 128, 128, 128));
+        assertEquals(1, AlbumArtLoader.calculateInSampleSize(100, 100, 128, 128));
+        assertEquals(1, AlbumArtLoader.calculateInSampleSize(255, 255, 128, 128));
+        assertEquals(2, AlbumArtLoader.calculateInSampleSize(256, 256, 128, 128));
+        assertEquals(16, AlbumArtLoader.calculateInSampleSize(3000, 3000, 128, 128));
+        // both sides cover target after sampling
+        assertEquals(2, AlbumArtLoader.calculateInSampleSize(3000, 400, 128, 128));
+        assertEquals(4, AlbumArtLoader.calculateInSampleSize(1200, 1200, 256, 128));
+    }
+
+    @Test
+    public void failedUriLoadedAgainAfterTtlTest() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        AlbumArtLoader loader = createLoader(200, executor);
+        String missingUri = new File(folder.getRoot(), "missing.png").getPath();
+        RecordingCallback callback = new RecordingCallback();
+
+        loader.load(missingUri, callback);
+        callback.await(1);
+        assertNull(callback.loads.get(0));
+        assertNull(loader.getCached(missingUri));
+        assertEquals(1, callback.loadThreads.size());
+
+        // failure is remembered within TTL, callback gets no art without loading
+        loader.load(missingUri, callback);
+        callback.await(2);
+        assertNull(callback.loads.get(1));
+        assertEquals(1, callback.loadThreads.size());
+
+        // source is loaded again after TTL
+        Thread.sleep(300);
+        loader.load(missingUri, callback);
+        callback.await(3);
+        assertNull(callback.loads.get(2));
+        assertEquals(2, callback.loadThreads.size());
+        assertEquals(0, loader.getDecodes());
+        loader.close();
+    }
+
+    @Test
+    public void loadAfterCloseDroppedTest() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        AlbumArtLoader loader = createLoader(executor);
+        RecordingCallback callback = new RecordingCallback();
+        loader.close();
+        // no RejectedExecutionException, no callback
+        loader.load(artUri, callback);
+        assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+        assertTrue(callback.loads.isEmpty());
+    }
+
+    private AlbumArtLoader createLoader(ExecutorService executor) {
+        return createLoader(60 * 1000, executor);
+    }
+
+    private AlbumArtLoader createLoader(long failureTtl, ExecutorService executor) {
+        return new AlbumArtLoader(RuntimeEnvironment.application, cacheDirectory, 64, 64, 1024 * 1024, 1024 * 1024,
+                failureTtl, executor, new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                runnable.run();
+            }
+        });
+    }
+
+    /**
+     * Loads art and waits until loader threads finish the load.
+     */
+    private static List<Bitmap> load(AlbumArtLoader loader, ExecutorService executor, String artUri)
+            throws InterruptedException {
+        final List<Bitmap> loads = new ArrayList<>();
+        loader.load(artUri, new AlbumArtLoader.Callback() {
+            @Override
+            public synchronized void onArtLoaded(String artUri, @Nullable Bitmap art) {
+                loads.add(art);
+            }
+        });
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        return loads;
+    }
+
+    /**
+     * Records delivered art and loads delivered from loader thread.
+     */
+    private static class RecordingCallback implements AlbumArtLoader.Callback {
+        final List<Bitmap> loads = new ArrayList<>();
+        final List<Thread> loadThreads = new ArrayList<>();
+        private final Thread testThread = Thread.currentThread();
+
+        @Override
+        public synchronized void onArtLoaded(String artUri, @Nullable Bitmap art) {
+            loads.add(art);
+            if (Thread.currentThread() != testThread) {
+                loadThreads.add(Thread.currentThread());
+            }
+            notifyAll();
+        }
+
+        synchronized void await(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (loads.size() < count) {
+                long remaining = deadline - System.currentTimeMillis();
+                assertTrue("Art was not delivered", remaining > 0);
+                wait(remaining);
+            }
+            assertEquals(count, loads.size());
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib.art;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+public class ColorQuantizerTest {
+
+    private static final int DEFAULT_COLOR = 0xff424242;
+
+    @Test
+    public void dominantColorTest() {
+        int[] pixels = new int[100];
+        Arrays.fill(pixels, 0, 60, 0xff2040c0);
+        Arrays.fill(pixels, 60, 100, 0xffc04020);
+        assertEquals(0xff2040c0, ColorQuantizer.getDominantColor(pixels, DEFAULT_COLOR));
+    }
+
+    @Test
+    public void saturatedColorPreferredTest() {
+        int[] pixels = new int[100];
+        // gray background is larger than saturated motive
+        Arrays.fill(pixels, 0, 55, 0xff808080);
+        Arrays.fill(pixels, 55, 100, 0xffd02030);
+        assertEquals(0xffd02030, ColorQuantizer.getDominantColor(pixels, DEFAULT_COLOR));
+        // white and black borders are ignored
+        Arrays.fill(pixels, 0, 80, 0xffffffff);
+        Arrays.fill(pixels, 80, 90, 0xff000000);
+        Arrays.fill(pixels, 90, 100, 0xff3060a0);
+        assertEquals(0xff3060a0, ColorQuantizer.getDominantColor(pixels, DEFAULT_COLOR));
+    }
+
+    @Test
+    public void bucketAverageTest() {
+        // similar colors fall into one bucket and are averaged
+        int[] pixels = {0xff204080, 0xff224284, 0xff20408c, 0xff224288};
+        assertEquals(0xff214186, ColorQuantizer.getDominantColor(pixels, DEFAULT_COLOR));
+    }
+
+    @Test
+    public void transparentPixelsIgnoredTest() {
+        int[] pixels = new int[100];
+        Arrays.fill(pixels, 0, 90, 0x00ff0000);
+        Arrays.fill(pixels, 90, 100, 0xff20a040);
+        assertEquals(0xff20a040, ColorQuantizer.getDominantColor(pixels, DEFAULT_COLOR));
+        Arrays.fill(pixels, 0x10ffffff);
+        assertEquals(DEFAULT_COLOR, ColorQuantizer.getDominantColor(pixels, DEFAULT_COLOR));
+        assertEquals(DEFAULT_COLOR, ColorQuantizer.getDominantColor(new int[0], DEFAULT_COLOR));
+    }
+}
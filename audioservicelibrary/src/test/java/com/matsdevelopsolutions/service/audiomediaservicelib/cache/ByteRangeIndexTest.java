@@ -0,0 +1,67 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib.cache;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ByteRangeIndexTest {
+
+    @Test
+    public void mergeRangesTest() {
+        ByteRangeIndex index = new ByteRangeIndex();
+        index.add(0, 10);
+        index.add(20, 30);
+        index.add(40, 50);
+        assertEquals(3, index.getRangeCount());
+        assertEquals(30, index.getCoveredBytes());
+
+        // adjacent range merges
+        index.add(10, 15);
+        assertEquals(3, index.getRangeCount());
+        assertEquals(15, index.getCachedEnd(0));
+
+        // range covering two gaps merges three ranges
+        index.add(12, 45);
+        assertEquals(1, index.getRangeCount());
+        assertEquals(50, index.getCoveredBytes());
+        assertTrue(index.contains(0, 50));
+    }
+
+    @Test
+    public void holesTest() {
+        ByteRangeIndex index = new ByteRangeIndex();
+        index.add(100, 200);
+        index.add(300, 400);
+        assertEquals(50, index.getCachedEnd(50));
+        assertEquals(200, index.getCachedEnd(150));
+        assertEquals(100, index.getNextCachedStart(0));
+        assertEquals(300, index.getNextCachedStart(200));
+        assertEquals(350, index.getNextCachedStart(350));
+        assertEquals(Long.MAX_VALUE, index.getNextCachedStart(400));
+        assertFalse(index.contains(150, 350));
+    }
+
+    @Test
+    public void writeAndReadTest() throws IOException {
+        ByteRangeIndex index = new ByteRangeIndex();
+        for (int i = 0; i < 10; i++) {
+            index.add(i * 100, i * 100 + 50);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.writeTo(new DataOutputStream(bytes));
+
+        ByteRangeIndex restored = new ByteRangeIndex();
+        restored.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(10, restored.getRangeCount());
+        assertEquals(500, restored.getCoveredBytes());
+        assertEquals(950, restored.getCachedEnd(920));
+    }
+}
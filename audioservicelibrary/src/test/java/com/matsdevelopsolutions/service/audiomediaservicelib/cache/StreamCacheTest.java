@@ -0,0 +1,106 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib.cache;
+
+import com.matsdevelopsolutions.service.audiomediaservicelib.BuildConfig;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 18)
+public class StreamCacheTest {
+
+    File directory;
+
+    @Before
+    public void startup() throws IOException {
+        directory = File.createTempFile("stream-cache", "");
+        directory.delete();
+    }
+
+    @After
+    public void cleanup() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void writeAndRestoreTest() throws IOException {
+        StreamCache cache = new StreamCache(directory, 1000);
+        assertFalse(cache.contains("http://test/a.mp3"));
+        store(cache, "http://test/a.mp3", 100);
+        assertTrue(cache.contains("http://test/a.mp3"));
+        assertEquals(100, cache.getSize());
+    }
+
+    @Test
+    public void leastRecentlyUsedEvictionTest() throws IOException {
+        StreamCache cache = new StreamCache(directory, 250);
+        store(cache, "http://test/a.mp3", 100);
+        store(cache, "http://test/b.mp3", 100);
+        // a is used, so b is least recently used
+        cache.close(cache.open("http://test/a.mp3"));
+        store(cache, "http://test/c.mp3", 100);
+
+        assertTrue(cache.contains("http://test/a.mp3"));
+        assertFalse(cache.contains("http://test/b.mp3"));
+        assertTrue(cache.contains("http://test/c.mp3"));
+        assertEquals(200, cache.getSize());
+        assertEquals(1, cache.getStats().getEvictionCount());
+    }
+
+    @Test
+    public void openEntryNotEvictedTest() throws IOException {
+        StreamCache cache = new StreamCache(directory, 150);
+        CacheEntry entry = cache.open("http://test/a.mp3");
+        cache.setContentInfo(entry, 100, "audio/mpeg");
+        cache.write(entry, 0, new byte[100], 0, 100);
+        store(cache, "http://test/b.mp3", 100);
+
+        assertTrue(entry.isComplete());
+        assertFalse(cache.contains("http://test/b.mp3"));
+        cache.close(entry);
+        assertTrue(cache.contains("http://test/a.mp3"));
+    }
+
+    @Test
+    public void restoreEntriesTest() throws IOException {
+        StreamCache cache = new StreamCache(directory, 1000);
+        store(cache, "http://test/a.mp3", 100);
+        CacheEntry partial = cache.open("http://test/b.mp3");
+        cache.setContentInfo(partial, 100, "audio/mpeg");
+        cache.write(partial, 50, new byte[10], 0, 10);
+        cache.close(partial);
+
+        StreamCache restoredCache = new StreamCache(directory, 1000);
+        assertTrue(restoredCache.contains("http://test/a.mp3"));
+        assertFalse(restoredCache.contains("http://test/b.mp3"));
+        assertEquals(110, restoredCache.getSize());
+        CacheEntry restored = restoredCache.open("http://test/b.mp3");
+        assertEquals(100, restored.getContentLength());
+        assertEquals(60, restored.getCachedEnd(50));
+        restoredCache.close(restored);
+    }
+
+    private void store(StreamCache cache, String url, int size) throws IOException {
+        CacheEntry entry = cache.open(url);
+        cache.setContentInfo(entry, size, "audio/mpeg");
+        cache.write(entry, 0, new byte[size], 0, size);
+        cache.close(entry);
+    }
+}
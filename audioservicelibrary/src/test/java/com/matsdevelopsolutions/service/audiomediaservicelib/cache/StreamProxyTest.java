@@ -0,0 +1,223 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib.cache;
+
+import com.matsdevelopsolutions.service.audiomediaservicelib.BuildConfig;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 18)
+public class StreamProxyTest {
+
+    static final int CONTENT_SIZE = 256 * 1024;
+
+    byte[] content;
+    File directory;
+    TestHttpServer origin;
+    StreamProxy proxy;
+
+    @Before
+    public void startup() throws IOException {
+        content = new byte[CONTENT_SIZE];
+        new Random(7).nextBytes(content);
+        origin = new TestHttpServer(content);
+        origin.start();
+        directory = File.createTempFile("stream-proxy", "");
+        directory.delete();
+        proxy = new StreamProxy(new StreamCache(directory, 10 * CONTENT_SIZE));
+        proxy.start();
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        proxy.stop();
+        origin.stop();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void replayServedFromCacheTest() throws Exception {
+        String url = origin.getUrl("track.mp3");
+        assertArrayEquals(content, fetch(proxy.getProxyUrl(url), null));
+        waitForCacheEntry(url);
+
+        assertArrayEquals(content, fetch(proxy.getProxyUrl(url), null));
+        assertEquals(1, origin.getRequestCount());
+        CacheStats stats = proxy.getCache().getStats();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(1, stats.getMissCount());
+        assertEquals(CONTENT_SIZE, stats.getBytesSaved());
+        assertEquals(CONTENT_SIZE, stats.getBytesDownloaded());
+    }
+
+    @Test
+    public void rangeServedFromCacheTest() throws Exception {
+        String url = origin.getUrl("track.mp3");
+        fetch(proxy.getProxyUrl(url), null);
+        waitForCacheEntry(url);
+
+        byte[] range = fetch(proxy.getProxyUrl(url), "bytes=1000-");
+        assertArrayEquals(Arrays.copyOfRange(content, 1000, CONTENT_SIZE), range);
+        assertEquals(1, origin.getRequestCount());
+    }
+
+    @Test
+    public void uncachedRangePassedToOriginTest() throws Exception {
+        String url = origin.getUrl("track.mp3");
+        byte[] range = fetch(proxy.getProxyUrl(url), "bytes=1000-1999");
+        assertArrayEquals(Arrays.copyOfRange(content, 1000, 2000), range);
+        assertEquals(1, origin.getRequestCount());
+    }
+
+    @Test
+    public void seekBackServedFromCachedRangesTest() throws Exception {
+        String url = origin.getUrl("track.mp3");
+        fetch(proxy.getProxyUrl(url), "bytes=0-9999");
+        long servedByOrigin = origin.getBytesServed();
+
+        // only the hole after first range is fetched from origin
+        byte[] range = fetch(proxy.getProxyUrl(url), "bytes=5000-19999");
+        assertArrayEquals(Arrays.copyOfRange(content, 5000, 20000), range);
+        assertEquals(10000, origin.getBytesServed() - servedByOrigin);
+
+        // seek back into played audio doesn't reach origin
+        int requests = origin.getRequestCount();
+        range = fetch(proxy.getProxyUrl(url), "bytes=2000-15000");
+        assertArrayEquals(Arrays.copyOfRange(content, 2000, 15001), range);
+        assertEquals(requests, origin.getRequestCount());
+        assertEquals(1, proxy.getCache().getStats().getHitCount());
+    }
+
+    @Test
+    public void unregisteredRequestsRejectedTest() throws Exception {
+        String url = origin.getUrl("track.mp3");
+        String proxyUrl = proxy.getProxyUrl(url);
+        String base = proxyUrl.substring(0, proxyUrl.indexOf('/', "http://".length()));
+        // origin url in path is not proxied
+        assertEquals(HttpURLConnection.HTTP_NOT_FOUND, getResponseCode(base + "/" + URLEncoder.encode(url, "UTF-8")));
+        // registered key without session token
+        String key = proxyUrl.substring(proxyUrl.lastIndexOf('/') + 1);
+        assertEquals(HttpURLConnection.HTTP_NOT_FOUND, getResponseCode(base + "/0123456789abcdef0123456789abcdef/" + key));
+        // session token with unregistered key
+        String tokenPath = proxyUrl.substring(0, proxyUrl.lastIndexOf('/') + 1);
+        assertEquals(HttpURLConnection.HTTP_NOT_FOUND, getResponseCode(tokenPath + StreamCache.keyFor(origin.getUrl("other.mp3"))));
+        assertEquals(0, origin.getRequestCount());
+        assertEquals(HttpURLConnection.HTTP_OK, getResponseCode(proxyUrl));
+    }
+
+    @Test
+    public void stalledOriginDroppedTest() throws Exception {
+        ServerSocket stalledOrigin = new ServerSocket(0, 8, InetAddress.getByName("127.0.0.1"));
+        StreamProxy timeoutProxy = new StreamProxy(proxy.getCache(), 200, 4);
+        timeoutProxy.start();
+        try {
+            String url = String.format("http://127.0.0.1:%d/track.mp3", stalledOrigin.getLocalPort());
+            HttpURLConnection connection = (HttpURLConnection) new URL(timeoutProxy.getProxyUrl(url)).openConnection();
+            connection.setReadTimeout(5000);
+            long startTime = System.currentTimeMillis();
+            try {
+                connection.getResponseCode();
+                fail("Stalled origin response was served");
+            } catch (IOException e) {
+                // proxy closed connection after origin read timeout
+                assertTrue(System.currentTimeMillis() - startTime < 5000);
+            } finally {
+                connection.disconnect();
+            }
+        } finally {
+            timeoutProxy.stop();
+            stalledOrigin.close();
+        }
+    }
+
+    @Test
+    public void idleClientsDroppedAndConnectionsBoundedTest() throws Exception {
+        StreamProxy timeoutProxy = new StreamProxy(proxy.getCache(), 300, 1);
+        timeoutProxy.start();
+        try {
+            String proxyUrl = timeoutProxy.getProxyUrl(origin.getUrl("track.mp3"));
+            URL url = new URL(proxyUrl);
+            // client that sends no request takes the only connection
+            Socket idleClient = new Socket(url.getHost(), url.getPort());
+            Thread.sleep(100);
+            Socket rejectedClient = new Socket(url.getHost(), url.getPort());
+            rejectedClient.setSoTimeout(5000);
+            assertEquals(-1, rejectedClient.getInputStream().read());
+            rejectedClient.close();
+
+            idleClient.setSoTimeout(5000);
+            assertEquals(-1, idleClient.getInputStream().read());
+            idleClient.close();
+            // connection is free again
+            assertArrayEquals(content, fetch(proxyUrl, null));
+        } finally {
+            timeoutProxy.stop();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void localUrlNotRegisteredTest() {
+        proxy.getProxyUrl("file:///data/local/track.mp3");
+    }
+
+    private static int getResponseCode(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private void waitForCacheEntry(String url) throws InterruptedException {
+        for (int i = 0; i < 100 && !proxy.getCache().contains(url); i++) {
+            Thread.sleep(20);
+        }
+        assertTrue(proxy.getCache().contains(url));
+    }
+
+    static byte[] fetch(String url, String range) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        if (range != null) {
+            connection.setRequestProperty("Range", range);
+        }
+        InputStream in = connection.getInputStream();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int count;
+        while ((count = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, count);
+        }
+        in.close();
+        connection.disconnect();
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,118 @@
+package com.matsdevelopsolutions.service.audiomediaservicelib.cache;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local HTTP stand-in for remote media server, serves single content with byte range support.
+ */
+class TestHttpServer {
+
+    private static final Pattern RANGE_PATTERN = Pattern.compile("bytes=(\\d+)-(\\d*)");
+
+    private final byte[] content;
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final AtomicLong bytesServed = new AtomicLong();
+    private ServerSocket serverSocket;
+    private volatile boolean running;
+
+    TestHttpServer(byte[] content) {
+        this.content = content;
+    }
+
+    void start() throws IOException {
+        serverSocket = new ServerSocket(0, 8, InetAddress.getByName("127.0.0.1"));
+        running = true;
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (running) {
+                    try {
+                        final Socket socket = serverSocket.accept();
+                        new Thread(new Runnable() {
+                            @Override
+                            public void run() {
+                                handle(socket);
+                            }
+                        }).start();
+                    } catch (IOException e) {
+                        // closed
+                    }
+                }
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void stop() throws IOException {
+        running = false;
+        serverSocket.close();
+    }
+
+    String getUrl(String path) {
+        return String.format("http://127.0.0.1:%d/%s", serverSocket.getLocalPort(), path);
+    }
+
+    int getRequestCount() {
+        return requestCount.get();
+    }
+
+    long getBytesServed() {
+        return bytesServed.get();
+    }
+
+    private void handle(Socket socket) {
+        try {
+            requestCount.incrementAndGet();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "ISO-8859-1"));
+            reader.readLine();
+            int start = 0;
+            int end = content.length - 1;
+            boolean partial = false;
+            String header;
+            while ((header = reader.readLine()) != null && header.length() > 0) {
+                if (header.toLowerCase().startsWith("range:")) {
+                    Matcher matcher = RANGE_PATTERN.matcher(header.substring(6).trim());
+                    if (matcher.matches()) {
+                        partial = true;
+                        start = Integer.parseInt(matcher.group(1));
+                        if (matcher.group(2).length() > 0) {
+                            end = Math.min(end, Integer.parseInt(matcher.group(2)));
+                        }
+                    }
+                }
+            }
+            OutputStream out = socket.getOutputStream();
+            StringBuilder headers = new StringBuilder();
+            headers.append(partial ? "HTTP/1.1 206 Partial Content\r\n" : "HTTP/1.1 200 OK\r\n");
+            headers.append("Content-Type: audio/mpeg\r\n");
+            headers.append("Content-Length: ").append(end - start + 1).append("\r\n");
+            if (partial) {
+                headers.append(String.format("Content-Range: bytes %d-%d/%d\r\n", start, end, content.length));
+            }
+            headers.append("Connection: close\r\n\r\n");
+            out.write(headers.toString().getBytes("ISO-8859-1"));
+            out.write(content, start, end - start + 1);
+            out.flush();
+            bytesServed.addAndGet(end - start + 1);
+        } catch (IOException e) {
+            // client closed
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+}